@@ -0,0 +1,256 @@
+package com.archeologist.analytics;
+
+import java.util.*;
+
+/**
+ * Sparse matrix of how often pairs of files change in the same commit, for coupling analysis.
+ * <p>
+ * Paths are interned to dense int ids; per-file change counts live in an {@code int[]} and pair counts in an
+ * open-addressing {@code long -> int} table keyed by the two ids, so nothing is boxed per pair. The table never
+ * holds more than {@code maxPairs} pairs: when it fills up, pairs seen at most {@code floor} times are dropped
+ * and the floor is raised (lossy counting), so memory stays fixed whatever the history size and any pair
+ * reported with support above {@link #pruneFloor()} is undercounted by at most that floor.
+ * Commits touching more than {@code maxFilesPerCommit} files (bulk renames, reformatting) are skipped, as they
+ * say little about coupling and would add pairs quadratically.
+ */
+public class CoChangeMatrix {
+
+    @FunctionalInterface
+    public interface PartnerVisitor {
+        void visit(String path, String partner, int support, double confidence);
+    }
+
+    private static final long EMPTY = -1L;
+
+    private final int maxPairs;
+    private final int maxFilesPerCommit;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> paths = new ArrayList<>();
+    private int[] changes = new int[1024];
+
+    private long[] keys;
+    private int[] counts;
+    private int mask;
+    private int pairCount;
+    private int floor;
+
+    private int commits;
+    private int skippedCommits;
+
+    public CoChangeMatrix(int maxPairs, int maxFilesPerCommit) {
+        this.maxPairs = maxPairs;
+        this.maxFilesPerCommit = maxFilesPerCommit;
+        int capacity = Integer.highestOneBit(Math.max(16, maxPairs * 2 - 1)) << 1;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    public void addCommit(Collection<String> commitPaths) {
+        if (commitPaths.size() > maxFilesPerCommit) {
+            skippedCommits++;
+            return;
+        }
+        int[] fileIds = new int[commitPaths.size()];
+        int n = 0;
+        for (String path : commitPaths) {
+            fileIds[n++] = intern(path);
+        }
+        Arrays.sort(fileIds);
+
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (unique == 0 || fileIds[unique - 1] != fileIds[i]) {
+                fileIds[unique++] = fileIds[i];
+            }
+        }
+        commits++;
+        for (int i = 0; i < unique; i++) {
+            changes[fileIds[i]]++;
+            for (int j = i + 1; j < unique; j++) {
+                increment(((long) fileIds[i] << 32) | fileIds[j]);
+            }
+        }
+    }
+
+    /**
+     * Reports, for every file, up to {@code k} partners with at least {@code minSupport} shared commits and a
+     * confidence (shared commits / commits of the file) of at least {@code minConfidence}, best first.
+     */
+    public void forEachTopPartners(int k, int minSupport, double minConfidence, PartnerVisitor visitor) {
+        int files = paths.size();
+        // One bounded min-heap per file, flattened into primitive arrays
+        int[] heapPartner = new int[files * k];
+        int[] heapSupport = new int[files * k];
+        float[] heapScore = new float[files * k];
+        int[] heapSize = new int[files];
+
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == EMPTY || counts[slot] < minSupport) {
+                continue;
+            }
+            int a = (int) (keys[slot] >>> 32);
+            int b = (int) keys[slot];
+            int support = counts[slot];
+            offer(a, b, support, (float) support / changes[a], k, minConfidence, heapPartner, heapSupport, heapScore, heapSize);
+            offer(b, a, support, (float) support / changes[b], k, minConfidence, heapPartner, heapSupport, heapScore, heapSize);
+        }
+
+        Integer[] order = new Integer[k];
+        for (int file = 0; file < files; file++) {
+            int size = heapSize[file];
+            int base = file * k;
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, 0, size, (x, y) -> Float.compare(heapScore[base + y], heapScore[base + x]));
+            for (int i = 0; i < size; i++) {
+                int entry = base + order[i];
+                visitor.visit(paths.get(file), paths.get(heapPartner[entry]), heapSupport[entry], heapScore[entry]);
+            }
+        }
+    }
+
+    public int fileCount() {
+        return paths.size();
+    }
+
+    public int pairCount() {
+        return pairCount;
+    }
+
+    public int commitCount() {
+        return commits;
+    }
+
+    public int skippedCommits() {
+        return skippedCommits;
+    }
+
+    /**
+     * Highest pair count that may have been discarded to stay within the memory budget; 0 when counts are exact.
+     */
+    public int pruneFloor() {
+        return floor;
+    }
+
+    private int intern(String path) {
+        Integer id = ids.get(path);
+        if (id == null) {
+            id = paths.size();
+            ids.put(path, id);
+            paths.add(path);
+            if (id == changes.length) {
+                changes = Arrays.copyOf(changes, changes.length * 2);
+            }
+        }
+        return id;
+    }
+
+    private void increment(long key) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = 1;
+        if (++pairCount > maxPairs) {
+            prune();
+        }
+    }
+
+    /**
+     * Drops pairs at or below the floor, raising it only while that does not bring the table down to three
+     * quarters of the budget.
+     */
+    private void prune() {
+        int threshold = Math.max(floor, 1);
+        while (true) {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length];
+            counts = new int[oldCounts.length];
+            Arrays.fill(keys, EMPTY);
+            pairCount = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY && oldCounts[i] > threshold) {
+                    int slot = slot(oldKeys[i]);
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                    pairCount++;
+                }
+            }
+            if (pairCount <= maxPairs * 3L / 4) {
+                break;
+            }
+            threshold++;
+        }
+        floor = threshold;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static void offer(int file, int partner, int support, float score, int k, double minConfidence,
+                              int[] heapPartner, int[] heapSupport, float[] heapScore, int[] heapSize) {
+        if (score < minConfidence) {
+            return;
+        }
+        int base = file * k;
+        int size = heapSize[file];
+        if (size < k) {
+            heapSize[file] = size + 1;
+            int i = size;
+            // Sift up
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (heapScore[base + parent] <= score) {
+                    break;
+                }
+                heapPartner[base + i] = heapPartner[base + parent];
+                heapSupport[base + i] = heapSupport[base + parent];
+                heapScore[base + i] = heapScore[base + parent];
+                i = parent;
+            }
+            heapPartner[base + i] = partner;
+            heapSupport[base + i] = support;
+            heapScore[base + i] = score;
+            return;
+        }
+        if (score <= heapScore[base]) {
+            return;
+        }
+        // Replace the weakest partner and sift down
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= k) {
+                break;
+            }
+            if (child + 1 < k && heapScore[base + child + 1] < heapScore[base + child]) {
+                child++;
+            }
+            if (heapScore[base + child] >= score) {
+                break;
+            }
+            heapPartner[base + i] = heapPartner[base + child];
+            heapSupport[base + i] = heapSupport[base + child];
+            heapScore[base + i] = heapScore[base + child];
+            i = child;
+        }
+        heapPartner[base + i] = partner;
+        heapSupport[base + i] = support;
+        heapScore[base + i] = score;
+    }
+}
@@ -0,0 +1,451 @@
+package com.archeologist.analytics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Read-only commit DAG over a memory-mapped file.
+ * <p>
+ * Commits get dense int ids in sha order, so a sha is found by binary search over the fixed-width sha table.
+ * Parents are kept in CSR form: {@code parentOffsets[id]..parentOffsets[id + 1]} indexes the flat parent array,
+ * first parent first. Each commit also has its commit time and generation number (1 for roots, otherwise one
+ * more than its highest parent), which lets traversals stop early: an ancestor always has a lower generation.
+ * <p>
+ * File layout (big-endian): magic, version, commit count, edge count; 20-byte shas; commit times as epoch
+ * seconds; generations; n + 1 parent offsets; parent ids. Nothing is copied onto the heap when opened.
+ */
+public class CommitGraph {
+
+    private static final int MAGIC = 0x43475246;
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+    private static final int SHA_BYTES = 20;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int timesAt;
+    private final int generationsAt;
+    private final int offsetsAt;
+    private final int parentsAt;
+
+    private CommitGraph(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a commit graph file");
+        }
+        size = buffer.getInt(8);
+        timesAt = HEADER + size * SHA_BYTES;
+        generationsAt = timesAt + size * 8;
+        offsetsAt = generationsAt + size * 4;
+        parentsAt = offsetsAt + (size + 1) * 4;
+    }
+
+    public static CommitGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CommitGraph(mapped);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Id of the commit with this sha or unique sha prefix, or -1 when absent or ambiguous.
+     */
+    public int find(String shaOrPrefix) {
+        String hex = shaOrPrefix.trim().toLowerCase(Locale.ROOT);
+        if (hex.isEmpty() || hex.length() > SHA_BYTES * 2) {
+            return -1;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparePrefix(mid, hex) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low >= size || comparePrefix(low, hex) != 0) {
+            return -1;
+        }
+        if (low + 1 < size && comparePrefix(low + 1, hex) == 0) {
+            return -1;
+        }
+        return low;
+    }
+
+    public String sha(int id) {
+        StringBuilder sha = new StringBuilder(SHA_BYTES * 2);
+        int at = HEADER + id * SHA_BYTES;
+        for (int i = 0; i < SHA_BYTES; i++) {
+            int b = buffer.get(at + i) & 0xff;
+            sha.append(Character.forDigit(b >>> 4, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sha.toString();
+    }
+
+    public long time(int id) {
+        return buffer.getLong(timesAt + id * 8);
+    }
+
+    public int generation(int id) {
+        return buffer.getInt(generationsAt + id * 4);
+    }
+
+    public int parentCount(int id) {
+        return buffer.getInt(offsetsAt + (id + 1) * 4) - buffer.getInt(offsetsAt + id * 4);
+    }
+
+    public int parent(int id, int index) {
+        return buffer.getInt(parentsAt + (buffer.getInt(offsetsAt + id * 4) + index) * 4);
+    }
+
+    /**
+     * Commits on the first-parent chain from {@code id}, itself included, at most {@code limit}.
+     */
+    public int[] firstParentHistory(int id, int limit) {
+        int[] history = new int[Math.min(limit, size)];
+        int count = 0;
+        int current = id;
+        while (current >= 0 && count < history.length) {
+            history[count++] = current;
+            current = parentCount(current) > 0 ? parent(current, 0) : -1;
+        }
+        return Arrays.copyOf(history, count);
+    }
+
+    /**
+     * True when {@code ancestor} is reachable from {@code descendant} (a commit is its own ancestor).
+     * Nodes with a generation at or below the ancestor's are never expanded.
+     */
+    public boolean isAncestor(int ancestor, int descendant) {
+        int floor = generation(ancestor);
+        long[] seen = new long[(size >>> 6) + 1];
+        IntStack stack = new IntStack();
+        stack.push(descendant);
+        while (!stack.isEmpty()) {
+            int id = stack.pop();
+            if (id == ancestor) {
+                return true;
+            }
+            if ((seen[id >>> 6] & (1L << id)) != 0 || generation(id) <= floor) {
+                continue;
+            }
+            seen[id >>> 6] |= 1L << id;
+            for (int i = parentCount(id) - 1; i >= 0; i--) {
+                stack.push(parent(id, i));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A best common ancestor of two commits, or -1 when their histories are disjoint.
+     * Both sides are painted downwards in decreasing generation order, so a node's paint is final when it is
+     * taken from the queue and the first node painted by both sides has the highest generation of all common
+     * ancestors, which means no other common ancestor descends from it.
+     */
+    public int mergeBase(int a, int b) {
+        byte[] flags = new byte[size];
+        GenerationHeap queue = new GenerationHeap();
+        flags[a] |= 1;
+        flags[b] |= 2;
+        queue.push(a);
+        queue.push(b);
+        while (!queue.isEmpty()) {
+            int id = queue.pop();
+            if (flags[id] == 3) {
+                return id;
+            }
+            for (int i = 0; i < parentCount(id); i++) {
+                int parent = parent(id, i);
+                if ((flags[parent] | flags[id]) != flags[parent]) {
+                    flags[parent] |= flags[id];
+                    queue.push(parent);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The branch a merge brought in, approximated by the first-parent chain of its second parent down to the
+     * merge base. Returns {commits on the branch, id of its oldest commit}, or null when {@code merge} is not a merge.
+     */
+    public int[] mergedBranch(int merge) {
+        if (parentCount(merge) < 2) {
+            return null;
+        }
+        int base = mergeBase(parent(merge, 0), parent(merge, 1));
+        int baseGeneration = base >= 0 ? generation(base) : 0;
+        int commits = 0;
+        int oldest = -1;
+        int current = parent(merge, 1);
+        while (current >= 0 && current != base && generation(current) > baseGeneration) {
+            commits++;
+            oldest = current;
+            current = parentCount(current) > 0 ? parent(current, 0) : -1;
+        }
+        return new int[]{commits, oldest};
+    }
+
+    private int comparePrefix(int id, String hex) {
+        int at = HEADER + id * SHA_BYTES;
+        for (int i = 0; i < hex.length(); i++) {
+            int b = buffer.get(at + i / 2) & 0xff;
+            int nibble = (i & 1) == 0 ? b >>> 4 : b & 0xf;
+            int c = Character.digit(hex.charAt(i), 16);
+            if (nibble != c) {
+                return nibble < c ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Collects commits and writes the graph file. Parents outside the collected set (history cut short by the
+     * ingest limit) are dropped, so their children become roots.
+     */
+    public static class Builder {
+
+        private byte[] shas = new byte[SHA_BYTES * 1024];
+        private long[] times = new long[1024];
+        private final List<String> parents = new ArrayList<>();
+        private int count;
+
+        public void add(String sha, String parentShas, long epochSeconds) {
+            if (count == times.length) {
+                shas = Arrays.copyOf(shas, shas.length * 2);
+                times = Arrays.copyOf(times, times.length * 2);
+            }
+            parseSha(sha, shas, count * SHA_BYTES);
+            times[count] = epochSeconds;
+            parents.add(parentShas == null ? "" : parentShas);
+            count++;
+        }
+
+        /**
+         * Writes to a temporary file next to {@code file} and moves it into place, so readers never see a partial graph.
+         */
+        public void write(Path file) throws IOException {
+            int n = count;
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (x, y) -> Arrays.compareUnsigned(shas, x * SHA_BYTES, (x + 1) * SHA_BYTES,
+                    shas, y * SHA_BYTES, (y + 1) * SHA_BYTES));
+            int[] idOf = new int[n];
+            byte[] sortedShas = new byte[n * SHA_BYTES];
+            for (int id = 0; id < n; id++) {
+                idOf[order[id]] = id;
+                System.arraycopy(shas, order[id] * SHA_BYTES, sortedShas, id * SHA_BYTES, SHA_BYTES);
+            }
+
+            int[] offsets = new int[n + 1];
+            IntStack edges = new IntStack();
+            byte[] parentSha = new byte[SHA_BYTES];
+            for (int id = 0; id < n; id++) {
+                offsets[id] = edges.size();
+                for (String parent : parents.get(order[id]).split(" ")) {
+                    if (parent.length() != SHA_BYTES * 2) {
+                        continue;
+                    }
+                    parseSha(parent, parentSha, 0);
+                    int parentId = search(sortedShas, n, parentSha);
+                    if (parentId >= 0) {
+                        edges.push(parentId);
+                    }
+                }
+            }
+            offsets[n] = edges.size();
+            int[] generations = generations(n, offsets, edges);
+
+            long bytes = HEADER + (long) n * SHA_BYTES + n * 8L + n * 4L + (n + 1) * 4L + edges.size() * 4L;
+            ByteBuffer out = ByteBuffer.allocate(Math.toIntExact(bytes));
+            out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(edges.size());
+            out.put(sortedShas);
+            for (int id = 0; id < n; id++) {
+                out.putLong(times[order[id]]);
+            }
+            for (int id = 0; id < n; id++) {
+                out.putInt(generations[id]);
+            }
+            for (int offset : offsets) {
+                out.putInt(offset);
+            }
+            for (int i = 0; i < edges.size(); i++) {
+                out.putInt(edges.get(i));
+            }
+
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, out.array());
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        /**
+         * Generation numbers by iterative post-order DFS, so million-commit histories do not overflow the stack.
+         */
+        private static int[] generations(int n, int[] offsets, IntStack edges) {
+            int[] generations = new int[n];
+            IntStack stack = new IntStack();
+            for (int start = 0; start < n; start++) {
+                if (generations[start] != 0) {
+                    continue;
+                }
+                stack.push(start);
+                while (!stack.isEmpty()) {
+                    int id = stack.peek();
+                    if (generations[id] != 0) {
+                        stack.pop();
+                        continue;
+                    }
+                    // Parents first; a node is revisited once all of them have a generation
+                    boolean ready = true;
+                    for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+                        int parent = edges.get(e);
+                        if (generations[parent] == 0) {
+                            stack.push(parent);
+                            ready = false;
+                        }
+                    }
+                    if (ready) {
+                        stack.pop();
+                        int generation = 1;
+                        for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+                            generation = Math.max(generation, generations[edges.get(e)] + 1);
+                        }
+                        generations[id] = generation;
+                    }
+                }
+            }
+            return generations;
+        }
+
+        private static int search(byte[] sorted, int n, byte[] sha) {
+            int low = 0;
+            int high = n - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = Arrays.compareUnsigned(sorted, mid * SHA_BYTES, (mid + 1) * SHA_BYTES, sha, 0, SHA_BYTES);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private static void parseSha(String hex, byte[] target, int at) {
+            if (hex.length() != SHA_BYTES * 2) {
+                throw new IllegalArgumentException("Not a full sha: " + hex);
+            }
+            for (int i = 0; i < SHA_BYTES; i++) {
+                target[at + i] = (byte) ((Character.digit(hex.charAt(2 * i), 16) << 4) | Character.digit(hex.charAt(2 * i + 1), 16));
+            }
+        }
+    }
+
+    private static final class IntStack {
+        private int[] items = new int[64];
+        private int size;
+
+        void push(int item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+
+        int pop() {
+            return items[--size];
+        }
+
+        int peek() {
+            return items[size - 1];
+        }
+
+        int get(int index) {
+            return items[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+    /**
+     * Max-heap of commit ids ordered by generation.
+     */
+    private final class GenerationHeap {
+        private int[] items = new int[64];
+        private int size;
+
+        void push(int id) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            int i = size++;
+            int generation = generation(id);
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (generation(items[parent]) >= generation) {
+                    break;
+                }
+                items[i] = items[parent];
+                i = parent;
+            }
+            items[i] = id;
+        }
+
+        int pop() {
+            int top = items[0];
+            int last = items[--size];
+            int generation = generation(last);
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && generation(items[child + 1]) > generation(items[child])) {
+                    child++;
+                }
+                if (generation(items[child]) <= generation) {
+                    break;
+                }
+                items[i] = items[child];
+                i = child;
+            }
+            items[i] = last;
+            return top;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.archeologist.analytics;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One commit as read from the repository history, independent of the GitHub client types.
+ * {@code authorEmail} and {@code authorName} may be empty when GitHub has no author identity.
+ * {@code files} is null when the commit's file list was not fetched.
+ */
+public record CommitRecord(String sha, String authorName, String authorEmail, Instant date,
+                           String message, List<String> parents, List<FileChange> files) {
+
+    public CommitRecord withFiles(List<FileChange> files) {
+        return new CommitRecord(sha, authorName, authorEmail, date, message, parents, files);
+    }
+}
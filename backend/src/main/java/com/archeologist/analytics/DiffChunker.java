@@ -0,0 +1,179 @@
+package com.archeologist.analytics;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/**
+ * Splits a unified diff into overlapping text chunks while reading it, holding at most about two
+ * chunks of text at a time however large the diff (or any single line in it) is.
+ * <p>
+ * Chunks never span files: a {@code diff --git} header closes the current chunk and starts a new file.
+ * Header metadata ({@code index}, {@code ---}, {@code +++}) and binary file notices between a file header and
+ * its first {@code @@} hunk are dropped; inside hunks every line is kept, including removed lines starting
+ * {@code --} and added lines starting {@code ++}.
+ * Reading stops after {@code maxChunks} chunks.
+ */
+public final class DiffChunker {
+
+    public record Chunk(String path, int index, String text) {
+    }
+
+    private static final String FILE_HEADER = "diff --git ";
+    private static final int MAX_HEADER_LENGTH = 1024;
+
+    private final int chunkSize;
+    private final int overlap;
+    private final int maxChunks;
+
+    public DiffChunker(int chunkSize, int overlap, int maxChunks) {
+        if (chunkSize <= 0 || overlap < 0 || overlap >= chunkSize) {
+            throw new IllegalArgumentException("Require 0 <= overlap < chunkSize");
+        }
+        this.chunkSize = chunkSize;
+        this.overlap = overlap;
+        this.maxChunks = maxChunks;
+    }
+
+    /**
+     * Emits chunks to {@code sink} in diff order and returns how many were emitted.
+     */
+    public int chunk(Reader diff, Consumer<Chunk> sink) throws IOException {
+        State state = new State(sink);
+        SegmentReader segments = new SegmentReader(diff, chunkSize);
+        String segment;
+        while (state.emitted < maxChunks && (segment = segments.next()) != null) {
+            if (segments.startsLine) {
+                if (segment.startsWith(FILE_HEADER)) {
+                    state.flush();
+                    state.path = parsePath(segment + segments.restOfLine(MAX_HEADER_LENGTH));
+                    state.fileIndex = 0;
+                    state.inHeader = true;
+                    continue;
+                }
+                if (segment.startsWith("@@")) {
+                    state.inHeader = false;
+                }
+                if (state.inHeader && (segment.startsWith("index ") || segment.startsWith("--- ") || segment.startsWith("+++ ")
+                        || segment.startsWith("Binary files "))) {
+                    segments.restOfLine(0);
+                    continue;
+                }
+            }
+            state.append(segment);
+        }
+        if (state.emitted < maxChunks) {
+            state.flush();
+        }
+        return state.emitted;
+    }
+
+    private final class State {
+        private final Consumer<Chunk> sink;
+        private final StringBuilder buffer = new StringBuilder();
+        private String path = "";
+        private int fileIndex;
+        /** Between a {@code diff --git} line and the file's first hunk. */
+        private boolean inHeader;
+        private int emitted;
+        /** Characters at the head of the buffer already emitted as the previous chunk's overlap. */
+        private int carried;
+
+        private State(Consumer<Chunk> sink) {
+            this.sink = sink;
+        }
+
+        private void append(String segment) {
+            buffer.append(segment);
+            while (buffer.length() >= chunkSize && emitted < maxChunks) {
+                emit(buffer.substring(0, chunkSize));
+                buffer.delete(0, chunkSize - overlap);
+                carried = overlap;
+            }
+        }
+
+        private void flush() {
+            if (buffer.length() > carried && !buffer.toString().isBlank()) {
+                emit(buffer.toString());
+            }
+            buffer.setLength(0);
+            carried = 0;
+        }
+
+        private void emit(String text) {
+            sink.accept(new Chunk(path, fileIndex++, text));
+            emitted++;
+        }
+    }
+
+    /**
+     * "diff --git a/src/A.java b/src/A.java" -> "src/A.java"; falls back to the raw header remainder.
+     */
+    private static String parsePath(String header) {
+        String rest = header.substring(FILE_HEADER.length()).trim();
+        int newline = rest.indexOf('\n');
+        rest = newline >= 0 ? rest.substring(0, newline).trim() : rest;
+        int b = rest.lastIndexOf(" b/");
+        return b >= 0 ? rest.substring(b + 3) : rest;
+    }
+
+    /**
+     * Reads text in segments that end at a newline (included) or after {@code maxLength} characters,
+     * so an arbitrarily long line is never materialized whole.
+     */
+    private static final class SegmentReader {
+        private final Reader reader;
+        private final int maxLength;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        private boolean atLineStart = true;
+        /** Whether the segment last returned by {@link #next()} begins a line. */
+        private boolean startsLine;
+
+        private SegmentReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * Consumes the remainder of the current line, returning at most {@code keep} characters of it.
+         */
+        private String restOfLine(int keep) throws IOException {
+            StringBuilder rest = new StringBuilder();
+            while (!atLineStart) {
+                String segment = next();
+                if (segment == null) {
+                    break;
+                }
+                if (rest.length() < keep) {
+                    rest.append(segment, 0, Math.min(segment.length(), keep - rest.length()));
+                }
+            }
+            return rest.toString();
+        }
+
+        private String next() throws IOException {
+            StringBuilder segment = new StringBuilder();
+            startsLine = atLineStart;
+            while (segment.length() < maxLength) {
+                if (position == limit) {
+                    limit = reader.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        break;
+                    }
+                }
+                char c = buffer[position++];
+                segment.append(c);
+                if (c == '\n') {
+                    atLineStart = true;
+                    return segment.toString();
+                }
+            }
+            atLineStart = false;
+            return segment.length() == 0 ? null : segment.toString();
+        }
+    }
+}
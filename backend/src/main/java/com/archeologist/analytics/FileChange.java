@@ -0,0 +1,7 @@
+package com.archeologist.analytics;
+
+/**
+ * One file touched by a commit, with its line counts.
+ */
+public record FileChange(String path, int additions, int deletions) {
+}
@@ -0,0 +1,80 @@
+package com.archeologist.analytics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds issue references in commit messages with one compiled alternation, so each message is scanned once
+ * whatever the number of reference forms: {@code #123}, {@code GH-123}, {@code owner/repo#123} and issue or
+ * pull request URLs, each optionally preceded by a closing keyword ({@code fixes}, {@code closes},
+ * {@code resolves} and their variants). References to the scanned repository itself are reported with an
+ * empty repo.
+ */
+public class IssueReferenceScanner {
+
+    public record IssueReference(String repo, int number, boolean closes) {
+    }
+
+    private static final Pattern REFERENCE = Pattern.compile(
+            "(?:\\b(?<keyword>close[sd]?|fix(?:e[sd])?|resolve[sd]?)\\b\\s*:?\\s*)?" +
+            "(?:https?://github\\.com/(?<urlRepo>[\\w.-]+/[\\w.-]+)/(?:issues|pull)/(?<urlNumber>\\d+)" +
+            "|(?<![\\w./-])(?<repo>[\\w.-]+/[\\w.-]+)#(?<repoNumber>\\d+)" +
+            "|(?<![\\w/#&])#(?<number>\\d+)" +
+            "|\\bGH-(?<ghNumber>\\d+))\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private final String ownRepo;
+
+    /**
+     * @param ownRepo the scanned repository as {@code owner/name}; matched case-insensitively
+     */
+    public IssueReferenceScanner(String ownRepo) {
+        this.ownRepo = ownRepo == null ? "" : ownRepo.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * References in order of first appearance, one per issue; a closing keyword on any mention wins.
+     */
+    public List<IssueReference> scan(String message) {
+        if (message == null || message.isEmpty()) {
+            return List.of();
+        }
+        Map<String, IssueReference> found = new LinkedHashMap<>();
+        Matcher matcher = REFERENCE.matcher(message);
+        while (matcher.find()) {
+            String repo = "";
+            String number;
+            if (matcher.group("urlNumber") != null) {
+                repo = matcher.group("urlRepo");
+                number = matcher.group("urlNumber");
+            } else if (matcher.group("repoNumber") != null) {
+                repo = matcher.group("repo");
+                number = matcher.group("repoNumber");
+            } else if (matcher.group("number") != null) {
+                number = matcher.group("number");
+            } else {
+                number = matcher.group("ghNumber");
+            }
+
+            int issue;
+            try {
+                issue = Integer.parseInt(number);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            repo = repo.toLowerCase(Locale.ROOT);
+            if (repo.equals(ownRepo)) {
+                repo = "";
+            }
+            boolean closes = matcher.group("keyword") != null;
+            found.merge(repo + "#" + issue, new IssueReference(repo, issue, closes),
+                    (old, ref) -> old.closes() ? old : ref);
+        }
+        return new ArrayList<>(found.values());
+    }
+}
@@ -0,0 +1,238 @@
+package com.archeologist.analytics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads declared dependencies, name to version constraint, from the manifests of six ecosystems:
+ * {@code package.json} (npm), {@code pom.xml} (Maven), {@code build.gradle} and {@code build.gradle.kts}
+ * (Gradle), {@code go.mod} (Go), {@code requirements.txt} (pip) and {@code Cargo.toml} (Cargo). Parsing is
+ * deliberately lexical: no build is evaluated, so versions taken from variables, BOMs or version catalogs
+ * are reported as written, or empty when they are not in the file.
+ */
+public final class ManifestParser {
+
+    private static final Map<String, String> ECOSYSTEMS = Map.of(
+            "package.json", "npm",
+            "pom.xml", "maven",
+            "build.gradle", "gradle",
+            "build.gradle.kts", "gradle",
+            "go.mod", "go",
+            "requirements.txt", "pip",
+            "Cargo.toml", "cargo");
+
+    private static final Pattern POM_DEPENDENCY = Pattern.compile("<dependency>(.*?)</dependency>", Pattern.DOTALL);
+    private static final Pattern POM_PROPERTIES = Pattern.compile("<properties>(.*?)</properties>", Pattern.DOTALL);
+    private static final Pattern XML_ELEMENT = Pattern.compile("<([\\w.-]+)>\\s*([^<]*?)\\s*</\\1>");
+    private static final Pattern XML_COMMENT = Pattern.compile("<!--.*?-->", Pattern.DOTALL);
+    private static final Pattern PROPERTY_REFERENCE = Pattern.compile("\\$\\{([^}]+)}");
+    private static final Pattern GRADLE_DEPENDENCY = Pattern.compile(
+            "\\b(?:implementation|api|compile|runtime|compileOnly|runtimeOnly|annotationProcessor|kapt|classpath" +
+            "|test\\w*|\\w+Implementation|\\w+Api|\\w+CompileOnly|\\w+RuntimeOnly)\\s*\\(?\\s*" +
+            "(?:platform\\s*\\(\\s*)?[\"']([^\"':\\s]+):([^\"':\\s]+)(?::([^\"'\\s@]+))?[^\"']*[\"']");
+    private static final Pattern GO_REQUIRE = Pattern.compile("^\\s*(?:require\\s+)?([^\\s()]+)\\s+(v[^\\s]+)");
+    private static final Pattern REQUIREMENT_NAME = Pattern.compile("^([A-Za-z0-9][A-Za-z0-9._-]*)(\\[[^]]*])?\\s*(.*)$");
+    private static final Pattern TOML_SECTION = Pattern.compile("^\\[\\s*([^]]+?)\\s*]$");
+    private static final Pattern TOML_ENTRY = Pattern.compile("^([A-Za-z0-9_.\"'-]+)\\s*=\\s*(.+)$");
+    private static final Pattern TOML_VERSION = Pattern.compile("\\bversion\\s*=\\s*\"([^\"]*)\"");
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ManifestParser() {
+    }
+
+    /**
+     * Ecosystem of a manifest path by its file name, or null when it is not a supported manifest.
+     */
+    public static String ecosystem(String path) {
+        return ECOSYSTEMS.get(path.substring(path.lastIndexOf('/') + 1));
+    }
+
+    /**
+     * Dependencies declared in {@code content}, a manifest named by the last segment of {@code path}.
+     */
+    public static Map<String, String> parse(String path, String content) throws IOException {
+        String ecosystem = ecosystem(path);
+        if (ecosystem == null) {
+            throw new IllegalArgumentException("Not a supported manifest: " + path);
+        }
+        return switch (ecosystem) {
+            case "npm" -> parsePackageJson(content);
+            case "maven" -> parsePom(content);
+            case "gradle" -> parseGradle(content);
+            case "go" -> parseGoMod(content);
+            case "pip" -> parseRequirements(content);
+            default -> parseCargo(content);
+        };
+    }
+
+    private static Map<String, String> parsePackageJson(String content) throws IOException {
+        Map<String, String> dependencies = new TreeMap<>();
+        JsonNode root = objectMapper.readTree(content);
+        for (String section : List.of("dependencies", "devDependencies", "peerDependencies", "optionalDependencies")) {
+            JsonNode deps = root.path(section);
+            deps.fields().forEachRemaining(entry -> dependencies.putIfAbsent(entry.getKey(), entry.getValue().asText()));
+        }
+        return dependencies;
+    }
+
+    private static Map<String, String> parsePom(String content) {
+        String xml = XML_COMMENT.matcher(content).replaceAll("");
+        Map<String, String> properties = new HashMap<>();
+        Matcher propertiesBlock = POM_PROPERTIES.matcher(xml);
+        while (propertiesBlock.find()) {
+            Matcher property = XML_ELEMENT.matcher(propertiesBlock.group(1));
+            while (property.find()) {
+                properties.put(property.group(1), property.group(2));
+            }
+        }
+
+        Map<String, String> dependencies = new TreeMap<>();
+        Matcher dependency = POM_DEPENDENCY.matcher(xml);
+        while (dependency.find()) {
+            Map<String, String> fields = new HashMap<>();
+            Matcher field = XML_ELEMENT.matcher(dependency.group(1));
+            while (field.find()) {
+                fields.putIfAbsent(field.group(1), field.group(2));
+            }
+            if (fields.containsKey("groupId") && fields.containsKey("artifactId")) {
+                dependencies.putIfAbsent(fields.get("groupId") + ":" + fields.get("artifactId"),
+                        resolve(fields.getOrDefault("version", ""), properties));
+            }
+        }
+        return dependencies;
+    }
+
+    private static String resolve(String value, Map<String, String> properties) {
+        Matcher reference = PROPERTY_REFERENCE.matcher(value);
+        StringBuilder resolved = new StringBuilder();
+        while (reference.find()) {
+            reference.appendReplacement(resolved, Matcher.quoteReplacement(properties.getOrDefault(reference.group(1), reference.group())));
+        }
+        reference.appendTail(resolved);
+        return resolved.toString();
+    }
+
+    private static Map<String, String> parseGradle(String content) {
+        Map<String, String> dependencies = new TreeMap<>();
+        Matcher dependency = GRADLE_DEPENDENCY.matcher(content);
+        while (dependency.find()) {
+            dependencies.putIfAbsent(dependency.group(1) + ":" + dependency.group(2),
+                    dependency.group(3) != null ? dependency.group(3) : "");
+        }
+        return dependencies;
+    }
+
+    private static Map<String, String> parseGoMod(String content) {
+        Map<String, String> dependencies = new TreeMap<>();
+        boolean inRequireBlock = false;
+        for (String line : content.split("\\R")) {
+            String trimmed = stripComment(line, "//");
+            if (trimmed.startsWith("require (") || trimmed.equals("require(")) {
+                inRequireBlock = true;
+                continue;
+            }
+            if (inRequireBlock && trimmed.startsWith(")")) {
+                inRequireBlock = false;
+                continue;
+            }
+            if (inRequireBlock || trimmed.startsWith("require ")) {
+                Matcher require = GO_REQUIRE.matcher(trimmed);
+                if (require.find()) {
+                    dependencies.putIfAbsent(require.group(1), require.group(2));
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    private static Map<String, String> parseRequirements(String content) {
+        Map<String, String> dependencies = new TreeMap<>();
+        for (String line : content.split("\\R")) {
+            String trimmed = stripComment(line, "#");
+            // Options (-r, -e, --index-url ...) and direct URLs name no package version
+            if (trimmed.isEmpty() || trimmed.startsWith("-") || trimmed.contains("://")) {
+                continue;
+            }
+            Matcher requirement = REQUIREMENT_NAME.matcher(trimmed);
+            if (requirement.matches()) {
+                String constraint = requirement.group(3);
+                int marker = constraint.indexOf(';');
+                if (marker >= 0) {
+                    constraint = constraint.substring(0, marker);
+                }
+                dependencies.putIfAbsent(requirement.group(1).toLowerCase(Locale.ROOT), constraint.replace(" ", ""));
+            }
+        }
+        return dependencies;
+    }
+
+    private static Map<String, String> parseCargo(String content) {
+        Map<String, String> dependencies = new TreeMap<>();
+        String section = "";
+        String tableDependency = null;
+        for (String line : content.split("\\R")) {
+            String trimmed = stripComment(line, "#");
+            Matcher header = TOML_SECTION.matcher(trimmed);
+            if (header.matches()) {
+                section = header.group(1);
+                tableDependency = null;
+                // [dependencies.serde] declares one dependency as a table
+                for (String kind : List.of("dependencies.", "dev-dependencies.", "build-dependencies.")) {
+                    int at = section.indexOf(kind);
+                    if (at >= 0 && (at == 0 || section.charAt(at - 1) == '.')) {
+                        tableDependency = unquote(section.substring(at + kind.length()));
+                        dependencies.putIfAbsent(tableDependency, "");
+                    }
+                }
+                continue;
+            }
+            Matcher entry = TOML_ENTRY.matcher(trimmed);
+            if (!entry.matches()) {
+                continue;
+            }
+            if (tableDependency != null) {
+                if (entry.group(1).equals("version")) {
+                    dependencies.put(tableDependency, unquote(entry.group(2).trim()));
+                }
+            } else if (isCargoDependencySection(section)) {
+                String value = entry.group(2).trim();
+                String version;
+                if (value.startsWith("{")) {
+                    Matcher inlineVersion = TOML_VERSION.matcher(value);
+                    version = inlineVersion.find() ? inlineVersion.group(1) : "";
+                } else {
+                    version = unquote(value);
+                }
+                dependencies.putIfAbsent(unquote(entry.group(1)), version);
+            }
+        }
+        return dependencies;
+    }
+
+    private static boolean isCargoDependencySection(String section) {
+        return section.equals("dependencies") || section.equals("dev-dependencies") || section.equals("build-dependencies")
+                || section.equals("workspace.dependencies")
+                || section.endsWith(".dependencies") && section.startsWith("target.")
+                || section.endsWith(".dev-dependencies") && section.startsWith("target.")
+                || section.endsWith(".build-dependencies") && section.startsWith("target.");
+    }
+
+    private static String stripComment(String line, String marker) {
+        int comment = line.indexOf(marker);
+        return (comment >= 0 ? line.substring(0, comment) : line).trim();
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && (trimmed.startsWith("\"") && trimmed.endsWith("\"") || trimmed.startsWith("'") && trimmed.endsWith("'"))) {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+}
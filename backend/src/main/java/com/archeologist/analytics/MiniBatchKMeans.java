@@ -0,0 +1,251 @@
+package com.archeologist.analytics;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Mini-batch k-means (Sculley, 2010) over unit vectors held in one flat {@code float[]}, row-major, so a point
+ * is {@code dim} consecutive floats. Each step assigns a random batch to its nearest centroids in parallel on a
+ * {@link ForkJoinPool} and moves every centroid towards its batch points with a per-centroid learning rate of
+ * 1/count. The counts persist with the centroids, so later points can be folded in with {@link #partialFit}
+ * without refitting. Vectors are L2-normalised, so squared distance orders the same way as cosine similarity.
+ */
+public final class MiniBatchKMeans {
+
+    /** Fewest points per fork-join leaf task; below this, splitting costs more than it saves. */
+    private static final int MIN_LEAF_POINTS = 32;
+
+    private final int k;
+    private final int dim;
+    private final float[] centroids;
+    private final long[] counts;
+
+    public MiniBatchKMeans(int k, int dim) {
+        this(dim, new float[k * dim], new long[k]);
+    }
+
+    private MiniBatchKMeans(int dim, float[] centroids, long[] counts) {
+        this.k = counts.length;
+        this.dim = dim;
+        this.centroids = centroids;
+        this.counts = counts;
+    }
+
+    /**
+     * A model from stored centroids ({@code k * dim} floats) and their counts.
+     */
+    public static MiniBatchKMeans restore(int dim, float[] centroids, long[] counts) {
+        if (centroids.length != counts.length * dim) {
+            throw new IllegalArgumentException("Expected " + counts.length * dim + " centroid values, got " + centroids.length);
+        }
+        return new MiniBatchKMeans(dim, centroids.clone(), counts.clone());
+    }
+
+    public int k() {
+        return k;
+    }
+
+    public int dim() {
+        return dim;
+    }
+
+    /**
+     * Centroid {@code c} as a copy.
+     */
+    public float[] centroid(int c) {
+        float[] centroid = new float[dim];
+        System.arraycopy(centroids, c * dim, centroid, 0, dim);
+        return centroid;
+    }
+
+    public long count(int c) {
+        return counts[c];
+    }
+
+    /**
+     * Seeds the centroids with k-means++ over the first {@code n} points and runs {@code iterations} mini-batch
+     * steps of {@code batchSize} random points. Needs at least {@code k} points.
+     */
+    public void fit(float[] data, int n, int batchSize, int iterations, SplittableRandom random, ForkJoinPool pool) {
+        if (n < k) {
+            throw new IllegalArgumentException("Need at least " + k + " points, got " + n);
+        }
+        seed(data, n, random);
+        int batch = Math.min(batchSize, n);
+        int[] indices = new int[batch];
+        int[] labels = new int[batch];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (int i = 0; i < batch; i++) {
+                indices[i] = random.nextInt(n);
+            }
+            pool.invoke(new AssignTask(data, indices, 0, batch, labels, null, leafPoints(batch, pool)));
+            step(data, indices, labels, batch);
+        }
+    }
+
+    /**
+     * Folds {@code n} new points into the centroids in batches of {@code batchSize}, each point once.
+     */
+    public void partialFit(float[] data, int n, int batchSize, ForkJoinPool pool) {
+        for (int from = 0; from < n; from += batchSize) {
+            int batch = Math.min(batchSize, n - from);
+            int[] indices = new int[batch];
+            for (int i = 0; i < batch; i++) {
+                indices[i] = from + i;
+            }
+            int[] labels = new int[batch];
+            pool.invoke(new AssignTask(data, indices, 0, batch, labels, null, leafPoints(batch, pool)));
+            step(data, indices, labels, batch);
+        }
+    }
+
+    /**
+     * Nearest centroid of each of the first {@code n} points; their squared distances go to {@code distances}
+     * when it is not null.
+     */
+    public int[] assign(float[] data, int n, float[] distances, ForkJoinPool pool) {
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        int[] labels = new int[n];
+        pool.invoke(new AssignTask(data, indices, 0, n, labels, distances, leafPoints(n, pool)));
+        return labels;
+    }
+
+    /**
+     * Leaf size giving each worker of {@code pool} about four leaves of an {@code n}-point assignment, so a
+     * batch is spread over the pool however small it is relative to the data.
+     */
+    static int leafPoints(int n, ForkJoinPool pool) {
+        return Math.max(MIN_LEAF_POINTS, n / (4 * pool.getParallelism()));
+    }
+
+    /**
+     * Scales each of the first {@code n} points to unit length; zero vectors are left as they are.
+     */
+    public static void normalize(float[] data, int n, int dim) {
+        for (int p = 0; p < n; p++) {
+            int offset = p * dim;
+            double norm = 0;
+            for (int j = 0; j < dim; j++) {
+                norm += data[offset + j] * data[offset + j];
+            }
+            if (norm > 0) {
+                float scale = (float) (1.0 / Math.sqrt(norm));
+                for (int j = 0; j < dim; j++) {
+                    data[offset + j] *= scale;
+                }
+            }
+        }
+    }
+
+    private void step(float[] data, int[] indices, int[] labels, int batch) {
+        for (int i = 0; i < batch; i++) {
+            int c = labels[i];
+            counts[c]++;
+            float eta = 1.0f / counts[c];
+            int centroid = c * dim;
+            int point = indices[i] * dim;
+            for (int j = 0; j < dim; j++) {
+                centroids[centroid + j] += eta * (data[point + j] - centroids[centroid + j]);
+            }
+        }
+    }
+
+    /**
+     * k-means++: each further centroid is a point drawn with probability proportional to its squared distance
+     * from the nearest centroid chosen so far.
+     */
+    private void seed(float[] data, int n, SplittableRandom random) {
+        float[] nearest = new float[n];
+        int first = random.nextInt(n);
+        System.arraycopy(data, first * dim, centroids, 0, dim);
+        double total = 0;
+        for (int p = 0; p < n; p++) {
+            nearest[p] = distance(data, p * dim, centroids, 0);
+            total += nearest[p];
+        }
+        for (int c = 1; c < k; c++) {
+            int chosen = random.nextInt(n);
+            if (total > 0) {
+                double target = random.nextDouble() * total;
+                for (int p = 0; p < n; p++) {
+                    target -= nearest[p];
+                    if (target <= 0) {
+                        chosen = p;
+                        break;
+                    }
+                }
+            }
+            System.arraycopy(data, chosen * dim, centroids, c * dim, dim);
+            total = 0;
+            for (int p = 0; p < n; p++) {
+                nearest[p] = Math.min(nearest[p], distance(data, p * dim, centroids, c * dim));
+                total += nearest[p];
+            }
+        }
+        Arrays.fill(counts, 0);
+    }
+
+    private float distance(float[] data, int point, float[] centres, int centre) {
+        float sum = 0;
+        for (int j = 0; j < dim; j++) {
+            float d = data[point + j] - centres[centre + j];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    /**
+     * Assigns {@code indices[from, to)} to their nearest centroids, splitting in halves down to {@code leafPoints}.
+     */
+    private final class AssignTask extends RecursiveAction {
+
+        private final float[] data;
+        private final int[] indices;
+        private final int from;
+        private final int to;
+        private final int[] labels;
+        private final float[] distances;
+        private final int leafPoints;
+
+        AssignTask(float[] data, int[] indices, int from, int to, int[] labels, float[] distances, int leafPoints) {
+            this.data = data;
+            this.indices = indices;
+            this.from = from;
+            this.to = to;
+            this.labels = labels;
+            this.distances = distances;
+            this.leafPoints = leafPoints;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > leafPoints) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new AssignTask(data, indices, from, mid, labels, distances, leafPoints),
+                        new AssignTask(data, indices, mid, to, labels, distances, leafPoints));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                int point = indices[i] * dim;
+                int best = 0;
+                float bestDistance = Float.MAX_VALUE;
+                for (int c = 0; c < k; c++) {
+                    float d = distance(data, point, centroids, c * dim);
+                    if (d < bestDistance) {
+                        bestDistance = d;
+                        best = c;
+                    }
+                }
+                labels[i] = best;
+                if (distances != null) {
+                    distances[i] = bestDistance;
+                }
+            }
+        }
+    }
+}
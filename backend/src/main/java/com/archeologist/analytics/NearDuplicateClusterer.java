@@ -0,0 +1,174 @@
+package com.archeologist.analytics;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Groups commit messages that are identical or nearly identical once normalized.
+ * <p>
+ * Messages are normalized (case, trailers, URLs, hashes, issue numbers, versions and other numbers
+ * replaced by placeholders) and exact duplicates are merged first. The remaining distinct texts are
+ * compared with MinHash signatures over word 3-shingles, bucketed by locality-sensitive hashing
+ * ({@value #BANDS} bands of {@value #ROWS} rows), and candidate pairs whose estimated Jaccard similarity
+ * reaches the threshold are merged. Texts too short to shingle only ever match exactly.
+ */
+public final class NearDuplicateClusterer {
+
+    private static final int BANDS = 16;
+    private static final int ROWS = 8;
+    private static final int NUM_HASHES = BANDS * ROWS;
+    private static final int SHINGLE_WORDS = 3;
+    /** Bound on comparisons per LSH bucket so one huge bucket stays linear. */
+    private static final int MAX_BUCKET_COMPARISONS = 32;
+
+    private static final Pattern TRAILER = Pattern.compile("(?m)^[a-z-]+-by:.*$");
+    private static final Pattern URL = Pattern.compile("https?://\\S+");
+    private static final Pattern HASH = Pattern.compile("\\b(?=[0-9a-f]*\\d)[0-9a-f]{7,40}\\b");
+    private static final Pattern ISSUE = Pattern.compile("#\\d+");
+    private static final Pattern VERSION = Pattern.compile("\\bv?\\d+(\\.\\d+)+\\S*");
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final Pattern NON_WORD = Pattern.compile("[^a-z0-9#]+");
+
+    private final double threshold;
+    private final long[] seeds = new long[NUM_HASHES];
+
+    public NearDuplicateClusterer(double threshold) {
+        this.threshold = threshold;
+        SplittableRandom random = new SplittableRandom(0x5EEDL);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            seeds[i] = random.nextLong();
+        }
+    }
+
+    public static String normalize(String message) {
+        String text = message.toLowerCase(Locale.ROOT);
+        text = TRAILER.matcher(text).replaceAll(" ");
+        text = URL.matcher(text).replaceAll(" url ");
+        text = HASH.matcher(text).replaceAll(" sha ");
+        text = ISSUE.matcher(text).replaceAll(" #n ");
+        text = VERSION.matcher(text).replaceAll(" ver ");
+        text = NUMBER.matcher(text).replaceAll(" n ");
+        return NON_WORD.matcher(text).replaceAll(" ").trim();
+    }
+
+    /**
+     * Returns, for each message, the index of its cluster's representative: the lowest index in the cluster,
+     * so callers that pass newest-first input get the newest commit as representative.
+     */
+    public int[] cluster(List<String> messages) {
+        int n = messages.size();
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+
+        // Exact duplicates after normalization
+        Map<String, Integer> firstByText = new HashMap<>();
+        List<Integer> distinct = new ArrayList<>();
+        List<String[]> tokens = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String normalized = normalize(messages.get(i));
+            Integer first = firstByText.putIfAbsent(normalized, i);
+            if (first != null) {
+                union(parent, first, i);
+            } else {
+                distinct.add(i);
+                tokens.add(normalized.isEmpty() ? new String[0] : normalized.split(" "));
+            }
+        }
+
+        // Near duplicates among the distinct texts
+        long[][] signatures = new long[distinct.size()][];
+        for (int d = 0; d < distinct.size(); d++) {
+            signatures[d] = tokens.get(d).length >= SHINGLE_WORDS ? signature(tokens.get(d)) : null;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            Map<Long, List<Integer>> buckets = new HashMap<>();
+            for (int d = 0; d < signatures.length; d++) {
+                if (signatures[d] != null) {
+                    buckets.computeIfAbsent(bandKey(signatures[d], band), k -> new ArrayList<>()).add(d);
+                }
+            }
+            for (List<Integer> bucket : buckets.values()) {
+                for (int a = 1; a < bucket.size(); a++) {
+                    for (int b = Math.max(0, a - MAX_BUCKET_COMPARISONS); b < a; b++) {
+                        int x = bucket.get(a);
+                        int y = bucket.get(b);
+                        if (find(parent, distinct.get(x)) != find(parent, distinct.get(y))
+                                && similarity(signatures[x], signatures[y]) >= threshold) {
+                            union(parent, distinct.get(x), distinct.get(y));
+                        }
+                    }
+                }
+            }
+        }
+
+        int[] representative = new int[n];
+        for (int i = 0; i < n; i++) {
+            representative[i] = find(parent, i);
+        }
+        return representative;
+    }
+
+    private long[] signature(String[] words) {
+        long[] signature = new long[NUM_HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (int start = 0; start + SHINGLE_WORDS <= words.length; start++) {
+            long shingle = 1125899906842597L;
+            for (int w = start; w < start + SHINGLE_WORDS; w++) {
+                shingle = 31 * shingle + words[w].hashCode();
+            }
+            for (int i = 0; i < NUM_HASHES; i++) {
+                long h = mix(shingle ^ seeds[i]);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static long bandKey(long[] signature, int band) {
+        long key = band;
+        for (int r = band * ROWS; r < (band + 1) * ROWS; r++) {
+            key = mix(key * 31 + signature[r]);
+        }
+        return key;
+    }
+
+    private static double similarity(long[] a, long[] b) {
+        int equal = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return equal / (double) NUM_HASHES;
+    }
+
+    /** SplitMix64 finalizer. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /** Unions by keeping the lower index as root, so the root is always the cluster's first member. */
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra < rb) {
+            parent[rb] = ra;
+        } else if (rb < ra) {
+            parent[ra] = rb;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.archeologist.analytics;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Prefix trie over '/'-separated paths. Adding a count to a file adds it to every directory above it,
+ * so each node holds the total for its subtree. The root is the empty path.
+ */
+public class PathTrie {
+
+    @FunctionalInterface
+    public interface NodeVisitor {
+        void visit(String path, String parentPath, int depth, boolean file, long count);
+    }
+
+    private static final class Node {
+        final String name;
+        Map<String, Node> children;
+        long count;
+        boolean file;
+
+        Node(String name) {
+            this.name = name;
+        }
+    }
+
+    private record Frame(Node node, String path, String parentPath, int depth) {
+    }
+
+    private final Node root = new Node("");
+    private int size = 1;
+
+    public void add(String path, long count) {
+        Node node = root;
+        node.count += count;
+        String[] segments = path.split("/");
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].isEmpty()) {
+                continue;
+            }
+            if (node.children == null) {
+                node.children = new HashMap<>();
+            }
+            Node child = node.children.get(segments[i]);
+            if (child == null) {
+                child = new Node(segments[i]);
+                node.children.put(segments[i], child);
+                size++;
+            }
+            node = child;
+            node.count += count;
+        }
+        if (node != root) {
+            node.file = true;
+        }
+    }
+
+    /**
+     * Number of nodes, including the root.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visits every node, parents before children. The root has a null parent path and depth 0.
+     * A path that was added as a file but also has children is reported as a directory.
+     */
+    public void forEach(NodeVisitor visitor) {
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(root, "", null, 0));
+        while (!stack.isEmpty()) {
+            Frame frame = stack.pop();
+            Node node = frame.node();
+            visitor.visit(frame.path(), frame.parentPath(), frame.depth(), node.file && node.children == null, node.count);
+            if (node.children != null) {
+                for (Node child : node.children.values()) {
+                    String childPath = frame.path().isEmpty() ? child.name : frame.path() + "/" + child.name;
+                    stack.push(new Frame(child, childPath, frame.path(), frame.depth() + 1));
+                }
+            }
+        }
+    }
+}
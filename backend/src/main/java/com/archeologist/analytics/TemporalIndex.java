@@ -0,0 +1,283 @@
+package com.archeologist.analytics;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.*;
+
+/**
+ * Time-ordered index of file touches. Every commit gets a dense ordinal in (time, sha) order, and each file,
+ * directory and author keeps a compressed bitmap of the ordinals that touched it. A date range is a contiguous
+ * ordinal range found by binary search over the sorted times, so "commits touching {@code src/api/**} last
+ * quarter by alice" is a range cut of two bitmap intersections.
+ */
+public class TemporalIndex {
+
+    public record FileTouches(String path, int commits) {
+    }
+
+    private final String[] shas;
+    private final long[] times;
+    private final int[] authorIds;
+    private final String[] authors;
+    private final RoaringBitmap[] authorCommits;
+    private final Map<String, Integer> authorIdsByKey;
+    private final String[] filePaths;
+    private final RoaringBitmap[] fileCommits;
+    private final Map<String, RoaringBitmap> directoryCommits;
+
+    private TemporalIndex(String[] shas, long[] times, int[] authorIds, String[] authors, RoaringBitmap[] authorCommits,
+                          String[] filePaths, RoaringBitmap[] fileCommits, Map<String, RoaringBitmap> directoryCommits) {
+        this.shas = shas;
+        this.times = times;
+        this.authorIds = authorIds;
+        this.authors = authors;
+        this.authorCommits = authorCommits;
+        this.filePaths = filePaths;
+        this.fileCommits = fileCommits;
+        this.directoryCommits = directoryCommits;
+        this.authorIdsByKey = new HashMap<>();
+        for (int i = 0; i < authors.length; i++) {
+            authorIdsByKey.put(authors[i], i);
+        }
+    }
+
+    public int size() {
+        return shas.length;
+    }
+
+    public int fileCount() {
+        return filePaths.length;
+    }
+
+    public String sha(int ordinal) {
+        return shas[ordinal];
+    }
+
+    public long time(int ordinal) {
+        return times[ordinal];
+    }
+
+    public String author(int ordinal) {
+        return authors[authorIds[ordinal]];
+    }
+
+    /**
+     * First ordinal committed at or after {@code epochSeconds}.
+     */
+    public int ordinalAtOrAfter(long epochSeconds) {
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < epochSeconds) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Commits matching every given filter. {@code path} is a file or a directory (a trailing {@code /} or
+     * {@code /**} is accepted); the time range is {@code [fromEpoch, toEpoch)}; null or blank filters match all.
+     */
+    public RoaringBitmap select(String path, Long fromEpoch, Long toEpoch, String author) {
+        int from = fromEpoch == null ? 0 : ordinalAtOrAfter(fromEpoch);
+        int to = toEpoch == null ? shas.length : ordinalAtOrAfter(toEpoch);
+        if (from >= to) {
+            return new RoaringBitmap();
+        }
+        RoaringBitmap selection = RoaringBitmap.bitmapOfRange(from, to);
+
+        String normalized = normalize(path);
+        if (!normalized.isEmpty()) {
+            selection.and(pathCommits(normalized));
+        }
+        if (author != null && !author.isBlank()) {
+            Integer authorId = authorIdsByKey.get(author.trim().toLowerCase(Locale.ROOT));
+            if (authorId == null) {
+                return new RoaringBitmap();
+            }
+            selection.and(authorCommits[authorId]);
+        }
+        return selection;
+    }
+
+    /**
+     * Files under {@code path} touched by the selected commits, most touched first.
+     */
+    public List<FileTouches> topFiles(String path, RoaringBitmap selection, int limit) {
+        if (selection.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String normalized = normalize(path);
+        int exact = Arrays.binarySearch(filePaths, normalized);
+        int from;
+        int to;
+        if (!normalized.isEmpty() && exact >= 0) {
+            from = exact;
+            to = exact + 1;
+        } else {
+            String prefix = normalized.isEmpty() ? "" : normalized + "/";
+            from = lowerBound(prefix);
+            to = prefix.isEmpty() ? filePaths.length : lowerBound(prefix + Character.MAX_VALUE);
+        }
+
+        // Min-heap of the best `limit` files by touch count
+        PriorityQueue<FileTouches> best = new PriorityQueue<>(
+                Comparator.comparingInt(FileTouches::commits).thenComparing(FileTouches::path, Comparator.reverseOrder()));
+        for (int i = from; i < to; i++) {
+            int commits = RoaringBitmap.andCardinality(fileCommits[i], selection);
+            if (commits == 0) {
+                continue;
+            }
+            if (best.size() < limit) {
+                best.add(new FileTouches(filePaths[i], commits));
+            } else if (commits > best.peek().commits()) {
+                best.poll();
+                best.add(new FileTouches(filePaths[i], commits));
+            }
+        }
+        List<FileTouches> results = new ArrayList<>(best);
+        results.sort(Comparator.comparingInt(FileTouches::commits).reversed().thenComparing(FileTouches::path));
+        return results;
+    }
+
+    /**
+     * Newest selected ordinals first.
+     */
+    public int[] newest(RoaringBitmap selection, int limit) {
+        int[] ordinals = new int[Math.min(limit, selection.getCardinality())];
+        IntIterator iterator = selection.getReverseIntIterator();
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = iterator.next();
+        }
+        return ordinals;
+    }
+
+    /**
+     * Compressed size of all path and author bitmaps, in bytes.
+     */
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (RoaringBitmap bitmap : fileCommits) {
+            bytes += bitmap.getSizeInBytes();
+        }
+        for (RoaringBitmap bitmap : directoryCommits.values()) {
+            bytes += bitmap.getSizeInBytes();
+        }
+        for (RoaringBitmap bitmap : authorCommits) {
+            bytes += bitmap.getSizeInBytes();
+        }
+        return bytes;
+    }
+
+    private RoaringBitmap pathCommits(String path) {
+        int file = Arrays.binarySearch(filePaths, path);
+        if (file >= 0) {
+            return fileCommits[file];
+        }
+        return directoryCommits.getOrDefault(path, new RoaringBitmap());
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = filePaths.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (filePaths[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String normalize(String path) {
+        if (path == null) {
+            return "";
+        }
+        String normalized = path.trim();
+        if (normalized.endsWith("/**")) {
+            normalized = normalized.substring(0, normalized.length() - 3);
+        }
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+
+    /**
+     * Collects commits, then their files. Ordinals are assigned by {@link #build()}, so both may arrive in any order.
+     */
+    public static class Builder {
+
+        private final List<String> shas = new ArrayList<>();
+        private final List<Long> times = new ArrayList<>();
+        private final List<String> authors = new ArrayList<>();
+        private final Map<String, List<String>> filesBySha = new HashMap<>();
+
+        public void addCommit(String sha, long epochSeconds, String author) {
+            shas.add(sha);
+            times.add(epochSeconds);
+            authors.add(author == null ? "" : author);
+        }
+
+        public void addFile(String sha, String path) {
+            filesBySha.computeIfAbsent(sha, key -> new ArrayList<>(4)).add(path);
+        }
+
+        public TemporalIndex build() {
+            int n = shas.size();
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.<Integer>comparingLong(times::get).thenComparing(shas::get));
+
+            String[] sortedShas = new String[n];
+            long[] sortedTimes = new long[n];
+            int[] authorIds = new int[n];
+            Map<String, Integer> authorIdsByKey = new LinkedHashMap<>();
+            List<RoaringBitmap> authorCommits = new ArrayList<>();
+            Map<String, RoaringBitmap> files = new HashMap<>();
+            Map<String, RoaringBitmap> directories = new HashMap<>();
+            for (int ordinal = 0; ordinal < n; ordinal++) {
+                int i = order[ordinal];
+                sortedShas[ordinal] = shas.get(i);
+                sortedTimes[ordinal] = times.get(i);
+                authorIds[ordinal] = authorIdsByKey.computeIfAbsent(authors.get(i), key -> {
+                    authorCommits.add(new RoaringBitmap());
+                    return authorIdsByKey.size();
+                });
+                authorCommits.get(authorIds[ordinal]).add(ordinal);
+
+                // Ordinals ascend, so every add appends to the end of its bitmap
+                for (String path : filesBySha.getOrDefault(shas.get(i), List.of())) {
+                    files.computeIfAbsent(path, key -> new RoaringBitmap()).add(ordinal);
+                    for (int slash = path.indexOf('/'); slash > 0; slash = path.indexOf('/', slash + 1)) {
+                        directories.computeIfAbsent(path.substring(0, slash), key -> new RoaringBitmap()).add(ordinal);
+                    }
+                }
+            }
+
+            String[] filePaths = files.keySet().toArray(new String[0]);
+            Arrays.sort(filePaths);
+            RoaringBitmap[] fileCommits = new RoaringBitmap[filePaths.length];
+            for (int i = 0; i < filePaths.length; i++) {
+                fileCommits[i] = files.get(filePaths[i]);
+                fileCommits[i].runOptimize();
+            }
+            directories.values().forEach(RoaringBitmap::runOptimize);
+            authorCommits.forEach(RoaringBitmap::runOptimize);
+            return new TemporalIndex(sortedShas, sortedTimes, authorIds, authorIdsByKey.keySet().toArray(new String[0]),
+                    authorCommits.toArray(new RoaringBitmap[0]), filePaths, fileCommits, directories);
+        }
+    }
+}
@@ -1,25 +1,53 @@
 package com.archeologist.config;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.kohsuke.github.GitHub;
 import org.kohsuke.github.GitHubBuilder;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.io.IOException;
+import java.time.Duration;
 
 @Configuration
 public class AppConfig {
-    
+
     @Value("${github.token}")
     private String githubToken;
-    
+
+    /**
+     * Shared non-blocking client for model backends. Connections are pooled and kept alive per host,
+     * with a bounded pool and a bounded queue of callers waiting for a connection.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public WebClient modelWebClient(@Value("${app.http.max-connections-per-host:50}") int maxConnections,
+                                    @Value("${app.http.max-pending-acquires:1000}") int maxPendingAcquires,
+                                    @Value("${app.http.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                    @Value("${app.http.response-timeout-ms:120000}") long responseTimeoutMs) {
+        ConnectionProvider pool = ConnectionProvider.builder("model-backends")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxPendingAcquires)
+                .pendingAcquireTimeout(Duration.ofSeconds(30))
+                .maxIdleTime(Duration.ofSeconds(60))
+                .evictInBackground(Duration.ofSeconds(30))
+                .build();
+
+        HttpClient httpClient = HttpClient.create(pool)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs))
+                .keepAlive(true);
+
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+                .build();
     }
-    
+
     @Bean
     public GitHub gitHub() throws IOException {
         return new GitHubBuilder()
@@ -1,14 +1,22 @@
 package com.archeologist.controller;
 
 import com.archeologist.entity.CodeAnalysis;
+import com.archeologist.service.AdmissionRejectedException;
+import com.archeologist.service.AdmissionService;
+import com.archeologist.service.AnalysisCoordinator;
 import com.archeologist.service.AnalysisService;
+import com.archeologist.service.EmbeddingQueueService;
 import com.archeologist.service.GitHubService;
+import com.archeologist.service.OpenAIService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -27,11 +35,23 @@ public class AnalysisController {
     @Autowired
     private GitHubService gitHubService;
 
+    @Autowired
+    private AnalysisCoordinator analysisCoordinator;
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    @Autowired
+    private EmbeddingQueueService embeddingQueueService;
+
+    @Autowired
+    private OpenAIService openAIService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @PostMapping("/analyze")
-    public ResponseEntity<Map<String, Object>> analyzeRepository(@RequestBody Map<String, String> request) {
+    public ResponseEntity<Map<String, Object>> analyzeRepository(@RequestBody Map<String, String> request, HttpServletRequest httpRequest) {
         String repoUrl = request.get("repoUrl");
 //        String sessionId = session.getId();
 
@@ -43,40 +63,21 @@ public class AnalysisController {
         }
 
         try {
-            Map<String, String> repoInfo = gitHubService.extractRepoInfo(repoUrl);
-            String owner = repoInfo.get("owner");
-            String repo = repoInfo.get("repo");
-
-            int totalCommits = gitHubService.getTotalCommitCount(owner, repo);
-            List<Map<String, Object>> contributors = gitHubService.fetchContributors(owner, repo);
-            List<Map<String, Object>> commitActivity = gitHubService.fetchCommits(owner, repo, 100);
-            Map<String, Integer> fileChanges = gitHubService.fetchFileChanges(owner, repo);
-            List<Map<String, Object>> issues = gitHubService.fetchIssues(owner, repo);
-            Map<String, String> dependencies = gitHubService.fetchDependencies(owner, repo);
-
-            // Convert data to JSON strings for storage
-            CodeAnalysis analysis = new CodeAnalysis();
-//            analysis.setSessionId(sessionId);
-            analysis.setRepoUrl(repoUrl);
-            analysis.setStatus("COMPLETED");
-            analysis.setCommits(objectMapper.writeValueAsString(Map.of("totalCommits", totalCommits)));
-            analysis.setContributors(objectMapper.writeValueAsString(contributors));
-            analysis.setCommitActivity(objectMapper.writeValueAsString(commitActivity));
-            analysis.setFileChanges(objectMapper.writeValueAsString(fileChanges));
-            analysis.setIssues(objectMapper.writeValueAsString(issues));
-            analysis.setDependencies(objectMapper.writeValueAsString(dependencies));
-
-            CodeAnalysis saved = analysisService.saveAnalysis(analysis);
+            AnalysisCoordinator.Result result = analysisCoordinator.analyze(repoUrl, admissionService.resolveClientId(httpRequest));
+            CodeAnalysis saved = result.analysis();
 
 //            session.setAttribute("analysisId", saved.getId());
 
             return ResponseEntity.ok(Map.of(
                     "status", "success",
-                    "message", "Analysis completed successfully",
+                    "message", result.reused() ? "Existing analysis reused" : "Analysis completed successfully",
                     "analysisId", saved.getId(),
-                    "totalCommits", totalCommits
+                    "totalCommits", saved.getTotalCommits() != null ? saved.getTotalCommits() : 0,
+                    "reused", result.reused()
             ));
 
+        } catch (AdmissionRejectedException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             logger.error("Error initializing analysis:", e);
             return ResponseEntity.internalServerError()
@@ -98,11 +99,14 @@ public class AnalysisController {
     }
 
     @PostMapping("/process-commits")
-    public ResponseEntity<Map<String, Object>> processCommits(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> processCommits(@RequestBody Map<String, Object> request, HttpServletRequest httpRequest) {
         Long analysisId = Long.valueOf(request.get("analysisId").toString());
         Integer commitCount = Integer.valueOf(request.get("commitCount").toString());
+        String clientId = admissionService.resolveClientId(httpRequest);
 
         try {
+            embeddingQueueService.checkCapacity(clientId);
+
             Optional<CodeAnalysis> analysisOpt = analysisService.getAnalysisById(analysisId);
             if (analysisOpt.isEmpty()) {
                 return ResponseEntity.status(404).body(Map.of(
@@ -149,26 +153,18 @@ public class AnalysisController {
 
             analysisService.saveAnalysis(analysis);
 
-            // Process embeddings in background
-            try {
-                // Use a separate thread to process embeddings
-                new Thread(() -> {
-                    try {
-                        analysisService.processCommitEmbeddings(analysisId, commits);
-                    } catch (Exception e) {
-                        logger.warn("Background embedding processing failed: {}", e.getMessage());
-                    }
-                }).start();
-            } catch (Exception e) {
-                logger.warn("Failed to start background embedding processing: {}", e.getMessage());
-            }
+            // Embeddings are generated in the background by queue workers on any node
+            int queuedChunks = embeddingQueueService.enqueue(analysis, commits, clientId);
 
             return ResponseEntity.ok(Map.of(
                     "status", "success",
                     "message", "Commits processed successfully",
-                    "processedCommits", processedCommits.size()
+                    "processedCommits", processedCommits.size(),
+                    "queuedChunks", queuedChunks
             ));
 
+        } catch (AdmissionRejectedException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             logger.error("Error processing commits:", e);
             return ResponseEntity.internalServerError()
@@ -176,6 +172,19 @@ public class AnalysisController {
         }
     }
 
+    @GetMapping("/embedding-progress")
+    public ResponseEntity<Map<String, Object>> getEmbeddingProgress(@RequestParam Long analysisId) {
+        try {
+            Map<String, Object> response = new HashMap<>(embeddingQueueService.progress(analysisId));
+            response.put("status", "success");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error retrieving embedding progress:", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("status", "error", "message", e.getMessage()));
+        }
+    }
+
     @GetMapping("/analysis-data")
     public ResponseEntity<Map<String, Object>> getAnalysisData(@RequestParam Long analysisId) {
         try {
@@ -263,8 +272,8 @@ public class AnalysisController {
 //    }
 
     @GetMapping("/health")
-    public ResponseEntity<Map<String, String>> health() {
-        return ResponseEntity.ok(Map.of("status", "healthy"));
+    public ResponseEntity<Map<String, Object>> health() {
+        return ResponseEntity.ok(Map.of("status", "healthy", "providers", openAIService.getProviderStates()));
     }
 
     @GetMapping("/db-health")
@@ -288,6 +297,12 @@ public class AnalysisController {
     }
 
     // ---------------- Helper methods ----------------
+    private ResponseEntity<Map<String, Object>> tooManyRequests(AdmissionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("status", "error", "message", e.getMessage()));
+    }
+
     private Map<String, Object> parseJson(String json) {
         try {
             return objectMapper.readValue(json, new TypeReference<>() {});
@@ -2,15 +2,24 @@ package com.archeologist.controller;
 
 import com.archeologist.entity.CodeAnalysis;
 import com.archeologist.service.AnalysisService;
+import com.archeologist.service.AuthorChurnService;
+import com.archeologist.service.CodebaseHeatmapService;
+import com.archeologist.service.CommitGraphService;
+import com.archeologist.service.FileCouplingService;
+import com.archeologist.service.IssueLinkService;
+import com.archeologist.service.OwnershipService;
+import com.archeologist.service.TemporalIndexService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -29,6 +38,27 @@ public class DataController {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private CodebaseHeatmapService codebaseHeatmapService;
+
+    @Autowired
+    private FileCouplingService fileCouplingService;
+
+    @Autowired
+    private AuthorChurnService authorChurnService;
+
+    @Autowired
+    private IssueLinkService issueLinkService;
+
+    @Autowired
+    private CommitGraphService commitGraphService;
+
+    @Autowired
+    private TemporalIndexService temporalIndexService;
+
+    @Autowired
+    private OwnershipService ownershipService;
+
 
     private ResponseEntity<Map<String, Object>> successWithData(Object data) {
         Map<String, Object> response = new HashMap<>();
@@ -45,6 +75,13 @@ public class DataController {
         return ResponseEntity.internalServerError().body(response);
     }
 
+    /**
+     * Invalid request parameters detected by a service (unknown option, malformed value) are the caller's error.
+     */
+    private ResponseEntity<Map<String, Object>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
+    }
+
     @GetMapping("/file-change-frequency")
     public ResponseEntity<Map<String, Object>> getFileChangeFrequency(@RequestParam(name = "analysisId", required = false) Long analysisIdParam) {
 
@@ -70,7 +107,11 @@ public class DataController {
     }
 
     @GetMapping("/commit-activity-timeline")
-    public ResponseEntity<Map<String, Object>> getCommitActivityTimeline( @RequestParam(name = "analysisId", required = false) Long analysisIdParam) {
+    public ResponseEntity<Map<String, Object>> getCommitActivityTimeline( @RequestParam(name = "analysisId", required = false) Long analysisIdParam,
+                                                                          @RequestParam(required = false) String granularity,
+                                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                          @RequestParam(required = false) String author) {
 
         logger.info("Fetching commit activity timeline for analysisId {}", analysisIdParam);
         try {
@@ -79,6 +120,11 @@ public class DataController {
                 return successWithData(Collections.emptyList());
             }
 
+            // Pre-aggregated buckets covering the full history; without a granularity the raw recent commits are returned
+            if (granularity != null) {
+                return successWithData(analysisService.getActivityBuckets(analysisId, granularity, from, to, author));
+            }
+
             Optional<CodeAnalysis> analysisOpt = analysisService.getAnalysisById(analysisId);
             if (analysisOpt.isEmpty() || analysisOpt.get().getCommitActivity() == null) {
                 return successWithData(Collections.emptyList());
@@ -86,6 +132,8 @@ public class DataController {
 
             return successWithData(analysisOpt.get().getCommitActivity());
 
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
         } catch (Exception e) {
             return buildErrorResponse("Error fetching commit activity", e);
         }
@@ -113,16 +161,62 @@ public class DataController {
         }
     }
 
+    @GetMapping("/author-churn")
+    public ResponseEntity<Map<String, Object>> getAuthorChurn(@RequestParam(name = "analysisId", required = false) Long analysisIdParam,
+                                                              @RequestParam(defaultValue = "commits") String sort,
+                                                              @RequestParam(defaultValue = "50") int limit) {
+
+        logger.info("Fetching author churn for analysisId {} sorted by {}", analysisIdParam, sort);
+        try {
+            if (analysisIdParam == null) {
+                return successWithData(Collections.emptyList());
+            }
+            int clamped = Math.max(1, Math.min(limit, 500));
+            return successWithData(authorChurnService.getAuthorChurn(analysisIdParam, sort, clamped));
+
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
+        } catch (Exception e) {
+            return buildErrorResponse("Error fetching author churn", e);
+        }
+    }
+
+    @GetMapping("/author-activity")
+    public ResponseEntity<Map<String, Object>> getAuthorActivity(@RequestParam(name = "analysisId", required = false) Long analysisIdParam,
+                                                                 @RequestParam String author) {
+
+        logger.info("Fetching activity of author {} for analysisId {}", author, analysisIdParam);
+        try {
+            if (analysisIdParam == null) {
+                return successWithData(Collections.emptyMap());
+            }
+            Map<String, Object> activity = authorChurnService.getAuthorActivity(analysisIdParam, author);
+            return successWithData(activity != null ? activity : Collections.emptyMap());
+
+        } catch (Exception e) {
+            return buildErrorResponse("Error fetching author activity", e);
+        }
+    }
+
     @GetMapping("/codebase-heatmap")
-    public ResponseEntity<Map<String, Object>> getCodebaseHeatmap(@RequestParam(name = "analysisId", required = false) Long analysisIdParam) {
+    public ResponseEntity<Map<String, Object>> getCodebaseHeatmap(@RequestParam(name = "analysisId", required = false) Long analysisIdParam,
+                                                                   @RequestParam(defaultValue = "") String root,
+                                                                   @RequestParam(defaultValue = "2") int depth,
+                                                                   @RequestParam(defaultValue = "20") int topN) {
 
-        logger.info("Fetching codebase heatmap for analysisId {}", analysisIdParam);
+        logger.info("Fetching codebase heatmap for analysisId {} (root '{}', depth {}, topN {})", analysisIdParam, root, depth, topN);
         try {
             Long analysisId = analysisIdParam;
             if (analysisId == null) {
                 return successWithData(Collections.emptyMap());
             }
 
+            // Analyses ingested with file lists are served from the directory trie; older ones keep the flat map
+            if (codebaseHeatmapService.hasHeatmap(analysisId)) {
+                Map<String, Object> tree = codebaseHeatmapService.getHeatmap(analysisId, root, depth, topN);
+                return successWithData(tree != null ? tree : Collections.emptyMap());
+            }
+
             Optional<CodeAnalysis> analysisOpt = analysisService.getAnalysisById(analysisId);
             if (analysisOpt.isEmpty() || analysisOpt.get().getFileChanges() == null) {
                 return successWithData(Collections.emptyMap());
@@ -135,6 +229,141 @@ public class DataController {
         }
     }
 
+    @GetMapping("/file-coupling")
+    public ResponseEntity<Map<String, Object>> getFileCoupling(@RequestParam(name = "analysisId", required = false) Long analysisIdParam,
+                                                               @RequestParam(required = false) String path,
+                                                               @RequestParam(defaultValue = "20") int limit) {
+
+        logger.info("Fetching file coupling for analysisId {} (path '{}')", analysisIdParam, path);
+        try {
+            if (analysisIdParam == null) {
+                return successWithData(Collections.emptyList());
+            }
+            int clamped = Math.max(1, Math.min(limit, 200));
+            return successWithData(fileCouplingService.getCoupling(analysisIdParam, path, clamped));
+
+        } catch (Exception e) {
+            return buildErrorResponse("Error fetching file coupling", e);
+        }
+    }
+
+    @GetMapping("/file-touches")
+    public ResponseEntity<Map<String, Object>> getFileTouches(@RequestParam(name = "analysisId", required = false) Long analysisIdParam,
+                                                              @RequestParam(required = false) String path,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                              @RequestParam(required = false) String author,
+                                                              @RequestParam(defaultValue = "50") int limit) {
+
+        logger.info("Fetching file touches for analysisId {} (path '{}', {} to {}, author '{}')", analysisIdParam, path, from, to, author);
+        try {
+            if (analysisIdParam == null) {
+                return successWithData(Collections.emptyMap());
+            }
+            int clamped = Math.max(1, Math.min(limit, 500));
+            return successWithData(temporalIndexService.query(analysisIdParam, path, from, to, author, clamped));
+
+        } catch (Exception e) {
+            return buildErrorResponse("Error fetching file touches", e);
+        }
+    }
+
+    @GetMapping("/ownership")
+    public ResponseEntity<Map<String, Object>> getOwnership(@RequestParam(name = "analysisId", required = false) Long analysisIdParam,
+                                                            @RequestParam(defaultValue = "") String path,
+                                                            @RequestParam(defaultValue = "50") int limit) {
+
+        logger.info("Fetching ownership of '{}' for analysisId {}", path, analysisIdParam);
+        try {
+            if (analysisIdParam == null) {
+                return successWithData(Collections.emptyMap());
+            }
+            int clamped = Math.max(1, Math.min(limit, 500));
+            Map<String, Object> ownership = ownershipService.getOwnership(analysisIdParam, path, clamped);
+            return successWithData(ownership != null ? ownership : Collections.emptyMap());
+
+        } catch (Exception e) {
+            return buildErrorResponse("Error fetching ownership", e);
+        }
+    }
+
+    @GetMapping("/ownership/riskiest")
+    public ResponseEntity<Map<String, Object>> getRiskiestDirectories(@RequestParam(name = "analysisId", required = false) Long analysisIdParam,
+                                                                      @RequestParam(defaultValue = "3") int maxDepth,
+                                                                      @RequestParam(defaultValue = "20") int limit) {
+
+        logger.info("Fetching lowest bus-factor directories for analysisId {} (maxDepth {})", analysisIdParam, maxDepth);
+        try {
+            if (analysisIdParam == null) {
+                return successWithData(Collections.emptyList());
+            }
+            int clamped = Math.max(1, Math.min(limit, 200));
+            return successWithData(ownershipService.getRiskiestDirectories(analysisIdParam, Math.max(0, maxDepth), clamped));
+
+        } catch (Exception e) {
+            return buildErrorResponse("Error fetching bus factor", e);
+        }
+    }
+
+    @GetMapping("/commit-graph/first-parent")
+    public ResponseEntity<Map<String, Object>> getFirstParentHistory(@RequestParam(name = "analysisId", required = false) Long analysisIdParam,
+                                                                     @RequestParam(required = false) String from,
+                                                                     @RequestParam(defaultValue = "100") int limit) {
+
+        logger.info("Fetching first-parent history for analysisId {} (from '{}')", analysisIdParam, from);
+        try {
+            if (analysisIdParam == null) {
+                return successWithData(Collections.emptyList());
+            }
+            int clamped = Math.max(1, Math.min(limit, 5000));
+            return successWithData(commitGraphService.firstParentHistory(analysisIdParam, from, clamped));
+
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
+        } catch (Exception e) {
+            return buildErrorResponse("Error fetching first-parent history", e);
+        }
+    }
+
+    @GetMapping("/commit-graph/merge-base")
+    public ResponseEntity<Map<String, Object>> getMergeBase(@RequestParam(name = "analysisId", required = false) Long analysisIdParam,
+                                                            @RequestParam String a,
+                                                            @RequestParam String b) {
+
+        logger.info("Fetching merge base of {} and {} for analysisId {}", a, b, analysisIdParam);
+        try {
+            if (analysisIdParam == null) {
+                return successWithData(Collections.emptyMap());
+            }
+            return successWithData(commitGraphService.mergeBase(analysisIdParam, a, b));
+
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
+        } catch (Exception e) {
+            return buildErrorResponse("Error fetching merge base", e);
+        }
+    }
+
+    @GetMapping("/commit-graph/merges")
+    public ResponseEntity<Map<String, Object>> getMergeStats(@RequestParam(name = "analysisId", required = false) Long analysisIdParam,
+                                                             @RequestParam(defaultValue = "month") String granularity,
+                                                             @RequestParam(defaultValue = "1000") int limit) {
+
+        logger.info("Fetching merge statistics for analysisId {} (granularity {}, limit {})", analysisIdParam, granularity, limit);
+        try {
+            if (analysisIdParam == null) {
+                return successWithData(Collections.emptyMap());
+            }
+            int clamped = Math.max(1, Math.min(limit, 20000));
+            return successWithData(commitGraphService.mergeStats(analysisIdParam, granularity, clamped));
+
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
+        } catch (Exception e) {
+            return buildErrorResponse("Error fetching merge statistics", e);
+        }
+    }
+
     @GetMapping("/dependency-graph")
     public ResponseEntity<Map<String, Object>> getDependencyGraph(@RequestParam(name = "analysisId", required = false) Long analysisIdParam) {
 
@@ -169,7 +398,10 @@ public class DataController {
 
 
     @GetMapping("/linked-issues")
-    public ResponseEntity<Map<String, Object>> getLinkedIssues(@RequestParam(name = "analysisId", required = false) Long analysisId) {
+    public ResponseEntity<Map<String, Object>> getLinkedIssues(@RequestParam(name = "analysisId", required = false) Long analysisId,
+                                                               @RequestParam(defaultValue = "false") boolean linkedOnly,
+                                                               @RequestParam(defaultValue = "0") int page,
+                                                               @RequestParam(defaultValue = "50") int size) {
 
         logger.info("Fetching linked issues for id {}", analysisId);
         try {
@@ -177,6 +409,12 @@ public class DataController {
                 return successWithData(Collections.emptyList());
             }
 
+            // Issues stored at crawl time are paged and joined to their commits; older analyses return the raw list
+            if (issueLinkService.hasIssues(analysisId)) {
+                return successWithData(issueLinkService.getIssuesWithCommits(analysisId, linkedOnly,
+                        Math.max(0, page), Math.max(1, Math.min(size, 200))));
+            }
+
             Optional<CodeAnalysis> analysisOpt = analysisService.getAnalysisById(analysisId);
             if (analysisOpt.isEmpty() || analysisOpt.get().getIssues() == null) {
                 return successWithData(Collections.emptyList());
@@ -188,4 +426,37 @@ public class DataController {
             return buildErrorResponse("Error fetching issues", e);
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/issue-commits")
+    public ResponseEntity<Map<String, Object>> getIssueCommits(@RequestParam(name = "analysisId", required = false) Long analysisId,
+                                                               @RequestParam int issue,
+                                                               @RequestParam(required = false) String repo) {
+
+        logger.info("Fetching commits linked to issue {} for id {}", issue, analysisId);
+        try {
+            if (analysisId == null) {
+                return successWithData(Collections.emptyMap());
+            }
+            return successWithData(issueLinkService.getIssueCommits(analysisId, repo, issue));
+
+        } catch (Exception e) {
+            return buildErrorResponse("Error fetching issue commits", e);
+        }
+    }
+
+    @GetMapping("/commit-issues")
+    public ResponseEntity<Map<String, Object>> getCommitIssues(@RequestParam(name = "analysisId", required = false) Long analysisId,
+                                                               @RequestParam String commitHash) {
+
+        logger.info("Fetching issues linked to commit {} for id {}", commitHash, analysisId);
+        try {
+            if (analysisId == null) {
+                return successWithData(Collections.emptyList());
+            }
+            return successWithData(issueLinkService.getCommitIssues(analysisId, commitHash));
+
+        } catch (Exception e) {
+            return buildErrorResponse("Error fetching commit issues", e);
+        }
+    }
+}
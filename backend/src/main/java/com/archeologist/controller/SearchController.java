@@ -1,13 +1,20 @@
 package com.archeologist.controller;
 
 import com.archeologist.service.AnalysisService;
+import com.archeologist.service.DiffEmbeddingService;
+import com.archeologist.service.TopicClusteringService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -18,9 +25,20 @@ public class SearchController {
     
     private static final Logger logger = LoggerFactory.getLogger(SearchController.class);
     
+    private static final int MAX_NEIGHBOURS = 50;
+    private static final int MAX_BATCH_HASHES = 100;
+    private static final int MAX_BATCH_QUERIES = 20;
+    private static final int MAX_TOPICS = 100;
+
     @Autowired
     private AnalysisService analysisService;
 
+    @Autowired
+    private DiffEmbeddingService diffEmbeddingService;
+
+    @Autowired
+    private TopicClusteringService topicClusteringService;
+
     
     @GetMapping("/search-commits")
     public ResponseEntity<Map<String, Object>> searchCommits(@RequestParam String query, @RequestParam(name = "analysisId") Long analysisId) {
@@ -50,6 +68,163 @@ public class SearchController {
         }
     }
     
+    /**
+     * Semantic search over diff chunks, aggregated to one result per commit. Requires diff embeddings to be enabled.
+     */
+    @GetMapping("/search-diffs")
+    public ResponseEntity<Map<String, Object>> searchDiffs(@RequestParam String query,
+                                                           @RequestParam(name = "analysisId") Long analysisId,
+                                                           @RequestParam(defaultValue = "10") int limit) {
+
+        if (query == null || query.trim().isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("status", "error", "message", "Search query is required"));
+        }
+
+        try {
+            List<Map<String, Object>> results = diffEmbeddingService.searchByDiff(analysisId, query, clampLimit(limit));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "success");
+            response.put("results", results);
+            if (results.isEmpty()) {
+                response.put("message", diffEmbeddingService.isEnabled()
+                        ? "No matching commits found" : "Diff embeddings are disabled");
+            }
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Diff search error:", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("status", "error", "message", "Failed to perform diff search", "details", e.getMessage()));
+        }
+    }
+
+    /**
+     * Organization-wide search across every analysis, or a comma-separated set of analysis ids.
+     */
+    @GetMapping("/search-global")
+    public ResponseEntity<Map<String, Object>> searchGlobal(@RequestParam String query,
+                                                            @RequestParam(required = false) List<Long> analysisIds,
+                                                            @RequestParam(defaultValue = "20") int limit,
+                                                            @RequestParam(defaultValue = "3") int perRepo) {
+
+        if (query == null || query.trim().isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("status", "error", "message", "Search query is required"));
+        }
+
+        try {
+            List<Map<String, Object>> results = analysisService.searchSimilarCommitsGlobal(query,
+                    analysisIds == null ? List.of() : analysisIds, clampLimit(limit), Math.max(1, perRepo));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "success");
+            response.put("results", results);
+            if (results.isEmpty()) {
+                response.put("message", "No matching commits found");
+            }
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Global search error:", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("status", "error", "message", "Failed to perform semantic search", "details", e.getMessage()));
+        }
+    }
+
+    /**
+     * Runs up to {@value #MAX_BATCH_QUERIES} semantic searches with one embedding call and one database round trip.
+     */
+    @PostMapping("/search-commits/batch")
+    public ResponseEntity<Map<String, Object>> searchCommitsBatch(@RequestBody Map<String, List<String>> request,
+                                                                  @RequestParam(name = "analysisId") Long analysisId,
+                                                                  @RequestParam(defaultValue = "5") int limit) {
+        List<String> queries = request.get("queries");
+        if (queries == null || queries.isEmpty() || queries.size() > MAX_BATCH_QUERIES
+                || queries.stream().anyMatch(query -> query == null || query.trim().isEmpty())) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("status", "error", "message", "Between 1 and " + MAX_BATCH_QUERIES + " non-empty queries are required"));
+        }
+
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "success");
+            response.put("results", analysisService.searchSimilarCommitsBatch(analysisId, queries, clampLimit(limit)));
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Batch search error:", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("status", "error", "message", "Failed to perform semantic search", "details", e.getMessage()));
+        }
+    }
+
+    /**
+     * "More like this": neighbours of a stored commit, using its stored vector as the query.
+     */
+    @GetMapping("/similar-commits")
+    public ResponseEntity<Map<String, Object>> similarCommits(@RequestParam String commitHash,
+                                                              @RequestParam(name = "analysisId") Long analysisId,
+                                                              @RequestParam(defaultValue = "5") int limit) {
+        try {
+            List<Map<String, Object>> results = analysisService
+                    .findSimilarToCommits(analysisId, List.of(commitHash), clampLimit(limit))
+                    .get(commitHash);
+            if (results == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("status", "error", "message", "Commit has no stored embedding in this analysis"));
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "success");
+            response.put("results", results);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Similar commits error:", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("status", "error", "message", "Failed to find similar commits", "details", e.getMessage()));
+        }
+    }
+
+    /**
+     * Batch "more like this" for up to {@value #MAX_BATCH_HASHES} hashes in one query; results are keyed by hash.
+     */
+    @PostMapping("/similar-commits/batch")
+    public ResponseEntity<Map<String, Object>> similarCommitsBatch(@RequestBody Map<String, List<String>> request,
+                                                                   @RequestParam(name = "analysisId") Long analysisId,
+                                                                   @RequestParam(defaultValue = "5") int limit) {
+        List<String> hashes = request.get("commitHashes");
+        if (hashes == null || hashes.isEmpty() || hashes.size() > MAX_BATCH_HASHES) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("status", "error", "message", "Between 1 and " + MAX_BATCH_HASHES + " commitHashes are required"));
+        }
+
+        try {
+            Map<String, List<Map<String, Object>>> results = analysisService
+                    .findSimilarToCommits(analysisId, new LinkedHashSet<>(hashes), clampLimit(limit));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "success");
+            response.put("results", results);
+            List<String> missing = hashes.stream().filter(hash -> !results.containsKey(hash)).distinct().toList();
+            if (!missing.isEmpty()) {
+                response.put("missing", missing);
+            }
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Batch similar commits error:", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("status", "error", "message", "Failed to find similar commits", "details", e.getMessage()));
+        }
+    }
+
+    private static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_NEIGHBOURS));
+    }
+
     @PostMapping("/question-answering")
     public ResponseEntity<Map<String, Object>> answerQuestion(@RequestBody Map<String, String> request, @RequestParam(name = "analysisId") Long analysisId) {
         
@@ -92,4 +267,105 @@ public class SearchController {
                     .body(Map.of("status", "error", "message", "Failed to generate summary"));
         }
     }
+
+    /**
+     * Thematic overview from the last persisted clustering of the commit embeddings; {@code refreshing} is true
+     * while newer embeddings are waiting to be clustered.
+     */
+    @GetMapping("/commit-topics")
+    public ResponseEntity<Map<String, Object>> commitTopics(@RequestParam(name = "analysisId") Long analysisId,
+                                                            @RequestParam(defaultValue = "5") int representatives) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "success");
+            response.put("data", topicClusteringService.getTopics(analysisId, Math.max(1, Math.min(representatives, 20))));
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Commit topics error:", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("status", "error", "message", "Failed to cluster commit topics"));
+        }
+    }
+
+    @GetMapping("/commit-topics/commits")
+    public ResponseEntity<Map<String, Object>> commitTopicCommits(@RequestParam(name = "analysisId") Long analysisId,
+                                                                  @RequestParam int topic,
+                                                                  @RequestParam(defaultValue = "0") int page,
+                                                                  @RequestParam(defaultValue = "20") int size) {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "success");
+            response.put("commits", topicClusteringService.getTopicCommits(analysisId, topic, Math.max(0, page), clampLimit(size)));
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Commit topic commits error:", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("status", "error", "message", "Failed to fetch topic commits"));
+        }
+    }
+
+    /**
+     * Queues a refit of the topics from scratch, optionally with a new {@code k} and with one generated label per
+     * topic; {@code GET /commit-topics} serves the new model once it is stored.
+     */
+    @PostMapping("/commit-topics/recompute")
+    public ResponseEntity<Map<String, Object>> recomputeCommitTopics(@RequestParam(name = "analysisId") Long analysisId,
+                                                                     @RequestParam(required = false) Integer k,
+                                                                     @RequestParam(required = false) Boolean labels) {
+        if (k != null && (k < 1 || k > MAX_TOPICS)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("status", "error", "message", "k must be between 1 and " + MAX_TOPICS));
+        }
+        try {
+            topicClusteringService.recompute(analysisId, k, labels);
+            return ResponseEntity.accepted().body(Map.of("status", "success", "message", "Topic refit queued"));
+
+        } catch (Exception e) {
+            logger.error("Commit topics recompute error:", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("status", "error", "message", "Failed to recompute commit topics"));
+        }
+    }
+
+    /**
+     * Server-Sent Events variant of /question-answering: "token" events carry answer fragments, then one "done" event.
+     */
+    @PostMapping(value = "/question-answering/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<String>>> streamAnswer(@RequestBody Map<String, String> request, @RequestParam(name = "analysisId") Long analysisId) {
+
+        String question = request.get("question");
+        if (question == null || question.trim().isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(Flux.just(errorEvent("Valid question is required")));
+        }
+
+        return ResponseEntity.ok(toEvents(analysisService.streamAnswer(analysisId, question), "Failed to process question"));
+    }
+
+    /**
+     * Server-Sent Events variant of /summarize.
+     */
+    @PostMapping(value = "/summarize/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamSummary(@RequestParam(name = "analysisId") Long analysisId) {
+        return toEvents(analysisService.streamSummary(analysisId), "Failed to generate summary");
+    }
+
+    /**
+     * Wraps fragments as SSE events. A client disconnect cancels the subscription, which cancels generation upstream.
+     */
+    private Flux<ServerSentEvent<String>> toEvents(Flux<String> fragments, String errorMessage) {
+        return fragments
+                .map(fragment -> ServerSentEvent.builder(fragment).event("token").build())
+                .concatWith(Flux.just(ServerSentEvent.builder("").event("done").build()))
+                .onErrorResume(e -> {
+                    logger.error("Streaming error:", e);
+                    return Flux.just(errorEvent(errorMessage));
+                });
+    }
+
+    private ServerSentEvent<String> errorEvent(String message) {
+        return ServerSentEvent.builder(message).event("error").build();
+    }
 }
@@ -0,0 +1,60 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Commit count of one time bucket. {@code granularity} is D, W (ISO weeks, starting Monday) or M;
+ * {@code author} is the author identity, or empty for the repository as a whole.
+ */
+@Entity
+@Table(name = "activity_buckets",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "granularity", "bucket_start", "author"}))
+public class ActivityBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "granularity", nullable = false, length = 1)
+    private String granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDate bucketStart;
+
+    @Column(name = "author", nullable = false)
+    private String author;
+
+    @Column(name = "commits", nullable = false)
+    private int commits;
+
+    public ActivityBucket() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public LocalDate getBucketStart() {
+        return bucketStart;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public int getCommits() {
+        return commits;
+    }
+}
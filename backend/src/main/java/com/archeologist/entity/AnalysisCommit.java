@@ -0,0 +1,99 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A commit ingested for an analysis. Rows are inserted once per (analysis, hash), which is how ingest
+ * tells new commits from known ones and keeps the derived aggregates incremental.
+ */
+@Entity
+@Table(name = "analysis_commits",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "commit_hash"}))
+public class AnalysisCommit {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "code_analysis_id")
+    private CodeAnalysis codeAnalysis;
+
+    @Column(name = "commit_hash", nullable = false)
+    private String commitHash;
+
+    @Column(name = "author_name")
+    private String authorName;
+
+    @Column(name = "author_email")
+    private String authorEmail;
+
+    /** Author as merged by AuthorIdentityService, stored at ingest. */
+    @Column(name = "author_key", columnDefinition = "TEXT")
+    private String authorKey;
+
+    @Column(name = "committed_at")
+    private LocalDateTime committedAt;
+
+    @Column(name = "message", columnDefinition = "TEXT")
+    private String message;
+
+    /** Parent hashes separated by spaces. */
+    @Column(name = "parents")
+    private String parents;
+
+    /** Whether the commit's changed files were fetched into {@code commit_files}. */
+    @Column(name = "files_fetched", columnDefinition = "BOOLEAN DEFAULT FALSE")
+    private Boolean filesFetched = false;
+
+    @Column(name = "ingested_at")
+    private LocalDateTime ingestedAt = LocalDateTime.now();
+
+    public AnalysisCommit() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public CodeAnalysis getCodeAnalysis() {
+        return codeAnalysis;
+    }
+
+    public String getCommitHash() {
+        return commitHash;
+    }
+
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public String getAuthorEmail() {
+        return authorEmail;
+    }
+
+    public String getAuthorKey() {
+        return authorKey;
+    }
+
+    public LocalDateTime getCommittedAt() {
+        return committedAt;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getParents() {
+        return parents;
+    }
+
+    public LocalDateTime getIngestedAt() {
+        return ingestedAt;
+    }
+
+    public Boolean getFilesFetched() {
+        return filesFetched;
+    }
+}
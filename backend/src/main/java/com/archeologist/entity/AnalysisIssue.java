@@ -0,0 +1,73 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * An issue or pull request of the analysed repository, stored so commit links can be joined to it.
+ */
+@Entity
+@Table(name = "analysis_issues",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "number"}))
+public class AnalysisIssue {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "number", nullable = false)
+    private int number;
+
+    @Column(name = "title", columnDefinition = "TEXT")
+    private String title;
+
+    @Column(name = "state")
+    private String state;
+
+    @Column(name = "url")
+    private String url;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "closed_at")
+    private LocalDateTime closedAt;
+
+    public AnalysisIssue() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getClosedAt() {
+        return closedAt;
+    }
+}
@@ -0,0 +1,95 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Running churn totals of one author. Line and file counts cover only {@code detailedCommits}, the commits
+ * whose changed files were fetched; {@code commits} covers all of them.
+ */
+@Entity
+@Table(name = "author_churn",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "author_key"}))
+public class AuthorChurn {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "author_key", nullable = false)
+    private String authorKey;
+
+    @Column(name = "display_name")
+    private String displayName;
+
+    @Column(name = "commits", nullable = false)
+    private int commits;
+
+    @Column(name = "detailed_commits", nullable = false)
+    private int detailedCommits;
+
+    @Column(name = "additions", nullable = false)
+    private long additions;
+
+    @Column(name = "deletions", nullable = false)
+    private long deletions;
+
+    @Column(name = "files_touched", nullable = false)
+    private int filesTouched;
+
+    @Column(name = "first_commit_at")
+    private LocalDateTime firstCommitAt;
+
+    @Column(name = "last_commit_at")
+    private LocalDateTime lastCommitAt;
+
+    public AuthorChurn() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public String getAuthorKey() {
+        return authorKey;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public int getCommits() {
+        return commits;
+    }
+
+    public int getDetailedCommits() {
+        return detailedCommits;
+    }
+
+    public long getAdditions() {
+        return additions;
+    }
+
+    public long getDeletions() {
+        return deletions;
+    }
+
+    public int getFilesTouched() {
+        return filesTouched;
+    }
+
+    public LocalDateTime getFirstCommitAt() {
+        return firstCommitAt;
+    }
+
+    public LocalDateTime getLastCommitAt() {
+        return lastCommitAt;
+    }
+}
@@ -0,0 +1,44 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * A file an author has changed, kept once per (author, path) to count distinct files touched.
+ */
+@Entity
+@Table(name = "author_files",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "author_key", "path"}))
+public class AuthorFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "author_key", nullable = false)
+    private String authorKey;
+
+    @Column(name = "path", nullable = false, columnDefinition = "TEXT")
+    private String path;
+
+    public AuthorFile() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public String getAuthorKey() {
+        return authorKey;
+    }
+
+    public String getPath() {
+        return path;
+    }
+}
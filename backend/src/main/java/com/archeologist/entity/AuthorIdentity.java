@@ -0,0 +1,44 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * One alias ({@code login:}, {@code email:} or {@code name:} prefixed) an author has committed under.
+ */
+@Entity
+@Table(name = "author_identities",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "alias"}))
+public class AuthorIdentity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "alias", nullable = false)
+    private String alias;
+
+    @Column(name = "author_key", nullable = false)
+    private String authorKey;
+
+    public AuthorIdentity() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public String getAuthorKey() {
+        return authorKey;
+    }
+}
@@ -16,12 +16,31 @@ public class CodeAnalysis {
     @Column(name = "repo_url", nullable = false)
     private String repoUrl;
 
+    @Column(name = "repo_key")
+    private String repoKey;
+
+    @Column(name = "head_sha")
+    private String headSha;
+
+    @Column(name = "total_commits")
+    private Integer totalCommits;
+
+    /** Oldest commit reached by walking history back from HEAD; a backfill resumes listing from it. */
+    @Column(name = "history_frontier")
+    private String historyFrontier;
+
+    @Column(name = "history_complete")
+    private Boolean historyComplete = false;
+
     @Column(name = "status", nullable = false)
     private String status;
 
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    @Column(name = "refreshed_at")
+    private LocalDateTime refreshedAt = LocalDateTime.now();
+
     @Column(name = "commits", columnDefinition = "jsonb")
     @JdbcTypeCode(SqlTypes.JSON)
     private String commits = "{}";
@@ -83,6 +102,46 @@ public class CodeAnalysis {
         this.repoUrl = repoUrl;
     }
 
+    public String getRepoKey() {
+        return repoKey;
+    }
+
+    public void setRepoKey(String repoKey) {
+        this.repoKey = repoKey;
+    }
+
+    public String getHeadSha() {
+        return headSha;
+    }
+
+    public void setHeadSha(String headSha) {
+        this.headSha = headSha;
+    }
+
+    public String getHistoryFrontier() {
+        return historyFrontier;
+    }
+
+    public void setHistoryFrontier(String historyFrontier) {
+        this.historyFrontier = historyFrontier;
+    }
+
+    public boolean isHistoryComplete() {
+        return Boolean.TRUE.equals(historyComplete);
+    }
+
+    public void setHistoryComplete(boolean historyComplete) {
+        this.historyComplete = historyComplete;
+    }
+
+    public Integer getTotalCommits() {
+        return totalCommits;
+    }
+
+    public void setTotalCommits(Integer totalCommits) {
+        this.totalCommits = totalCommits;
+    }
+
     public String getStatus() {
         return status;
     }
@@ -99,6 +158,14 @@ public class CodeAnalysis {
         this.createdAt = createdAt;
     }
 
+    public LocalDateTime getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    public void setRefreshedAt(LocalDateTime refreshedAt) {
+        this.refreshedAt = refreshedAt;
+    }
+
     public String getCommits() {
         return commits;
     }
@@ -0,0 +1,77 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import java.time.LocalDateTime;
+
+/**
+ * One embedded chunk of a commit's diff, companion to the commit's row in {@code commit_embeddings}.
+ */
+@Entity
+@Table(name = "commit_diff_chunks",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "commit_hash", "file_path", "chunk_index"}))
+public class CommitDiffChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "code_analysis_id")
+    private CodeAnalysis codeAnalysis;
+
+    @Column(name = "commit_hash", nullable = false)
+    private String commitHash;
+
+    @Column(name = "file_path", nullable = false)
+    private String filePath;
+
+    @Column(name = "chunk_index", nullable = false)
+    private int chunkIndex;
+
+    @Column(name = "content", columnDefinition = "TEXT", nullable = false)
+    private String content;
+
+    @Column(name = "embedding", columnDefinition = "vector(768)")
+    @JdbcTypeCode(SqlTypes.OTHER)
+    private String embedding;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public CommitDiffChunk() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public CodeAnalysis getCodeAnalysis() {
+        return codeAnalysis;
+    }
+
+    public String getCommitHash() {
+        return commitHash;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getEmbedding() {
+        return embedding;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -6,7 +6,9 @@ import org.hibernate.type.SqlTypes;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "commit_embeddings")
+@Table(name = "commit_embeddings",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "commit_hash"}),
+       indexes = @Index(name = "idx_commit_embeddings_duplicate_of", columnList = "code_analysis_id, duplicate_of"))
 public class CommitEmbedding {
 
     @Id
@@ -27,6 +29,12 @@ public class CommitEmbedding {
     @JdbcTypeCode(SqlTypes.OTHER)
     private String embedding;
 
+    /**
+     * Hash of the representative commit whose vector this near-duplicate shares; such rows store no vector.
+     */
+    @Column(name = "duplicate_of")
+    private String duplicateOf;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -89,6 +97,14 @@ public class CommitEmbedding {
         this.embedding = embedding;
     }
 
+    public String getDuplicateOf() {
+        return duplicateOf;
+    }
+
+    public void setDuplicateOf(String duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,58 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * A file changed by an ingested commit, with its line counts.
+ */
+@Entity
+@Table(name = "commit_files",
+       indexes = @Index(name = "idx_commit_files_commit", columnList = "code_analysis_id, commit_hash"))
+public class CommitFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "commit_hash", nullable = false)
+    private String commitHash;
+
+    @Column(name = "path", nullable = false, columnDefinition = "TEXT")
+    private String path;
+
+    @Column(name = "additions", nullable = false)
+    private int additions;
+
+    @Column(name = "deletions", nullable = false)
+    private int deletions;
+
+    public CommitFile() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public String getCommitHash() {
+        return commitHash;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getAdditions() {
+        return additions;
+    }
+
+    public int getDeletions() {
+        return deletions;
+    }
+}
@@ -0,0 +1,61 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * A reference from an ingested commit's message to an issue or pull request. {@code issueRepo} is empty for the
+ * analysed repository itself and {@code owner/name} for cross-repository references; {@code closes} marks
+ * references preceded by a closing keyword.
+ */
+@Entity
+@Table(name = "commit_issue_links",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "commit_hash", "issue_repo", "issue_number"}),
+       indexes = @Index(name = "idx_commit_issue_links_issue", columnList = "code_analysis_id, issue_repo, issue_number"))
+public class CommitIssueLink {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "commit_hash", nullable = false)
+    private String commitHash;
+
+    @Column(name = "issue_repo", nullable = false)
+    private String issueRepo;
+
+    @Column(name = "issue_number", nullable = false)
+    private int issueNumber;
+
+    @Column(name = "closes", nullable = false)
+    private boolean closes;
+
+    public CommitIssueLink() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public String getCommitHash() {
+        return commitHash;
+    }
+
+    public String getIssueRepo() {
+        return issueRepo;
+    }
+
+    public int getIssueNumber() {
+        return issueNumber;
+    }
+
+    public boolean isCloses() {
+        return closes;
+    }
+}
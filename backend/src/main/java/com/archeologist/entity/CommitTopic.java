@@ -0,0 +1,66 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * One topic of an analysis's commit clustering: its centroid (little-endian float32 values), the mini-batch
+ * count that sets its learning rate, the number of commits assigned to it and an optional generated label.
+ */
+@Entity
+@Table(name = "commit_topics",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "topic"}))
+public class CommitTopic {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "topic", nullable = false)
+    private int topic;
+
+    @Column(name = "centroid", nullable = false)
+    private byte[] centroid;
+
+    @Column(name = "fit_count", nullable = false)
+    private long fitCount;
+
+    @Column(name = "size", nullable = false)
+    private int size;
+
+    @Column(name = "label", columnDefinition = "TEXT")
+    private String label;
+
+    public CommitTopic() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public int getTopic() {
+        return topic;
+    }
+
+    public byte[] getCentroid() {
+        return centroid;
+    }
+
+    public long getFitCount() {
+        return fitCount;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,53 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * The topic of one commit and its squared distance from the topic's centroid when it was assigned. Near-duplicate
+ * commits take their representative's topic.
+ */
+@Entity
+@Table(name = "commit_topic_assignments",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "commit_hash"}),
+       indexes = @Index(name = "idx_commit_topic_assignments_topic", columnList = "code_analysis_id, topic, distance"))
+public class CommitTopicAssignment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "commit_hash", nullable = false)
+    private String commitHash;
+
+    @Column(name = "topic", nullable = false)
+    private int topic;
+
+    @Column(name = "distance", nullable = false)
+    private float distance;
+
+    public CommitTopicAssignment() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public String getCommitHash() {
+        return commitHash;
+    }
+
+    public int getTopic() {
+        return topic;
+    }
+
+    public float getDistance() {
+        return distance;
+    }
+}
@@ -0,0 +1,59 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Persistent tier of the completion cache. {@code cacheKey} is a SHA-256 over the completion models,
+ * the analysis's commit-set version and the request the prompt was built from.
+ */
+@Entity
+@Table(name = "completion_cache")
+public class CompletionCacheEntry {
+
+    @Id
+    @Column(name = "cache_key", nullable = false)
+    private String cacheKey;
+
+    @Column(name = "code_analysis_id")
+    private Long analysisId;
+
+    @Column(name = "response", columnDefinition = "TEXT", nullable = false)
+    private String response;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "last_hit_at")
+    private LocalDateTime lastHitAt = LocalDateTime.now();
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public CompletionCacheEntry() {
+    }
+
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getLastHitAt() {
+        return lastHitAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,59 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Running totals of one author's changes at or below a directory: file touches and lines added plus removed.
+ * The root is the empty path.
+ */
+@Entity
+@Table(name = "directory_authors",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "path", "author_key"}))
+public class DirectoryAuthor {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "path", nullable = false, columnDefinition = "TEXT")
+    private String path;
+
+    @Column(name = "author_key", nullable = false)
+    private String authorKey;
+
+    @Column(name = "touches", nullable = false)
+    private long touches;
+
+    @Column(name = "lines", nullable = false)
+    private long lines;
+
+    public DirectoryAuthor() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getAuthorKey() {
+        return authorKey;
+    }
+
+    public long getTouches() {
+        return touches;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+}
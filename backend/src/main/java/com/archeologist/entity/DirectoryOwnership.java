@@ -0,0 +1,99 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * Knowledge concentration of one directory, summarised from its {@link DirectoryAuthor} rows: total touches,
+ * number of authors, the top owners with their shares, and the bus factor, the fewest authors who together
+ * made at least the configured share of the touches.
+ */
+@Entity
+@Table(name = "directory_ownership",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "path"}),
+       indexes = @Index(name = "idx_directory_ownership_parent", columnList = "code_analysis_id, parent_path"))
+public class DirectoryOwnership {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "path", nullable = false, columnDefinition = "TEXT")
+    private String path;
+
+    @Column(name = "parent_path", columnDefinition = "TEXT")
+    private String parentPath;
+
+    @Column(name = "depth", nullable = false)
+    private int depth;
+
+    @Column(name = "touches", nullable = false)
+    private long touches;
+
+    @Column(name = "authors", nullable = false)
+    private int authors;
+
+    @Column(name = "bus_factor", nullable = false)
+    private int busFactor;
+
+    @Column(name = "top_owner")
+    private String topOwner;
+
+    @Column(name = "top_share")
+    private double topShare;
+
+    @Column(name = "top_owners", columnDefinition = "jsonb")
+    @JdbcTypeCode(SqlTypes.JSON)
+    private String topOwners = "[]";
+
+    public DirectoryOwnership() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getParentPath() {
+        return parentPath;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getTouches() {
+        return touches;
+    }
+
+    public int getAuthors() {
+        return authors;
+    }
+
+    public int getBusFactor() {
+        return busFactor;
+    }
+
+    public String getTopOwner() {
+        return topOwner;
+    }
+
+    public double getTopShare() {
+        return topShare;
+    }
+
+    public String getTopOwners() {
+        return topOwners;
+    }
+}
@@ -0,0 +1,173 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import java.time.LocalDateTime;
+
+/**
+ * One chunk of commits awaiting embedding. Rows are claimed by workers on any node with a lease,
+ * and {@code checkpoint} records how many commits of the chunk have been embedded so far.
+ */
+@Entity
+@Table(name = "embedding_tasks",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "chunk_index"}))
+public class EmbeddingTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "code_analysis_id")
+    private CodeAnalysis codeAnalysis;
+
+    @Column(name = "chunk_index", nullable = false)
+    private int chunkIndex;
+
+    @Column(name = "commits", columnDefinition = "jsonb")
+    @JdbcTypeCode(SqlTypes.JSON)
+    private String commits = "[]";
+
+    @Column(name = "client_id")
+    private String clientId;
+
+    @Column(name = "status", nullable = false)
+    private String status = "PENDING";
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "checkpoint", nullable = false)
+    private int checkpoint;
+
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public EmbeddingTask() {
+    }
+
+    public EmbeddingTask(CodeAnalysis codeAnalysis, int chunkIndex, String commits, String clientId) {
+        this.codeAnalysis = codeAnalysis;
+        this.chunkIndex = chunkIndex;
+        this.commits = commits;
+        this.clientId = clientId;
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public CodeAnalysis getCodeAnalysis() {
+        return codeAnalysis;
+    }
+
+    public void setCodeAnalysis(CodeAnalysis codeAnalysis) {
+        this.codeAnalysis = codeAnalysis;
+    }
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public void setChunkIndex(int chunkIndex) {
+        this.chunkIndex = chunkIndex;
+    }
+
+    public String getCommits() {
+        return commits;
+    }
+
+    public void setCommits(String commits) {
+        this.commits = commits;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public int getCheckpoint() {
+        return checkpoint;
+    }
+
+    public void setCheckpoint(int checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public LocalDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,59 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * A file's co-change partner: {@code support} commits changed both files, and {@code confidence} is the
+ * share of the file's commits that also changed the partner.
+ */
+@Entity
+@Table(name = "file_couplings",
+       indexes = @Index(name = "idx_file_couplings_path", columnList = "code_analysis_id, path"))
+public class FileCoupling {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "path", nullable = false, columnDefinition = "TEXT")
+    private String path;
+
+    @Column(name = "partner", nullable = false, columnDefinition = "TEXT")
+    private String partner;
+
+    @Column(name = "support", nullable = false)
+    private int support;
+
+    @Column(name = "confidence", nullable = false)
+    private double confidence;
+
+    public FileCoupling() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getPartner() {
+        return partner;
+    }
+
+    public int getSupport() {
+        return support;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+}
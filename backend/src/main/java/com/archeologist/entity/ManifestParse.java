@@ -0,0 +1,57 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * Parsed dependencies of one manifest blob. A git blob sha names its content, so a row stays valid for every
+ * repository, path and analysis that contains the same file and is shared between them.
+ */
+@Entity
+@Table(name = "manifest_parses",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"blob_sha", "ecosystem"}))
+public class ManifestParse {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "blob_sha", nullable = false, columnDefinition = "TEXT")
+    private String blobSha;
+
+    @Column(name = "ecosystem", nullable = false, columnDefinition = "TEXT")
+    private String ecosystem;
+
+    @Column(name = "dependencies", columnDefinition = "jsonb", nullable = false)
+    @JdbcTypeCode(SqlTypes.JSON)
+    private String dependencies = "{}";
+
+    @Column(name = "parsed_at")
+    private LocalDateTime parsedAt = LocalDateTime.now();
+
+    public ManifestParse() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getBlobSha() {
+        return blobSha;
+    }
+
+    public String getEcosystem() {
+        return ecosystem;
+    }
+
+    public String getDependencies() {
+        return dependencies;
+    }
+
+    public LocalDateTime getParsedAt() {
+        return parsedAt;
+    }
+}
@@ -0,0 +1,67 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * One node of an analysis's directory trie: a file or directory with the number of file changes at or below it.
+ * The root is the empty path at depth 0; {@code parentPath} links each node to its directory.
+ */
+@Entity
+@Table(name = "path_changes",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "path"}),
+       indexes = @Index(name = "idx_path_changes_parent", columnList = "code_analysis_id, parent_path, changes"))
+public class PathChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "path", nullable = false, columnDefinition = "TEXT")
+    private String path;
+
+    @Column(name = "parent_path", columnDefinition = "TEXT")
+    private String parentPath;
+
+    @Column(name = "depth", nullable = false)
+    private int depth;
+
+    @Column(name = "is_file", nullable = false)
+    private boolean file;
+
+    @Column(name = "changes", nullable = false)
+    private long changes;
+
+    public PathChange() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getParentPath() {
+        return parentPath;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public boolean isFile() {
+        return file;
+    }
+
+    public long getChanges() {
+        return changes;
+    }
+}
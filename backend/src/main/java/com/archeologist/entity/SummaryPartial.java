@@ -0,0 +1,84 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A cached summary of one node of the map-reduce summary tree: a contiguous range of an analysis's commits
+ * at {@code level} 0, or a group of lower-level summaries above that. The range is identified by its first
+ * and last commit hash and its size, so appending commits only invalidates the nodes on the tail, and by the
+ * completion models that wrote it, so changing a model invalidates every node.
+ */
+@Entity
+@Table(name = "summary_partials",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id", "level", "first_hash", "last_hash", "commit_count", "model_fingerprint"}))
+public class SummaryPartial {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "code_analysis_id")
+    private CodeAnalysis codeAnalysis;
+
+    @Column(name = "level", nullable = false)
+    private int level;
+
+    @Column(name = "first_hash", nullable = false)
+    private String firstHash;
+
+    @Column(name = "last_hash", nullable = false)
+    private String lastHash;
+
+    @Column(name = "commit_count", nullable = false)
+    private int commitCount;
+
+    @Column(name = "model_fingerprint", columnDefinition = "TEXT DEFAULT ''", nullable = false)
+    private String modelFingerprint;
+
+    @Column(name = "summary", columnDefinition = "TEXT", nullable = false)
+    private String summary;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public SummaryPartial() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public CodeAnalysis getCodeAnalysis() {
+        return codeAnalysis;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public String getFirstHash() {
+        return firstHash;
+    }
+
+    public String getLastHash() {
+        return lastHash;
+    }
+
+    public int getCommitCount() {
+        return commitCount;
+    }
+
+    public String getModelFingerprint() {
+        return modelFingerprint;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
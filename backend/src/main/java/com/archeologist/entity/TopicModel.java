@@ -0,0 +1,82 @@
+package com.archeologist.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * State of an analysis's commit topic clustering: the number of topics, the embedding dimension and the
+ * highest {@code commit_embeddings} id already assigned, from which the next incremental update continues.
+ * {@code fittedCommits} is the number of embedded commits at the last full fit.
+ */
+@Entity
+@Table(name = "topic_models",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"code_analysis_id"}))
+public class TopicModel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "code_analysis_id", nullable = false)
+    private Long analysisId;
+
+    @Column(name = "k", nullable = false)
+    private int k;
+
+    @Column(name = "dim", nullable = false)
+    private int dim;
+
+    @Column(name = "through_embedding_id", nullable = false)
+    private long throughEmbeddingId;
+
+    @Column(name = "fitted_commits", nullable = false)
+    private int fittedCommits;
+
+    @Column(name = "assigned_commits", nullable = false)
+    private int assignedCommits;
+
+    @Column(name = "labelled", nullable = false)
+    private boolean labelled;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public TopicModel() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public int getDim() {
+        return dim;
+    }
+
+    public long getThroughEmbeddingId() {
+        return throughEmbeddingId;
+    }
+
+    public int getFittedCommits() {
+        return fittedCommits;
+    }
+
+    public int getAssignedCommits() {
+        return assignedCommits;
+    }
+
+    public boolean isLabelled() {
+        return labelled;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,15 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.ActivityBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ActivityBucketRepository extends JpaRepository<ActivityBucket, Long> {
+
+    List<ActivityBucket> findByAnalysisIdAndGranularityAndAuthorAndBucketStartBetweenOrderByBucketStart(
+            Long analysisId, String granularity, String author, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,15 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.AnalysisIssue;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AnalysisIssueRepository extends JpaRepository<AnalysisIssue, Long> {
+
+    Optional<AnalysisIssue> findByAnalysisIdAndNumber(Long analysisId, int number);
+
+    long countByAnalysisId(Long analysisId);
+}
@@ -0,0 +1,17 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.AuthorChurn;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AuthorChurnRepository extends JpaRepository<AuthorChurn, Long> {
+
+    List<AuthorChurn> findByAnalysisId(Long analysisId, Pageable pageable);
+
+    Optional<AuthorChurn> findByAnalysisIdAndAuthorKey(Long analysisId, String authorKey);
+}
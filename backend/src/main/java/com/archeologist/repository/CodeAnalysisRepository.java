@@ -10,4 +10,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CodeAnalysisRepository extends JpaRepository<CodeAnalysis, Long> { }
+public interface CodeAnalysisRepository extends JpaRepository<CodeAnalysis, Long> {
+
+    Optional<CodeAnalysis> findTopByRepoKeyOrderByRefreshedAtDesc(String repoKey);
+}
@@ -0,0 +1,52 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.CommitDiffChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CommitDiffChunkRepository extends JpaRepository<CommitDiffChunk, Long> {
+
+    @Query("SELECT DISTINCT d.commitHash FROM CommitDiffChunk d WHERE d.codeAnalysis.id = :analysisId AND d.commitHash IN :hashes")
+    List<String> findChunkedCommitHashes(@Param("analysisId") Long analysisId, @Param("hashes") Collection<String> hashes);
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO commit_diff_chunks (code_analysis_id, commit_hash, file_path, chunk_index, content, embedding, created_at) " +
+                   "VALUES (:analysisId, :commitHash, :filePath, :chunkIndex, :content, CAST(:embedding AS vector), NOW()) " +
+                   "ON CONFLICT (code_analysis_id, commit_hash, file_path, chunk_index) DO UPDATE SET " +
+                   "content = EXCLUDED.content, embedding = EXCLUDED.embedding", nativeQuery = true)
+    int upsertChunk(@Param("analysisId") Long analysisId, @Param("commitHash") String commitHash,
+                    @Param("filePath") String filePath, @Param("chunkIndex") int chunkIndex,
+                    @Param("content") String content, @Param("embedding") String embedding);
+
+    /**
+     * Diff search aggregated per commit: the {@code candidates} nearest chunks are grouped by commit, ranked by
+     * their best chunk. Returns hash, message, best similarity, number of matching chunks, best file and best chunk.
+     */
+    @Query(value = "WITH hits AS (" +
+                   "  SELECT d.commit_hash, d.file_path, d.content, " +
+                   "         1 - (d.embedding <=> CAST(:queryEmbedding AS vector)) AS similarity " +
+                   "  FROM commit_diff_chunks d WHERE d.code_analysis_id = :analysisId " +
+                   "  ORDER BY d.embedding <=> CAST(:queryEmbedding AS vector) LIMIT :candidates" +
+                   "), ranked AS (" +
+                   "  SELECT h.*, row_number() OVER (PARTITION BY commit_hash ORDER BY similarity DESC) AS rn, " +
+                   "         count(*) OVER (PARTITION BY commit_hash) AS chunk_hits " +
+                   "  FROM hits h" +
+                   ") " +
+                   "SELECT r.commit_hash, ce.commit_message, r.similarity, r.chunk_hits, r.file_path, r.content " +
+                   "FROM ranked r LEFT JOIN commit_embeddings ce " +
+                   "  ON ce.code_analysis_id = :analysisId AND ce.commit_hash = r.commit_hash " +
+                   "WHERE r.rn = 1 AND r.similarity > :minSimilarity " +
+                   "ORDER BY r.similarity DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> searchCommitsByDiff(@Param("analysisId") Long analysisId, @Param("queryEmbedding") String queryEmbedding,
+                                       @Param("candidates") int candidates, @Param("minSimilarity") double minSimilarity,
+                                       @Param("limit") int limit);
+}
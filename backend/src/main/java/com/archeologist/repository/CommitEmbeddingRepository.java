@@ -2,11 +2,13 @@ package com.archeologist.repository;
 
 import com.archeologist.entity.CodeAnalysis;
 import com.archeologist.entity.CommitEmbedding;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,17 +16,159 @@ public interface CommitEmbeddingRepository extends JpaRepository<CommitEmbedding
     
     List<CommitEmbedding> findByCodeAnalysisOrderByCreatedAtDesc(CodeAnalysis codeAnalysis);
     
-    @Query(value = "SELECT commit_hash, commit_message, " +
-                   "1 - (embedding <=> CAST(:queryEmbedding AS vector)) as similarity " +
-                   "FROM commit_embeddings " +
-                   "WHERE code_analysis_id = :analysisId " +
-                   "AND 1 - (embedding <=> CAST(:queryEmbedding AS vector)) > 0.5 " +
-                   "ORDER BY similarity DESC " +
+    /**
+     * Near-duplicates store no vector of their own: each search ranks the commits that do, then returns every
+     * hit followed by the near-duplicates collapsed into it ({@code duplicate_of}), at the hit's similarity.
+     */
+    @Query(value = "SELECT m.commit_hash, m.commit_message, h.similarity " +
+                   "FROM (SELECT commit_hash, commit_message, " +
+                   "      1 - (embedding <=> CAST(:queryEmbedding AS vector)) as similarity " +
+                   "      FROM commit_embeddings " +
+                   "      WHERE code_analysis_id = :analysisId AND embedding IS NOT NULL " +
+                   "      AND 1 - (embedding <=> CAST(:queryEmbedding AS vector)) > 0.5 " +
+                   "      ORDER BY similarity DESC " +
+                   "      LIMIT 5) h " +
+                   "CROSS JOIN LATERAL (" +
+                   "  SELECT h.commit_hash, h.commit_message, 0 AS member " +
+                   "  UNION ALL SELECT d.commit_hash, d.commit_message, 1 FROM commit_embeddings d " +
+                   "  WHERE d.code_analysis_id = :analysisId AND d.duplicate_of = h.commit_hash) m " +
+                   "ORDER BY h.similarity DESC, m.member, m.commit_hash " +
                    "LIMIT 5", nativeQuery = true)
     List<Object[]> findSimilarCommits(@Param("analysisId") Long analysisId, @Param("queryEmbedding") String queryEmbedding);
     
+    @Query(value = "SELECT m.commit_hash, m.commit_message, h.similarity " +
+                   "FROM (SELECT commit_hash, commit_message, " +
+                   "      1 - (embedding <=> CAST(:queryEmbedding AS vector)) as similarity " +
+                   "      FROM commit_embeddings " +
+                   "      WHERE code_analysis_id = :analysisId AND embedding IS NOT NULL " +
+                   "      ORDER BY embedding <=> CAST(:queryEmbedding AS vector) " +
+                   "      LIMIT :limit) h " +
+                   "CROSS JOIN LATERAL (" +
+                   "  SELECT h.commit_hash, h.commit_message, 0 AS member " +
+                   "  UNION ALL SELECT d.commit_hash, d.commit_message, 1 FROM commit_embeddings d " +
+                   "  WHERE d.code_analysis_id = :analysisId AND d.duplicate_of = h.commit_hash) m " +
+                   "ORDER BY h.similarity DESC, m.member, m.commit_hash " +
+                   "LIMIT :limit", nativeQuery = true)
+    List<Object[]> findNearestCommits(@Param("analysisId") Long analysisId, @Param("queryEmbedding") String queryEmbedding, @Param("limit") int limit);
+
+    /**
+     * Top-k search for several query vectors in one statement. {@code queryEmbeddings} holds the vector literals
+     * joined by '|'; rows carry the 1-based query ordinal, hash, message and similarity, best first per query.
+     */
+    @Query(value = "SELECT r.ord, r.commit_hash, r.commit_message, r.similarity FROM (" +
+                   "  SELECT q.ord, m.commit_hash, m.commit_message, n.similarity, " +
+                   "         row_number() OVER (PARTITION BY q.ord ORDER BY n.similarity DESC, m.member, m.commit_hash) AS rank " +
+                   "  FROM unnest(string_to_array(:queryEmbeddings, '|')) WITH ORDINALITY AS q(vec, ord) " +
+                   "  CROSS JOIN LATERAL (" +
+                   "    SELECT c.commit_hash, c.commit_message, 1 - (c.embedding <=> CAST(q.vec AS vector)) AS similarity " +
+                   "    FROM commit_embeddings c WHERE c.code_analysis_id = :analysisId AND c.embedding IS NOT NULL " +
+                   "    ORDER BY c.embedding <=> CAST(q.vec AS vector) LIMIT :limit) n " +
+                   "  CROSS JOIN LATERAL (" +
+                   "    SELECT n.commit_hash, n.commit_message, 0 AS member " +
+                   "    UNION ALL SELECT d.commit_hash, d.commit_message, 1 FROM commit_embeddings d " +
+                   "    WHERE d.code_analysis_id = :analysisId AND d.duplicate_of = n.commit_hash) m " +
+                   "  WHERE n.similarity > :minSimilarity" +
+                   ") r WHERE r.rank <= :limit " +
+                   "ORDER BY r.ord, r.rank", nativeQuery = true)
+    List<Object[]> findSimilarCommitsBatch(@Param("analysisId") Long analysisId, @Param("queryEmbeddings") String queryEmbeddings,
+                                           @Param("limit") int limit, @Param("minSimilarity") double minSimilarity);
+
+    /**
+     * Fleet-wide search over every analysis (or the given ones) in one statement. One ANN scan over the shared
+     * vector index yields {@code candidates} hits, each joined with its near-duplicates; commits shared between forks collapse to their closest copy,
+     * each repository keeps at most {@code perRepo} hits. Returns hash, message, analysis id, repo key, repo url,
+     * similarity and the other repos holding the same commit.
+     */
+    @Query(value = "WITH hits AS (" +
+                   "  SELECT ce.commit_hash, ce.commit_message, ce.code_analysis_id, " +
+                   "         ce.embedding <=> CAST(:queryEmbedding AS vector) AS distance " +
+                   "  FROM commit_embeddings ce " +
+                   "  WHERE (:allAnalyses OR ce.code_analysis_id IN (:analysisIds)) AND ce.embedding IS NOT NULL " +
+                   "  ORDER BY ce.embedding <=> CAST(:queryEmbedding AS vector) " +
+                   "  LIMIT :candidates" +
+                   "), candidates AS (" +
+                   "  SELECT m.commit_hash, m.commit_message, h.code_analysis_id, " +
+                   "         COALESCE(ca.repo_key, ca.repo_url) AS repo_key, ca.repo_url, h.distance " +
+                   "  FROM hits h JOIN code_analysis ca ON ca.id = h.code_analysis_id " +
+                   "  CROSS JOIN LATERAL (" +
+                   "    SELECT h.commit_hash, h.commit_message " +
+                   "    UNION ALL SELECT d.commit_hash, d.commit_message FROM commit_embeddings d " +
+                   "    WHERE d.code_analysis_id = h.code_analysis_id AND d.duplicate_of = h.commit_hash) m" +
+                   "), deduped AS (" +
+                   "  SELECT DISTINCT ON (commit_hash) *, " +
+                   "         (SELECT array_to_string(array_agg(DISTINCT o.repo_key), ',') FROM candidates o " +
+                   "          WHERE o.commit_hash = c.commit_hash AND o.repo_key <> c.repo_key) AS also_in " +
+                   "  FROM candidates c ORDER BY commit_hash, distance, code_analysis_id" +
+                   "), capped AS (" +
+                   "  SELECT *, row_number() OVER (PARTITION BY repo_key ORDER BY distance) AS repo_rank FROM deduped" +
+                   ") " +
+                   "SELECT commit_hash, commit_message, code_analysis_id, repo_key, repo_url, 1 - distance AS similarity, also_in " +
+                   "FROM capped WHERE repo_rank <= :perRepo AND 1 - distance > :minSimilarity " +
+                   "ORDER BY distance LIMIT :limit", nativeQuery = true)
+    List<Object[]> findSimilarCommitsGlobal(@Param("queryEmbedding") String queryEmbedding,
+                                            @Param("allAnalyses") boolean allAnalyses,
+                                            @Param("analysisIds") Collection<Long> analysisIds,
+                                            @Param("candidates") int candidates,
+                                            @Param("perRepo") int perRepo,
+                                            @Param("minSimilarity") double minSimilarity,
+                                            @Param("limit") int limit);
+
+    /**
+     * Nearest neighbours of stored commits, using each commit's vector (its representative's, for a
+     * near-duplicate) as the query; near-duplicates of the neighbours are listed with them.
+     * Returns source hash, neighbour hash, neighbour message and similarity, best first per source.
+     */
+    @Query(value = "SELECT r.source_hash, r.commit_hash, r.commit_message, r.similarity FROM (" +
+                   "  SELECT s.commit_hash AS source_hash, m.commit_hash, m.commit_message, n.similarity, " +
+                   "         row_number() OVER (PARTITION BY s.commit_hash ORDER BY n.similarity DESC, m.member, m.commit_hash) AS rank " +
+                   "  FROM commit_embeddings s " +
+                   "  JOIN commit_embeddings q ON q.code_analysis_id = s.code_analysis_id " +
+                   "    AND q.commit_hash = COALESCE(s.duplicate_of, s.commit_hash) " +
+                   "  CROSS JOIN LATERAL (" +
+                   "    SELECT c.commit_hash, c.commit_message, 1 - (c.embedding <=> q.embedding) AS similarity " +
+                   "    FROM commit_embeddings c " +
+                   "    WHERE c.code_analysis_id = q.code_analysis_id AND c.embedding IS NOT NULL " +
+                   "    ORDER BY c.embedding <=> q.embedding LIMIT :limit + 1) n " +
+                   "  CROSS JOIN LATERAL (" +
+                   "    SELECT n.commit_hash, n.commit_message, 0 AS member " +
+                   "    UNION ALL SELECT d.commit_hash, d.commit_message, 1 FROM commit_embeddings d " +
+                   "    WHERE d.code_analysis_id = :analysisId AND d.duplicate_of = n.commit_hash) m " +
+                   "  WHERE s.code_analysis_id = :analysisId AND s.commit_hash IN (:hashes) AND m.commit_hash <> s.commit_hash" +
+                   ") r WHERE r.rank <= :limit " +
+                   "ORDER BY r.source_hash, r.rank", nativeQuery = true)
+    List<Object[]> findNeighboursOfCommits(@Param("analysisId") Long analysisId, @Param("hashes") Collection<String> hashes, @Param("limit") int limit);
+
     @Query("SELECT ce.commitMessage FROM CommitEmbedding ce WHERE ce.codeAnalysis.id = :analysisId ORDER BY ce.createdAt DESC")
     List<String> findCommitMessagesByAnalysisId(@Param("analysisId") Long analysisId);
     
+    @Query("SELECT ce.commitHash, ce.commitMessage FROM CommitEmbedding ce WHERE ce.codeAnalysis.id = :analysisId ORDER BY ce.createdAt DESC")
+    List<Object[]> findRecentCommits(@Param("analysisId") Long analysisId, Pageable pageable);
+
+    /**
+     * Stored commits oldest first by commit time, ties broken by hash; commits without an ingested row sort first.
+     */
+    @Query(value = "SELECT ce.commit_hash, ce.commit_message FROM commit_embeddings ce " +
+                   "LEFT JOIN analysis_commits ac ON ac.code_analysis_id = ce.code_analysis_id AND ac.commit_hash = ce.commit_hash " +
+                   "WHERE ce.code_analysis_id = :analysisId " +
+                   "ORDER BY ac.committed_at NULLS FIRST, ce.commit_hash", nativeQuery = true)
+    List<Object[]> findCommitsInCommitOrder(@Param("analysisId") Long analysisId);
+
+    /**
+     * Count and highest id of an analysis's stored commits; changes whenever its commit set does.
+     */
+    @Query("SELECT COUNT(ce), COALESCE(MAX(ce.id), 0) FROM CommitEmbedding ce WHERE ce.codeAnalysis.id = :analysisId")
+    List<Object[]> findCommitSetVersion(@Param("analysisId") Long analysisId);
+
+    /**
+     * Count and highest id of an analysis's ingested commits ({@code analysis_commits}); changes whenever any node
+     * ingests into it, so derived structures cached per node can tell they are behind.
+     */
+    @Query(value = "SELECT COUNT(*), COALESCE(MAX(id), 0) FROM analysis_commits WHERE code_analysis_id = :analysisId",
+           nativeQuery = true)
+    List<Object[]> findIngestedCommitSetVersion(@Param("analysisId") Long analysisId);
+
     boolean existsByCodeAnalysisAndCommitHash(CodeAnalysis codeAnalysis, String commitHash);
+
+    @Query("SELECT ce.commitHash FROM CommitEmbedding ce WHERE ce.codeAnalysis.id = :analysisId AND ce.commitHash IN :hashes")
+    List<String> findExistingCommitHashes(@Param("analysisId") Long analysisId, @Param("hashes") Collection<String> hashes);
 }
@@ -0,0 +1,51 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.CommitIssueLink;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CommitIssueLinkRepository extends JpaRepository<CommitIssueLink, Long> {
+
+    /**
+     * Commits referencing one issue, newest first: hash, message, author name, commit date and closes flag.
+     */
+    @Query(value = "SELECT c.commit_hash, c.message, c.author_name, c.committed_at, l.closes " +
+                   "FROM commit_issue_links l JOIN analysis_commits c " +
+                   "  ON c.code_analysis_id = l.code_analysis_id AND c.commit_hash = l.commit_hash " +
+                   "WHERE l.code_analysis_id = :analysisId AND l.issue_repo = :issueRepo AND l.issue_number = :issueNumber " +
+                   "ORDER BY c.committed_at DESC", nativeQuery = true)
+    List<Object[]> findCommitsForIssue(@Param("analysisId") Long analysisId, @Param("issueRepo") String issueRepo,
+                                       @Param("issueNumber") int issueNumber);
+
+    /**
+     * Issues one commit references: repo, number, closes flag, and title, state and url when the issue is known.
+     */
+    @Query(value = "SELECT l.issue_repo, l.issue_number, l.closes, i.title, i.state, i.url " +
+                   "FROM commit_issue_links l LEFT JOIN analysis_issues i " +
+                   "  ON i.code_analysis_id = l.code_analysis_id AND l.issue_repo = '' AND i.number = l.issue_number " +
+                   "WHERE l.code_analysis_id = :analysisId AND l.commit_hash = :commitHash " +
+                   "ORDER BY l.issue_repo, l.issue_number", nativeQuery = true)
+    List<Object[]> findIssuesForCommit(@Param("analysisId") Long analysisId, @Param("commitHash") String commitHash);
+
+    /**
+     * One page of the repository's issues, newest first, each joined to its linking commits. Returns number, title,
+     * state, url, then hash, message, commit date and closes flag of a linked commit (null when there is none).
+     */
+    @Query(value = "SELECT i.number, i.title, i.state, i.url, c.commit_hash, c.message, c.committed_at, l.closes " +
+                   "FROM (SELECT * FROM analysis_issues WHERE code_analysis_id = :analysisId " +
+                   "      AND (NOT :linkedOnly OR EXISTS (SELECT 1 FROM commit_issue_links x WHERE x.code_analysis_id = :analysisId " +
+                   "           AND x.issue_repo = '' AND x.issue_number = analysis_issues.number)) " +
+                   "      ORDER BY number DESC LIMIT :limit OFFSET :offset) i " +
+                   "LEFT JOIN commit_issue_links l " +
+                   "  ON l.code_analysis_id = :analysisId AND l.issue_repo = '' AND l.issue_number = i.number " +
+                   "LEFT JOIN analysis_commits c " +
+                   "  ON c.code_analysis_id = :analysisId AND c.commit_hash = l.commit_hash " +
+                   "ORDER BY i.number DESC, c.committed_at DESC", nativeQuery = true)
+    List<Object[]> findIssuePageWithCommits(@Param("analysisId") Long analysisId, @Param("linkedOnly") boolean linkedOnly,
+                                            @Param("limit") int limit, @Param("offset") int offset);
+}
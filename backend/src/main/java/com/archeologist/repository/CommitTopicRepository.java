@@ -0,0 +1,40 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.CommitTopic;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CommitTopicRepository extends JpaRepository<CommitTopic, Long> {
+
+    List<CommitTopic> findByAnalysisIdOrderByTopic(Long analysisId);
+
+    /**
+     * The {@code perTopic} commits nearest each topic's centroid. Returns topic, hash, message and distance,
+     * nearest first per topic.
+     */
+    @Query(value = "SELECT t.topic, r.commit_hash, r.commit_message, r.distance " +
+                   "FROM commit_topics t CROSS JOIN LATERAL (" +
+                   "  SELECT a.commit_hash, ce.commit_message, a.distance FROM commit_topic_assignments a " +
+                   "  JOIN commit_embeddings ce ON ce.code_analysis_id = a.code_analysis_id AND ce.commit_hash = a.commit_hash " +
+                   "  WHERE a.code_analysis_id = t.code_analysis_id AND a.topic = t.topic " +
+                   "  ORDER BY a.distance, a.commit_hash LIMIT :perTopic" +
+                   ") r WHERE t.code_analysis_id = :analysisId " +
+                   "ORDER BY t.topic, r.distance", nativeQuery = true)
+    List<Object[]> findRepresentatives(@Param("analysisId") Long analysisId, @Param("perTopic") int perTopic);
+
+    /**
+     * A page of one topic's commits, nearest the centroid first. Returns hash, message and distance.
+     */
+    @Query(value = "SELECT a.commit_hash, ce.commit_message, a.distance " +
+                   "FROM commit_topic_assignments a " +
+                   "JOIN commit_embeddings ce ON ce.code_analysis_id = a.code_analysis_id AND ce.commit_hash = a.commit_hash " +
+                   "WHERE a.code_analysis_id = :analysisId AND a.topic = :topic " +
+                   "ORDER BY a.distance, a.commit_hash LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Object[]> findTopicCommits(@Param("analysisId") Long analysisId, @Param("topic") int topic,
+                                    @Param("limit") int limit, @Param("offset") int offset);
+}
@@ -0,0 +1,51 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.CompletionCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface CompletionCacheRepository extends JpaRepository<CompletionCacheEntry, String> {
+
+    Optional<CompletionCacheEntry> findByCacheKeyAndExpiresAtAfter(String cacheKey, LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE CompletionCacheEntry e SET e.lastHitAt = CURRENT_TIMESTAMP WHERE e.cacheKey = :cacheKey")
+    int touch(@Param("cacheKey") String cacheKey);
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO completion_cache (cache_key, code_analysis_id, response, created_at, last_hit_at, expires_at) " +
+                   "VALUES (:cacheKey, :analysisId, :response, NOW(), NOW(), NOW() + make_interval(hours => :ttlHours)) " +
+                   "ON CONFLICT (cache_key) DO UPDATE SET response = EXCLUDED.response, " +
+                   "created_at = NOW(), last_hit_at = NOW(), expires_at = EXCLUDED.expires_at", nativeQuery = true)
+    int upsert(@Param("cacheKey") String cacheKey, @Param("analysisId") Long analysisId,
+               @Param("response") String response, @Param("ttlHours") int ttlHours);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CompletionCacheEntry e WHERE e.analysisId = :analysisId")
+    int deleteByAnalysisId(@Param("analysisId") Long analysisId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CompletionCacheEntry e WHERE e.expiresAt < CURRENT_TIMESTAMP")
+    int deleteExpired();
+
+    /**
+     * Keeps the {@code maxRows} most recently hit rows.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM completion_cache WHERE cache_key IN (" +
+                   "SELECT cache_key FROM completion_cache ORDER BY last_hit_at DESC OFFSET :maxRows)", nativeQuery = true)
+    int trimTo(@Param("maxRows") int maxRows);
+}
@@ -0,0 +1,19 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.DirectoryOwnership;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DirectoryOwnershipRepository extends JpaRepository<DirectoryOwnership, Long> {
+
+    Optional<DirectoryOwnership> findByAnalysisIdAndPath(Long analysisId, String path);
+
+    List<DirectoryOwnership> findByAnalysisIdAndParentPath(Long analysisId, String parentPath, Pageable pageable);
+
+    List<DirectoryOwnership> findByAnalysisIdAndDepthLessThanEqual(Long analysisId, int depth, Pageable pageable);
+}
@@ -0,0 +1,17 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.EmbeddingTask;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EmbeddingTaskRepository extends JpaRepository<EmbeddingTask, Long> {
+
+    @Query("SELECT t.status, COUNT(t), COALESCE(SUM(t.checkpoint), 0) FROM EmbeddingTask t " +
+           "WHERE t.codeAnalysis.id = :analysisId GROUP BY t.status")
+    List<Object[]> summarizeByStatus(@Param("analysisId") Long analysisId);
+}
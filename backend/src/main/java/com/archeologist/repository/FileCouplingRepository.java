@@ -0,0 +1,28 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.FileCoupling;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FileCouplingRepository extends JpaRepository<FileCoupling, Long> {
+
+    List<FileCoupling> findByAnalysisIdAndPathOrderByConfidenceDesc(Long analysisId, String path, Pageable pageable);
+
+    /**
+     * Strongest coupled pairs, each pair once (from its lexically smaller path).
+     */
+    @Query("SELECT c FROM FileCoupling c WHERE c.analysisId = :analysisId AND c.path < c.partner " +
+           "ORDER BY c.support DESC, c.confidence DESC")
+    List<FileCoupling> findStrongestPairs(@Param("analysisId") Long analysisId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM FileCoupling c WHERE c.analysisId = :analysisId")
+    int deleteByAnalysisId(@Param("analysisId") Long analysisId);
+}
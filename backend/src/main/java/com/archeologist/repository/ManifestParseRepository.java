@@ -0,0 +1,14 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.ManifestParse;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ManifestParseRepository extends JpaRepository<ManifestParse, Long> {
+
+    List<ManifestParse> findByBlobShaIn(Collection<String> blobShas);
+}
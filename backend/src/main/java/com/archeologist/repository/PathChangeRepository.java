@@ -0,0 +1,40 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.PathChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PathChangeRepository extends JpaRepository<PathChange, Long> {
+
+    /**
+     * Walks the trie down from {@code root} to {@code maxDepth}, following only the {@code topN} most changed
+     * children of each directory, so the result has at most topN^levels rows whatever the repository size, and
+     * never more than {@code maxNodes}: the walk is breadth-first and stops once that many rows were produced, so a
+     * cut-off only drops part of the deepest level reached and every returned node's parent is returned too.
+     * Returns path, parent path, depth, is_file, changes and the directory's total number of children.
+     */
+    @Query(value = "WITH RECURSIVE tree AS (" +
+                   "  SELECT p.path, p.parent_path, p.depth, p.is_file, p.changes " +
+                   "  FROM path_changes p WHERE p.code_analysis_id = :analysisId AND p.path = :root " +
+                   "  UNION ALL " +
+                   "  SELECT c.path, c.parent_path, c.depth, c.is_file, c.changes " +
+                   "  FROM tree t CROSS JOIN LATERAL (" +
+                   "    SELECT p.path, p.parent_path, p.depth, p.is_file, p.changes FROM path_changes p " +
+                   "    WHERE p.code_analysis_id = :analysisId AND p.parent_path = t.path " +
+                   "    ORDER BY p.changes DESC, p.path LIMIT :topN" +
+                   "  ) c " +
+                   "  WHERE t.depth < :maxDepth AND NOT t.is_file" +
+                   ") " +
+                   "SELECT t.path, t.parent_path, t.depth, t.is_file, t.changes, " +
+                   "       (SELECT count(*) FROM path_changes p WHERE p.code_analysis_id = :analysisId AND p.parent_path = t.path) " +
+                   "FROM (SELECT * FROM tree LIMIT :maxNodes) t ORDER BY t.depth, t.changes DESC", nativeQuery = true)
+    List<Object[]> findSubtree(@Param("analysisId") Long analysisId, @Param("root") String root,
+                               @Param("maxDepth") int maxDepth, @Param("topN") int topN, @Param("maxNodes") int maxNodes);
+
+    boolean existsByAnalysisId(Long analysisId);
+}
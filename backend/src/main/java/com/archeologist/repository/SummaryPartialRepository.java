@@ -0,0 +1,31 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.SummaryPartial;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface SummaryPartialRepository extends JpaRepository<SummaryPartial, Long> {
+
+    @Query("SELECT p FROM SummaryPartial p WHERE p.codeAnalysis.id = :analysisId")
+    List<SummaryPartial> findByAnalysisId(@Param("analysisId") Long analysisId);
+
+    /**
+     * Stores a partial; concurrent summarizers producing the same node keep whichever was written first.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO summary_partials (code_analysis_id, level, first_hash, last_hash, commit_count, model_fingerprint, summary, created_at) " +
+                   "VALUES (:analysisId, :level, :firstHash, :lastHash, :commitCount, :modelFingerprint, :summary, NOW()) " +
+                   "ON CONFLICT (code_analysis_id, level, first_hash, last_hash, commit_count, model_fingerprint) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("analysisId") Long analysisId, @Param("level") int level,
+                       @Param("firstHash") String firstHash, @Param("lastHash") String lastHash,
+                       @Param("commitCount") int commitCount, @Param("modelFingerprint") String modelFingerprint,
+                       @Param("summary") String summary);
+}
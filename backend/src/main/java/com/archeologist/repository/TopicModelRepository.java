@@ -0,0 +1,13 @@
+package com.archeologist.repository;
+
+import com.archeologist.entity.TopicModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface TopicModelRepository extends JpaRepository<TopicModel, Long> {
+
+    Optional<TopicModel> findByAnalysisId(Long analysisId);
+}
@@ -0,0 +1,238 @@
+package com.archeologist.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.FileNotFoundException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Concurrency limiter for one downstream that sizes its in-flight window from observed latency and errors.
+ * <p>
+ * Additive increase: while the window is at least half used and a call completes within
+ * {@code tolerance} times the no-load round-trip time, the limit grows by one. Multiplicative
+ * decrease: a failed call, or one slower than that bound (queueing at the downstream), shrinks the
+ * limit by {@code backoffRatio}. The no-load RTT is the minimum observed latency, re-baselined
+ * periodically so the limiter follows a downstream whose speed drifts.
+ * <p>
+ * Callers beyond the limit wait up to {@code maxWait} for a slot and are then rejected with
+ * {@link LimitExceededException}.
+ */
+public class AdaptiveLimiter {
+
+    private static final int RTT_RESET_SAMPLES = 500;
+    private static final long ASYNC_RETRY_MILLIS = 50;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double tolerance;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+
+    private volatile double limit;
+    private volatile int inFlight;
+    private volatile long noLoadRttNanos = Long.MAX_VALUE;
+    private double smoothedRttNanos;
+    private int samplesSinceReset;
+
+    private final Timer rttTimer;
+    private final Counter rejections;
+    private final Counter drops;
+
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                           long maxWaitMillis, MeterRegistry registry) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+        this.backoffRatio = 0.9;
+        this.tolerance = 2.0;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+        Gauge.builder("limiter.limit", this, AdaptiveLimiter::getLimit).tag("downstream", name).register(registry);
+        Gauge.builder("limiter.inflight", this, AdaptiveLimiter::getInFlight).tag("downstream", name).register(registry);
+        Gauge.builder("limiter.rtt.noload", this, l -> l.getNoLoadRttMillis()).tag("downstream", name)
+                .baseUnit("milliseconds").register(registry);
+        this.rttTimer = Timer.builder("limiter.rtt").tag("downstream", name).register(registry);
+        this.rejections = Counter.builder("limiter.rejected").tag("downstream", name).register(registry);
+        this.drops = Counter.builder("limiter.dropped").tag("downstream", name).register(registry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Runs the call inside a concurrency slot and feeds its outcome back into the limit.
+     */
+    public <T> T call(Callable<T> call) throws Exception {
+        return call(call, true);
+    }
+
+    /**
+     * As {@link #call(Callable)}; with {@code latencySignal} false only errors shrink the limit, for calls
+     * such as completions whose duration depends on the output length rather than downstream load.
+     */
+    public <T> T call(Callable<T> call, boolean latencySignal) throws Exception {
+        acquire();
+        long start = System.nanoTime();
+        boolean dropped = false;
+        try {
+            return call.call();
+        } catch (Exception e) {
+            dropped = isOverloadSignal(e);
+            throw e;
+        } finally {
+            release(System.nanoTime() - start, dropped, latencySignal);
+        }
+    }
+
+    /**
+     * Non-blocking form of {@link #call(Callable, boolean)}: a caller that finds the window full is
+     * re-tried on a timer rather than parking a thread, and is rejected once {@code maxWait} has passed.
+     */
+    public <T> Mono<T> callAsync(Supplier<Mono<T>> call, boolean latencySignal) {
+        long retries = Math.max(1, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) / ASYNC_RETRY_MILLIS);
+        return Mono.defer(() -> {
+                    if (!tryAcquire()) {
+                        return Mono.error(new LimitExceededException("Concurrency limit reached for " + name + " (limit=" + (int) limit + ")"));
+                    }
+                    long start = System.nanoTime();
+                    return call.get()
+                            .doOnSuccess(v -> release(System.nanoTime() - start, false, latencySignal))
+                            .doOnError(e -> release(System.nanoTime() - start, isOverloadSignal(e), latencySignal))
+                            .doOnCancel(() -> release(System.nanoTime() - start, false, false));
+                })
+                .retryWhen(Retry.fixedDelay(retries, Duration.ofMillis(ASYNC_RETRY_MILLIS))
+                        .filter(e -> e instanceof LimitExceededException)
+                        .onRetryExhaustedThrow((spec, signal) -> {
+                            rejections.increment();
+                            return signal.failure();
+                        }));
+    }
+
+    /**
+     * Streaming form of {@link #callAsync}: the slot is held until the stream completes, fails or is cancelled.
+     * Stream duration depends on output length, so only errors feed back into the limit.
+     */
+    public <T> Flux<T> streamAsync(Supplier<Flux<T>> call) {
+        long retries = Math.max(1, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) / ASYNC_RETRY_MILLIS);
+        return Flux.defer(() -> {
+                    if (!tryAcquire()) {
+                        return Flux.<T>error(new LimitExceededException("Concurrency limit reached for " + name + " (limit=" + (int) limit + ")"));
+                    }
+                    long start = System.nanoTime();
+                    return call.get()
+                            .doOnComplete(() -> release(System.nanoTime() - start, false, false))
+                            .doOnError(e -> release(System.nanoTime() - start, isOverloadSignal(e), false))
+                            .doOnCancel(() -> release(System.nanoTime() - start, false, false));
+                })
+                .retryWhen(Retry.fixedDelay(retries, Duration.ofMillis(ASYNC_RETRY_MILLIS))
+                        .filter(e -> e instanceof LimitExceededException)
+                        .onRetryExhaustedThrow((spec, signal) -> {
+                            rejections.increment();
+                            return signal.failure();
+                        }));
+    }
+
+    private boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = maxWaitNanos;
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    rejections.increment();
+                    throw new LimitExceededException("Concurrency limit reached for " + name + " (limit=" + (int) limit + ")");
+                }
+                remaining = slotFreed.awaitNanos(remaining);
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long rttNanos, boolean dropped, boolean latencySignal) {
+        rttTimer.record(rttNanos, TimeUnit.NANOSECONDS);
+        lock.lock();
+        try {
+            boolean saturated = inFlight * 2 >= limit;
+            inFlight--;
+
+            if (dropped) {
+                drops.increment();
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (latencySignal) {
+                updateRtt(rttNanos);
+                if (rttNanos > noLoadRttNanos * tolerance) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                } else if (saturated) {
+                    limit = Math.min(maxLimit, limit + 1);
+                }
+            } else if (saturated) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateRtt(long rttNanos) {
+        smoothedRttNanos = smoothedRttNanos == 0 ? rttNanos : smoothedRttNanos * 0.9 + rttNanos * 0.1;
+        if (++samplesSinceReset >= RTT_RESET_SAMPLES) {
+            // Re-baseline so a permanently slower (or faster) downstream does not pin the limit
+            noLoadRttNanos = (long) smoothedRttNanos;
+            samplesSinceReset = 0;
+        }
+        noLoadRttNanos = Math.min(noLoadRttNanos, rttNanos);
+    }
+
+    /**
+     * Missing resources and bad input say nothing about downstream load.
+     */
+    private boolean isOverloadSignal(Throwable e) {
+        return !(e instanceof FileNotFoundException || e instanceof IllegalArgumentException);
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public double getNoLoadRttMillis() {
+        long rtt = noLoadRttNanos;
+        return rtt == Long.MAX_VALUE ? 0 : rtt / 1_000_000.0;
+    }
+}
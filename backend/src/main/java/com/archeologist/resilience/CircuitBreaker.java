@@ -0,0 +1,101 @@
+package com.archeologist.resilience;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Consecutive-failure circuit breaker for one downstream.
+ * <p>
+ * CLOSED lets every call through. After {@code failureThreshold} consecutive failures the circuit
+ * OPENs and calls are refused without touching the downstream. Once {@code openMillis} have passed,
+ * or a health probe reports the downstream healthy, the circuit goes HALF_OPEN and admits a single
+ * trial call whose outcome closes or re-opens it.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis, MeterRegistry registry) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        Gauge.builder("circuit.state", this, b -> b.getState().ordinal()).tag("provider", name).register(registry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns true when a call may proceed; in HALF_OPEN only the first caller gets through.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Ends a call whose outcome says nothing about the downstream (e.g. rejected locally), freeing a HALF_OPEN trial.
+     */
+    public synchronized void onIgnored() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Applies a health probe result: a failed probe opens the circuit, a healthy one lets a trial call through.
+     */
+    public synchronized void onProbe(boolean healthy) {
+        if (!healthy) {
+            open();
+        } else if (state == State.OPEN) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        trialInFlight = false;
+    }
+}
@@ -0,0 +1,46 @@
+package com.archeologist.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * One {@link AdaptiveLimiter} per outbound dependency, configured under {@code app.limiter.<name>.*}.
+ * Defaults reflect typical capacity: a local Ollama saturates at a few concurrent requests while
+ * OpenAI and GitHub accept many more.
+ */
+@Component
+public class DownstreamLimiters {
+
+    private final AdaptiveLimiter ollama;
+    private final AdaptiveLimiter openai;
+    private final AdaptiveLimiter github;
+
+    public DownstreamLimiters(Environment env, MeterRegistry registry) {
+        this.ollama = create("ollama", 2, 1, 16, env, registry);
+        this.openai = create("openai", 8, 1, 64, env, registry);
+        this.github = create("github", 8, 1, 32, env, registry);
+    }
+
+    private AdaptiveLimiter create(String name, int initial, int min, int max, Environment env, MeterRegistry registry) {
+        String prefix = "app.limiter." + name + ".";
+        return new AdaptiveLimiter(name,
+                env.getProperty(prefix + "initial-limit", Integer.class, initial),
+                env.getProperty(prefix + "min-limit", Integer.class, min),
+                env.getProperty(prefix + "max-limit", Integer.class, max),
+                env.getProperty(prefix + "max-wait-ms", Long.class, 30000L),
+                registry);
+    }
+
+    public AdaptiveLimiter ollama() {
+        return ollama;
+    }
+
+    public AdaptiveLimiter openai() {
+        return openai;
+    }
+
+    public AdaptiveLimiter github() {
+        return github;
+    }
+}
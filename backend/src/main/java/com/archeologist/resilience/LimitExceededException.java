@@ -0,0 +1,11 @@
+package com.archeologist.resilience;
+
+/**
+ * Thrown when a downstream call could not get a concurrency slot within the limiter's wait budget.
+ */
+public class LimitExceededException extends RuntimeException {
+
+    public LimitExceededException(String message) {
+        super(message);
+    }
+}
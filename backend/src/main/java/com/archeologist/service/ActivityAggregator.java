@@ -0,0 +1,176 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.CommitRecord;
+import com.archeologist.entity.CodeAnalysis;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Maintains {@code activity_buckets}: commit counts per day, ISO week and month (UTC), for the whole
+ * repository and per author as merged by {@link AuthorIdentityService}. New commits are counted in memory per page and added to the stored
+ * counters with one upsert. Buckets written before authors were merged are keyed by raw email; such an
+ * analysis has its buckets rebuilt from {@code analysis_commits} the first time they are read or extended.
+ */
+@Component
+public class ActivityAggregator implements CommitAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActivityAggregator.class);
+
+    public static final String OVERALL = "";
+
+    private static final int REBUILD_BATCH = 1000;
+
+    @Autowired
+    private AuthorIdentityService authorIdentityService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /** Analyses whose bucket keys were checked by this process; later writes only use current keys. */
+    private final Set<Long> checkedAnalyses = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void accept(CodeAnalysis analysis, List<CommitRecord> newCommits) throws Exception {
+        add(analysis.getId(), newCommits);
+    }
+
+    @Override
+    public void afterIngest(CodeAnalysis analysis) {
+        ensureCurrentKeys(analysis.getId());
+    }
+
+    /**
+     * Rebuilds the analysis's buckets when any per-author bucket is keyed by something that is not a current
+     * author key. Checked once per analysis per process.
+     */
+    public void ensureCurrentKeys(Long analysisId) {
+        if (checkedAnalyses.contains(analysisId)) {
+            return;
+        }
+        synchronized (checkedAnalyses) {
+            if (checkedAnalyses.contains(analysisId)) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                boolean stale = (Boolean) entityManager.createNativeQuery(
+                                "SELECT EXISTS (SELECT 1 FROM activity_buckets b " +
+                                "WHERE b.code_analysis_id = :analysisId AND b.author NOT IN (:overall, :unknown) " +
+                                "AND NOT EXISTS (SELECT 1 FROM author_identities i " +
+                                "                WHERE i.code_analysis_id = b.code_analysis_id AND i.author_key = b.author))")
+                        .setParameter("analysisId", analysisId)
+                        .setParameter("overall", OVERALL)
+                        .setParameter("unknown", AuthorIdentityService.UNKNOWN)
+                        .getSingleResult();
+                if (stale) {
+                    rebuild(analysisId);
+                }
+            });
+            checkedAnalyses.add(analysisId);
+        }
+    }
+
+    private void rebuild(Long analysisId) {
+        long started = System.currentTimeMillis();
+        entityManager.createNativeQuery("DELETE FROM activity_buckets WHERE code_analysis_id = :analysisId")
+                .setParameter("analysisId", analysisId)
+                .executeUpdate();
+        int[] commits = new int[1];
+        List<CommitRecord> batch = new ArrayList<>(REBUILD_BATCH);
+        try (Stream<?> rows = entityManager.createNativeQuery(
+                        "SELECT commit_hash, author_name, author_email, CAST(EXTRACT(EPOCH FROM committed_at) AS BIGINT) " +
+                        "FROM analysis_commits WHERE code_analysis_id = :analysisId AND committed_at IS NOT NULL")
+                .setParameter("analysisId", analysisId)
+                .setHint("org.hibernate.fetchSize", 5000)
+                .getResultStream()) {
+            rows.forEach(row -> {
+                Object[] columns = (Object[]) row;
+                batch.add(new CommitRecord((String) columns[0],
+                        columns[1] != null ? (String) columns[1] : "",
+                        columns[2] != null ? (String) columns[2] : "",
+                        Instant.ofEpochSecond(((Number) columns[3]).longValue()), null, List.of(), null));
+                if (batch.size() == REBUILD_BATCH) {
+                    commits[0] += batch.size();
+                    addUnchecked(analysisId, batch);
+                    batch.clear();
+                }
+            });
+        }
+        commits[0] += batch.size();
+        addUnchecked(analysisId, batch);
+        logger.info("Rebuilt activity buckets of analysisId={} under merged author keys from {} commits in {} ms",
+                analysisId, commits[0], System.currentTimeMillis() - started);
+    }
+
+    private void addUnchecked(Long analysisId, List<CommitRecord> commits) {
+        try {
+            add(analysisId, commits);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to rebuild activity buckets: " + e.getMessage(), e);
+        }
+    }
+
+    private void add(Long analysisId, List<CommitRecord> newCommits) throws Exception {
+        if (newCommits.isEmpty()) {
+            return;
+        }
+        Map<String, String> authors = authorIdentityService.resolve(analysisId, newCommits);
+        Map<List<Object>, Integer> counts = new HashMap<>();
+        for (CommitRecord commit : newCommits) {
+            LocalDate day = commit.date().atZone(ZoneOffset.UTC).toLocalDate();
+            String author = authors.get(commit.sha());
+            for (String granularity : List.of("D", "W", "M")) {
+                LocalDate start = bucketStart(day, granularity);
+                counts.merge(List.of(granularity, start.toString(), OVERALL), 1, Integer::sum);
+                counts.merge(List.of(granularity, start.toString(), author), 1, Integer::sum);
+            }
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>(counts.size());
+        counts.forEach((key, commits) -> rows.add(Map.of(
+                "granularity", key.get(0),
+                "bucket_start", key.get(1),
+                "author", key.get(2),
+                "commits", commits)));
+
+        entityManager.createNativeQuery(
+                        "INSERT INTO activity_buckets (code_analysis_id, granularity, bucket_start, author, commits) " +
+                        "SELECT :analysisId, r.granularity, r.bucket_start, r.author, r.commits " +
+                        "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(granularity text, bucket_start date, author text, commits int) " +
+                        "ON CONFLICT (code_analysis_id, granularity, bucket_start, author) " +
+                        "DO UPDATE SET commits = activity_buckets.commits + EXCLUDED.commits")
+                .setParameter("analysisId", analysisId)
+                .setParameter("rows", objectMapper.writeValueAsString(rows))
+                .executeUpdate();
+    }
+
+    public static LocalDate bucketStart(LocalDate day, String granularity) {
+        return switch (granularity) {
+            case "W" -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case "M" -> day.withDayOfMonth(1);
+            default -> day;
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.archeologist.service;
+
+/**
+ * Thrown when work cannot be admitted because its queue or the client's concurrency limit is saturated.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
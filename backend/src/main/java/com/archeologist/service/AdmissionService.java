@@ -0,0 +1,237 @@
+package com.archeologist.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for expensive background work.
+ * <p>
+ * Each work type runs on its own fixed-size pool with a bounded queue, and every client may hold
+ * only a few admitted tasks per type. Work beyond either bound is rejected immediately with an
+ * {@link AdmissionRejectedException} carrying a Retry-After estimate, so overload turns into fast
+ * 429 responses instead of unbounded threads and exhausted database connections.
+ */
+@Service
+public class AdmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionService.class);
+
+    public enum WorkType {
+        ANALYSIS, EMBEDDING;
+
+        String key() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final Map<WorkType, Lane> lanes = new EnumMap<>(WorkType.class);
+    private final Set<String> trustedProxies = new HashSet<>();
+
+    public AdmissionService(Environment env, MeterRegistry meterRegistry) {
+        for (String proxy : env.getProperty("app.admission.trusted-proxies", "").split(",")) {
+            if (!proxy.isBlank()) {
+                trustedProxies.add(proxy.trim());
+            }
+        }
+        for (WorkType type : WorkType.values()) {
+            String prefix = "app.admission." + type.key() + ".";
+            int concurrency = env.getProperty(prefix + "concurrency", Integer.class, type == WorkType.ANALYSIS ? 4 : 2);
+            int queueCapacity = env.getProperty(prefix + "queue-capacity", Integer.class, 16);
+            int perClient = env.getProperty(prefix + "per-client", Integer.class, 2);
+            lanes.put(type, new Lane(type, concurrency, queueCapacity, perClient, meterRegistry));
+        }
+    }
+
+    /**
+     * Admits a task for asynchronous execution or rejects it without queueing.
+     */
+    public <T> CompletableFuture<T> submit(WorkType type, String clientId, Callable<T> task) {
+        return lanes.get(type).submit(clientId, task);
+    }
+
+    /**
+     * Fails fast when a task of this type would be rejected, before the caller does any preparatory work.
+     */
+    public void checkCapacity(WorkType type, String clientId) {
+        lanes.get(type).check(clientId);
+    }
+
+    /**
+     * Number of tasks of this type that would start running immediately, without queueing.
+     */
+    public int idleSlots(WorkType type) {
+        ThreadPoolExecutor executor = lanes.get(type).executor;
+        return Math.max(0, executor.getMaximumPoolSize() - executor.getActiveCount() - executor.getQueue().size());
+    }
+
+    /**
+     * Clients currently at their concurrency limit for this work type.
+     */
+    public Set<String> saturatedClients(WorkType type) {
+        Lane lane = lanes.get(type);
+        Set<String> saturated = new HashSet<>();
+        lane.clientCounts.forEach((client, count) -> {
+            if (count >= lane.perClient) {
+                saturated.add(client);
+            }
+        });
+        return saturated;
+    }
+
+    /**
+     * The address a request's per-client limits are counted against. X-Forwarded-For is set by the client, so it
+     * is only followed through hops appended by configured trusted proxies: the nearest untrusted address wins.
+     */
+    public String resolveClientId(HttpServletRequest request) {
+        String client = request.getRemoteAddr();
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded == null || forwarded.isBlank() || !trustedProxies.contains(client)) {
+            return client;
+        }
+        String[] hops = forwarded.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            client = hop;
+            if (!trustedProxies.contains(hop)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.values().forEach(lane -> lane.executor.shutdown());
+    }
+
+    private static final class Lane {
+
+        private final WorkType type;
+        private final int perClient;
+        private final ThreadPoolExecutor executor;
+        private final Map<String, Integer> clientCounts = new ConcurrentHashMap<>();
+        private final Timer waitTimer;
+        private final Timer runTimer;
+        private final Counter queueFullRejections;
+        private final Counter clientLimitRejections;
+
+        Lane(WorkType type, int concurrency, int queueCapacity, int perClient, MeterRegistry registry) {
+            this.type = type;
+            this.perClient = perClient;
+            AtomicInteger threadIndex = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> {
+                        Thread t = new Thread(r, type.key() + "-worker-" + threadIndex.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+
+            Gauge.builder("admission.queue.depth", executor, e -> e.getQueue().size())
+                    .tag("type", type.key()).register(registry);
+            Gauge.builder("admission.active", executor, ThreadPoolExecutor::getActiveCount)
+                    .tag("type", type.key()).register(registry);
+            this.waitTimer = Timer.builder("admission.wait").tag("type", type.key()).register(registry);
+            this.runTimer = Timer.builder("admission.run").tag("type", type.key()).register(registry);
+            this.queueFullRejections = Counter.builder("admission.rejected")
+                    .tag("type", type.key()).tag("reason", "queue_full").register(registry);
+            this.clientLimitRejections = Counter.builder("admission.rejected")
+                    .tag("type", type.key()).tag("reason", "client_limit").register(registry);
+        }
+
+        void check(String clientId) {
+            Integer count = clientCounts.get(clientId);
+            if (count != null && count >= perClient) {
+                clientLimitRejections.increment();
+                throw rejection("Too many " + type.key() + " tasks in progress for this client");
+            }
+            if (executor.getQueue().remainingCapacity() == 0) {
+                queueFullRejections.increment();
+                throw rejection("The " + type.key() + " queue is full");
+            }
+        }
+
+        <T> CompletableFuture<T> submit(String clientId, Callable<T> task) {
+            if (!acquireClientSlot(clientId)) {
+                clientLimitRejections.increment();
+                throw rejection("Too many " + type.key() + " tasks in progress for this client");
+            }
+
+            CompletableFuture<T> future = new CompletableFuture<>();
+            long enqueuedAt = System.nanoTime();
+            try {
+                executor.execute(() -> {
+                    long startedAt = System.nanoTime();
+                    waitTimer.record(startedAt - enqueuedAt, TimeUnit.NANOSECONDS);
+                    try {
+                        future.complete(task.call());
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    } finally {
+                        runTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                        releaseClientSlot(clientId);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                releaseClientSlot(clientId);
+                queueFullRejections.increment();
+                throw rejection("The " + type.key() + " queue is full");
+            }
+            return future;
+        }
+
+        private boolean acquireClientSlot(String clientId) {
+            boolean[] acquired = {false};
+            clientCounts.compute(clientId, (k, count) -> {
+                int current = count == null ? 0 : count;
+                if (current >= perClient) {
+                    return count;
+                }
+                acquired[0] = true;
+                return current + 1;
+            });
+            return acquired[0];
+        }
+
+        private void releaseClientSlot(String clientId) {
+            clientCounts.computeIfPresent(clientId, (k, count) -> count <= 1 ? null : count - 1);
+        }
+
+        /**
+         * Estimates when a slot frees up from the queue ahead and the mean task duration.
+         */
+        private AdmissionRejectedException rejection(String message) {
+            double meanSeconds = runTimer.count() > 0 ? runTimer.mean(TimeUnit.SECONDS) : 1.0;
+            int queued = executor.getQueue().size() + 1;
+            long retryAfter = (long) Math.ceil(queued * meanSeconds / executor.getMaximumPoolSize());
+            retryAfter = Math.max(1, Math.min(retryAfter, 120));
+            logger.warn("Rejected {} work: {} (retry after {}s)", type.key(), message, retryAfter);
+            return new AdmissionRejectedException(message, retryAfter);
+        }
+    }
+}
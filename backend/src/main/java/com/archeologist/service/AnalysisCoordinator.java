@@ -0,0 +1,136 @@
+package com.archeologist.service;
+
+import com.archeologist.entity.CodeAnalysis;
+import com.archeologist.repository.CodeAnalysisRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces concurrent analyses of the same repository so a burst of identical
+ * /analyze requests costs one GitHub crawl.
+ * <p>
+ * Requests are keyed by canonical owner/repo and the default branch HEAD sha. A request
+ * first reuses the latest analysis of the repository when it was refreshed within the
+ * staleness window or still matches HEAD; otherwise it either attaches to the crawl
+ * already in flight for that key or becomes its leader, whose crawl is subject to
+ * {@link AdmissionService} limits.
+ */
+@Service
+public class AnalysisCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisCoordinator.class);
+
+    @Autowired
+    private AnalysisService analysisService;
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @Autowired
+    private CodeAnalysisRepository codeAnalysisRepository;
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    @Value("${app.analysis.staleness-minutes:10}")
+    private long stalenessMinutes;
+
+    private final Map<String, CompletableFuture<CodeAnalysis>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Outcome of an analyze request; {@code reused} is true when no crawl was run for it.
+     */
+    public record Result(CodeAnalysis analysis, boolean reused) { }
+
+    public Result analyze(String repoUrl, String clientId) throws Exception {
+        Map<String, String> repoInfo = gitHubService.extractRepoInfo(repoUrl);
+        String owner = repoInfo.get("owner");
+        String repo = repoInfo.get("repo");
+        String repoKey = gitHubService.canonicalRepoKey(owner, repo);
+
+        Optional<CodeAnalysis> latest = codeAnalysisRepository.findTopByRepoKeyOrderByRefreshedAtDesc(repoKey);
+        if (latest.isPresent() && isFresh(latest.get())) {
+            logger.info("Reusing analysis ID={} for {} (within staleness window)", latest.get().getId(), repoKey);
+            return new Result(latest.get(), true);
+        }
+
+        String headSha = gitHubService.fetchHeadSha(owner, repo);
+        if (latest.isPresent() && matchesHead(latest.get(), headSha)) {
+            CodeAnalysis analysis = latest.get();
+            analysis.setRefreshedAt(LocalDateTime.now());
+            logger.info("Reusing analysis ID={} for {}@{} (HEAD unchanged)", analysis.getId(), repoKey, headSha);
+            return new Result(analysisService.saveAnalysis(analysis), true);
+        }
+
+        String flightKey = repoKey + "@" + headSha;
+        CompletableFuture<CodeAnalysis> leader = new CompletableFuture<>();
+        CompletableFuture<CodeAnalysis> existing = inFlight.putIfAbsent(flightKey, leader);
+        if (existing != null) {
+            logger.info("Attaching to in-flight analysis of {}", flightKey);
+            return new Result(await(existing), true);
+        }
+
+        try {
+            admissionService.submit(AdmissionService.WorkType.ANALYSIS, clientId,
+                            () -> crawl(repoUrl, owner, repo, repoKey, headSha))
+                    .whenComplete((analysis, error) -> {
+                        inFlight.remove(flightKey, leader);
+                        if (error != null) {
+                            leader.completeExceptionally(error);
+                        } else {
+                            leader.complete(analysis);
+                        }
+                    });
+        } catch (AdmissionRejectedException e) {
+            inFlight.remove(flightKey, leader);
+            leader.completeExceptionally(e);
+        }
+        return new Result(await(leader), false);
+    }
+
+    private CodeAnalysis crawl(String repoUrl, String owner, String repo, String repoKey, String headSha) throws Exception {
+        // A previous leader may have finished between our lookup and taking the lead
+        Optional<CodeAnalysis> latest = codeAnalysisRepository.findTopByRepoKeyOrderByRefreshedAtDesc(repoKey);
+        if (latest.isPresent() && matchesHead(latest.get(), headSha)) {
+            return latest.get();
+        }
+
+        // Refresh the repository's analysis in place so stored embeddings keep being reused
+        CodeAnalysis analysis = latest.orElseGet(CodeAnalysis::new);
+        analysis.setRepoUrl(repoUrl);
+        analysis.setRepoKey(repoKey);
+        analysis.setHeadSha(headSha);
+        return analysisService.crawlRepository(analysis, owner, repo);
+    }
+
+    private boolean isFresh(CodeAnalysis analysis) {
+        return "COMPLETED".equalsIgnoreCase(analysis.getStatus())
+                && analysis.getRefreshedAt() != null
+                && analysis.getRefreshedAt().isAfter(LocalDateTime.now().minus(Duration.ofMinutes(stalenessMinutes)));
+    }
+
+    private boolean matchesHead(CodeAnalysis analysis, String headSha) {
+        // Unchanged HEAD alone is not enough while older history is still being backfilled
+        return "COMPLETED".equalsIgnoreCase(analysis.getStatus()) && headSha.equals(analysis.getHeadSha())
+                && analysis.isHistoryComplete();
+    }
+
+    private CodeAnalysis await(CompletableFuture<CodeAnalysis> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+}
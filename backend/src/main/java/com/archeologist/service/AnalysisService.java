@@ -1,16 +1,26 @@
 package com.archeologist.service;
 
+import com.archeologist.entity.ActivityBucket;
 import com.archeologist.entity.CodeAnalysis;
+import com.archeologist.repository.ActivityBucketRepository;
 import com.archeologist.repository.CodeAnalysisRepository;
 import com.archeologist.repository.CommitEmbeddingRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.IntPredicate;
 
 @Service
 public class AnalysisService {
@@ -32,9 +42,45 @@ public class AnalysisService {
     @Autowired
     private CommitEmbeddingService commitEmbeddingService; 
 
+    @Autowired
+    private SummarizationService summarizationService;
+
+    @Autowired
+    private CompletionCache completionCache;
+
+    @Autowired
+    private DiffEmbeddingService diffEmbeddingService;
+
+    @Autowired
+    private CommitIngestService commitIngestService;
+
+    @Autowired
+    private DependencyScanService dependencyScanService;
+
+    @Autowired
+    private ActivityBucketRepository activityBucketRepository;
+
+    @Autowired
+    private ActivityAggregator activityAggregator;
+
+    @Autowired
+    private IssueLinkService issueLinkService;
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Value("${app.embedding.in-flight-per-chunk:8}")
+    private int embeddingsInFlight;
+
+    @Value("${app.search.global-candidates:400}")
+    private int globalSearchCandidates;
+
+    @Value("${app.qa.top-k:40}")
+    private int qaTopK;
+
+    @Value("${app.qa.token-budget:2000}")
+    private int qaTokenBudget;
+
     /**
      * Populates CodeAnalysis fields safely from a generic data map.
      */
@@ -47,6 +93,77 @@ public class AnalysisService {
         analysis.setIssues(safeJsonString(data.get("issues")));
     }
 
+    /**
+     * Crawls the repository from GitHub and stores the snapshot into the given analysis.
+     */
+    public CodeAnalysis crawlRepository(CodeAnalysis analysis, String owner, String repo) throws IOException {
+        logger.info("Crawling {}/{} for analysis (existing ID={})", owner, repo, analysis.getId());
+
+        // Ingested commits and their aggregates are keyed by the analysis id
+        if (analysis.getId() == null) {
+            analysis.setStatus("IN_PROGRESS");
+            analysis = saveAnalysis(analysis);
+        }
+        int totalCommits = commitIngestService.ingest(analysis, owner, repo);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("commits", Map.of("totalCommits", totalCommits));
+        data.put("contributors", gitHubService.fetchContributors(owner, repo));
+        data.put("commitActivity", gitHubService.fetchCommits(owner, repo, 100));
+        data.put("fileChanges", commitIngestService.recentFileChanges(analysis.getId(), 100));
+        List<Map<String, Object>> issues = gitHubService.fetchIssues(owner, repo);
+        storeIssues(analysis.getId(), issues);
+        data.put("issues", issues);
+        data.put("dependencies", scanDependencies(owner, repo, analysis.getHeadSha()));
+
+        populateAnalysisFields(analysis, data);
+        analysis.setTotalCommits(totalCommits);
+        analysis.setStatus("COMPLETED");
+        analysis.setRefreshedAt(LocalDateTime.now());
+        return saveAnalysis(analysis);
+    }
+
+    private Map<String, Object> scanDependencies(String owner, String repo, String headSha) {
+        try {
+            return dependencyScanService.scan(owner, repo, headSha);
+        } catch (Exception e) {
+            logger.error("Error scanning dependencies for {}/{}: {}", owner, repo, e.getMessage(), e);
+            return Map.of("manifests", List.of(), "ecosystems", Map.of());
+        }
+    }
+
+    private void storeIssues(Long analysisId, List<Map<String, Object>> issues) {
+        try {
+            issueLinkService.storeIssues(analysisId, issues);
+        } catch (Exception e) {
+            logger.error("Failed to store issues for analysisId={}: {}", analysisId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Commit counts per day, week or month between {@code from} and {@code to}, for the whole repository or
+     * one author. Buckets without commits are omitted.
+     */
+    public List<Map<String, Object>> getActivityBuckets(Long analysisId, String granularity, LocalDate from, LocalDate to, String author) {
+        String code = switch (granularity.toLowerCase(Locale.ROOT)) {
+            case "day" -> "D";
+            case "week" -> "W";
+            case "month" -> "M";
+            default -> throw new IllegalArgumentException("granularity must be day, week or month");
+        };
+        LocalDate start = ActivityAggregator.bucketStart(from != null ? from : LocalDate.of(1970, 1, 1), code);
+        LocalDate end = to != null ? to : LocalDate.of(9999, 12, 31);
+        String authorKey = author == null || author.isBlank() ? ActivityAggregator.OVERALL : author.trim().toLowerCase(Locale.ROOT);
+        activityAggregator.ensureCurrentKeys(analysisId);
+
+        List<Map<String, Object>> series = new ArrayList<>();
+        for (ActivityBucket bucket : activityBucketRepository
+                .findByAnalysisIdAndGranularityAndAuthorAndBucketStartBetweenOrderByBucketStart(analysisId, code, authorKey, start, end)) {
+            series.add(Map.of("date", bucket.getBucketStart().toString(), "commits", bucket.getCommits()));
+        }
+        return series;
+    }
+
     /**
      * Dedicated method to save the analysis entity.
      */
@@ -61,6 +178,13 @@ public class AnalysisService {
         }
     }
 
+    /**
+     * Formats an embedding as a pgvector literal.
+     */
+    private String toVectorLiteral(List<Double> embedding) {
+        return "[" + String.join(",", embedding.stream().map(String::valueOf).toArray(String[]::new)) + "]";
+    }
+
     /**
      * Converts object (Map/List/etc.) safely to JSON-style string.
      */
@@ -87,10 +211,18 @@ public class AnalysisService {
     }
 
     /**
-     * Processes commits, generating and saving embeddings one by one using a separate transactional service.
+     * Processes commits, generating and saving embeddings using a separate transactional service.
+     * Commits are handled in windows whose embedding requests are in flight together without holding a thread
+     * each. Starts at {@code startIndex} and reports the number of handled commits to {@code checkpoint} after
+     * each window, stopping early when it returns false; once a window has a failure the reported number stays
+     * at that window's start, so a retry embeds its failed commits again. Commits carrying "duplicates" have them stored against
+     * their own vector once it exists. With diff embeddings enabled, every commit of the list, near-duplicates
+     * included, then has its patch chunked and embedded unless already done, with {@code checkpoint} called
+     * after each commit to keep the lease. Returns the number of commits that failed.
      */
-    public void processCommitEmbeddings(Long analysisId, List<Map<String, Object>> commits) {
-        logger.info("Processing commit embeddings for analysisId={}, totalCommits={}", analysisId, commits.size());
+    @SuppressWarnings("unchecked")
+    public int processCommitEmbeddings(Long analysisId, List<Map<String, Object>> commits, int startIndex, IntPredicate checkpoint) {
+        logger.info("Processing commit embeddings for analysisId={}, totalCommits={}, from={}", analysisId, commits.size(), startIndex);
 
         CodeAnalysis analysis = codeAnalysisRepository.findById(analysisId)
                 .orElseThrow(() -> new RuntimeException("Analysis not found for ID=" + analysisId));
@@ -98,43 +230,101 @@ public class AnalysisService {
         int processedCount = 0;
         int skippedCount = 0;
         int errorCount = 0;
+        int duplicateCount = 0;
+        boolean leaseHeld = true;
+        // Start of the first window with a failed commit; progress is never checkpointed past it
+        int firstFailedWindow = -1;
+
+        for (int from = startIndex; from < commits.size(); from += embeddingsInFlight) {
+            if (from > startIndex && !checkpoint.test(firstFailedWindow >= 0 ? firstFailedWindow : from)) {
+                logger.warn("Stopping embeddings for analysisId={} at {}: checkpoint rejected", analysisId, from);
+                leaseHeld = false;
+                break;
+            }
 
-        for (Map<String, Object> commit : commits) {
-            try {
-                String commitHash = (String) commit.get("sha");
-                String commitMessage = (String) commit.get("message");
-
-                if (commitHash == null || commitMessage == null) {
+            List<Map<String, Object>> window = new ArrayList<>();
+            for (Map<String, Object> commit : commits.subList(from, Math.min(from + embeddingsInFlight, commits.size()))) {
+                if (commit.get("sha") == null || commit.get("message") == null) {
                     logger.warn("Skipping commit with missing SHA or message: {}", commit);
                     skippedCount++;
-                    continue;
-                }
-
-                if (commitEmbeddingRepository.existsByCodeAnalysisAndCommitHash(analysis, commitHash)) {
-                    logger.debug("Embedding already exists for commitHash={}", commitHash);
-                    skippedCount++;
-                    continue;
+                } else {
+                    window.add(commit);
                 }
+            }
+            if (window.isEmpty()) {
+                continue;
+            }
 
-                List<Double> embedding = openAIService.generateEmbedding(commitMessage);
+            Set<String> existing = new HashSet<>(commitEmbeddingRepository.findExistingCommitHashes(analysisId,
+                    window.stream().map(c -> (String) c.get("sha")).toList()));
+            skippedCount += (int) window.stream().filter(c -> existing.contains((String) c.get("sha"))).count();
+            // Near-duplicates are stored once their representative is; already stored representatives qualify too
+            List<Map<String, Object>> embedded = new ArrayList<>(window);
+            embedded.removeIf(c -> !existing.contains((String) c.get("sha")));
+            window.removeIf(c -> existing.contains((String) c.get("sha")));
+
+            List<List<Double>> embeddings = Flux.fromIterable(window)
+                    .flatMapSequential(commit -> openAIService.generateEmbeddingAsync((String) commit.get("message"))
+                            .onErrorResume(e -> {
+                                logger.warn("No embedding generated for commitHash={}: {}", commit.get("sha"), e.getMessage());
+                                return Mono.just(List.of());
+                            }), embeddingsInFlight)
+                    .collectList()
+                    .block();
+
+            int windowErrors = errorCount;
+            for (int i = 0; i < window.size(); i++) {
+                String commitHash = (String) window.get(i).get("sha");
+                List<Double> embedding = embeddings.get(i);
                 if (embedding == null || embedding.isEmpty()) {
-                    logger.warn("No embedding generated for commitHash={}", commitHash);
                     errorCount++;
                     continue;
                 }
+                try {
+                    //  Each call runs in its own transaction
+                    commitEmbeddingService.saveCommitEmbeddingWithRetry(analysis, commitHash, (String) window.get(i).get("message"), embedding);
+                    processedCount++;
+                    embedded.add(window.get(i));
+                } catch (Exception e) {
+                    logger.error("Error processing individual commit: {}", e.getMessage());
+                    errorCount++;
+                }
+            }
+            if (errorCount > windowErrors && firstFailedWindow < 0) {
+                firstFailedWindow = from;
+            }
 
-                //  Each call runs in its own transaction
-                commitEmbeddingService.saveCommitEmbeddingWithRetry(analysis, commitHash, commitMessage, embedding);
-                processedCount++;
+            for (Map<String, Object> commit : embedded) {
+                List<Map<String, Object>> duplicates = (List<Map<String, Object>>) commit.get("duplicates");
+                if (duplicates != null && !duplicates.isEmpty()) {
+                    duplicateCount += commitEmbeddingService.saveDuplicates(analysis, (String) commit.get("sha"), duplicates);
+                }
+            }
+        }
 
-            } catch (Exception e) {
-                logger.error("Error processing individual commit: {}", e.getMessage());
-                errorCount++;
+        // Near-duplicate messages say nothing about the patches, so members get diff chunks of their own
+        if (leaseHeld && diffEmbeddingService.isEnabled()) {
+            List<String> chunkHashes = new ArrayList<>();
+            for (Map<String, Object> commit : commits) {
+                if (commit.get("sha") != null) {
+                    chunkHashes.add((String) commit.get("sha"));
+                }
+                List<Map<String, Object>> duplicates = (List<Map<String, Object>>) commit.get("duplicates");
+                if (duplicates != null) {
+                    duplicates.forEach(duplicate -> chunkHashes.add((String) duplicate.get("sha")));
+                }
             }
+            int done = firstFailedWindow >= 0 ? firstFailedWindow : commits.size();
+            diffEmbeddingService.embedDiffs(analysis, chunkHashes, () -> checkpoint.test(done));
+        }
+
+        if (processedCount + duplicateCount > 0) {
+            completionCache.invalidate(analysisId);
         }
 
-        logger.info("✅ Finished processing embeddings for analysisId={}. Processed: {}, Skipped: {}, Errors: {}",
-                analysisId, processedCount, skippedCount, errorCount);
+        logger.info("✅ Finished processing embeddings for analysisId={}. Processed: {}, Duplicates: {}, Skipped: {}, Errors: {}",
+                analysisId, processedCount, duplicateCount, skippedCount, errorCount);
+        return errorCount;
     }
 
     /**
@@ -150,8 +340,7 @@ public class AnalysisService {
                 return new ArrayList<>();
             }
 
-            String embeddingString = "[" + String.join(",", queryEmbedding.stream().map(String::valueOf).toArray(String[]::new)) + "]";
-            List<Object[]> results = commitEmbeddingRepository.findSimilarCommits(analysisId, embeddingString);
+            List<Object[]> results = commitEmbeddingRepository.findSimilarCommits(analysisId, toVectorLiteral(queryEmbedding));
 
             List<Map<String, Object>> formattedResults = new ArrayList<>();
             for (Object[] row : results) {
@@ -171,24 +360,103 @@ public class AnalysisService {
     }
 
     /**
-     * Generates answer for queries related to commit or any other
+     * Searches commits across all analyses, or only {@code analysisIds} when given, in one query.
+     * Commits shared by forks are reported once, with the other repositories listed under "also_in".
+     */
+    public List<Map<String, Object>> searchSimilarCommitsGlobal(String query, Collection<Long> analysisIds, int limit, int perRepo) {
+        logger.info("Global search across {} analyses with query='{}'",
+                analysisIds.isEmpty() ? "all" : analysisIds.size(), query);
+
+        List<Double> queryEmbedding = openAIService.generateEmbedding(query);
+        if (queryEmbedding.isEmpty()) {
+            logger.warn("Embedding generation failed for query='{}'", query);
+            return new ArrayList<>();
+        }
+
+        List<Object[]> rows = commitEmbeddingRepository.findSimilarCommitsGlobal(toVectorLiteral(queryEmbedding),
+                analysisIds.isEmpty(), analysisIds.isEmpty() ? List.of(-1L) : analysisIds,
+                Math.max(globalSearchCandidates, limit), perRepo, 0.5, limit);
+
+        List<Map<String, Object>> results = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("commit_hash", row[0]);
+            result.put("commit_message", row[1]);
+            result.put("analysis_id", row[2]);
+            result.put("repo_key", row[3]);
+            result.put("repo_url", row[4]);
+            result.put("similarity", row[5]);
+            result.put("also_in", row[6] == null ? List.of() : List.of(((String) row[6]).split(",")));
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Runs several semantic searches with one embedding request and one SQL statement.
+     * Returns one entry per query, in request order, each with its own results.
+     */
+    public List<Map<String, Object>> searchSimilarCommitsBatch(Long analysisId, List<String> queries, int limit) {
+        logger.info("Batch searching {} queries in analysisId={}", queries.size(), analysisId);
+
+        List<Map<String, Object>> grouped = new ArrayList<>(queries.size());
+        List<List<Map<String, Object>>> resultsByQuery = new ArrayList<>(queries.size());
+        for (String query : queries) {
+            List<Map<String, Object>> results = new ArrayList<>();
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("query", query);
+            entry.put("results", results);
+            grouped.add(entry);
+            resultsByQuery.add(results);
+        }
+
+        List<List<Double>> embeddings = openAIService.generateEmbeddings(queries);
+        if (embeddings.size() != queries.size()) {
+            logger.warn("Batch embedding failed for {} queries", queries.size());
+            return grouped;
+        }
+
+        String vectors = String.join("|", embeddings.stream().map(this::toVectorLiteral).toList());
+        for (Object[] row : commitEmbeddingRepository.findSimilarCommitsBatch(analysisId, vectors, limit, 0.5)) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("commit_hash", row[1]);
+            result.put("commit_message", row[2]);
+            result.put("similarity", row[3]);
+            resultsByQuery.get(((Number) row[0]).intValue() - 1).add(result);
+        }
+        return grouped;
+    }
+
+    /**
+     * Finds commits similar to already-embedded commits, reusing their stored vectors so no model call is made.
+     * Returns neighbours per requested hash; hashes that are not embedded in this analysis are absent.
+     */
+    public Map<String, List<Map<String, Object>>> findSimilarToCommits(Long analysisId, Collection<String> commitHashes, int limit) {
+        logger.info("Finding commits similar to {} stored commits in analysisId={}", commitHashes.size(), analysisId);
+
+        Map<String, List<Map<String, Object>>> neighbours = new LinkedHashMap<>();
+        for (Object[] row : commitEmbeddingRepository.findNeighboursOfCommits(analysisId, commitHashes, limit)) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("commit_hash", row[1]);
+            result.put("commit_message", row[2]);
+            result.put("similarity", row[3]);
+            neighbours.computeIfAbsent((String) row[0], hash -> new ArrayList<>()).add(result);
+        }
+        return neighbours;
+    }
+
+    /**
+     * Generates answer for queries related to commit or any other.
+     * Retrieves the commits most similar to the question and packs them into the prompt under a token budget,
+     * falling back to the most recent commits when the question cannot be embedded.
      */
     public String generateAnswer(Long analysisId, String question) {
         logger.info("Generating AI-based answer for analysisId={} and question='{}'", analysisId, question);
 
         try {
-            List<String> commitMessages = commitEmbeddingRepository.findCommitMessagesByAnalysisId(analysisId);
-            if (commitMessages.isEmpty()) {
-                return "No commit data available for analysis.";
-            }
-
-            String prompt = String.format(
-                    "You are an assistant analyzing commit messages.\n\nCommit History:\n%s\n\nQuestion: %s\n\nAnswer:",
-                    String.join("\n", commitMessages.subList(0, Math.min(100, commitMessages.size()))),
-                    question
-            );
-
-            return openAIService.generateCompletion(prompt);
+            String answer = completionCache.complete(analysisId, answerRequest(question),
+                    () -> buildAnswerPrompt(analysisId, question));
+            return answer != null ? answer : "No commit data available for analysis.";
 
         } catch (Exception e) {
             logger.error("Error generating answer for analysisId={}", analysisId, e);
@@ -196,6 +464,57 @@ public class AnalysisService {
         }
     }
 
+    /**
+     * Streaming counterpart of {@link #generateAnswer}; retrieval runs off the request thread.
+     */
+    public Flux<String> streamAnswer(Long analysisId, String question) {
+        logger.info("Streaming AI-based answer for analysisId={} and question='{}'", analysisId, question);
+        return completionCache.completeStream(analysisId, answerRequest(question), () -> buildAnswerPrompt(analysisId, question))
+                .switchIfEmpty(Flux.just("No commit data available for analysis."));
+    }
+
+    /**
+     * Completion cache request for a question: the normalized question plus the retrieval settings that shape the prompt.
+     */
+    private String answerRequest(String question) {
+        return "qa\n" + qaTopK + "\n" + qaTokenBudget + "\n" + question.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Builds the Q&A prompt from the commits nearest to the question, or returns null when the analysis has none.
+     */
+    private String buildAnswerPrompt(Long analysisId, String question) {
+        List<Object[]> candidates = List.of();
+        List<Double> questionEmbedding = openAIService.generateEmbedding(question);
+        if (!questionEmbedding.isEmpty()) {
+            candidates = commitEmbeddingRepository.findNearestCommits(analysisId, toVectorLiteral(questionEmbedding), qaTopK);
+        }
+        if (candidates.isEmpty()) {
+            logger.debug("No retrieval hits for analysisId={}; using recent commits", analysisId);
+            candidates = commitEmbeddingRepository.findRecentCommits(analysisId, PageRequest.of(0, qaTopK));
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        List<String> lines = new ArrayList<>(candidates.size());
+        for (Object[] row : candidates) {
+            String hash = (String) row[0];
+            lines.add("[" + hash.substring(0, Math.min(7, hash.length())) + "] " + ((String) row[1]).trim());
+        }
+        List<String> context = PromptBudget.pack(lines, qaTokenBudget);
+
+        String prompt = String.format(
+                "You are an assistant analyzing commit messages.\n" +
+                "Answer using only the relevant commits below and cite them by the hash in brackets.\n\n" +
+                "Relevant Commits:\n%s\n\nQuestion: %s\n\nAnswer:",
+                String.join("\n", context),
+                question
+        );
+        logger.debug("Q&A prompt for analysisId={}: {} commits, ~{} tokens", analysisId, context.size(), PromptBudget.estimateTokens(prompt));
+        return prompt;
+    }
+
     /**
      * Generates commit summary
      */
@@ -203,21 +522,20 @@ public class AnalysisService {
         logger.info("Generating commit summary for analysisId={}", analysisId);
 
         try {
-            List<String> commitMessages = commitEmbeddingRepository.findCommitMessagesByAnalysisId(analysisId);
-            if (commitMessages.isEmpty()) {
-                return "No commit messages to summarize.";
-            }
-
-            String prompt = String.format(
-                    "Provide a concise summary of these commit messages:\n%s\n\nSummary:",
-                    String.join("\n", commitMessages.subList(0, Math.min(500, commitMessages.size())))
-            );
-
-            return openAIService.generateCompletion(prompt);
+            return summarizationService.summarize(analysisId);
 
         } catch (Exception e) {
             logger.error("Error generating summary for analysisId={}", analysisId, e);
             return "Error generating summary: " + e.getMessage();
         }
     }
+
+    /**
+     * Streaming counterpart of {@link #generateSummary}: lower levels of the summary tree are built (or read
+     * from cache) first, then the final combining step is streamed.
+     */
+    public Flux<String> streamSummary(Long analysisId) {
+        logger.info("Streaming commit summary for analysisId={}", analysisId);
+        return summarizationService.summarizeStream(analysisId);
+    }
 }
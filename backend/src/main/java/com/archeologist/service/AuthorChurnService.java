@@ -0,0 +1,201 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.CommitRecord;
+import com.archeologist.analytics.FileChange;
+import com.archeologist.entity.ActivityBucket;
+import com.archeologist.entity.AuthorChurn;
+import com.archeologist.entity.CodeAnalysis;
+import com.archeologist.repository.ActivityBucketRepository;
+import com.archeologist.repository.AuthorChurnRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Per-author churn maintained at ingest: commits, lines added and removed, distinct files touched and the
+ * first and last commit, per author as merged by {@link AuthorIdentityService}. Each page of new commits is
+ * summed into one mutable accumulator per author and added to {@code author_churn} with a single upsert;
+ * weekly activity comes from the per-author buckets in {@code activity_buckets}.
+ */
+@Service
+public class AuthorChurnService implements CommitAggregator {
+
+    private static final Map<String, String> SORTS = Map.of(
+            "commits", "commits",
+            "additions", "additions",
+            "deletions", "deletions",
+            "files", "filesTouched",
+            "recent", "lastCommitAt");
+
+    /** Totals of one author within a page; primitive fields so summing boxes nothing. */
+    private static final class Churn {
+        String displayName;
+        long displayNameAt = Long.MIN_VALUE;
+        int commits;
+        int detailedCommits;
+        long additions;
+        long deletions;
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        final Set<String> files = new HashSet<>();
+    }
+
+    @Autowired
+    private AuthorIdentityService authorIdentityService;
+
+    @Autowired
+    private AuthorChurnRepository authorChurnRepository;
+
+    @Autowired
+    private ActivityBucketRepository activityBucketRepository;
+
+    @Autowired
+    private ActivityAggregator activityAggregator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void accept(CodeAnalysis analysis, List<CommitRecord> newCommits) throws Exception {
+        Map<String, String> authors = authorIdentityService.resolve(analysis.getId(), newCommits);
+        Map<String, Churn> churn = new HashMap<>();
+        for (CommitRecord commit : newCommits) {
+            Churn totals = churn.computeIfAbsent(authors.get(commit.sha()), key -> new Churn());
+            long at = commit.date().toEpochMilli();
+            totals.commits++;
+            totals.first = Math.min(totals.first, at);
+            totals.last = Math.max(totals.last, at);
+            if (at > totals.displayNameAt && !commit.authorName().isBlank()) {
+                totals.displayName = commit.authorName().trim();
+                totals.displayNameAt = at;
+            }
+            if (commit.files() != null) {
+                totals.detailedCommits++;
+                for (FileChange file : commit.files()) {
+                    totals.additions += file.additions();
+                    totals.deletions += file.deletions();
+                    totals.files.add(file.path());
+                }
+            }
+        }
+
+        // Distinct files: only (author, path) pairs not stored before add to files_touched
+        List<Map<String, Object>> fileRows = new ArrayList<>();
+        churn.forEach((author, totals) -> totals.files.forEach(path -> fileRows.add(Map.of("author_key", author, "path", path))));
+        Map<String, Integer> newFiles = new HashMap<>();
+        if (!fileRows.isEmpty()) {
+            List<String> inserted = entityManager.createNativeQuery(
+                            "INSERT INTO author_files (code_analysis_id, author_key, path) " +
+                            "SELECT :analysisId, r.author_key, r.path " +
+                            "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(author_key text, path text) " +
+                            "ON CONFLICT (code_analysis_id, author_key, path) DO NOTHING RETURNING author_key")
+                    .setParameter("analysisId", analysis.getId())
+                    .setParameter("rows", objectMapper.writeValueAsString(fileRows))
+                    .getResultList();
+            inserted.forEach(author -> newFiles.merge(author, 1, Integer::sum));
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>(churn.size());
+        churn.forEach((author, totals) -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put("author_key", author);
+            row.put("display_name", totals.displayName);
+            row.put("commits", totals.commits);
+            row.put("detailed_commits", totals.detailedCommits);
+            row.put("additions", totals.additions);
+            row.put("deletions", totals.deletions);
+            row.put("files_touched", newFiles.getOrDefault(author, 0));
+            row.put("first_commit_at", utc(totals.first));
+            row.put("last_commit_at", utc(totals.last));
+            rows.add(row);
+        });
+
+        entityManager.createNativeQuery(
+                        "INSERT INTO author_churn (code_analysis_id, author_key, display_name, commits, detailed_commits, " +
+                        "additions, deletions, files_touched, first_commit_at, last_commit_at) " +
+                        "SELECT :analysisId, r.author_key, r.display_name, r.commits, r.detailed_commits, " +
+                        "r.additions, r.deletions, r.files_touched, r.first_commit_at, r.last_commit_at " +
+                        "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(author_key text, display_name text, commits int, " +
+                        "detailed_commits int, additions bigint, deletions bigint, files_touched int, " +
+                        "first_commit_at timestamp, last_commit_at timestamp) " +
+                        "ON CONFLICT (code_analysis_id, author_key) DO UPDATE SET " +
+                        "display_name = CASE WHEN EXCLUDED.last_commit_at > author_churn.last_commit_at " +
+                        "  THEN COALESCE(EXCLUDED.display_name, author_churn.display_name) ELSE author_churn.display_name END, " +
+                        "commits = author_churn.commits + EXCLUDED.commits, " +
+                        "detailed_commits = author_churn.detailed_commits + EXCLUDED.detailed_commits, " +
+                        "additions = author_churn.additions + EXCLUDED.additions, " +
+                        "deletions = author_churn.deletions + EXCLUDED.deletions, " +
+                        "files_touched = author_churn.files_touched + EXCLUDED.files_touched, " +
+                        "first_commit_at = LEAST(author_churn.first_commit_at, EXCLUDED.first_commit_at), " +
+                        "last_commit_at = GREATEST(author_churn.last_commit_at, EXCLUDED.last_commit_at)")
+                .setParameter("analysisId", analysis.getId())
+                .setParameter("rows", objectMapper.writeValueAsString(rows))
+                .executeUpdate();
+    }
+
+    /**
+     * Authors ordered by {@code sort} (commits, additions, deletions, files or recent), largest first.
+     */
+    public List<Map<String, Object>> getAuthorChurn(Long analysisId, String sort, int limit) {
+        String property = SORTS.get(sort == null ? "commits" : sort.toLowerCase(Locale.ROOT));
+        if (property == null) {
+            throw new IllegalArgumentException("sort must be one of " + new TreeSet<>(SORTS.keySet()));
+        }
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (AuthorChurn churn : authorChurnRepository.findByAnalysisId(analysisId,
+                PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, property, "authorKey")))) {
+            results.add(toMap(churn));
+        }
+        return results;
+    }
+
+    /**
+     * One author's totals with their weekly commit series, or null when the author is unknown.
+     */
+    public Map<String, Object> getAuthorActivity(Long analysisId, String author) {
+        Optional<AuthorChurn> churn = authorChurnRepository.findByAnalysisIdAndAuthorKey(analysisId, author.trim().toLowerCase(Locale.ROOT));
+        if (churn.isEmpty()) {
+            return null;
+        }
+        activityAggregator.ensureCurrentKeys(analysisId);
+        List<Map<String, Object>> weekly = new ArrayList<>();
+        for (ActivityBucket bucket : activityBucketRepository.findByAnalysisIdAndGranularityAndAuthorAndBucketStartBetweenOrderByBucketStart(
+                analysisId, "W", churn.get().getAuthorKey(), LocalDate.of(1970, 1, 1), LocalDate.of(9999, 12, 31))) {
+            weekly.add(Map.of("date", bucket.getBucketStart().toString(), "commits", bucket.getCommits()));
+        }
+        Map<String, Object> result = toMap(churn.get());
+        result.put("weekly", weekly);
+        return result;
+    }
+
+    private Map<String, Object> toMap(AuthorChurn churn) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("author", churn.getAuthorKey());
+        item.put("name", churn.getDisplayName());
+        item.put("commits", churn.getCommits());
+        item.put("detailedCommits", churn.getDetailedCommits());
+        item.put("additions", churn.getAdditions());
+        item.put("deletions", churn.getDeletions());
+        item.put("filesTouched", churn.getFilesTouched());
+        item.put("firstCommitAt", churn.getFirstCommitAt());
+        item.put("lastCommitAt", churn.getLastCommitAt());
+        return item;
+    }
+
+    private static String utc(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(ZoneOffset.UTC).toLocalDateTime().toString();
+    }
+}
@@ -0,0 +1,154 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.CommitRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Merges the identities an author commits under. Each commit contributes up to two aliases: the GitHub login
+ * (from a {@code users.noreply.github.com} address) and the lower-cased email. The lower-cased name is an alias
+ * only for commits with neither, since unrelated people share names. An alias already seen for the analysis
+ * maps to its author; otherwise a new author is keyed by login, else email, else name. Aliases are persisted in {@code author_identities}, so merges stay stable across ingests. Two authors
+ * that were already distinct are never merged afterwards.
+ */
+@Service
+public class AuthorIdentityService {
+
+    public static final String UNKNOWN = "unknown";
+
+    private static final Pattern NOREPLY = Pattern.compile("^(?:\\d+\\+)?([^@]+)@users\\.noreply\\.github\\.com$");
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Returns the author key of each commit, by sha, recording any new aliases. Must run inside a transaction.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, String> resolve(Long analysisId, List<CommitRecord> commits) throws Exception {
+        Map<String, List<String>> aliasesBySha = new HashMap<>();
+        Set<String> allAliases = new HashSet<>();
+        for (CommitRecord commit : commits) {
+            List<String> aliases = aliases(commit);
+            aliasesBySha.put(commit.sha(), aliases);
+            allAliases.addAll(aliases);
+        }
+
+        Map<String, String> known = new HashMap<>();
+        if (!allAliases.isEmpty()) {
+            List<Object[]> rows = entityManager.createNativeQuery(
+                            "SELECT alias, author_key FROM author_identities WHERE code_analysis_id = :analysisId AND alias IN (:aliases)")
+                    .setParameter("analysisId", analysisId)
+                    .setParameter("aliases", allAliases)
+                    .getResultList();
+            for (Object[] row : rows) {
+                known.put((String) row[0], (String) row[1]);
+            }
+        }
+
+        Map<String, String> keys = new HashMap<>();
+        List<Map<String, Object>> newAliases = new ArrayList<>();
+        for (CommitRecord commit : commits) {
+            List<String> aliases = aliasesBySha.get(commit.sha());
+            if (aliases.isEmpty()) {
+                keys.put(commit.sha(), UNKNOWN);
+                continue;
+            }
+            String key = aliases.stream().map(known::get).filter(Objects::nonNull).findFirst()
+                    .orElse(aliases.get(0).substring(aliases.get(0).indexOf(':') + 1));
+            for (String alias : aliases) {
+                if (known.putIfAbsent(alias, key) == null) {
+                    newAliases.add(Map.of("alias", alias, "author_key", key));
+                }
+            }
+            keys.put(commit.sha(), key);
+        }
+
+        if (!newAliases.isEmpty()) {
+            entityManager.createNativeQuery(
+                            "INSERT INTO author_identities (code_analysis_id, alias, author_key) " +
+                            "SELECT :analysisId, r.alias, r.author_key " +
+                            "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(alias text, author_key text) " +
+                            "ON CONFLICT (code_analysis_id, alias) DO NOTHING")
+                    .setParameter("analysisId", analysisId)
+                    .setParameter("rows", objectMapper.writeValueAsString(newAliases))
+                    .executeUpdate();
+        }
+        return keys;
+    }
+
+    /**
+     * Resolves the commits and stores each one's key in {@code analysis_commits.author_key}, so readers working
+     * in SQL group commits by the same authors without repeating the alias rules. Must run inside a transaction.
+     */
+    public void recordCommitKeys(Long analysisId, List<CommitRecord> commits) throws Exception {
+        if (commits.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> rows = new ArrayList<>(commits.size());
+        resolve(analysisId, commits).forEach((sha, key) -> rows.add(Map.of("commit_hash", sha, "author_key", key)));
+        entityManager.createNativeQuery(
+                        "UPDATE analysis_commits c SET author_key = r.author_key " +
+                        "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(commit_hash text, author_key text) " +
+                        "WHERE c.code_analysis_id = :analysisId AND c.commit_hash = r.commit_hash")
+                .setParameter("analysisId", analysisId)
+                .setParameter("rows", objectMapper.writeValueAsString(rows))
+                .executeUpdate();
+    }
+
+    /**
+     * Fills {@code author_key} for commits ingested before it was stored, a batch at a time. Must run inside a
+     * transaction. Returns the number of commits keyed.
+     */
+    @SuppressWarnings("unchecked")
+    public int backfillCommitKeys(Long analysisId) throws Exception {
+        int keyed = 0;
+        while (true) {
+            List<Object[]> rows = entityManager.createNativeQuery(
+                            "SELECT commit_hash, author_name, author_email FROM analysis_commits " +
+                            "WHERE code_analysis_id = :analysisId AND author_key IS NULL ORDER BY id LIMIT 1000")
+                    .setParameter("analysisId", analysisId)
+                    .getResultList();
+            if (rows.isEmpty()) {
+                return keyed;
+            }
+            List<CommitRecord> commits = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                commits.add(new CommitRecord((String) row[0], row[1] != null ? (String) row[1] : "",
+                        row[2] != null ? (String) row[2] : "", null, null, List.of(), null));
+            }
+            recordCommitKeys(analysisId, commits);
+            keyed += commits.size();
+        }
+    }
+
+    /**
+     * Aliases in order of preference for naming a new author: login, email, or the name when there is neither.
+     */
+    static List<String> aliases(CommitRecord commit) {
+        List<String> aliases = new ArrayList<>(3);
+        String email = commit.authorEmail().trim().toLowerCase(Locale.ROOT);
+        String name = commit.authorName().trim().toLowerCase(Locale.ROOT);
+        Matcher noreply = NOREPLY.matcher(email);
+        if (noreply.matches()) {
+            aliases.add("login:" + noreply.group(1));
+        }
+        if (!email.isEmpty()) {
+            aliases.add("email:" + email);
+        }
+        if (aliases.isEmpty() && !name.isEmpty()) {
+            aliases.add("name:" + name);
+        }
+        return aliases;
+    }
+}
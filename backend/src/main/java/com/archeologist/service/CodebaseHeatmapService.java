@@ -0,0 +1,136 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.CommitRecord;
+import com.archeologist.analytics.FileChange;
+import com.archeologist.analytics.PathTrie;
+import com.archeologist.entity.CodeAnalysis;
+import com.archeologist.repository.PathChangeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Directory heatmap maintained at ingest. Each page of new commits is folded into a {@link PathTrie}, and the
+ * trie's nodes are added to the persisted trie in {@code path_changes}, so every directory holds the number of
+ * file changes below it. Reads walk only the busiest children of each directory down to a requested depth.
+ */
+@Service
+public class CodebaseHeatmapService implements CommitAggregator {
+
+    @Autowired
+    private PathChangeRepository pathChangeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.heatmap.max-depth:6}")
+    private int maxDepth;
+
+    @Value("${app.heatmap.max-top-n:100}")
+    private int maxTopN;
+
+    @Value("${app.heatmap.max-nodes:5000}")
+    private int maxNodes;
+
+    @Override
+    public void accept(CodeAnalysis analysis, List<CommitRecord> newCommits) throws Exception {
+        PathTrie trie = new PathTrie();
+        for (CommitRecord commit : newCommits) {
+            if (commit.files() != null) {
+                for (FileChange file : commit.files()) {
+                    trie.add(file.path(), 1);
+                }
+            }
+        }
+        if (trie.size() == 1) {
+            return;
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>(trie.size());
+        trie.forEach((path, parentPath, depth, file, count) -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put("path", path);
+            row.put("parent_path", parentPath);
+            row.put("depth", depth);
+            row.put("is_file", file);
+            row.put("changes", count);
+            rows.add(row);
+        });
+
+        // A path that later becomes a directory stays one
+        entityManager.createNativeQuery(
+                        "INSERT INTO path_changes (code_analysis_id, path, parent_path, depth, is_file, changes) " +
+                        "SELECT :analysisId, r.path, r.parent_path, r.depth, r.is_file, r.changes " +
+                        "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(path text, parent_path text, depth int, is_file boolean, changes bigint) " +
+                        "ON CONFLICT (code_analysis_id, path) DO UPDATE SET " +
+                        "changes = path_changes.changes + EXCLUDED.changes, is_file = path_changes.is_file AND EXCLUDED.is_file")
+                .setParameter("analysisId", analysis.getId())
+                .setParameter("rows", objectMapper.writeValueAsString(rows))
+                .executeUpdate();
+    }
+
+    public boolean hasHeatmap(Long analysisId) {
+        return pathChangeRepository.existsByAnalysisId(analysisId);
+    }
+
+    /**
+     * Subtree of {@code root} down to {@code depth} levels, keeping the {@code topN} most changed children of each
+     * directory and at most {@code app.heatmap.max-nodes} nodes in all. Each directory reports how many children and
+     * changes were left out, so clients can drill down. Returns null when {@code root} is not a known path.
+     */
+    public Map<String, Object> getHeatmap(Long analysisId, String root, int depth, int topN) {
+        String rootPath = root == null ? "" : root.replaceAll("^/+|/+$", "");
+        int rootDepth = rootPath.isEmpty() ? 0 : rootPath.split("/").length;
+        int levels = Math.max(1, Math.min(depth, maxDepth));
+        int limit = Math.max(1, Math.min(topN, maxTopN));
+
+        Map<String, Map<String, Object>> nodes = new HashMap<>();
+        Map<String, Object> rootNode = null;
+        for (Object[] row : pathChangeRepository.findSubtree(analysisId, rootPath, rootDepth + levels, limit, maxNodes)) {
+            String path = (String) row[0];
+            String parentPath = (String) row[1];
+            boolean file = (Boolean) row[3];
+            long changes = ((Number) row[4]).longValue();
+            int childCount = ((Number) row[5]).intValue();
+
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put("name", path.isEmpty() ? "" : path.substring(path.lastIndexOf('/') + 1));
+            node.put("path", path);
+            node.put("changes", changes);
+            node.put("file", file);
+            if (!file) {
+                node.put("children", new ArrayList<Map<String, Object>>());
+                node.put("childCount", childCount);
+                node.put("otherChanges", changes);
+            }
+            nodes.put(path, node);
+
+            if (path.equals(rootPath)) {
+                rootNode = node;
+            } else {
+                addChild(nodes.get(parentPath), node);
+            }
+        }
+        return rootNode;
+    }
+
+    /**
+     * Attaches a node to its directory and takes its changes out of the directory's "other" remainder.
+     */
+    @SuppressWarnings("unchecked")
+    private void addChild(Map<String, Object> parent, Map<String, Object> child) {
+        if (parent == null) {
+            return;
+        }
+        ((List<Map<String, Object>>) parent.get("children")).add(child);
+        parent.put("otherChanges", (long) parent.get("otherChanges") - (long) child.get("changes"));
+    }
+}
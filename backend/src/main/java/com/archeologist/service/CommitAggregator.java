@@ -0,0 +1,22 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.CommitRecord;
+import com.archeologist.entity.CodeAnalysis;
+
+import java.util.List;
+
+/**
+ * Derived statistic maintained at ingest. {@link CommitIngestService} hands every aggregator each page of
+ * commits that are new to the analysis, inside the transaction that records them, so an aggregator sees
+ * every commit exactly once and can update its persisted state incrementally.
+ */
+public interface CommitAggregator {
+
+    void accept(CodeAnalysis analysis, List<CommitRecord> newCommits) throws Exception;
+
+    /**
+     * Called once after an ingest run that added commits, outside any page transaction.
+     */
+    default void afterIngest(CodeAnalysis analysis) {
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class CommitEmbeddingService {
@@ -32,8 +33,11 @@ public class CommitEmbeddingService {
                 String embeddingString = "[" + String.join(",", embedding.stream().map(String::valueOf).toArray(String[]::new)) + "]";
 
                 // Use named parameter for embedding and cast inside SQL
+                // A chunk re-run after a lost lease overwrites what the previous run saved
                 String sql = "INSERT INTO commit_embeddings (code_analysis_id, commit_hash, commit_message, embedding) " +
-                        "VALUES (:analysisId, :commitHash, :commitMessage, CAST(:embedding AS vector))";
+                        "VALUES (:analysisId, :commitHash, :commitMessage, CAST(:embedding AS vector)) " +
+                        "ON CONFLICT (code_analysis_id, commit_hash) DO UPDATE SET commit_message = EXCLUDED.commit_message, " +
+                        "embedding = EXCLUDED.embedding, duplicate_of = NULL";
 
                 entityManager.createNativeQuery(sql)
                         .setParameter("analysisId", analysis.getId())
@@ -61,4 +65,25 @@ public class CommitEmbeddingService {
             }
         }
     }
+
+    /**
+     * Stores near-duplicates of an embedded commit without a vector of their own; searches resolve them
+     * through {@code duplicate_of}. Commits already stored are left untouched.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    protected int saveDuplicates(CodeAnalysis analysis, String representativeHash, List<Map<String, Object>> duplicates) {
+        int saved = 0;
+        for (Map<String, Object> duplicate : duplicates) {
+            saved += entityManager.createNativeQuery(
+                            "INSERT INTO commit_embeddings (code_analysis_id, commit_hash, commit_message, duplicate_of, created_at) " +
+                            "VALUES (:analysisId, :commitHash, :commitMessage, :representativeHash, NOW()) " +
+                            "ON CONFLICT (code_analysis_id, commit_hash) DO NOTHING")
+                    .setParameter("analysisId", analysis.getId())
+                    .setParameter("commitHash", duplicate.get("sha"))
+                    .setParameter("commitMessage", duplicate.get("message"))
+                    .setParameter("representativeHash", representativeHash)
+                    .executeUpdate();
+        }
+        return saved;
+    }
 }
@@ -0,0 +1,280 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.CommitGraph;
+import com.archeologist.analytics.CommitRecord;
+import com.archeologist.entity.CodeAnalysis;
+import com.archeologist.repository.CodeAnalysisRepository;
+import com.archeologist.repository.CommitEmbeddingRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Commit DAG per analysis. After an ingest adds commits, the graph is rebuilt from {@code analysis_commits}
+ * into a {@link CommitGraph} file under {@code app.graph.dir}; queries run on the memory-mapped file, which is
+ * opened once and shared until the next rebuild. The file name carries the version of the commit set it was built
+ * from, so a node whose graph is behind commits another node ingested rebuilds it on the next query.
+ */
+@Service
+public class CommitGraphService implements CommitAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommitGraphService.class);
+
+    @Autowired
+    private CodeAnalysisRepository codeAnalysisRepository;
+
+    @Autowired
+    private CommitEmbeddingRepository commitEmbeddingRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.graph.dir:data/graphs}")
+    private String graphDir;
+
+    private record LoadedGraph(String version, CommitGraph graph) {
+    }
+
+    private final Map<Long, LoadedGraph> graphs = new ConcurrentHashMap<>();
+
+    @Override
+    public void accept(CodeAnalysis analysis, List<CommitRecord> newCommits) {
+        // Rebuilt once per ingest in afterIngest
+    }
+
+    @Override
+    public void afterIngest(CodeAnalysis analysis) {
+        try {
+            rebuild(analysis.getId());
+        } catch (Exception e) {
+            logger.error("Failed to build commit graph for analysisId={}: {}", analysis.getId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * First-parent history from {@code from} (default: the analysed HEAD), newest first.
+     */
+    public List<Map<String, Object>> firstParentHistory(Long analysisId, String from, int limit) throws IOException {
+        CommitGraph graph = graph(analysisId);
+        int start = from == null || from.isBlank() ? head(analysisId, graph) : require(graph, from);
+        List<Map<String, Object>> history = new ArrayList<>();
+        for (int id : graph.firstParentHistory(start, limit)) {
+            history.add(commitItem(graph, id));
+        }
+        return history;
+    }
+
+    /**
+     * Merge base of two commits and whether either is an ancestor of the other.
+     */
+    public Map<String, Object> mergeBase(Long analysisId, String a, String b) throws IOException {
+        CommitGraph graph = graph(analysisId);
+        int first = require(graph, a);
+        int second = require(graph, b);
+        int base = graph.mergeBase(first, second);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("a", graph.sha(first));
+        result.put("b", graph.sha(second));
+        result.put("mergeBase", base >= 0 ? commitItem(graph, base) : null);
+        result.put("aIsAncestorOfB", base == first);
+        result.put("bIsAncestorOfA", base == second);
+        return result;
+    }
+
+    /**
+     * Merge frequency and branch lifetimes along the first-parent history of HEAD, over its {@code limit} newest
+     * commits. Merges are counted per {@code granularity} bucket (day, week or month); each merge's branch is the
+     * first-parent chain of its second parent down to the merge base.
+     */
+    public Map<String, Object> mergeStats(Long analysisId, String granularity, int limit) throws IOException {
+        String code = switch (granularity.toLowerCase(Locale.ROOT)) {
+            case "day" -> "D";
+            case "week" -> "W";
+            case "month" -> "M";
+            default -> throw new IllegalArgumentException("granularity must be day, week or month");
+        };
+        CommitGraph graph = graph(analysisId);
+        int[] mainline = graph.firstParentHistory(head(analysisId, graph), limit);
+
+        Map<LocalDate, Integer> mergesPerBucket = new TreeMap<>();
+        List<Map<String, Object>> branches = new ArrayList<>();
+        List<Long> lifetimes = new ArrayList<>();
+        for (int id : mainline) {
+            if (graph.parentCount(id) < 2) {
+                continue;
+            }
+            LocalDate day = Instant.ofEpochSecond(graph.time(id)).atZone(ZoneOffset.UTC).toLocalDate();
+            mergesPerBucket.merge(ActivityAggregator.bucketStart(day, code), 1, Integer::sum);
+
+            int[] branch = graph.mergedBranch(id);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("merge", graph.sha(id));
+            item.put("mergedAt", Instant.ofEpochSecond(graph.time(id)).toString());
+            item.put("commits", branch[0]);
+            if (branch[1] >= 0) {
+                long lifetime = Math.max(0, graph.time(id) - graph.time(branch[1]));
+                item.put("startedAt", Instant.ofEpochSecond(graph.time(branch[1])).toString());
+                item.put("lifetimeHours", lifetime / 3600.0);
+                lifetimes.add(lifetime);
+            }
+            branches.add(item);
+        }
+
+        List<Map<String, Object>> frequency = new ArrayList<>();
+        mergesPerBucket.forEach((bucket, merges) -> frequency.add(Map.of("date", bucket.toString(), "merges", merges)));
+        Collections.sort(lifetimes);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("commits", graph.size());
+        result.put("mainlineCommits", mainline.length);
+        result.put("merges", branches.size());
+        result.put("mergeRatio", mainline.length == 0 ? 0.0 : (double) branches.size() / mainline.length);
+        result.put("medianBranchLifetimeHours", lifetimes.isEmpty() ? null : lifetimes.get(lifetimes.size() / 2) / 3600.0);
+        result.put("frequency", frequency);
+        result.put("branches", branches);
+        return result;
+    }
+
+    private Map<String, Object> commitItem(CommitGraph graph, int id) {
+        List<String> parents = new ArrayList<>(graph.parentCount(id));
+        for (int i = 0; i < graph.parentCount(id); i++) {
+            parents.add(graph.sha(graph.parent(id, i)));
+        }
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("hash", graph.sha(id));
+        item.put("date", Instant.ofEpochSecond(graph.time(id)).toString());
+        item.put("generation", graph.generation(id));
+        item.put("parents", parents);
+        return item;
+    }
+
+    private int require(CommitGraph graph, String sha) {
+        int id = graph.find(sha);
+        if (id < 0) {
+            throw new IllegalArgumentException("Unknown or ambiguous commit: " + sha);
+        }
+        return id;
+    }
+
+    /**
+     * The analysed HEAD, or the newest commit when HEAD is not in the graph.
+     */
+    private int head(Long analysisId, CommitGraph graph) {
+        String headSha = codeAnalysisRepository.findById(analysisId).map(CodeAnalysis::getHeadSha).orElse(null);
+        int head = headSha != null ? graph.find(headSha) : -1;
+        if (head >= 0) {
+            return head;
+        }
+        for (int id = 0; id < graph.size(); id++) {
+            if (head < 0 || graph.time(id) > graph.time(head)) {
+                head = id;
+            }
+        }
+        if (head < 0) {
+            throw new IllegalArgumentException("Analysis has no commits");
+        }
+        return head;
+    }
+
+    private CommitGraph graph(Long analysisId) throws IOException {
+        String version = version(analysisId);
+        LoadedGraph loaded = graphs.get(analysisId);
+        if (loaded != null && loaded.version().equals(version)) {
+            return loaded.graph();
+        }
+        if (!Files.exists(file(analysisId, version))) {
+            // Graph files are derived data; rebuild when missing (new host, cleaned directory) or behind the commits
+            version = rebuild(analysisId);
+        }
+        CommitGraph graph;
+        try {
+            graph = CommitGraph.open(file(analysisId, version));
+        } catch (NoSuchFileException e) {
+            // Replaced by a concurrent rebuild between the check and the open
+            version = rebuild(analysisId);
+            graph = CommitGraph.open(file(analysisId, version));
+        }
+        graphs.put(analysisId, new LoadedGraph(version, graph));
+        return graph;
+    }
+
+    private String version(Long analysisId) {
+        Object[] version = commitEmbeddingRepository.findIngestedCommitSetVersion(analysisId).get(0);
+        return version[0] + "-" + version[1];
+    }
+
+    /**
+     * Writes the graph of the commits stored now and deletes the analysis's older graph files. Returns the version
+     * the new file is named after; it is read before the commits, so a concurrent ingest only makes it look older.
+     */
+    private synchronized String rebuild(Long analysisId) throws IOException {
+        long started = System.currentTimeMillis();
+        CommitGraph.Builder builder = new CommitGraph.Builder();
+        String version = version(analysisId);
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<?> rows = entityManager.createNativeQuery(
+                            "SELECT commit_hash, parents, CAST(EXTRACT(EPOCH FROM committed_at) AS BIGINT) " +
+                            "FROM analysis_commits WHERE code_analysis_id = :analysisId")
+                    .setParameter("analysisId", analysisId)
+                    .setHint("org.hibernate.fetchSize", 5000)
+                    .getResultStream()) {
+                rows.forEach(row -> {
+                    Object[] columns = (Object[]) row;
+                    builder.add((String) columns[0], (String) columns[1], columns[2] == null ? 0 : ((Number) columns[2]).longValue());
+                });
+            }
+        });
+
+        Path file = file(analysisId, version);
+        builder.write(file);
+        graphs.remove(analysisId);
+        deleteOlderFiles(analysisId, file);
+        logger.info("Built commit graph for analysisId={} in {} ms ({} bytes)",
+                analysisId, System.currentTimeMillis() - started, Files.size(file));
+        return version;
+    }
+
+    /**
+     * Graphs already opened keep their mapping after the file is deleted, so in-flight queries are unaffected.
+     */
+    private void deleteOlderFiles(Long analysisId, Path current) {
+        String prefix = "analysis-" + analysisId + "-";
+        String unversioned = "analysis-" + analysisId + ".graph";
+        try (Stream<Path> files = Files.list(current.toAbsolutePath().getParent())) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (!file.getFileName().equals(current.getFileName())
+                        && ((name.startsWith(prefix) && name.endsWith(".graph")) || name.equals(unversioned))) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to delete old commit graphs of analysisId={}: {}", analysisId, e.getMessage());
+        }
+    }
+
+    private Path file(Long analysisId, String version) {
+        return Paths.get(graphDir, "analysis-" + analysisId + "-" + version + ".graph");
+    }
+}
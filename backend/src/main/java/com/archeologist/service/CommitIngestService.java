@@ -0,0 +1,300 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.CommitRecord;
+import com.archeologist.analytics.FileChange;
+import com.archeologist.entity.CodeAnalysis;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Streams a repository's commit history into {@code analysis_commits} and feeds the commits that are new
+ * to the analysis to every {@link CommitAggregator}.
+ * <p>
+ * History is read newest first, page by page, so memory is bounded by one page. Each page is inserted with
+ * {@code ON CONFLICT DO NOTHING}; the rows actually inserted are the new commits, and they reach the
+ * aggregators in the same transaction. On a refresh, reading from HEAD stops at the first page with no new
+ * commits. Until the walk has reached the root commit, the analysis keeps a frontier, the oldest commit the
+ * walk back from HEAD has reached, saved with every page; each run then resumes listing from it, so history
+ * cut short by a crash or by {@code app.ingest.max-commits} (a per-run budget) is backfilled. The newest {@code app.ingest.detail-commits} new commits of each run also get their changed files, stored
+ * in {@code commit_files} and passed to the aggregators with the commit.
+ */
+@Service
+public class CommitIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommitIngestService.class);
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @Autowired
+    private List<CommitAggregator> aggregators;
+
+    @Autowired
+    private AuthorIdentityService authorIdentityService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.ingest.max-commits:50000}")
+    private int maxCommits;
+
+    @Value("${app.ingest.detail-commits:100}")
+    private int detailCommits;
+
+    /**
+     * Ingests new commits, then backfills older history from the frontier while the run's budget lasts, and
+     * returns the total number of commits now recorded for the analysis.
+     */
+    public int ingest(CodeAnalysis analysis, String owner, String repo) throws IOException {
+        boolean refresh = countCommits(analysis.getId()) > 0;
+        if (refresh && !analysis.isHistoryComplete() && analysis.getHistoryFrontier() == null) {
+            // Ingested before frontiers were kept: resume from the oldest commit recorded
+            analysis.setHistoryFrontier(oldestCommit(analysis.getId()));
+        }
+        int[] seen = new int[1];
+        int[] added = new int[1];
+        int[] detailBudget = {detailCommits};
+        String[] walkEnd = new String[1];
+        boolean[] joined = new boolean[1];
+        long started = System.currentTimeMillis();
+
+        // New commits from HEAD; on a first ingest this walk is the one that moves the frontier
+        boolean ended = gitHubService.streamCommitHistory(owner, repo, null, page -> {
+            List<CommitRecord> fresh = ingestPage(analysis, owner, repo, page, detailBudget, !refresh);
+            seen[0] += page.size();
+            added[0] += fresh.size();
+            if (!page.isEmpty()) {
+                walkEnd[0] = page.get(page.size() - 1).sha();
+            }
+            if (refresh && fresh.isEmpty()) {
+                joined[0] = true;
+                return false;
+            }
+            return withinBudget(owner, repo, seen[0]);
+        });
+        if (!ended && refresh && !joined[0] && walkEnd[0] != null) {
+            // The budget ran out before the walk reached recorded history; the backfill has to cover the gap
+            saveFrontier(analysis, walkEnd[0], false);
+        }
+
+        if (!ended && !analysis.isHistoryComplete() && analysis.getHistoryFrontier() != null && seen[0] < maxCommits) {
+            logger.info("Backfilling {}/{} from {}", owner, repo, analysis.getHistoryFrontier());
+            ended = gitHubService.streamCommitHistory(owner, repo, analysis.getHistoryFrontier(), page -> {
+                List<CommitRecord> fresh = ingestPage(analysis, owner, repo, page, detailBudget, true);
+                seen[0] += page.size();
+                added[0] += fresh.size();
+                return withinBudget(owner, repo, seen[0]);
+            });
+        }
+        if (ended) {
+            saveFrontier(analysis, analysis.getHistoryFrontier(), true);
+        }
+
+        if (added[0] > 0) {
+            for (CommitAggregator aggregator : aggregators) {
+                aggregator.afterIngest(analysis);
+            }
+        }
+        int total = countCommits(analysis.getId());
+        logger.info("Ingested {}/{} for analysisId={}: read {}, new {}, total {} in {} ms",
+                owner, repo, analysis.getId(), seen[0], added[0], total, System.currentTimeMillis() - started);
+        return total;
+    }
+
+    private boolean withinBudget(String owner, String repo, int seen) {
+        if (seen >= maxCommits) {
+            logger.warn("Stopping ingest of {}/{} at {} commits (app.ingest.max-commits); the next run resumes from the frontier",
+                    owner, repo, seen);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records one page in its own transaction; with {@code moveFrontier}, the page's oldest commit becomes the
+     * frontier in the same transaction.
+     */
+    private List<CommitRecord> ingestPage(CodeAnalysis analysis, String owner, String repo, List<CommitRecord> page,
+                                          int[] detailBudget, boolean moveFrontier) {
+        List<CommitRecord> detailed = attachFiles(analysis, owner, repo, page, detailBudget);
+        return transactionTemplate.execute(status -> {
+            List<CommitRecord> fresh = recordPage(analysis, detailed);
+            if (moveFrontier && !page.isEmpty()) {
+                saveFrontier(analysis, page.get(page.size() - 1).sha(), false);
+            }
+            return fresh;
+        });
+    }
+
+    private void saveFrontier(CodeAnalysis analysis, String frontier, boolean complete) {
+        transactionTemplate.executeWithoutResult(status -> entityManager.createNativeQuery(
+                        "UPDATE code_analysis SET history_frontier = :frontier, history_complete = :complete WHERE id = :analysisId")
+                .setParameter("frontier", frontier)
+                .setParameter("complete", complete)
+                .setParameter("analysisId", analysis.getId())
+                .executeUpdate());
+        analysis.setHistoryFrontier(frontier);
+        analysis.setHistoryComplete(complete);
+    }
+
+    private String oldestCommit(Long analysisId) {
+        List<?> rows = entityManager.createNativeQuery(
+                        "SELECT commit_hash FROM analysis_commits WHERE code_analysis_id = :analysisId " +
+                        "ORDER BY committed_at, commit_hash LIMIT 1")
+                .setParameter("analysisId", analysisId)
+                .getResultList();
+        return rows.isEmpty() ? null : (String) rows.get(0);
+    }
+
+    public int countCommits(Long analysisId) {
+        return ((Number) entityManager.createNativeQuery(
+                        "SELECT COUNT(*) FROM analysis_commits WHERE code_analysis_id = :analysisId")
+                .setParameter("analysisId", analysisId)
+                .getSingleResult()).intValue();
+    }
+
+    /**
+     * Number of changes per file over the {@code limit} newest commits whose files were fetched.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Integer> recentFileChanges(Long analysisId, int limit) {
+        List<Object[]> rows = entityManager.createNativeQuery(
+                        "SELECT f.path, COUNT(*) FROM commit_files f JOIN (" +
+                        "  SELECT commit_hash FROM analysis_commits " +
+                        "  WHERE code_analysis_id = :analysisId AND files_fetched " +
+                        "  ORDER BY committed_at DESC LIMIT :limit" +
+                        ") c ON c.commit_hash = f.commit_hash " +
+                        "WHERE f.code_analysis_id = :analysisId GROUP BY f.path")
+                .setParameter("analysisId", analysisId)
+                .setParameter("limit", limit)
+                .getResultList();
+        Map<String, Integer> changes = new HashMap<>();
+        for (Object[] row : rows) {
+            changes.put((String) row[0], ((Number) row[1]).intValue());
+        }
+        return changes;
+    }
+
+    /**
+     * Fetches the changed files of the page's commits that are not recorded yet, newest first, while the run's
+     * detail budget lasts. File lists cost one GitHub request per commit, so older history is ingested without them.
+     */
+    @SuppressWarnings("unchecked")
+    private List<CommitRecord> attachFiles(CodeAnalysis analysis, String owner, String repo,
+                                           List<CommitRecord> page, int[] budget) {
+        if (budget[0] <= 0 || page.isEmpty()) {
+            return page;
+        }
+        List<String> hashes = page.stream().map(CommitRecord::sha).toList();
+        Set<String> known = new HashSet<>(entityManager.createNativeQuery(
+                        "SELECT commit_hash FROM analysis_commits WHERE code_analysis_id = :analysisId AND commit_hash IN (:hashes)")
+                .setParameter("analysisId", analysis.getId())
+                .setParameter("hashes", hashes)
+                .getResultList());
+        List<String> unknown = hashes.stream().filter(hash -> !known.contains(hash)).limit(budget[0]).toList();
+        if (unknown.isEmpty()) {
+            return page;
+        }
+        budget[0] -= unknown.size();
+
+        Map<String, List<FileChange>> files;
+        try {
+            files = gitHubService.fetchCommitFiles(owner, repo, unknown);
+        } catch (IOException e) {
+            logger.warn("Ingesting {}/{} page without file lists: {}", owner, repo, e.getMessage());
+            return page;
+        }
+        return page.stream()
+                .map(commit -> files.containsKey(commit.sha()) ? commit.withFiles(files.get(commit.sha())) : commit)
+                .toList();
+    }
+
+    /**
+     * Inserts one page and passes the commits that were not yet recorded to the aggregators.
+     */
+    @SuppressWarnings("unchecked")
+    private List<CommitRecord> recordPage(CodeAnalysis analysis, List<CommitRecord> page) {
+        try {
+            List<Map<String, Object>> rows = new ArrayList<>(page.size());
+            for (CommitRecord commit : page) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("commit_hash", commit.sha());
+                row.put("author_name", commit.authorName());
+                row.put("author_email", commit.authorEmail());
+                row.put("committed_at", commit.date().toString());
+                row.put("message", commit.message());
+                row.put("parents", String.join(" ", commit.parents()));
+                row.put("files_fetched", commit.files() != null);
+                rows.add(row);
+            }
+
+            Set<String> inserted = new HashSet<>(entityManager.createNativeQuery(
+                            "INSERT INTO analysis_commits (code_analysis_id, commit_hash, author_name, author_email, " +
+                            "committed_at, message, parents, files_fetched, ingested_at) " +
+                            "SELECT :analysisId, r.commit_hash, r.author_name, r.author_email, r.committed_at, r.message, r.parents, " +
+                            "r.files_fetched, NOW() " +
+                            "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(commit_hash text, author_name text, " +
+                            "author_email text, committed_at timestamptz, message text, parents text, files_fetched boolean) " +
+                            "ON CONFLICT (code_analysis_id, commit_hash) DO NOTHING RETURNING commit_hash")
+                    .setParameter("analysisId", analysis.getId())
+                    .setParameter("rows", objectMapper.writeValueAsString(rows))
+                    .getResultList());
+
+            List<CommitRecord> fresh = page.stream().filter(commit -> inserted.contains(commit.sha())).toList();
+            recordFiles(analysis, fresh);
+            authorIdentityService.recordCommitKeys(analysis.getId(), fresh);
+            if (!fresh.isEmpty()) {
+                for (CommitAggregator aggregator : aggregators) {
+                    aggregator.accept(analysis, fresh);
+                }
+            }
+            return fresh;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to record commit page: " + e.getMessage(), e);
+        }
+    }
+
+    private void recordFiles(CodeAnalysis analysis, List<CommitRecord> commits) throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (CommitRecord commit : commits) {
+            if (commit.files() == null) {
+                continue;
+            }
+            for (FileChange file : commit.files()) {
+                rows.add(Map.of(
+                        "commit_hash", commit.sha(),
+                        "path", file.path(),
+                        "additions", file.additions(),
+                        "deletions", file.deletions()));
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        entityManager.createNativeQuery(
+                        "INSERT INTO commit_files (code_analysis_id, commit_hash, path, additions, deletions) " +
+                        "SELECT :analysisId, r.commit_hash, r.path, r.additions, r.deletions " +
+                        "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(commit_hash text, path text, additions int, deletions int)")
+                .setParameter("analysisId", analysis.getId())
+                .setParameter("rows", objectMapper.writeValueAsString(rows))
+                .executeUpdate();
+    }
+}
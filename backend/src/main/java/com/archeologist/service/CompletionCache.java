@@ -0,0 +1,194 @@
+package com.archeologist.service;
+
+import com.archeologist.entity.CompletionCacheEntry;
+import com.archeologist.repository.CommitEmbeddingRepository;
+import com.archeologist.repository.CompletionCacheRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier cache of model completions for an analysis.
+ * <p>
+ * Entries are keyed by a SHA-256 over the completion models that could serve the call, the analysis's
+ * commit-set version and the request the prompt is built from (e.g. the question and retrieval parameters),
+ * so a changed model or a changed commit set never returns a stale answer.
+ * A bounded LRU map on each node sits in front of the {@code completion_cache} table, whose rows expire after
+ * {@code ttl-hours} and are trimmed to {@code max-rows} by least recent hit.
+ */
+@Service
+public class CompletionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompletionCache.class);
+
+    private record Entry(Long analysisId, String response, long expiresAtMillis) {
+    }
+
+    @Autowired
+    private OpenAIService openAIService;
+
+    @Autowired
+    private ProviderRouter providerRouter;
+
+    @Autowired
+    private CommitEmbeddingRepository commitEmbeddingRepository;
+
+    @Autowired
+    private CompletionCacheRepository completionCacheRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.completion-cache.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${app.completion-cache.max-rows:10000}")
+    private int maxRows;
+
+    private final Map<String, Entry> memory;
+
+    public CompletionCache(@Value("${app.completion-cache.memory-entries:500}") int memoryEntries) {
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached completion for {@code request} or builds the prompt, generates and caches it.
+     * {@code request} identifies everything the prompt is derived from, so a hit costs no retrieval and no model
+     * time. Returns null when the prompt supplier returns null. Failures propagate and are not cached.
+     */
+    public String complete(Long analysisId, String request, Supplier<String> prompt) {
+        String key = key(analysisId, request);
+        String cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        String builtPrompt = prompt.get();
+        if (builtPrompt == null) {
+            return null;
+        }
+        String response = openAIService.generateCompletionAsync(builtPrompt).block();
+        store(key, analysisId, response);
+        return response;
+    }
+
+    /**
+     * Streaming form of {@link #complete}: a hit is emitted whole, a miss is streamed and cached once it completes.
+     * A stream cancelled by the client is not cached. Emits nothing when the prompt supplier returns null.
+     */
+    public Flux<String> completeStream(Long analysisId, String request, Supplier<String> prompt) {
+        return Flux.defer(() -> {
+                    String key = key(analysisId, request);
+                    String cached = lookup(key);
+                    if (cached != null) {
+                        return Flux.just(cached);
+                    }
+                    String builtPrompt = prompt.get();
+                    if (builtPrompt == null) {
+                        return Flux.<String>empty();
+                    }
+                    StringBuilder generated = new StringBuilder();
+                    return openAIService.generateCompletionStream(builtPrompt)
+                            .doOnNext(generated::append)
+                            .doOnComplete(() -> store(key, analysisId, generated.toString()));
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Drops every cached completion of an analysis; called when its commit set changes.
+     */
+    public void invalidate(Long analysisId) {
+        synchronized (memory) {
+            memory.values().removeIf(entry -> analysisId.equals(entry.analysisId()));
+        }
+        int removed = completionCacheRepository.deleteByAnalysisId(analysisId);
+        logger.debug("Invalidated {} cached completions for analysisId={}", removed, analysisId);
+    }
+
+    /**
+     * Removes expired rows, then the least recently hit rows beyond {@code max-rows}.
+     */
+    @Scheduled(fixedDelayString = "${app.completion-cache.evict-interval-ms:600000}")
+    public void evict() {
+        int expired = completionCacheRepository.deleteExpired();
+        int trimmed = completionCacheRepository.trimTo(maxRows);
+        if (expired + trimmed > 0) {
+            logger.info("Completion cache eviction: {} expired, {} over capacity", expired, trimmed);
+        }
+    }
+
+    private String lookup(String key) {
+        Entry entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+        }
+        if (entry != null && entry.expiresAtMillis() > System.currentTimeMillis()) {
+            meterRegistry.counter("completion.cache", "result", "memory").increment();
+            return entry.response();
+        }
+
+        Optional<CompletionCacheEntry> row = completionCacheRepository.findByCacheKeyAndExpiresAtAfter(key, LocalDateTime.now());
+        if (row.isEmpty()) {
+            meterRegistry.counter("completion.cache", "result", "miss").increment();
+            return null;
+        }
+        completionCacheRepository.touch(key);
+        CompletionCacheEntry hit = row.get();
+        remember(key, hit.getAnalysisId(), hit.getResponse(),
+                hit.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        meterRegistry.counter("completion.cache", "result", "db").increment();
+        return hit.getResponse();
+    }
+
+    private void store(String key, Long analysisId, String response) {
+        if (response == null || response.isBlank()) {
+            return;
+        }
+        remember(key, analysisId, response, System.currentTimeMillis() + ttlHours * 3_600_000L);
+        try {
+            completionCacheRepository.upsert(key, analysisId, response, (int) ttlHours);
+        } catch (Exception e) {
+            // The memory tier still serves this node; a lost write only costs a regeneration elsewhere
+            logger.warn("Failed to persist cached completion: {}", e.getMessage());
+        }
+    }
+
+    private void remember(String key, Long analysisId, String response, long expiresAtMillis) {
+        synchronized (memory) {
+            memory.put(key, new Entry(analysisId, response, expiresAtMillis));
+        }
+    }
+
+    private String key(Long analysisId, String request) {
+        Object[] version = commitEmbeddingRepository.findCommitSetVersion(analysisId).get(0);
+        String material = providerRouter.completionFingerprint() + "\n" + analysisId + "@" + version[0] + ":" + version[1] + "\n" + request;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(material.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.ManifestParser;
+import com.archeologist.entity.ManifestParse;
+import com.archeologist.repository.ManifestParseRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Declared dependencies of every manifest in a repository, in all ecosystems {@link ManifestParser} reads.
+ * Manifests are found with one recursive tree request; their parses are cached in {@code manifest_parses} by
+ * blob sha, so only manifests whose content changed since any earlier scan are downloaded and parsed, and a
+ * re-analysis of an unchanged monorepo costs the tree request and one cache lookup.
+ */
+@Service
+public class DependencyScanService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DependencyScanService.class);
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @Autowired
+    private ManifestParseRepository manifestParseRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.dependencies.skip-dirs:node_modules,vendor,third_party,bower_components,.git}")
+    private Set<String> skipDirs;
+
+    @Value("${app.dependencies.max-manifests:1000}")
+    private int maxManifests;
+
+    @Value("${app.dependencies.max-manifest-bytes:1048576}")
+    private long maxManifestBytes;
+
+    /**
+     * Manifests at {@code ref} (the default branch when null) with their dependencies, shallowest paths first,
+     * and dependency counts per ecosystem.
+     */
+    public Map<String, Object> scan(String owner, String repo, String ref) throws IOException {
+        long started = System.currentTimeMillis();
+        List<GitHubService.TreeFile> manifests = gitHubService.fetchTreeFiles(owner, repo, ref, this::isManifest).stream()
+                .filter(file -> file.size() <= maxManifestBytes)
+                .sorted(Comparator.comparingInt((GitHubService.TreeFile file) -> depth(file.path()))
+                        .thenComparing(GitHubService.TreeFile::path))
+                .limit(maxManifests)
+                .toList();
+
+        Map<String, Map<String, String>> parsed = cachedParses(manifests);
+        Set<String> missing = manifests.stream()
+                .filter(file -> !parsed.containsKey(cacheKey(file.sha(), ManifestParser.ecosystem(file.path()))))
+                .map(GitHubService.TreeFile::sha)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        int cached = manifests.size() - missing.size();
+        if (!missing.isEmpty()) {
+            parsed.putAll(parseAndStore(manifests, gitHubService.fetchBlobs(owner, repo, missing)));
+        }
+
+        List<Map<String, Object>> items = new ArrayList<>(manifests.size());
+        Map<String, Integer> ecosystems = new TreeMap<>();
+        for (GitHubService.TreeFile file : manifests) {
+            String ecosystem = ManifestParser.ecosystem(file.path());
+            Map<String, String> dependencies = parsed.get(cacheKey(file.sha(), ecosystem));
+            if (dependencies == null) {
+                continue;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("path", file.path());
+            item.put("ecosystem", ecosystem);
+            item.put("dependencies", dependencies);
+            items.add(item);
+            ecosystems.merge(ecosystem, dependencies.size(), Integer::sum);
+        }
+
+        logger.info("Scanned {} manifests of {}/{} ({} cached, {} fetched) in {} ms",
+                items.size(), owner, repo, cached, missing.size(), System.currentTimeMillis() - started);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("manifests", items);
+        result.put("ecosystems", ecosystems);
+        return result;
+    }
+
+    private Map<String, Map<String, String>> cachedParses(List<GitHubService.TreeFile> manifests) throws IOException {
+        Map<String, Map<String, String>> parsed = new HashMap<>();
+        if (manifests.isEmpty()) {
+            return parsed;
+        }
+        Set<String> shas = manifests.stream().map(GitHubService.TreeFile::sha).collect(Collectors.toSet());
+        for (ManifestParse row : manifestParseRepository.findByBlobShaIn(shas)) {
+            parsed.put(cacheKey(row.getBlobSha(), row.getEcosystem()),
+                    objectMapper.readValue(row.getDependencies(), new TypeReference<Map<String, String>>() {}));
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses the fetched blobs in parallel and stores the parses; a manifest that fails to parse is logged and
+     * left out, and is retried on the next scan.
+     */
+    private Map<String, Map<String, String>> parseAndStore(List<GitHubService.TreeFile> manifests, Map<String, String> blobs) throws IOException {
+        Map<String, GitHubService.TreeFile> toParse = new LinkedHashMap<>();
+        for (GitHubService.TreeFile file : manifests) {
+            if (blobs.containsKey(file.sha())) {
+                toParse.putIfAbsent(cacheKey(file.sha(), ManifestParser.ecosystem(file.path())), file);
+            }
+        }
+
+        Map<String, Map<String, String>> parsed = toParse.entrySet().parallelStream()
+                .map(entry -> {
+                    GitHubService.TreeFile file = entry.getValue();
+                    try {
+                        return Map.entry(entry.getKey(), ManifestParser.parse(file.path(), blobs.get(file.sha())));
+                    } catch (Exception e) {
+                        logger.warn("Failed to parse manifest {}: {}", file.path(), e.getMessage());
+                        return null;
+                    }
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        if (parsed.isEmpty()) {
+            return parsed;
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>(parsed.size());
+        parsed.forEach((key, dependencies) -> {
+            GitHubService.TreeFile file = toParse.get(key);
+            rows.add(Map.of("blob_sha", file.sha(), "ecosystem", ManifestParser.ecosystem(file.path()), "dependencies", dependencies));
+        });
+        String json = objectMapper.writeValueAsString(rows);
+        transactionTemplate.executeWithoutResult(status -> entityManager.createNativeQuery(
+                        "INSERT INTO manifest_parses (blob_sha, ecosystem, dependencies, parsed_at) " +
+                        "SELECT r.blob_sha, r.ecosystem, r.dependencies, NOW() " +
+                        "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(blob_sha text, ecosystem text, dependencies jsonb) " +
+                        "ON CONFLICT (blob_sha, ecosystem) DO NOTHING")
+                .setParameter("rows", json)
+                .executeUpdate());
+        return parsed;
+    }
+
+    private boolean isManifest(String path) {
+        if (ManifestParser.ecosystem(path) == null) {
+            return false;
+        }
+        for (String segment : path.split("/")) {
+            if (skipDirs.contains(segment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String cacheKey(String blobSha, String ecosystem) {
+        return ecosystem + ":" + blobSha;
+    }
+
+    private static int depth(String path) {
+        int depth = 0;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,141 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.DiffChunker;
+import com.archeologist.entity.CodeAnalysis;
+import com.archeologist.repository.CommitDiffChunkRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Optional diff embeddings. Each commit's patch is streamed from GitHub through a {@link DiffChunker},
+ * the chunks are embedded in batches and stored in {@code commit_diff_chunks}, so search can match
+ * commits by what they changed rather than only by their message.
+ */
+@Service
+public class DiffEmbeddingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiffEmbeddingService.class);
+
+    @Autowired
+    private GitHubService gitHubService;
+
+    @Autowired
+    private OpenAIService openAIService;
+
+    @Autowired
+    private CommitDiffChunkRepository commitDiffChunkRepository;
+
+    @Value("${app.embedding.diffs.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.embedding.diffs.chunk-chars:1500}")
+    private int chunkChars;
+
+    @Value("${app.embedding.diffs.overlap-chars:200}")
+    private int overlapChars;
+
+    @Value("${app.embedding.diffs.max-chunks-per-commit:40}")
+    private int maxChunksPerCommit;
+
+    @Value("${app.embedding.diffs.batch-size:16}")
+    private int batchSize;
+
+    @Value("${app.embedding.diffs.search-candidates:200}")
+    private int searchCandidates;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Embeds the diffs of the given commits that have no chunks yet. A commit's chunks are stored only once
+     * all of them are embedded. {@code keepLease} is called after each commit and stops the pass when it
+     * returns false. Returns the number of commits embedded.
+     */
+    public int embedDiffs(CodeAnalysis analysis, List<String> commitHashes, BooleanSupplier keepLease) {
+        if (!enabled || commitHashes.isEmpty()) {
+            return 0;
+        }
+        Map<String, String> repoInfo = gitHubService.extractRepoInfo(analysis.getRepoUrl());
+        Set<String> done = new HashSet<>(commitDiffChunkRepository.findChunkedCommitHashes(analysis.getId(), commitHashes));
+        DiffChunker chunker = new DiffChunker(chunkChars, overlapChars, maxChunksPerCommit);
+
+        int embedded = 0;
+        for (String commitHash : commitHashes) {
+            if (done.contains(commitHash)) {
+                continue;
+            }
+            try {
+                // At most maxChunksPerCommit chunks are held, however large the patch
+                List<DiffChunker.Chunk> chunks = new ArrayList<>();
+                gitHubService.streamCommitDiff(repoInfo.get("owner"), repoInfo.get("repo"), commitHash,
+                        diff -> chunker.chunk(diff, chunks::add));
+                if (chunks.isEmpty()) {
+                    continue;
+                }
+
+                List<List<Double>> embeddings = new ArrayList<>(chunks.size());
+                for (int from = 0; from < chunks.size(); from += batchSize) {
+                    List<String> texts = chunks.subList(from, Math.min(from + batchSize, chunks.size())).stream()
+                            .map(chunk -> chunk.path() + "\n" + chunk.text())
+                            .toList();
+                    List<List<Double>> batch = openAIService.generateEmbeddings(texts);
+                    if (batch.size() != texts.size()) {
+                        throw new IllegalStateException("embedding batch failed");
+                    }
+                    embeddings.addAll(batch);
+                }
+
+                for (int i = 0; i < chunks.size(); i++) {
+                    DiffChunker.Chunk chunk = chunks.get(i);
+                    commitDiffChunkRepository.upsertChunk(analysis.getId(), commitHash, chunk.path(), chunk.index(),
+                            chunk.text(), toVectorLiteral(embeddings.get(i)));
+                }
+                embedded++;
+            } catch (Exception e) {
+                logger.warn("Diff embedding failed for commitHash={}: {}", commitHash, e.getMessage());
+            }
+            if (!keepLease.getAsBoolean()) {
+                logger.warn("Stopping diff embeddings for analysisId={} after {}: lease lost", analysis.getId(), commitHash);
+                break;
+            }
+        }
+        logger.info("Embedded diffs of {} of {} commits for analysisId={}", embedded, commitHashes.size(), analysis.getId());
+        return embedded;
+    }
+
+    /**
+     * Finds commits whose diffs match the query, one result per commit with its best matching chunk.
+     */
+    public List<Map<String, Object>> searchByDiff(Long analysisId, String query, int limit) {
+        List<Double> queryEmbedding = openAIService.generateEmbedding(query);
+        if (queryEmbedding.isEmpty()) {
+            logger.warn("Embedding generation failed for query='{}'", query);
+            return new ArrayList<>();
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (Object[] row : commitDiffChunkRepository.searchCommitsByDiff(analysisId, toVectorLiteral(queryEmbedding),
+                Math.max(searchCandidates, limit), 0.5, limit)) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("commit_hash", row[0]);
+            result.put("commit_message", row[1]);
+            result.put("similarity", row[2]);
+            result.put("matching_chunks", row[3]);
+            result.put("file_path", row[4]);
+            result.put("snippet", row[5]);
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static String toVectorLiteral(List<Double> embedding) {
+        return "[" + String.join(",", embedding.stream().map(String::valueOf).toArray(String[]::new)) + "]";
+    }
+}
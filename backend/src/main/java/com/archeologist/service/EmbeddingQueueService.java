@@ -0,0 +1,325 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.NearDuplicateClusterer;
+import com.archeologist.entity.CodeAnalysis;
+import com.archeologist.entity.EmbeddingTask;
+import com.archeologist.repository.EmbeddingTaskRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Postgres-backed queue of embedding work.
+ * <p>
+ * Commits are split into chunks stored in {@code embedding_tasks}. Workers on any node claim
+ * chunks with {@code FOR UPDATE SKIP LOCKED} under a time-limited lease, record a checkpoint after
+ * every window of commits embedded together (never past a window with a failed commit) and mark the
+ * chunk done at the end. A chunk that fails, or whose lease expires (crashed or restarted node),
+ * becomes claimable again and resumes from its checkpoint.
+ * <p>
+ * Open (pending or running) chunks are bounded globally and per client; an enqueue that would exceed
+ * either bound is rejected with {@link AdmissionRejectedException}. Re-enqueueing an analysis replaces
+ * its pending chunks and leaves out commits that a running chunk already holds.
+ */
+@Service
+public class EmbeddingQueueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingQueueService.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private EmbeddingTaskRepository embeddingTaskRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.embedding.chunk-size:50}")
+    private int chunkSize;
+
+    @Value("${app.embedding.lease-seconds:120}")
+    private int leaseSeconds;
+
+    @Value("${app.embedding.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.embedding.queue.max-open-chunks:2000}")
+    private int maxOpenChunks;
+
+    @Value("${app.embedding.queue.max-open-chunks-per-client:200}")
+    private int maxOpenChunksPerClient;
+
+    @Value("${app.embedding.queue.retry-after-seconds:30}")
+    private long retryAfterSeconds;
+
+    @Value("${app.embedding.dedup.enabled:true}")
+    private boolean dedupEnabled;
+
+    @Value("${app.embedding.dedup.similarity:0.8}")
+    private double dedupSimilarity;
+
+    private final String nodeId;
+
+    public EmbeddingQueueService(@Value("${app.node-id:}") String nodeId) {
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Fails fast with {@link AdmissionRejectedException} when the queue, or the client's share of it, has no
+     * room for another chunk, before the caller does any preparatory work.
+     */
+    @Transactional(readOnly = true)
+    public void checkCapacity(String clientId) {
+        checkCapacity(clientId, 1);
+    }
+
+    /**
+     * Splits the commits into chunks and persists them as pending tasks, replacing the analysis's pending
+     * chunks and skipping commits held by its running ones. Returns the number of chunks.
+     */
+    @Transactional
+    public int enqueue(CodeAnalysis analysis, List<Map<String, Object>> commits, String clientId) throws Exception {
+        // Serializes enqueues of one analysis, so chunk indexes stay unique and each sees the other's chunks
+        entityManager.createNativeQuery("SELECT id FROM code_analysis WHERE id = :analysisId FOR UPDATE")
+                .setParameter("analysisId", analysis.getId())
+                .getSingleResult();
+        int replaced = entityManager.createNativeQuery(
+                        "DELETE FROM embedding_tasks WHERE code_analysis_id = :analysisId AND status = 'PENDING'")
+                .setParameter("analysisId", analysis.getId())
+                .executeUpdate();
+        Set<String> running = new HashSet<>(runningCommitHashes(analysis.getId()));
+        List<Map<String, Object>> entries = collapseDuplicates(commits.stream()
+                .filter(c -> !running.contains(String.valueOf(c.get("sha"))))
+                .toList());
+        int chunks = (entries.size() + chunkSize - 1) / chunkSize;
+        if (chunks == 0) {
+            return 0;
+        }
+        checkCapacity(clientId, chunks);
+
+        int chunkIndex = ((Number) entityManager.createNativeQuery(
+                        "SELECT COALESCE(MAX(chunk_index) + 1, 0) FROM embedding_tasks WHERE code_analysis_id = :analysisId")
+                .setParameter("analysisId", analysis.getId())
+                .getSingleResult()).intValue();
+        for (int from = 0; from < entries.size(); from += chunkSize) {
+            persistChunk(analysis, chunkIndex++, entries.subList(from, Math.min(from + chunkSize, entries.size())), clientId);
+        }
+        logger.info("Enqueued {} embedding chunks for analysisId={} ({} pending chunks replaced, {} commits already running)",
+                chunks, analysis.getId(), replaced, running.size());
+        return chunks;
+    }
+
+    private void checkCapacity(String clientId, int chunks) {
+        Object[] open = (Object[]) entityManager.createNativeQuery(
+                        "SELECT COUNT(*), COUNT(*) FILTER (WHERE COALESCE(client_id, '') = :clientId) " +
+                        "FROM embedding_tasks WHERE status IN ('PENDING', 'RUNNING')")
+                .setParameter("clientId", clientId == null ? "" : clientId)
+                .getSingleResult();
+        long total = ((Number) open[0]).longValue();
+        long client = ((Number) open[1]).longValue();
+        if (total + chunks > maxOpenChunks) {
+            throw new AdmissionRejectedException("Embedding queue is full (" + total + " chunks open)", retryAfterSeconds);
+        }
+        if (client + chunks > maxOpenChunksPerClient) {
+            throw new AdmissionRejectedException("Too many embedding chunks queued for this client (" + client + " open)",
+                    retryAfterSeconds);
+        }
+    }
+
+    /**
+     * Shas, near-duplicates included, in the analysis's running chunks.
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> runningCommitHashes(Long analysisId) {
+        return entityManager.createNativeQuery(
+                        "SELECT x.sha FROM embedding_tasks t " +
+                        "CROSS JOIN LATERAL jsonb_array_elements(t.commits) e " +
+                        "CROSS JOIN LATERAL (SELECT e ->> 'sha' AS sha UNION ALL " +
+                        "  SELECT d ->> 'sha' FROM jsonb_array_elements(COALESCE(e -> 'duplicates', CAST('[]' AS jsonb))) d) x " +
+                        "WHERE t.code_analysis_id = :analysisId AND t.status = 'RUNNING'")
+                .setParameter("analysisId", analysisId)
+                .getResultList();
+    }
+
+    /**
+     * Turns commits into queue entries of {sha, message}. With dedup enabled, exact and near-duplicate messages
+     * collapse into one entry for the cluster's first commit, the others listed under "duplicates". They are
+     * stored without a vector, pointing at the representative, and searches return them alongside its hits.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> collapseDuplicates(List<Map<String, Object>> commits) {
+        List<Map<String, Object>> valid = commits.stream()
+                .filter(c -> c.get("sha") != null && c.get("message") != null)
+                .toList();
+        int[] representative = dedupEnabled
+                ? new NearDuplicateClusterer(dedupSimilarity).cluster(valid.stream().map(c -> (String) c.get("message")).toList())
+                : IntStream.range(0, valid.size()).toArray();
+
+        List<Map<String, Object>> entries = new ArrayList<>();
+        Map<Integer, Map<String, Object>> entryByIndex = new HashMap<>();
+        for (int i = 0; i < valid.size(); i++) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("sha", valid.get(i).get("sha"));
+            entry.put("message", valid.get(i).get("message"));
+            if (representative[i] == i) {
+                entries.add(entry);
+                entryByIndex.put(i, entry);
+            } else {
+                ((List<Map<String, Object>>) entryByIndex.get(representative[i])
+                        .computeIfAbsent("duplicates", k -> new ArrayList<Map<String, Object>>())).add(entry);
+            }
+        }
+        if (entries.size() < valid.size()) {
+            logger.info("Collapsed {} commits into {} embedding representatives", valid.size(), entries.size());
+        }
+        return entries;
+    }
+
+    private void persistChunk(CodeAnalysis analysis, int chunkIndex, List<Map<String, Object>> chunk, String clientId) throws Exception {
+        embeddingTaskRepository.save(new EmbeddingTask(analysis, chunkIndex, objectMapper.writeValueAsString(chunk), clientId));
+    }
+
+    /**
+     * Claims up to {@code limit} pending or lease-expired chunks for this node, skipping rows locked
+     * by concurrent claimers and chunks owned by the given clients. Lease-expired chunks with no attempts
+     * left are marked FAILED first.
+     */
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<Long> claim(int limit, Collection<String> excludedClients) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        // An expired lease on the final attempt will not be claimed again; park it so it stops counting as in flight
+        entityManager.createNativeQuery(
+                        "UPDATE embedding_tasks SET status = 'FAILED', lease_owner = NULL, lease_expires_at = NULL, " +
+                        "last_error = COALESCE(last_error, 'Lease expired on final attempt'), updated_at = NOW() " +
+                        "WHERE status = 'RUNNING' AND lease_expires_at < NOW() AND attempts >= :maxAttempts")
+                .setParameter("maxAttempts", maxAttempts)
+                .executeUpdate();
+
+        List<String> excluded = excludedClients.isEmpty() ? List.of("") : new ArrayList<>(excludedClients);
+        String sql = "UPDATE embedding_tasks SET status = 'RUNNING', lease_owner = :owner, " +
+                "lease_expires_at = NOW() + make_interval(secs => :leaseSeconds), " +
+                "attempts = attempts + 1, updated_at = NOW() " +
+                "WHERE id IN (SELECT id FROM embedding_tasks " +
+                "  WHERE (status = 'PENDING' OR (status = 'RUNNING' AND lease_expires_at < NOW())) " +
+                "  AND attempts < :maxAttempts " +
+                "  AND COALESCE(client_id, '') NOT IN (:excluded) " +
+                "  ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+                "RETURNING id";
+
+        List<Number> ids = entityManager.createNativeQuery(sql)
+                .setParameter("owner", nodeId)
+                .setParameter("leaseSeconds", leaseSeconds)
+                .setParameter("maxAttempts", maxAttempts)
+                .setParameter("excluded", excluded)
+                .setParameter("limit", limit)
+                .getResultList();
+        return ids.stream().map(Number::longValue).toList();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<EmbeddingTask> findTask(Long taskId) {
+        return embeddingTaskRepository.findById(taskId).map(task -> {
+            task.getCodeAnalysis().getId();
+            return task;
+        });
+    }
+
+    /**
+     * Records progress within a chunk and extends the lease. Returns false when this node no longer holds the lease.
+     */
+    @Transactional
+    public boolean checkpoint(Long taskId, int checkpoint) {
+        return entityManager.createNativeQuery(
+                        "UPDATE embedding_tasks SET checkpoint = :checkpoint, updated_at = NOW(), " +
+                        "lease_expires_at = NOW() + make_interval(secs => :leaseSeconds) " +
+                        "WHERE id = :id AND status = 'RUNNING' AND lease_owner = :owner")
+                .setParameter("checkpoint", checkpoint)
+                .setParameter("leaseSeconds", leaseSeconds)
+                .setParameter("id", taskId)
+                .setParameter("owner", nodeId)
+                .executeUpdate() == 1;
+    }
+
+    @Transactional
+    public void complete(Long taskId) {
+        entityManager.createNativeQuery(
+                        "UPDATE embedding_tasks SET status = 'DONE', lease_owner = NULL, lease_expires_at = NULL, " +
+                        "last_error = NULL, updated_at = NOW() WHERE id = :id AND lease_owner = :owner")
+                .setParameter("id", taskId)
+                .setParameter("owner", nodeId)
+                .executeUpdate();
+    }
+
+    /**
+     * Returns a chunk to the queue after a failed run, keeping its checkpoint so the retry resumes there;
+     * it is parked as FAILED once attempts are exhausted.
+     */
+    @Transactional
+    public void fail(Long taskId, String error) {
+        entityManager.createNativeQuery(
+                        "UPDATE embedding_tasks SET status = CASE WHEN attempts >= :maxAttempts THEN 'FAILED' ELSE 'PENDING' END, " +
+                        "lease_owner = NULL, lease_expires_at = NULL, last_error = :error, updated_at = NOW() " +
+                        "WHERE id = :id AND lease_owner = :owner")
+                .setParameter("maxAttempts", maxAttempts)
+                .setParameter("error", error)
+                .setParameter("id", taskId)
+                .setParameter("owner", nodeId)
+                .executeUpdate();
+    }
+
+    /**
+     * Hands a claimed chunk back untouched, without charging an attempt.
+     */
+    @Transactional
+    public void release(Long taskId) {
+        entityManager.createNativeQuery(
+                        "UPDATE embedding_tasks SET status = 'PENDING', attempts = GREATEST(attempts - 1, 0), " +
+                        "lease_owner = NULL, lease_expires_at = NULL, updated_at = NOW() " +
+                        "WHERE id = :id AND lease_owner = :owner")
+                .setParameter("id", taskId)
+                .setParameter("owner", nodeId)
+                .executeUpdate();
+    }
+
+    /**
+     * Chunk counts and embedded-commit checkpoints per status for an analysis.
+     */
+    public Map<String, Object> progress(Long analysisId) {
+        Map<String, Object> chunks = new HashMap<>();
+        long checkpointed = 0;
+        for (Object[] row : embeddingTaskRepository.summarizeByStatus(analysisId)) {
+            chunks.put((String) row[0], ((Number) row[1]).longValue());
+            checkpointed += ((Number) row[2]).longValue();
+        }
+        return Map.of("chunks", chunks, "checkpointedCommits", checkpointed);
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + ":" + ManagementFactory.getRuntimeMXBean().getPid();
+    }
+}
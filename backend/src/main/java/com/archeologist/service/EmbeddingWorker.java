@@ -0,0 +1,109 @@
+package com.archeologist.service;
+
+import com.archeologist.entity.EmbeddingTask;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Polls the embedding queue and runs claimed chunks on the EMBEDDING admission lane.
+ * <p>
+ * Every node runs one worker; the queue's row locks and leases keep them from embedding the same
+ * chunk twice. Only as many chunks are claimed as the lane can start right away, so a lease never
+ * ticks while its chunk waits in a local queue.
+ */
+@Component
+public class EmbeddingWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingWorker.class);
+
+    private static final String QUEUE_CLIENT = "embedding-queue";
+
+    @Autowired
+    private EmbeddingQueueService embeddingQueueService;
+
+    @Autowired
+    private AnalysisService analysisService;
+
+    @Autowired
+    private AdmissionService admissionService;
+
+    @Autowired
+    private TopicClusteringService topicClusteringService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.embedding.worker.enabled:true}")
+    private boolean enabled;
+
+    @Scheduled(fixedDelayString = "${app.embedding.worker.poll-interval-ms:2000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int slots = admissionService.idleSlots(AdmissionService.WorkType.EMBEDDING);
+            List<Long> claimed = embeddingQueueService.claim(slots,
+                    admissionService.saturatedClients(AdmissionService.WorkType.EMBEDDING));
+            claimed.forEach(this::dispatch);
+        } catch (Exception e) {
+            logger.warn("Embedding queue poll failed: {}", e.getMessage());
+        }
+    }
+
+    private void dispatch(Long taskId) {
+        Optional<EmbeddingTask> taskOpt = embeddingQueueService.findTask(taskId);
+        if (taskOpt.isEmpty()) {
+            return;
+        }
+        EmbeddingTask task = taskOpt.get();
+        String clientId = task.getClientId() != null ? task.getClientId() : QUEUE_CLIENT;
+        try {
+            admissionService.submit(AdmissionService.WorkType.EMBEDDING, clientId, () -> {
+                run(task);
+                return null;
+            });
+        } catch (AdmissionRejectedException e) {
+            embeddingQueueService.release(taskId);
+        }
+    }
+
+    private void run(EmbeddingTask task) {
+        Long analysisId = task.getCodeAnalysis().getId();
+        logger.info("Node {} running embedding chunk {} (#{}) for analysisId={}, attempt {}, checkpoint {}",
+                embeddingQueueService.getNodeId(), task.getId(), task.getChunkIndex(), analysisId,
+                task.getAttempts(), task.getCheckpoint());
+        try {
+            List<Map<String, Object>> commits = objectMapper.readValue(task.getCommits(), new TypeReference<>() {});
+            AtomicBoolean leaseLost = new AtomicBoolean();
+            int errors = analysisService.processCommitEmbeddings(analysisId, commits, task.getCheckpoint(), done -> {
+                boolean held = embeddingQueueService.checkpoint(task.getId(), done);
+                leaseLost.set(!held);
+                return held;
+            });
+
+            if (leaseLost.get()) {
+                logger.warn("Lost lease on embedding chunk {}; leaving it to its new owner", task.getId());
+            } else if (errors > 0) {
+                embeddingQueueService.fail(task.getId(), errors + " commits failed to embed");
+            } else {
+                embeddingQueueService.complete(task.getId());
+                topicClusteringService.refreshAsync(analysisId);
+            }
+        } catch (Exception e) {
+            logger.error("Embedding chunk {} failed: {}", task.getId(), e.getMessage());
+            embeddingQueueService.fail(task.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.CoChangeMatrix;
+import com.archeologist.analytics.CommitRecord;
+import com.archeologist.entity.CodeAnalysis;
+import com.archeologist.entity.FileCoupling;
+import com.archeologist.repository.FileCouplingRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * File co-change coupling. After an ingest adds commits, the analysis's {@code commit_files} are streamed
+ * once, grouped by commit, into a {@link CoChangeMatrix}, and each file's top partners replace the stored
+ * {@code file_couplings}. Top-k partners are not additive, so the matrix is rebuilt rather than updated;
+ * its memory is fixed by {@code app.coupling.max-pairs}.
+ */
+@Service
+public class FileCouplingService implements CommitAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileCouplingService.class);
+
+    private static final int INSERT_BATCH = 5000;
+
+    @Autowired
+    private FileCouplingRepository fileCouplingRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.coupling.top-k:10}")
+    private int topK;
+
+    @Value("${app.coupling.min-support:3}")
+    private int minSupport;
+
+    @Value("${app.coupling.min-confidence:0.2}")
+    private double minConfidence;
+
+    @Value("${app.coupling.max-pairs:1000000}")
+    private int maxPairs;
+
+    @Value("${app.coupling.max-files-per-commit:50}")
+    private int maxFilesPerCommit;
+
+    @Override
+    public void accept(CodeAnalysis analysis, List<CommitRecord> newCommits) {
+        // Rebuilt once per ingest in afterIngest
+    }
+
+    @Override
+    public void afterIngest(CodeAnalysis analysis) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> rebuild(analysis.getId()));
+        } catch (Exception e) {
+            logger.error("Failed to compute file coupling for analysisId={}: {}", analysis.getId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Partners of {@code path}, strongest first, or the strongest pairs of the analysis when no path is given.
+     */
+    public List<Map<String, Object>> getCoupling(Long analysisId, String path, int limit) {
+        List<FileCoupling> couplings = path == null || path.isBlank()
+                ? fileCouplingRepository.findStrongestPairs(analysisId, PageRequest.of(0, limit))
+                : fileCouplingRepository.findByAnalysisIdAndPathOrderByConfidenceDesc(analysisId, path.trim(), PageRequest.of(0, limit));
+
+        List<Map<String, Object>> results = new ArrayList<>(couplings.size());
+        for (FileCoupling coupling : couplings) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("path", coupling.getPath());
+            item.put("partner", coupling.getPartner());
+            item.put("support", coupling.getSupport());
+            item.put("confidence", coupling.getConfidence());
+            results.add(item);
+        }
+        return results;
+    }
+
+    private void rebuild(Long analysisId) {
+        long started = System.currentTimeMillis();
+        CoChangeMatrix matrix = new CoChangeMatrix(maxPairs, maxFilesPerCommit);
+
+        // Rows arrive grouped by commit, so only one commit's paths are held at a time
+        try (Stream<?> rows = entityManager.createNativeQuery(
+                        "SELECT commit_hash, path FROM commit_files WHERE code_analysis_id = :analysisId ORDER BY commit_hash")
+                .setParameter("analysisId", analysisId)
+                .setHint("org.hibernate.fetchSize", 5000)
+                .getResultStream()) {
+            String[] current = {null};
+            List<String> paths = new ArrayList<>();
+            rows.forEach(row -> {
+                Object[] columns = (Object[]) row;
+                if (!columns[0].equals(current[0])) {
+                    if (!paths.isEmpty()) {
+                        matrix.addCommit(paths);
+                    }
+                    paths.clear();
+                    current[0] = (String) columns[0];
+                }
+                paths.add((String) columns[1]);
+            });
+            if (!paths.isEmpty()) {
+                matrix.addCommit(paths);
+            }
+        }
+
+        fileCouplingRepository.deleteByAnalysisId(analysisId);
+        List<Map<String, Object>> batch = new ArrayList<>(INSERT_BATCH);
+        int[] stored = new int[1];
+        matrix.forEachTopPartners(topK, minSupport, minConfidence, (path, partner, support, confidence) -> {
+            batch.add(Map.of("path", path, "partner", partner, "support", support, "confidence", confidence));
+            if (batch.size() == INSERT_BATCH) {
+                stored[0] += insert(analysisId, batch);
+                batch.clear();
+            }
+        });
+        stored[0] += insert(analysisId, batch);
+
+        logger.info("File coupling for analysisId={}: {} commits ({} skipped as bulk), {} files, {} pairs kept " +
+                        "(prune floor {}), {} partner rows in {} ms",
+                analysisId, matrix.commitCount(), matrix.skippedCommits(), matrix.fileCount(), matrix.pairCount(),
+                matrix.pruneFloor(), stored[0], System.currentTimeMillis() - started);
+    }
+
+    private int insert(Long analysisId, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        try {
+            return entityManager.createNativeQuery(
+                            "INSERT INTO file_couplings (code_analysis_id, path, partner, support, confidence) " +
+                            "SELECT :analysisId, r.path, r.partner, r.support, r.confidence " +
+                            "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(path text, partner text, support int, confidence float8)")
+                    .setParameter("analysisId", analysisId)
+                    .setParameter("rows", objectMapper.writeValueAsString(rows))
+                    .executeUpdate();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to store file coupling: " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,15 +1,35 @@
 package com.archeologist.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.archeologist.analytics.CommitRecord;
+import com.archeologist.analytics.FileChange;
+import com.archeologist.resilience.DownstreamLimiters;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.kohsuke.github.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,24 +41,66 @@ public class GitHubService {
     private GitHub gitHub;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private DownstreamLimiters limiters;
+
+    @Value("${app.github.fetch-threads:32}")
+    private int fetchThreads;
+
+    @Value("${github.token:}")
+    private String githubToken;
+
+    private final HttpClient diffClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private ExecutorService fetchExecutor;
+
+    @PostConstruct
+    void initFetchExecutor() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        fetchExecutor = Executors.newFixedThreadPool(fetchThreads, r -> {
+            Thread t = new Thread(r, "github-fetch-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdownFetchExecutor() {
+        fetchExecutor.shutdown();
+    }
     
     public Map<String, String> extractRepoInfo(String repoUrl) {
-        String[] parts = repoUrl.replace("https://github.com/", "").split("/");
+        String[] parts = repoUrl.trim().replace("https://github.com/", "").split("/");
         if (parts.length >= 2) {
-            return Map.of("owner", parts[0], "repo", parts[1]);
+            return Map.of("owner", parts[0], "repo", parts[1].replaceAll("\\.git$", ""));
         }
         throw new IllegalArgumentException("Invalid GitHub repository URL");
     }
+
+    /**
+     * Canonical owner/repo key; GitHub names are case-insensitive so URLs differing only in case share one key.
+     */
+    public String canonicalRepoKey(String owner, String repo) {
+        return (owner + "/" + repo).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Resolves the current HEAD sha of the repository's default branch.
+     */
+    public String fetchHeadSha(String owner, String repo) throws IOException {
+        GHRepository repository = repository(owner, repo);
+        return github(() -> repository.getBranch(repository.getDefaultBranch()).getSHA1());
+    }
     
     public int getTotalCommitCount(String owner, String repo) throws IOException {
-        GHRepository repository = gitHub.getRepository(owner + "/" + repo);
-        return repository.listCommits().toList().size();
+        GHRepository repository = repository(owner, repo);
+        return listAll(repository.listCommits()).size();
     }
     
     public List<Map<String, Object>> fetchContributors(String owner, String repo) throws IOException {
-        GHRepository repository = gitHub.getRepository(owner + "/" + repo);
-        return repository.listContributors().toList().stream()
+        GHRepository repository = repository(owner, repo);
+        return listAll(repository.listContributors()).stream()
                 .map(contributor -> {
                     Map<String, Object> contrib = new HashMap<>();
                     contrib.put("login", contributor.getLogin());
@@ -50,9 +112,8 @@ public class GitHubService {
     }
     
     public List<Map<String, Object>> fetchCommits(String owner, String repo, int limit) throws IOException {
-        GHRepository repository = gitHub.getRepository(owner + "/" + repo);
-        return repository.listCommits().toList().stream()
-                .limit(limit)
+        GHRepository repository = repository(owner, repo);
+        return listRecentCommits(repository, limit).stream()
                 .map(commit -> {
                     Map<String, Object> commitData = new HashMap<>();
                     commitData.put("sha", commit.getSHA1());
@@ -71,30 +132,10 @@ public class GitHubService {
                 .collect(Collectors.toList());
     }
     
-    public Map<String, Integer> fetchFileChanges(String owner, String repo) throws IOException {
-        GHRepository repository = gitHub.getRepository(owner + "/" + repo);
-        Map<String, Integer> fileChangeCounts = new HashMap<>();
-        
-        repository.listCommits().toList().stream()
-                .limit(100) // Limit to avoid rate limits
-                .forEach(commit -> {
-                    try {
-                        commit.getFiles().forEach(file -> {
-                            String filename = file.getFileName();
-                            fileChangeCounts.merge(filename, 1, Integer::sum);
-                        });
-                    } catch (IOException e) {
-                        logger.warn("Error processing commit files: {}", e.getMessage());
-                    }
-                });
-        
-        return fileChangeCounts;
-    }
-    
     public List<Map<String, Object>> fetchIssues(String owner, String repo) throws IOException {
-        GHRepository repository = gitHub.getRepository(owner + "/" + repo);
+        GHRepository repository = repository(owner, repo);
 
-        return repository.getIssues(GHIssueState.ALL).stream()
+        return listAll(repository.queryIssues().state(GHIssueState.ALL).list()).stream()
                 .map(issue -> {
                     Map<String, Object> issueData = new HashMap<>();
                     issueData.put("id", issue.getId());
@@ -114,41 +155,210 @@ public class GitHubService {
                 .collect(Collectors.toList());
     }
 
-    public Map<String, String> fetchDependencies(String owner, String repo) throws IOException {
-        Map<String, String> dependencies = new HashMap<>();
-
-        try {
-            GHRepository repository = gitHub.getRepository(owner + "/" + repo);
-            GHContent packageJson = repository.getFileContent("package.json");
+    /**
+     * Blobs of the repository tree at {@code ref} (a commit sha, or the default branch when null) whose paths
+     * pass {@code pathFilter}, listed with one recursive tree request. GitHub truncates very large trees; the
+     * entries it returned are used and a warning is logged.
+     */
+    public List<TreeFile> fetchTreeFiles(String owner, String repo, String ref, Predicate<String> pathFilter) throws IOException {
+        GHRepository repository = repository(owner, repo);
+        String treeRef = ref != null ? ref : repository.getDefaultBranch();
+        GHTree tree = github(() -> repository.getTreeRecursive(treeRef, 1));
+        if (tree.isTruncated()) {
+            logger.warn("Tree of {}/{}@{} was truncated by GitHub; files beyond the first {} entries are not listed",
+                    owner, repo, treeRef, tree.getTree().size());
+        }
+        List<TreeFile> files = new ArrayList<>();
+        for (GHTreeEntry entry : tree.getTree()) {
+            if ("blob".equals(entry.getType()) && pathFilter.test(entry.getPath())) {
+                files.add(new TreeFile(entry.getPath(), entry.getSha(), entry.getSize()));
+            }
+        }
+        return files;
+    }
 
-            String content = new String(packageJson.read().readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
+    /**
+     * Reads blobs by sha as UTF-8 text, one request per blob, in parallel under the GitHub limiter.
+     * Blobs whose request fails are left out of the result.
+     */
+    public Map<String, String> fetchBlobs(String owner, String repo, Collection<String> shas) throws IOException {
+        GHRepository repository = repository(owner, repo);
+        Map<String, CompletableFuture<String>> pending = new LinkedHashMap<>();
+        for (String sha : shas) {
+            pending.put(sha, CompletableFuture.supplyAsync(() -> {
+                try {
+                    return github(() -> {
+                        try (InputStream blob = repository.readBlob(sha)) {
+                            return new String(blob.readAllBytes(), StandardCharsets.UTF_8);
+                        }
+                    });
+                } catch (IOException e) {
+                    logger.warn("Error fetching blob {} of {}/{}: {}", sha, owner, repo, e.getMessage());
+                    return null;
+                }
+            }, fetchExecutor));
+        }
 
-            logger.debug("Fetched package.json for {}/{}", owner, repo);
+        Map<String, String> blobs = new HashMap<>();
+        pending.forEach((sha, future) -> {
+            String content = future.join();
+            if (content != null) {
+                blobs.put(sha, content);
+            }
+        });
+        return blobs;
+    }
 
-            // Parse JSON properly
-            JsonNode root = objectMapper.readTree(content);
+    /**
+     * A file of a repository tree: its path, blob sha and size in bytes.
+     */
+    public record TreeFile(String path, String sha, long size) {
+    }
 
-            // Merge both dependencies and devDependencies
-            if (root.has("dependencies")) {
-                JsonNode deps = root.get("dependencies");
-                deps.fields().forEachRemaining(entry -> dependencies.put(entry.getKey(), entry.getValue().asText()));
+    /**
+     * Walks the history newest first from {@code fromSha} (HEAD when null), one API page at a time, handing each
+     * page to {@code pageHandler} until it returns false or the history ends. Only the list payload is used, so
+     * no per-commit requests are made. Returns true when the history was read to its end.
+     */
+    public boolean streamCommitHistory(String owner, String repo, String fromSha, Predicate<List<CommitRecord>> pageHandler) throws IOException {
+        GHRepository repository = repository(owner, repo);
+        PagedIterable<GHCommit> listing = fromSha == null
+                ? repository.listCommits().withPageSize(100)
+                : repository.queryCommits().from(fromSha).pageSize(100).list();
+        PagedIterator<GHCommit> pages = listing.iterator();
+        while (github(pages::hasNext)) {
+            List<CommitRecord> page = new ArrayList<>();
+            for (GHCommit commit : pages.nextPage()) {
+                page.add(toRecord(commit));
             }
+            if (!pageHandler.test(page)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private CommitRecord toRecord(GHCommit commit) throws IOException {
+        GHCommit.ShortInfo info = commit.getCommitShortInfo();
+        GitUser author = info.getAuthor();
+        return new CommitRecord(
+                commit.getSHA1(),
+                author != null && author.getName() != null ? author.getName() : "",
+                author != null && author.getEmail() != null ? author.getEmail() : "",
+                author != null && author.getDate() != null ? author.getDate().toInstant() : info.getCommitDate().toInstant(),
+                info.getMessage(),
+                commit.getParentSHA1s(),
+                null);
+    }
+
+    /**
+     * Fetches the changed files of each commit, one request per commit, in parallel under the GitHub limiter.
+     * Commits whose request fails are left out of the result.
+     */
+    public Map<String, List<FileChange>> fetchCommitFiles(String owner, String repo, Collection<String> shas) throws IOException {
+        GHRepository repository = repository(owner, repo);
+        Map<String, CompletableFuture<List<FileChange>>> pending = new LinkedHashMap<>();
+        for (String sha : shas) {
+            pending.put(sha, CompletableFuture.supplyAsync(() -> {
+                try {
+                    return github(() -> repository.getCommit(sha).getFiles()).stream()
+                            .map(file -> new FileChange(file.getFileName(), file.getLinesAdded(), file.getLinesDeleted()))
+                            .toList();
+                } catch (IOException e) {
+                    logger.warn("Error fetching files of commit {}: {}", sha, e.getMessage());
+                    return null;
+                }
+            }, fetchExecutor));
+        }
 
-            if (root.has("devDependencies")) {
-                JsonNode devDeps = root.get("devDependencies");
-                devDeps.fields().forEachRemaining(entry -> dependencies.put(entry.getKey(), entry.getValue().asText()));
+        Map<String, List<FileChange>> files = new HashMap<>();
+        pending.forEach((sha, future) -> {
+            List<FileChange> commitFiles = future.join();
+            if (commitFiles != null) {
+                files.put(sha, commitFiles);
             }
+        });
+        return files;
+    }
 
-            logger.info("Parsed {} dependencies from {}/{}", dependencies.size(), owner, repo);
-            return dependencies;
+    /**
+     * Streams a commit's unified diff to {@code handler} as it arrives, without buffering the whole patch.
+     * The GitHub concurrency slot is held while the handler reads, so its duration is not used as a latency signal.
+     */
+    public <T> T streamCommitDiff(String owner, String repo, String sha, DiffHandler<T> handler) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                        URI.create("https://api.github.com/repos/" + owner + "/" + repo + "/commits/" + sha))
+                .header("Accept", "application/vnd.github.diff")
+                .timeout(Duration.ofSeconds(60))
+                .GET();
+        if (githubToken != null && !githubToken.isBlank()) {
+            request.header("Authorization", "Bearer " + githubToken);
+        }
 
-        } catch (GHFileNotFoundException e) {
-            logger.warn("package.json not found in {}/{} repository", owner, repo);
-            return dependencies;
+        try {
+            return limiters.github().call(() -> {
+                HttpResponse<InputStream> response = diffClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+                try (Reader diff = new InputStreamReader(response.body(), StandardCharsets.UTF_8)) {
+                    if (response.statusCode() == 404) {
+                        throw new FileNotFoundException("Commit " + sha + " not found in " + owner + "/" + repo);
+                    }
+                    if (response.statusCode() != 200) {
+                        throw new IOException("GitHub diff request failed with status " + response.statusCode());
+                    }
+                    return handler.read(diff);
+                }
+            }, false);
+        } catch (IOException | RuntimeException e) {
+            throw e;
         } catch (Exception e) {
-            logger.error("Error fetching dependencies for {}/{}: {}", owner, repo, e.getMessage(), e);
-            return dependencies;
+            throw new IOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface DiffHandler<T> {
+        T read(Reader diff) throws IOException;
+    }
+
+    private GHRepository repository(String owner, String repo) throws IOException {
+        return github(() -> gitHub.getRepository(owner + "/" + repo));
+    }
+
+    /**
+     * Reads the newest commits page by page, stopping once {@code limit} commits are collected.
+     */
+    private List<GHCommit> listRecentCommits(GHRepository repository, int limit) throws IOException {
+        List<GHCommit> commits = new ArrayList<>();
+        PagedIterator<GHCommit> pages = repository.listCommits().withPageSize(100).iterator();
+        while (commits.size() < limit && github(pages::hasNext)) {
+            commits.addAll(pages.nextPage());
         }
+        return commits.size() > limit ? commits.subList(0, limit) : commits;
     }
 
+    /**
+     * Reads every page of a listing, each page request taken under the limiter on its own, so a long listing is
+     * sampled as many page round trips rather than one minutes-long call.
+     */
+    private <T> List<T> listAll(PagedIterable<T> listing) throws IOException {
+        List<T> items = new ArrayList<>();
+        PagedIterator<T> pages = listing.withPageSize(100).iterator();
+        while (github(pages::hasNext)) {
+            items.addAll(pages.nextPage());
+        }
+        return items;
+    }
+
+    /**
+     * Runs one GitHub API call under the adaptive GitHub concurrency limit.
+     */
+    private <T> T github(Callable<T> call) throws IOException {
+        try {
+            return limiters.github().call(call);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
 }
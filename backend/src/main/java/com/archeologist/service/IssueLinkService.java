@@ -0,0 +1,193 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.CommitRecord;
+import com.archeologist.analytics.IssueReferenceScanner;
+import com.archeologist.entity.AnalysisIssue;
+import com.archeologist.entity.CodeAnalysis;
+import com.archeologist.repository.AnalysisIssueRepository;
+import com.archeologist.repository.CommitIssueLinkRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Commit to issue links. New commits' messages are scanned at ingest by an {@link IssueReferenceScanner} and
+ * their references stored in {@code commit_issue_links}; the repository's issues are stored in
+ * {@code analysis_issues} on each crawl, so both directions are answered by indexed joins.
+ */
+@Service
+public class IssueLinkService implements CommitAggregator {
+
+    @Autowired
+    private CommitIssueLinkRepository commitIssueLinkRepository;
+
+    @Autowired
+    private AnalysisIssueRepository analysisIssueRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void accept(CodeAnalysis analysis, List<CommitRecord> newCommits) throws Exception {
+        IssueReferenceScanner scanner = new IssueReferenceScanner(analysis.getRepoKey());
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (CommitRecord commit : newCommits) {
+            for (IssueReferenceScanner.IssueReference reference : scanner.scan(commit.message())) {
+                rows.add(Map.of(
+                        "commit_hash", commit.sha(),
+                        "issue_repo", reference.repo(),
+                        "issue_number", reference.number(),
+                        "closes", reference.closes()));
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        entityManager.createNativeQuery(
+                        "INSERT INTO commit_issue_links (code_analysis_id, commit_hash, issue_repo, issue_number, closes) " +
+                        "SELECT :analysisId, r.commit_hash, r.issue_repo, r.issue_number, r.closes " +
+                        "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(commit_hash text, issue_repo text, issue_number int, closes boolean) " +
+                        "ON CONFLICT (code_analysis_id, commit_hash, issue_repo, issue_number) DO NOTHING")
+                .setParameter("analysisId", analysis.getId())
+                .setParameter("rows", objectMapper.writeValueAsString(rows))
+                .executeUpdate();
+    }
+
+    /**
+     * Upserts the issues returned by {@link GitHubService#fetchIssues}.
+     */
+    @Transactional
+    public void storeIssues(Long analysisId, List<Map<String, Object>> issues) throws Exception {
+        if (issues.isEmpty()) {
+            return;
+        }
+        List<Map<String, Object>> rows = new ArrayList<>(issues.size());
+        for (Map<String, Object> issue : issues) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("number", issue.get("number"));
+            row.put("title", issue.get("title"));
+            row.put("state", String.valueOf(issue.get("state")).toLowerCase(Locale.ROOT));
+            row.put("url", issue.get("url"));
+            row.put("created_at", utc(issue.get("created_at")));
+            row.put("closed_at", utc(issue.get("closed_at")));
+            rows.add(row);
+        }
+
+        entityManager.createNativeQuery(
+                        "INSERT INTO analysis_issues (code_analysis_id, number, title, state, url, created_at, closed_at) " +
+                        "SELECT :analysisId, r.number, r.title, r.state, r.url, r.created_at, r.closed_at " +
+                        "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(number int, title text, state text, url text, " +
+                        "created_at timestamp, closed_at timestamp) " +
+                        "ON CONFLICT (code_analysis_id, number) DO UPDATE SET title = EXCLUDED.title, state = EXCLUDED.state, " +
+                        "url = EXCLUDED.url, closed_at = EXCLUDED.closed_at")
+                .setParameter("analysisId", analysisId)
+                .setParameter("rows", objectMapper.writeValueAsString(rows))
+                .executeUpdate();
+    }
+
+    public boolean hasIssues(Long analysisId) {
+        return analysisIssueRepository.countByAnalysisId(analysisId) > 0;
+    }
+
+    /**
+     * A page of issues, newest first, each with the commits that reference it.
+     */
+    public Map<String, Object> getIssuesWithCommits(Long analysisId, boolean linkedOnly, int page, int size) {
+        Map<Integer, Map<String, Object>> issues = new LinkedHashMap<>();
+        for (Object[] row : commitIssueLinkRepository.findIssuePageWithCommits(analysisId, linkedOnly, size, page * size)) {
+            Map<String, Object> issue = issues.computeIfAbsent(((Number) row[0]).intValue(), number -> {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("number", number);
+                item.put("title", row[1]);
+                item.put("state", row[2]);
+                item.put("url", row[3]);
+                item.put("commits", new ArrayList<Map<String, Object>>());
+                return item;
+            });
+            if (row[4] != null) {
+                addCommit(issue, commitItem((String) row[4], (String) row[5], null, row[6], (Boolean) row[7]));
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("issues", new ArrayList<>(issues.values()));
+        result.put("page", page);
+        result.put("size", size);
+        result.put("total", analysisIssueRepository.countByAnalysisId(analysisId));
+        return result;
+    }
+
+    /**
+     * One issue with the commits that reference it. {@code repo} selects a cross-repository issue.
+     */
+    public Map<String, Object> getIssueCommits(Long analysisId, String repo, int number) {
+        String issueRepo = repo == null ? "" : repo.trim().toLowerCase(Locale.ROOT);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("repo", issueRepo);
+        result.put("number", number);
+        if (issueRepo.isEmpty()) {
+            Optional<AnalysisIssue> issue = analysisIssueRepository.findByAnalysisIdAndNumber(analysisId, number);
+            issue.ifPresent(found -> {
+                result.put("title", found.getTitle());
+                result.put("state", found.getState());
+                result.put("url", found.getUrl());
+            });
+        }
+
+        List<Map<String, Object>> commits = new ArrayList<>();
+        for (Object[] row : commitIssueLinkRepository.findCommitsForIssue(analysisId, issueRepo, number)) {
+            commits.add(commitItem((String) row[0], (String) row[1], (String) row[2], row[3], (Boolean) row[4]));
+        }
+        result.put("commits", commits);
+        return result;
+    }
+
+    /**
+     * Issues referenced by one commit.
+     */
+    public List<Map<String, Object>> getCommitIssues(Long analysisId, String commitHash) {
+        List<Map<String, Object>> issues = new ArrayList<>();
+        for (Object[] row : commitIssueLinkRepository.findIssuesForCommit(analysisId, commitHash.trim())) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("repo", row[0]);
+            item.put("number", ((Number) row[1]).intValue());
+            item.put("closes", row[2]);
+            item.put("title", row[3]);
+            item.put("state", row[4]);
+            item.put("url", row[5]);
+            issues.add(item);
+        }
+        return issues;
+    }
+
+    private Map<String, Object> commitItem(String hash, String message, String author, Object date, Boolean closes) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("commitHash", hash);
+        item.put("message", message);
+        if (author != null) {
+            item.put("author", author);
+        }
+        item.put("date", date != null ? date.toString() : null);
+        item.put("closes", closes);
+        return item;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addCommit(Map<String, Object> issue, Map<String, Object> commit) {
+        ((List<Map<String, Object>>) issue.get("commits")).add(commit);
+    }
+
+    private static String utc(Object date) {
+        return date instanceof Date d ? d.toInstant().atZone(ZoneOffset.UTC).toLocalDateTime().toString() : null;
+    }
+}
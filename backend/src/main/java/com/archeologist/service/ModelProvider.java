@@ -0,0 +1,66 @@
+package com.archeologist.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A backend able to produce embeddings and completions, selected per call by {@link ProviderRouter}.
+ */
+public interface ModelProvider {
+
+    String name();
+
+    /**
+     * False when the provider lacks the configuration it needs (e.g. no API key) and must never be routed to.
+     */
+    boolean isConfigured();
+
+    List<Double> embed(String text) throws Exception;
+
+    /**
+     * Embeds several texts, in order. Providers whose API takes a list do it in one request.
+     */
+    default List<List<Double>> embedBatch(List<String> texts) throws Exception {
+        List<List<Double>> embeddings = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            embeddings.add(embed(text));
+        }
+        return embeddings;
+    }
+
+    /**
+     * Non-blocking embedding. Providers built on blocking clients fall back to the bounded elastic scheduler.
+     */
+    default Mono<List<Double>> embedAsync(String text) {
+        return Mono.fromCallable(() -> embed(text)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Model used for embeddings; only providers with the same model produce comparable vectors.
+     */
+    String embeddingModel();
+
+    String complete(String prompt) throws Exception;
+
+    /**
+     * Model (and fixed parameters) used for completions, part of the completion cache key.
+     */
+    String completionModel();
+
+    /**
+     * Completion delivered as text fragments as the model produces them; cancelling the subscription stops generation.
+     * Providers without a streaming API emit the whole completion as one fragment.
+     */
+    default Flux<String> completeStream(String prompt) {
+        return Mono.fromCallable(() -> complete(prompt)).subscribeOn(Schedulers.boundedElastic()).flux();
+    }
+
+    /**
+     * Cheap liveness check that costs no model time; throws when the provider is unreachable.
+     */
+    void probe() throws Exception;
+}
@@ -0,0 +1,203 @@
+package com.archeologist.service;
+
+import com.archeologist.resilience.DownstreamLimiters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ollama backend on the shared pooled {@code modelWebClient}; requests never hold a thread while in flight.
+ */
+@Component
+public class OllamaProvider implements ModelProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaProvider.class);
+
+    @Value("${ollama.base-url:http://localhost:11434}")
+    private String ollamaBaseUrl;
+
+    @Value("${ollama.model:nomic-embed-text}")
+    private String ollamaModel;
+
+    @Value("${ollama.completion-model:llama3.2}")
+    private String completionModel;
+
+    @Value("${ollama.read-timeout-ms:120000}")
+    private long readTimeoutMs;
+
+    @Autowired
+    private DownstreamLimiters limiters;
+
+    @Autowired
+    private WebClient modelWebClient;
+
+    @Override
+    public String name() {
+        return "ollama";
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return ollamaBaseUrl != null && !ollamaBaseUrl.isBlank();
+    }
+
+    @Override
+    public List<Double> embed(String text) {
+        return embedAsync(text).block();
+    }
+
+    @Override
+    public Mono<List<Double>> embedAsync(String text) {
+        Map<String, Object> body = Map.of(
+                "model", ollamaModel,
+                "prompt", text
+        );
+
+        return limiters.ollama().callAsync(() -> post("/api/embeddings", body), true)
+                .map(this::parseEmbedding)
+                .doOnError(e -> logger.error("Ollama embedding generation failed: {}", e.getMessage()));
+    }
+
+    /**
+     * Uses {@code /api/embed}, which takes a list of inputs and returns their embeddings in one response.
+     */
+    @Override
+    public List<List<Double>> embedBatch(List<String> texts) {
+        Map<String, Object> body = Map.of(
+                "model", ollamaModel,
+                "input", texts
+        );
+
+        return limiters.ollama().callAsync(() -> post("/api/embed", body), true)
+                .map(responseBody -> {
+                    Object embeddingsObj = responseBody.get("embeddings");
+                    if (!(embeddingsObj instanceof List<?> rows) || rows.size() != texts.size()) {
+                        throw new RuntimeException("Unexpected batch embedding format");
+                    }
+                    List<List<Double>> embeddings = new ArrayList<>(rows.size());
+                    for (Object row : rows) {
+                        embeddings.add(parseEmbedding(Map.of("embedding", row)));
+                    }
+                    return embeddings;
+                })
+                .doOnError(e -> logger.error("Ollama batch embedding failed: {}", e.getMessage()))
+                .block();
+    }
+
+    @Override
+    public String embeddingModel() {
+        return ollamaModel;
+    }
+
+    @Override
+    public String completionModel() {
+        return completionModel;
+    }
+
+    @Override
+    public String complete(String prompt) {
+        Map<String, Object> body = Map.of(
+                "model", completionModel,
+                "prompt", prompt,
+                "stream", false
+        );
+
+        return limiters.ollama().callAsync(() -> post("/api/generate", body), false)
+                .map(responseBody -> {
+                    Object responseObj = responseBody.get("response");
+                    if (responseObj == null) {
+                        throw new RuntimeException("No response in Ollama result");
+                    }
+                    return responseObj.toString();
+                })
+                .doOnError(e -> logger.error("Ollama completion generation failed: {}", e.getMessage()))
+                .block();
+    }
+
+    @Override
+    public Flux<String> completeStream(String prompt) {
+        Map<String, Object> body = Map.of(
+                "model", completionModel,
+                "prompt", prompt,
+                "stream", true
+        );
+
+        // Ollama streams one JSON object per line; closing the connection on cancel aborts the generation
+        return limiters.ollama().streamAsync(() -> modelWebClient.post()
+                        .uri(baseUrl() + "/api/generate")
+                        .httpRequest(request -> ((HttpClientRequest) request.getNativeRequest())
+                                .responseTimeout(Duration.ofMillis(readTimeoutMs)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(body)
+                        .retrieve()
+                        .bodyToFlux(Map.class))
+                .takeUntil(chunk -> Boolean.TRUE.equals(chunk.get("done")))
+                .map(chunk -> {
+                    Object response = chunk.get("response");
+                    return response == null ? "" : response.toString();
+                })
+                .filter(token -> !token.isEmpty())
+                .doOnError(e -> logger.error("Ollama streaming completion failed: {}", e.getMessage()));
+    }
+
+    @Override
+    public void probe() {
+        modelWebClient.get()
+                .uri(baseUrl() + "/api/tags")
+                .retrieve()
+                .toBodilessEntity()
+                .block(Duration.ofSeconds(5));
+    }
+
+    private Mono<Map<String, Object>> post(String path, Map<String, Object> body) {
+        return modelWebClient.post()
+                .uri(baseUrl() + path)
+                .httpRequest(request -> ((HttpClientRequest) request.getNativeRequest())
+                        .responseTimeout(Duration.ofMillis(readTimeoutMs)))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {
+                });
+    }
+
+    private List<Double> parseEmbedding(Map<?, ?> responseBody) {
+        Object embeddingObj = responseBody.get("embedding");
+        if (embeddingObj == null) {
+            throw new RuntimeException("No embedding in response");
+        }
+
+        if (!(embeddingObj instanceof List)) {
+            throw new RuntimeException("Unexpected embedding format");
+        }
+
+        List<?> raw = (List<?>) embeddingObj;
+        List<Double> embedding = new ArrayList<>(raw.size());
+        for (Object o : raw) {
+            if (o instanceof Number) {
+                embedding.add(((Number) o).doubleValue());
+            } else {
+                embedding.add(Double.parseDouble(o.toString()));
+            }
+        }
+
+        return embedding;
+    }
+
+    private String baseUrl() {
+        return ollamaBaseUrl.replaceAll("/$", "");
+    }
+}
@@ -1,194 +1,83 @@
 package com.archeologist.service;
 
-import com.theokanning.openai.completion.chat.ChatCompletionRequest;
-import com.theokanning.openai.completion.chat.ChatMessage;
-import com.theokanning.openai.completion.chat.ChatMessageRole;
-import com.theokanning.openai.embedding.EmbeddingRequest;
-import com.theokanning.openai.service.OpenAiService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Entry point for model calls; {@link ProviderRouter} decides whether Ollama or OpenAI serves each one.
+ */
 @Service
 public class OpenAIService {
 
     private static final Logger logger = LoggerFactory.getLogger(OpenAIService.class);
 
-    @Value("${openai.api-key:}")
-    private String apiKey;
-
-    @Value("${ollama.base-url:http://localhost:11434}")
-    private String ollamaBaseUrl;
-
-    @Value("${ollama.model:nomic-embed-text}")
-    private String ollamaModel;
-
-    private OpenAiService openAiService;
-    private final RestTemplate rest;
-
-    public OpenAIService(@Value("${openai.api-key:}") String apiKey) {
-        this.apiKey = apiKey;
-        this.rest = new RestTemplate();
-
-        if (apiKey != null && !apiKey.isEmpty()) {
-            try {
-                this.openAiService = new OpenAiService(apiKey);
-            } catch (Exception e) {
-                logger.warn("Failed to initialize OpenAiService: {}", e.getMessage());
-            }
-        }
-    }
+    @Autowired
+    private ProviderRouter providerRouter;
 
     public List<Double> generateEmbedding(String text) {
-        // Try Ollama first since it's local and free
         try {
-            List<Double> ollamaEmbedding = generateEmbeddingWithOllama(text);
-            if (ollamaEmbedding != null && !ollamaEmbedding.isEmpty()) {
-                logger.debug("Successfully generated embedding using Ollama (size={})", ollamaEmbedding.size());
-                return ollamaEmbedding;
-            }
+            List<Double> embedding = providerRouter.embedding(provider -> provider.embed(text));
+            logger.debug("Successfully generated embedding (size={})", embedding.size());
+            return embedding;
         } catch (Exception e) {
-            logger.warn("Ollama embedding failed: {}", e.getMessage());
-        }
-
-        // Fallback to OpenAI if configured
-        if (openAiService != null) {
-            try {
-                EmbeddingRequest request = EmbeddingRequest.builder()
-                        .model("text-embedding-ada-002")
-                        .input(List.of(text))
-                        .build();
-
-                List<Double> embedding = openAiService.createEmbeddings(request)
-                        .getData()
-                        .get(0)
-                        .getEmbedding();
-
-                logger.debug("Successfully generated embedding using OpenAI (size={})", embedding.size());
-                return embedding;
-            } catch (Exception e) {
-                logger.error("Error generating OpenAI embedding: {}", e.getMessage());
-            }
+            logger.error("Error generating embedding: {}", e.getMessage());
+            return Collections.emptyList();
         }
-
-        return Collections.emptyList();
     }
 
-    public List<Double> generateEmbeddingWithOllama(String text) {
-        String url = String.format("%s/api/embeddings", ollamaBaseUrl.replaceAll("/$", ""));
-
+    /**
+     * Embeds several texts in one provider request; returns an empty list on failure.
+     */
+    public List<List<Double>> generateEmbeddings(List<String> texts) {
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            Map<String, Object> body = Map.of(
-                    "model", ollamaModel,
-                    "prompt", text
-            );
-
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(body, headers);
-            ResponseEntity<Map> response = rest.exchange(url, HttpMethod.POST, request, Map.class);
-
-            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                throw new RuntimeException("Ollama API call failed with status: " + response.getStatusCode());
-            }
-
-            Map<?, ?> responseBody = response.getBody();
-            Object embeddingObj = responseBody.get("embedding");
-            if (embeddingObj == null) {
-                throw new RuntimeException("No embedding in response");
-            }
-
-            if (!(embeddingObj instanceof List)) {
-                throw new RuntimeException("Unexpected embedding format");
-            }
-
-            List<?> raw = (List<?>) embeddingObj;
-            List<Double> embedding = new ArrayList<>(raw.size());
-            for (Object o : raw) {
-                if (o instanceof Number) {
-                    embedding.add(((Number) o).doubleValue());
-                } else {
-                    embedding.add(Double.parseDouble(o.toString()));
-                }
-            }
-
-            return embedding;
-
+            return providerRouter.embedding(provider -> provider.embedBatch(texts));
         } catch (Exception e) {
-            logger.error("Ollama embedding generation failed: {}", e.getMessage());
-            throw new RuntimeException("Ollama embedding generation failed: " + e.getMessage(), e);
+            logger.error("Error generating batch embeddings: {}", e.getMessage());
+            return Collections.emptyList();
         }
     }
 
+    /**
+     * Non-blocking embedding for bulk work; errors are propagated for the caller to count.
+     */
+    public Mono<List<Double>> generateEmbeddingAsync(String text) {
+        return providerRouter.embeddingAsync(provider -> provider.embedAsync(text));
+    }
+
     public String generateCompletion(String prompt) {
         try {
-            return generateCompletionWithOllama(prompt);
+            return providerRouter.completion(provider -> provider.complete(prompt));
         } catch (Exception e) {
-            logger.warn("Ollama completion failed: {}", e.getMessage());
+            logger.error("Error generating completion: {}", e.getMessage());
+            return "Unable to generate completion.";
         }
-
-        if (openAiService != null) {
-            try {
-                ChatCompletionRequest request = ChatCompletionRequest.builder()
-                        .model("gpt-4o-mini")
-                        .messages(List.of(new ChatMessage(ChatMessageRole.USER.value(), prompt)))
-                        .maxTokens(1000)
-                        .build();
-
-                return openAiService.createChatCompletion(request)
-                        .getChoices()
-                        .get(0)
-                        .getMessage()
-                        .getContent();
-
-            } catch (Exception e) {
-                logger.error("Error generating OpenAI completion: {}", e.getMessage());
-            }
-        }
-
-        return "Unable to generate completion.";
     }
 
-    public String generateCompletionWithOllama(String prompt) {
-        String url = String.format("%s/api/generate", ollamaBaseUrl.replaceAll("/$", ""));
-
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            Map<String, Object> body = Map.of(
-                    "model", "llama3.2", // Default model, can be configured
-                    "prompt", prompt,
-                    "stream", false
-            );
-
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(body, headers);
-            ResponseEntity<Map> response = rest.exchange(url, HttpMethod.POST, request, Map.class);
-
-            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                throw new RuntimeException("Ollama API call failed with status: " + response.getStatusCode());
-            }
-
-            Map<?, ?> responseBody = response.getBody();
-            Object responseObj = responseBody.get("response");
-            if (responseObj == null) {
-                throw new RuntimeException("No response in Ollama result");
-            }
+    /**
+     * Completion off the caller's thread for fan-out work; errors are propagated instead of replaced by a placeholder.
+     */
+    public Mono<String> generateCompletionAsync(String prompt) {
+        return Mono.fromCallable(() -> providerRouter.completion(provider -> provider.complete(prompt)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
 
-            return responseObj.toString();
+    /**
+     * Streaming completion; cancelling the subscription cancels generation at the provider.
+     */
+    public Flux<String> generateCompletionStream(String prompt) {
+        return providerRouter.completionStream(provider -> provider.completeStream(prompt));
+    }
 
-        } catch (Exception e) {
-            logger.error("Ollama completion generation failed: {}", e.getMessage());
-            throw new RuntimeException("Ollama completion generation failed: " + e.getMessage(), e);
-        }
+    public Map<String, String> getProviderStates() {
+        return providerRouter.circuitStates();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package com.archeologist.service;
+
+import com.archeologist.resilience.DownstreamLimiters;
+import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import com.theokanning.openai.completion.chat.ChatMessageRole;
+import com.theokanning.openai.embedding.Embedding;
+import com.theokanning.openai.embedding.EmbeddingRequest;
+import com.theokanning.openai.service.OpenAiService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Component
+public class OpenAiProvider implements ModelProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenAiProvider.class);
+
+    @Autowired
+    private DownstreamLimiters limiters;
+
+    private static final String EMBEDDING_MODEL = "text-embedding-ada-002";
+    private static final String COMPLETION_MODEL = "gpt-4o-mini";
+    private static final int MAX_TOKENS = 1000;
+
+    private OpenAiService openAiService;
+
+    public OpenAiProvider(@Value("${openai.api-key:}") String apiKey,
+                          @Value("${openai.timeout-seconds:30}") long timeoutSeconds) {
+        if (apiKey != null && !apiKey.isEmpty()) {
+            try {
+                this.openAiService = new OpenAiService(apiKey, Duration.ofSeconds(timeoutSeconds));
+            } catch (Exception e) {
+                logger.warn("Failed to initialize OpenAiService: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return "openai";
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return openAiService != null;
+    }
+
+    @Override
+    public List<Double> embed(String text) throws Exception {
+        EmbeddingRequest request = EmbeddingRequest.builder()
+                .model(EMBEDDING_MODEL)
+                .input(List.of(text))
+                .build();
+
+        return limiters.openai().call(() -> openAiService.createEmbeddings(request))
+                .getData()
+                .get(0)
+                .getEmbedding();
+    }
+
+    @Override
+    public List<List<Double>> embedBatch(List<String> texts) throws Exception {
+        EmbeddingRequest request = EmbeddingRequest.builder()
+                .model(EMBEDDING_MODEL)
+                .input(texts)
+                .build();
+
+        List<Embedding> data = new ArrayList<>(limiters.openai().call(() -> openAiService.createEmbeddings(request)).getData());
+        data.sort(Comparator.comparingInt(Embedding::getIndex));
+        return data.stream().map(Embedding::getEmbedding).toList();
+    }
+
+    @Override
+    public String embeddingModel() {
+        return EMBEDDING_MODEL;
+    }
+
+    @Override
+    public String completionModel() {
+        return COMPLETION_MODEL + "?max_tokens=" + MAX_TOKENS;
+    }
+
+    @Override
+    public String complete(String prompt) throws Exception {
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .model(COMPLETION_MODEL)
+                .messages(List.of(new ChatMessage(ChatMessageRole.USER.value(), prompt)))
+                .maxTokens(MAX_TOKENS)
+                .build();
+
+        return limiters.openai().call(() -> openAiService.createChatCompletion(request), false)
+                .getChoices()
+                .get(0)
+                .getMessage()
+                .getContent();
+    }
+
+    @Override
+    public Flux<String> completeStream(String prompt) {
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .model(COMPLETION_MODEL)
+                .messages(List.of(new ChatMessage(ChatMessageRole.USER.value(), prompt)))
+                .maxTokens(MAX_TOKENS)
+                .stream(true)
+                .build();
+
+        // Disposing the Flowable cancels the underlying HTTP call
+        return limiters.openai().streamAsync(() -> Flux.from(openAiService.streamChatCompletion(request)))
+                .filter(chunk -> !chunk.getChoices().isEmpty() && chunk.getChoices().get(0).getMessage() != null)
+                .map(chunk -> {
+                    String content = chunk.getChoices().get(0).getMessage().getContent();
+                    return content == null ? "" : content;
+                })
+                .filter(token -> !token.isEmpty());
+    }
+
+    @Override
+    public void probe() {
+        openAiService.listModels();
+    }
+}
@@ -0,0 +1,208 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.CommitRecord;
+import com.archeologist.analytics.FileChange;
+import com.archeologist.entity.CodeAnalysis;
+import com.archeologist.entity.DirectoryOwnership;
+import com.archeologist.repository.DirectoryOwnershipRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Directory ownership and bus factor, maintained at ingest. Each page of new commits adds its file touches to
+ * the per-author totals of every directory above the changed files ({@code directory_authors}); only those
+ * directories then have their summary in {@code directory_ownership} recomputed, from their own author rows.
+ * Ownership is measured in file touches, so large generated diffs do not dominate; authors are merged by
+ * {@link AuthorIdentityService}.
+ */
+@Service
+public class OwnershipService implements CommitAggregator {
+
+    /** Touches and lines of one (directory, author) within a page. */
+    private static final class Totals {
+        long touches;
+        long lines;
+    }
+
+    @Autowired
+    private AuthorIdentityService authorIdentityService;
+
+    @Autowired
+    private DirectoryOwnershipRepository directoryOwnershipRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.ownership.bus-factor-share:0.5}")
+    private double busFactorShare;
+
+    @Value("${app.ownership.top-owners:5}")
+    private int topOwners;
+
+    @Override
+    public void accept(CodeAnalysis analysis, List<CommitRecord> newCommits) throws Exception {
+        Map<String, String> authors = authorIdentityService.resolve(analysis.getId(), newCommits);
+        Map<String, Map<String, Totals>> directories = new HashMap<>();
+        for (CommitRecord commit : newCommits) {
+            if (commit.files() == null) {
+                continue;
+            }
+            String author = authors.get(commit.sha());
+            for (FileChange file : commit.files()) {
+                long lines = (long) file.additions() + file.deletions();
+                String path = file.path();
+                for (int slash = 0; slash >= 0; slash = path.indexOf('/', slash + 1)) {
+                    Totals totals = directories.computeIfAbsent(path.substring(0, slash), key -> new HashMap<>())
+                            .computeIfAbsent(author, key -> new Totals());
+                    totals.touches++;
+                    totals.lines += lines;
+                }
+            }
+        }
+        if (directories.isEmpty()) {
+            return;
+        }
+
+        List<Map<String, Object>> authorRows = new ArrayList<>();
+        List<Map<String, Object>> directoryRows = new ArrayList<>(directories.size());
+        directories.forEach((path, byAuthor) -> {
+            byAuthor.forEach((author, totals) -> authorRows.add(Map.of(
+                    "path", path, "author_key", author, "touches", totals.touches, "lines", totals.lines)));
+            Map<String, Object> row = new HashMap<>();
+            row.put("path", path);
+            row.put("parent_path", parent(path));
+            row.put("depth", depth(path));
+            directoryRows.add(row);
+        });
+
+        entityManager.createNativeQuery(
+                        "INSERT INTO directory_authors (code_analysis_id, path, author_key, touches, lines) " +
+                        "SELECT :analysisId, r.path, r.author_key, r.touches, r.lines " +
+                        "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(path text, author_key text, touches bigint, lines bigint) " +
+                        "ON CONFLICT (code_analysis_id, path, author_key) DO UPDATE SET " +
+                        "touches = directory_authors.touches + EXCLUDED.touches, " +
+                        "lines = directory_authors.lines + EXCLUDED.lines")
+                .setParameter("analysisId", analysis.getId())
+                .setParameter("rows", objectMapper.writeValueAsString(authorRows))
+                .executeUpdate();
+
+        // Authors in descending order of touches; the bus factor counts those needed before the share is reached
+        entityManager.createNativeQuery(
+                        "INSERT INTO directory_ownership (code_analysis_id, path, parent_path, depth, touches, authors, " +
+                        "bus_factor, top_owner, top_share, top_owners) " +
+                        "SELECT :analysisId, d.path, d.parent_path, d.depth, s.touches, s.authors, s.bus_factor, " +
+                        "s.top_owner, s.top_share, COALESCE(s.top_owners, CAST('[]' AS jsonb)) " +
+                        "FROM jsonb_to_recordset(CAST(:directories AS jsonb)) AS d(path text, parent_path text, depth int) " +
+                        "CROSS JOIN LATERAL (" +
+                        "  SELECT SUM(a.touches) AS touches, COUNT(*) AS authors, " +
+                        "         COUNT(*) FILTER (WHERE a.before < :share * a.total) AS bus_factor, " +
+                        "         MAX(a.author_key) FILTER (WHERE a.rank = 1) AS top_owner, " +
+                        "         CAST(MAX(a.touches) AS double precision) / NULLIF(MAX(a.total), 0) AS top_share, " +
+                        "         jsonb_agg(jsonb_build_object('author', a.author_key, 'touches', a.touches, 'lines', a.lines, " +
+                        "             'share', CAST(a.touches AS double precision) / NULLIF(a.total, 0)) ORDER BY a.rank) " +
+                        "           FILTER (WHERE a.rank <= :topOwners) AS top_owners " +
+                        "  FROM (SELECT author_key, touches, lines, " +
+                        "               SUM(touches) OVER () AS total, " +
+                        "               SUM(touches) OVER (ORDER BY touches DESC, author_key ROWS UNBOUNDED PRECEDING) - touches AS before, " +
+                        "               ROW_NUMBER() OVER (ORDER BY touches DESC, author_key) AS rank " +
+                        "        FROM directory_authors WHERE code_analysis_id = :analysisId AND path = d.path) a" +
+                        ") s " +
+                        "ON CONFLICT (code_analysis_id, path) DO UPDATE SET touches = EXCLUDED.touches, " +
+                        "authors = EXCLUDED.authors, bus_factor = EXCLUDED.bus_factor, top_owner = EXCLUDED.top_owner, " +
+                        "top_share = EXCLUDED.top_share, top_owners = EXCLUDED.top_owners")
+                .setParameter("analysisId", analysis.getId())
+                .setParameter("directories", objectMapper.writeValueAsString(directoryRows))
+                .setParameter("share", busFactorShare)
+                .setParameter("topOwners", topOwners)
+                .executeUpdate();
+    }
+
+    /**
+     * A directory's ownership summary with those of its subdirectories, lowest bus factor first, or null when
+     * the directory has no recorded changes.
+     */
+    public Map<String, Object> getOwnership(Long analysisId, String path, int limit) throws Exception {
+        String directory = normalize(path);
+        Optional<DirectoryOwnership> ownership = directoryOwnershipRepository.findByAnalysisIdAndPath(analysisId, directory);
+        if (ownership.isEmpty()) {
+            return null;
+        }
+        List<Map<String, Object>> children = new ArrayList<>();
+        for (DirectoryOwnership child : directoryOwnershipRepository.findByAnalysisIdAndParentPath(analysisId, directory,
+                PageRequest.of(0, limit, Sort.by(Sort.Order.asc("busFactor"), Sort.Order.desc("touches"), Sort.Order.asc("path"))))) {
+            children.add(toMap(child));
+        }
+        Map<String, Object> result = toMap(ownership.get());
+        result.put("children", children);
+        return result;
+    }
+
+    /**
+     * Directories down to {@code maxDepth} with the most concentrated knowledge: lowest bus factor, then most touched.
+     */
+    public List<Map<String, Object>> getRiskiestDirectories(Long analysisId, int maxDepth, int limit) throws Exception {
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (DirectoryOwnership ownership : directoryOwnershipRepository.findByAnalysisIdAndDepthLessThanEqual(analysisId, maxDepth,
+                PageRequest.of(0, limit, Sort.by(Sort.Order.asc("busFactor"), Sort.Order.desc("touches"), Sort.Order.asc("path"))))) {
+            results.add(toMap(ownership));
+        }
+        return results;
+    }
+
+    private Map<String, Object> toMap(DirectoryOwnership ownership) throws Exception {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("path", ownership.getPath());
+        item.put("depth", ownership.getDepth());
+        item.put("touches", ownership.getTouches());
+        item.put("authors", ownership.getAuthors());
+        item.put("busFactor", ownership.getBusFactor());
+        item.put("topOwner", ownership.getTopOwner());
+        item.put("topShare", ownership.getTopShare());
+        item.put("topOwners", objectMapper.readValue(ownership.getTopOwners(), new TypeReference<List<Map<String, Object>>>() {}));
+        return item;
+    }
+
+    private static String normalize(String path) {
+        String directory = path == null ? "" : path.trim();
+        while (directory.startsWith("/")) {
+            directory = directory.substring(1);
+        }
+        while (directory.endsWith("/")) {
+            directory = directory.substring(0, directory.length() - 1);
+        }
+        return directory;
+    }
+
+    private static String parent(String path) {
+        if (path.isEmpty()) {
+            return null;
+        }
+        int slash = path.lastIndexOf('/');
+        return slash < 0 ? "" : path.substring(0, slash);
+    }
+
+    private static int depth(String path) {
+        if (path.isEmpty()) {
+            return 0;
+        }
+        int depth = 1;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,35 @@
+package com.archeologist.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rough token accounting for prompt assembly. Uses the common ~4 characters per token estimate,
+ * which is close enough for English commit text to keep prompts within a model's context.
+ */
+public final class PromptBudget {
+
+    private PromptBudget() {
+    }
+
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    /**
+     * Takes lines in order until the next one would exceed the token budget.
+     */
+    public static List<String> pack(List<String> lines, int tokenBudget) {
+        List<String> packed = new ArrayList<>();
+        int used = 0;
+        for (String line : lines) {
+            int cost = estimateTokens(line) + 1;
+            if (used + cost > tokenBudget) {
+                break;
+            }
+            packed.add(line);
+            used += cost;
+        }
+        return packed;
+    }
+}
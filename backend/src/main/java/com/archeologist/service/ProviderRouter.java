@@ -0,0 +1,265 @@
+package com.archeologist.service;
+
+import com.archeologist.resilience.CircuitBreaker;
+import com.archeologist.resilience.LimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Chooses which {@link ModelProvider} serves each call.
+ * <p>
+ * Every provider sits behind a {@link CircuitBreaker}, fed by call outcomes and by periodic health
+ * probes, so an unreachable provider is skipped without paying a connect timeout per call.
+ * Embeddings go to the configured {@code embeddings.provider}, because vectors from different models
+ * are not comparable (nor, usually, of the stored dimension); while its circuit is open they fail fast,
+ * unless another provider is configured with the same embedding model.
+ * Completions are spread across healthy providers weighted by inverse observed latency.
+ */
+@Component
+public class ProviderRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderRouter.class);
+
+    @FunctionalInterface
+    public interface ProviderCall<T> {
+        T apply(ModelProvider provider) throws Exception;
+    }
+
+    private final List<ModelProvider> providers;
+    private final String embeddingProvider;
+    private final Map<String, CircuitBreaker> breakers = new HashMap<>();
+    private final Map<String, Double> latencyMillis = new ConcurrentHashMap<>();
+
+    public ProviderRouter(List<ModelProvider> providers,
+                          @Value("${embeddings.provider:ollama}") String embeddingProvider,
+                          @Value("${app.providers.failure-threshold:3}") int failureThreshold,
+                          @Value("${app.providers.open-seconds:30}") long openSeconds,
+                          MeterRegistry registry) {
+        this.providers = providers.stream().filter(ModelProvider::isConfigured).toList();
+        this.embeddingProvider = embeddingProvider;
+        for (ModelProvider provider : this.providers) {
+            breakers.put(provider.name(), new CircuitBreaker(provider.name(), failureThreshold, openSeconds * 1000, registry));
+        }
+        logger.info("Model providers available: {}", breakers.keySet());
+    }
+
+    public <T> T embedding(ProviderCall<T> call) throws Exception {
+        return execute(embeddingProviders(), call);
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #embedding(ProviderCall)} with the same providers and circuit handling.
+     */
+    public <T> Mono<T> embeddingAsync(Function<ModelProvider, Mono<T>> call) {
+        return Mono.defer(() -> executeAsync(embeddingProviders(), 0, call, null));
+    }
+
+    /**
+     * The configured embedding provider first, then any other provider embedding with the same model.
+     */
+    private List<ModelProvider> embeddingProviders() {
+        Optional<ModelProvider> preferred = providers.stream().filter(p -> p.name().equals(embeddingProvider)).findFirst();
+        if (preferred.isEmpty()) {
+            throw new IllegalStateException("Embedding provider " + embeddingProvider + " is not configured");
+        }
+        List<ModelProvider> ordered = new ArrayList<>();
+        ordered.add(preferred.get());
+        for (ModelProvider provider : providers) {
+            if (provider != preferred.get() && provider.embeddingModel().equals(preferred.get().embeddingModel())) {
+                ordered.add(provider);
+            }
+        }
+        return ordered;
+    }
+
+    public <T> T completion(ProviderCall<T> call) throws Exception {
+        return execute(latencyWeightedOrder(), call);
+    }
+
+    /**
+     * Streaming completion. Fails over to the next provider only while nothing has been emitted,
+     * so a client never sees fragments from two different models.
+     */
+    public <T> Flux<T> completionStream(Function<ModelProvider, Flux<T>> call) {
+        return Flux.defer(() -> executeStream(latencyWeightedOrder(), 0, call, null));
+    }
+
+    /**
+     * Tries providers in order, skipping open circuits, and returns the first successful result.
+     */
+    private <T> T execute(List<ModelProvider> ordered, ProviderCall<T> call) throws Exception {
+        Exception lastError = null;
+        for (ModelProvider provider : ordered) {
+            CircuitBreaker breaker = breakers.get(provider.name());
+            if (!breaker.tryAcquire()) {
+                logger.debug("Skipping provider {}: circuit {}", provider.name(), breaker.getState());
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                T result = call.apply(provider);
+                breaker.onSuccess();
+                recordLatency(provider.name(), (System.nanoTime() - start) / 1_000_000.0);
+                return result;
+            } catch (LimitExceededException e) {
+                // Local backpressure, not a provider fault
+                breaker.onIgnored();
+                logger.warn("Provider {} skipped: {}", provider.name(), e.getMessage());
+                lastError = e;
+            } catch (Exception e) {
+                breaker.onFailure();
+                logger.warn("Provider {} failed: {}", provider.name(), e.getMessage());
+                lastError = e;
+            }
+        }
+        throw lastError != null ? lastError : new IllegalStateException("No model provider available");
+    }
+
+    private <T> Mono<T> executeAsync(List<ModelProvider> ordered, int index,
+                                     Function<ModelProvider, Mono<T>> call, Throwable lastError) {
+        if (index >= ordered.size()) {
+            return Mono.error(lastError != null ? lastError : new IllegalStateException("No model provider available"));
+        }
+        ModelProvider provider = ordered.get(index);
+        CircuitBreaker breaker = breakers.get(provider.name());
+        if (!breaker.tryAcquire()) {
+            logger.debug("Skipping provider {}: circuit {}", provider.name(), breaker.getState());
+            return executeAsync(ordered, index + 1, call, lastError);
+        }
+        long start = System.nanoTime();
+        return call.apply(provider)
+                .doOnSuccess(result -> {
+                    breaker.onSuccess();
+                    recordLatency(provider.name(), (System.nanoTime() - start) / 1_000_000.0);
+                })
+                .doOnCancel(breaker::onIgnored)
+                .onErrorResume(e -> {
+                    if (e instanceof LimitExceededException) {
+                        breaker.onIgnored();
+                        logger.warn("Provider {} skipped: {}", provider.name(), e.getMessage());
+                    } else {
+                        breaker.onFailure();
+                        logger.warn("Provider {} failed: {}", provider.name(), e.getMessage());
+                    }
+                    return executeAsync(ordered, index + 1, call, e);
+                });
+    }
+
+    private <T> Flux<T> executeStream(List<ModelProvider> ordered, int index,
+                                      Function<ModelProvider, Flux<T>> call, Throwable lastError) {
+        if (index >= ordered.size()) {
+            return Flux.error(lastError != null ? lastError : new IllegalStateException("No model provider available"));
+        }
+        ModelProvider provider = ordered.get(index);
+        CircuitBreaker breaker = breakers.get(provider.name());
+        if (!breaker.tryAcquire()) {
+            logger.debug("Skipping provider {}: circuit {}", provider.name(), breaker.getState());
+            return executeStream(ordered, index + 1, call, lastError);
+        }
+        AtomicBoolean emitted = new AtomicBoolean();
+        return call.apply(provider)
+                .doOnNext(item -> {
+                    if (emitted.compareAndSet(false, true)) {
+                        breaker.onSuccess();
+                    }
+                })
+                .doOnComplete(() -> {
+                    if (!emitted.get()) {
+                        breaker.onSuccess();
+                    }
+                })
+                .doOnCancel(() -> {
+                    if (!emitted.get()) {
+                        breaker.onIgnored();
+                    }
+                })
+                .onErrorResume(e -> {
+                    if (e instanceof LimitExceededException) {
+                        breaker.onIgnored();
+                        logger.warn("Provider {} skipped: {}", provider.name(), e.getMessage());
+                    } else {
+                        breaker.onFailure();
+                        logger.warn("Provider {} failed: {}", provider.name(), e.getMessage());
+                    }
+                    return emitted.get() ? Flux.error(e) : executeStream(ordered, index + 1, call, e);
+                });
+    }
+
+    /**
+     * Picks the first provider at random with probability proportional to 1/latency, then the rest fastest first.
+     * Providers without samples yet get the best known latency so they are tried too.
+     */
+    private List<ModelProvider> latencyWeightedOrder() {
+        List<ModelProvider> remaining = new ArrayList<>(providers);
+        if (remaining.size() < 2) {
+            return remaining;
+        }
+        double best = latencyMillis.values().stream().mapToDouble(Double::doubleValue).min().orElse(1.0);
+        Map<String, Double> latency = new HashMap<>();
+        remaining.forEach(p -> latency.put(p.name(), Math.max(1.0, latencyMillis.getOrDefault(p.name(), best))));
+
+        double total = remaining.stream().mapToDouble(p -> 1.0 / latency.get(p.name())).sum();
+        double pick = ThreadLocalRandom.current().nextDouble(total);
+        ModelProvider first = remaining.get(remaining.size() - 1);
+        for (ModelProvider provider : remaining) {
+            pick -= 1.0 / latency.get(provider.name());
+            if (pick <= 0) {
+                first = provider;
+                break;
+            }
+        }
+        remaining.remove(first);
+        remaining.sort(Comparator.comparingDouble(p -> latency.get(p.name())));
+        remaining.add(0, first);
+        return remaining;
+    }
+
+    private void recordLatency(String provider, double millis) {
+        latencyMillis.merge(provider, millis, (old, sample) -> old * 0.8 + sample * 0.2);
+    }
+
+    @Scheduled(fixedDelayString = "${app.providers.probe-interval-ms:15000}")
+    public void probeProviders() {
+        for (ModelProvider provider : providers) {
+            CircuitBreaker breaker = breakers.get(provider.name());
+            try {
+                provider.probe();
+                breaker.onProbe(true);
+            } catch (Exception e) {
+                if (breaker.getState() != CircuitBreaker.State.OPEN) {
+                    logger.warn("Health probe failed for {}; opening circuit: {}", provider.name(), e.getMessage());
+                }
+                breaker.onProbe(false);
+            }
+        }
+    }
+
+    /**
+     * Identifies every model a completion could be served by, so cached completions are dropped when one changes.
+     */
+    public String completionFingerprint() {
+        return providers.stream()
+                .map(p -> p.name() + "/" + p.completionModel())
+                .sorted()
+                .reduce((a, b) -> a + "," + b)
+                .orElse("");
+    }
+
+    public Map<String, String> circuitStates() {
+        Map<String, String> states = new TreeMap<>();
+        breakers.forEach((name, breaker) -> states.put(name, breaker.getState().name()));
+        return states;
+    }
+}
@@ -0,0 +1,277 @@
+package com.archeologist.service;
+
+import com.archeologist.entity.SummaryPartial;
+import com.archeologist.repository.CommitEmbeddingRepository;
+import com.archeologist.repository.SummaryPartialRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Hierarchical map-reduce summarizer.
+ * <p>
+ * An analysis's commits, in commit-time order, are cut into fixed-size windows that are summarized in
+ * parallel; the window summaries are then combined {@code fan-in} at a time, level by level, until one
+ * summary remains. Every node is cached in {@code summary_partials} under the commit range it covers and
+ * the completion models that wrote it ({@link ProviderRouter#completionFingerprint()}).
+ * Refreshes mostly add commits newer than any stored, so usually only the tail window and its ancestors
+ * change; a backfill of older history shifts the windows from the first new commit onwards.
+ */
+@Service
+public class SummarizationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SummarizationService.class);
+
+    @Autowired
+    private CommitEmbeddingRepository commitEmbeddingRepository;
+
+    @Autowired
+    private SummaryPartialRepository summaryPartialRepository;
+
+    @Autowired
+    private OpenAIService openAIService;
+
+    @Autowired
+    private ProviderRouter providerRouter;
+
+    @Value("${app.summary.chunk-size:50}")
+    private int chunkSize;
+
+    @Value("${app.summary.chunk-token-budget:1500}")
+    private int chunkTokenBudget;
+
+    @Value("${app.summary.fan-in:8}")
+    private int fanIn;
+
+    @Value("${app.summary.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.summary.timeout-seconds:300}")
+    private long timeoutSeconds;
+
+    /**
+     * One node of the summary tree. {@code complete} is false when it was built from only some of its
+     * children (a child failed or ran out of time); such nodes are returned but never cached.
+     */
+    private record Node(int level, String firstHash, String lastHash, int commitCount,
+                        List<String> inputs, String summary, boolean complete) {
+
+        String key() {
+            return key(level, firstHash, lastHash, commitCount);
+        }
+
+        static String key(int level, String firstHash, String lastHash, int commitCount) {
+            return level + ":" + firstHash + ":" + lastHash + ":" + commitCount;
+        }
+    }
+
+    /**
+     * State of a summary run once everything below the root is summarized.
+     */
+    private record Tree(Node root, Map<String, SummaryPartial> cached, Set<String> liveKeys, String fingerprint, long deadline) {
+    }
+
+    public String summarize(Long analysisId) {
+        Tree tree = buildTree(analysisId);
+        if (tree == null) {
+            return "No commit messages to summarize.";
+        }
+
+        Node root = summarizeLevel(analysisId, List.of(tree.root()), tree.cached(), tree.liveKeys(),
+                tree.fingerprint(), tree.deadline()).get(0);
+        if (root.summary() == null) {
+            return "Unable to generate summary.";
+        }
+        if (!root.complete()) {
+            logger.warn("Summary for analysisId={} is partial: some commit ranges could not be summarized in time", analysisId);
+        }
+        return root.summary();
+    }
+
+    /**
+     * Builds the tree below the root off the caller's thread, then streams the root's generation.
+     * A cached or single-window root is emitted whole.
+     */
+    public Flux<String> summarizeStream(Long analysisId) {
+        return Flux.defer(() -> {
+                    Tree tree = buildTree(analysisId);
+                    if (tree == null) {
+                        return Flux.just("No commit messages to summarize.");
+                    }
+                    Node root = tree.root();
+                    if (root.summary() != null) {
+                        return Flux.just(root.summary());
+                    }
+                    SummaryPartial hit = tree.cached().get(root.key());
+                    if (hit != null && root.complete()) {
+                        return Flux.just(hit.getSummary());
+                    }
+                    if (root.inputs().isEmpty()) {
+                        return Flux.just("Unable to generate summary.");
+                    }
+
+                    StringBuilder generated = new StringBuilder();
+                    return openAIService.generateCompletionStream(prompt(root))
+                            .doOnNext(generated::append)
+                            .doOnComplete(() -> {
+                                if (root.complete()) {
+                                    summaryPartialRepository.insertIfAbsent(analysisId, root.level(), root.firstHash(),
+                                            root.lastHash(), root.commitCount(), tree.fingerprint(), generated.toString());
+                                }
+                            });
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Summarizes windows and intermediate levels, returning the root node, which is left unsummarized unless the
+     * history fits in one window. Cached nodes that are no longer part of the tree, or were written by other
+     * completion models, are deleted. Returns null when
+     * the analysis has no stored commits.
+     */
+    private Tree buildTree(Long analysisId) {
+        List<Object[]> commits = commitEmbeddingRepository.findCommitsInCommitOrder(analysisId);
+        if (commits.isEmpty()) {
+            return null;
+        }
+
+        String fingerprint = providerRouter.completionFingerprint();
+        Map<String, SummaryPartial> cached = new HashMap<>();
+        List<Long> outdated = new ArrayList<>();
+        for (SummaryPartial partial : summaryPartialRepository.findByAnalysisId(analysisId)) {
+            if (!fingerprint.equals(partial.getModelFingerprint())) {
+                outdated.add(partial.getId());
+                continue;
+            }
+            cached.put(Node.key(partial.getLevel(), partial.getFirstHash(), partial.getLastHash(), partial.getCommitCount()), partial);
+        }
+        if (!outdated.isEmpty()) {
+            summaryPartialRepository.deleteAllByIdInBatch(outdated);
+        }
+        Set<String> liveKeys = new HashSet<>();
+        long deadline = System.nanoTime() + Duration.ofSeconds(timeoutSeconds).toNanos();
+
+        List<Node> nodes = new ArrayList<>();
+        for (int from = 0; from < commits.size(); from += chunkSize) {
+            List<Object[]> window = commits.subList(from, Math.min(from + chunkSize, commits.size()));
+            List<String> lines = new ArrayList<>(window.size());
+            for (Object[] row : window) {
+                lines.add("- " + ((String) row[1]).trim());
+            }
+            nodes.add(new Node(0, (String) window.get(0)[0], (String) window.get(window.size() - 1)[0], window.size(),
+                    PromptBudget.pack(lines, chunkTokenBudget), null, true));
+        }
+
+        Node root;
+        if (nodes.size() == 1) {
+            root = nodes.get(0);
+        } else {
+            nodes = summarizeLevel(analysisId, nodes, cached, liveKeys, fingerprint, deadline);
+            while (true) {
+                List<Node> parents = new ArrayList<>();
+                for (int from = 0; from < nodes.size(); from += fanIn) {
+                    List<Node> group = nodes.subList(from, Math.min(from + fanIn, nodes.size()));
+                    parents.add(group.size() == 1 ? group.get(0) : parent(group));
+                }
+                if (parents.size() == 1) {
+                    root = parents.get(0);
+                    break;
+                }
+                nodes = summarizeLevel(analysisId, parents, cached, liveKeys, fingerprint, deadline);
+            }
+        }
+        liveKeys.add(root.key());
+
+        List<Long> stale = cached.entrySet().stream()
+                .filter(entry -> !liveKeys.contains(entry.getKey()))
+                .map(entry -> entry.getValue().getId())
+                .toList();
+        if (!stale.isEmpty()) {
+            summaryPartialRepository.deleteAllByIdInBatch(stale);
+        }
+        return new Tree(root, cached, liveKeys, fingerprint, deadline);
+    }
+
+    private static Node parent(List<Node> group) {
+        List<String> inputs = new ArrayList<>();
+        boolean complete = true;
+        for (Node child : group) {
+            if (child.summary() != null) {
+                inputs.add(child.summary());
+            }
+            complete &= child.complete();
+        }
+        return new Node(group.get(0).level() + 1, group.get(0).firstHash(), group.get(group.size() - 1).lastHash(),
+                group.stream().mapToInt(Node::commitCount).sum(), inputs, null, complete);
+    }
+
+    /**
+     * Summarizes the nodes of one level in parallel, in order, serving cached nodes without a model call.
+     */
+    private List<Node> summarizeLevel(Long analysisId, List<Node> nodes, Map<String, SummaryPartial> cached,
+                                      Set<String> liveKeys, String fingerprint, long deadline) {
+        long started = System.nanoTime();
+        int[] misses = new int[1];
+
+        List<Node> summarized = Flux.fromIterable(nodes)
+                .flatMapSequential(node -> {
+                    if (node.summary() != null) {
+                        return Mono.just(node);
+                    }
+                    liveKeys.add(node.key());
+                    SummaryPartial hit = cached.get(node.key());
+                    if (hit != null && node.complete()) {
+                        return Mono.just(withSummary(node, hit.getSummary(), true));
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (node.inputs().isEmpty() || remaining <= 0) {
+                        return Mono.just(withSummary(node, null, false));
+                    }
+                    misses[0]++;
+                    return openAIService.generateCompletionAsync(prompt(node))
+                            .timeout(Duration.ofNanos(remaining))
+                            .map(summary -> {
+                                if (node.complete()) {
+                                    summaryPartialRepository.insertIfAbsent(analysisId, node.level(), node.firstHash(),
+                                            node.lastHash(), node.commitCount(), fingerprint, summary);
+                                }
+                                return withSummary(node, summary, node.complete());
+                            })
+                            .onErrorResume(e -> {
+                                logger.warn("Summary of commits {}..{} (level {}) failed: {}",
+                                        node.firstHash(), node.lastHash(), node.level(), e.getMessage());
+                                return Mono.just(withSummary(node, null, false));
+                            });
+                }, parallelism)
+                .collectList()
+                .block();
+
+        logger.info("Summary level {} for analysisId={}: {} nodes, {} generated, {} ms",
+                nodes.get(0).level(), analysisId, nodes.size(), misses[0], (System.nanoTime() - started) / 1_000_000);
+        return summarized;
+    }
+
+    private static Node withSummary(Node node, String summary, boolean complete) {
+        return new Node(node.level(), node.firstHash(), node.lastHash(), node.commitCount(), node.inputs(), summary, complete);
+    }
+
+    private static String prompt(Node node) {
+        if (node.level() == 0) {
+            return String.format(
+                    "Provide a concise summary of these consecutive commit messages, keeping notable features, fixes and refactors:\n%s\n\nSummary:",
+                    String.join("\n", node.inputs()));
+        }
+        return String.format(
+                "These are summaries of consecutive parts of a repository's commit history. " +
+                "Combine them into one concise summary:\n\n%s\n\nSummary:",
+                String.join("\n\n", node.inputs()));
+    }
+}
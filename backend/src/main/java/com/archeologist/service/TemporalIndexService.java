@@ -0,0 +1,177 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.CommitRecord;
+import com.archeologist.analytics.TemporalIndex;
+import com.archeologist.entity.CodeAnalysis;
+import com.archeologist.repository.CommitEmbeddingRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Temporal index of file touches per analysis. After an ingest adds commits, a {@link TemporalIndex} is built
+ * from {@code analysis_commits} and {@code commit_files}, with the author keys {@link AuthorIdentityService} stored;
+ * ordinals follow commit time, so the index is rebuilt rather than appended to. Indexes are held in memory for
+ * the {@code app.temporal-index.max-cached} most recently used analyses and rebuilt on demand after eviction, or
+ * when the analysis's commit set changed since the index was built (another node ingested into it).
+ */
+@Service
+public class TemporalIndexService implements CommitAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemporalIndexService.class);
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AuthorIdentityService authorIdentityService;
+
+    @Autowired
+    private CommitEmbeddingRepository commitEmbeddingRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.temporal-index.max-cached:8}")
+    private int maxCached;
+
+    private record VersionedIndex(String version, TemporalIndex index) {
+    }
+
+    private final Map<Long, VersionedIndex> indexes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, VersionedIndex> eldest) {
+            return size() > maxCached;
+        }
+    };
+
+    @Override
+    public void accept(CodeAnalysis analysis, List<CommitRecord> newCommits) {
+        // Rebuilt once per ingest in afterIngest
+    }
+
+    @Override
+    public void afterIngest(CodeAnalysis analysis) {
+        try {
+            VersionedIndex index = build(analysis.getId());
+            synchronized (indexes) {
+                indexes.put(analysis.getId(), index);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to build temporal index for analysisId={}: {}", analysis.getId(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Commits matching the path, date range (inclusive, UTC) and author filters, with the files they touched
+     * under {@code path}, most touched first, and the newest matching commits.
+     */
+    public Map<String, Object> query(Long analysisId, String path, LocalDate from, LocalDate to, String author, int limit) {
+        TemporalIndex index = index(analysisId);
+        long started = System.nanoTime();
+        RoaringBitmap selection = index.select(path,
+                from != null ? from.atStartOfDay(ZoneOffset.UTC).toEpochSecond() : null,
+                to != null ? to.plusDays(1).atStartOfDay(ZoneOffset.UTC).toEpochSecond() : null,
+                author);
+        List<TemporalIndex.FileTouches> files = index.topFiles(path, selection, limit);
+        int[] newest = index.newest(selection, limit);
+        long elapsedMicros = (System.nanoTime() - started) / 1000;
+
+        List<Map<String, Object>> fileItems = new ArrayList<>(files.size());
+        for (TemporalIndex.FileTouches file : files) {
+            fileItems.add(Map.of("path", file.path(), "commits", file.commits()));
+        }
+        List<Map<String, Object>> commitItems = new ArrayList<>(newest.length);
+        for (int ordinal : newest) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("hash", index.sha(ordinal));
+            item.put("date", Instant.ofEpochSecond(index.time(ordinal)).toString());
+            item.put("author", index.author(ordinal));
+            commitItems.add(item);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("matchingCommits", selection.getCardinality());
+        result.put("indexedCommits", index.size());
+        result.put("files", fileItems);
+        result.put("commits", commitItems);
+        result.put("elapsedMicros", elapsedMicros);
+        return result;
+    }
+
+    private TemporalIndex index(Long analysisId) {
+        String version = version(analysisId);
+        synchronized (indexes) {
+            VersionedIndex cached = indexes.get(analysisId);
+            if (cached != null && cached.version().equals(version)) {
+                return cached.index();
+            }
+        }
+        VersionedIndex built = build(analysisId);
+        synchronized (indexes) {
+            indexes.put(analysisId, built);
+        }
+        return built.index();
+    }
+
+    private String version(Long analysisId) {
+        Object[] version = commitEmbeddingRepository.findIngestedCommitSetVersion(analysisId).get(0);
+        return version[0] + "-" + version[1];
+    }
+
+    /**
+     * Builds the index of the commits stored now, tagged with the commit-set version read before them, so a
+     * concurrent ingest only makes it look older.
+     */
+    private VersionedIndex build(Long analysisId) {
+        long started = System.currentTimeMillis();
+        TemporalIndex.Builder builder = new TemporalIndex.Builder();
+        String version = version(analysisId);
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                authorIdentityService.backfillCommitKeys(analysisId);
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to key commit authors: " + e.getMessage(), e);
+            }
+            try (Stream<?> rows = entityManager.createNativeQuery(
+                            "SELECT commit_hash, CAST(EXTRACT(EPOCH FROM committed_at) AS BIGINT), " +
+                            "COALESCE(author_key, '" + AuthorIdentityService.UNKNOWN + "') " +
+                            "FROM analysis_commits WHERE code_analysis_id = :analysisId")
+                    .setParameter("analysisId", analysisId)
+                    .setHint("org.hibernate.fetchSize", 5000)
+                    .getResultStream()) {
+                rows.forEach(row -> {
+                    Object[] columns = (Object[]) row;
+                    builder.addCommit((String) columns[0], columns[1] == null ? 0 : ((Number) columns[1]).longValue(), (String) columns[2]);
+                });
+            }
+            try (Stream<?> rows = entityManager.createNativeQuery(
+                            "SELECT commit_hash, path FROM commit_files WHERE code_analysis_id = :analysisId")
+                    .setParameter("analysisId", analysisId)
+                    .setHint("org.hibernate.fetchSize", 5000)
+                    .getResultStream()) {
+                rows.forEach(row -> {
+                    Object[] columns = (Object[]) row;
+                    builder.addFile((String) columns[0], (String) columns[1]);
+                });
+            }
+        });
+
+        TemporalIndex index = builder.build();
+        logger.info("Built temporal index for analysisId={}: {} commits, {} files, {} bytes of bitmaps in {} ms",
+                analysisId, index.size(), index.fileCount(), index.sizeInBytes(), System.currentTimeMillis() - started);
+        return new VersionedIndex(version, index);
+    }
+}
@@ -0,0 +1,531 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.MiniBatchKMeans;
+import com.archeologist.entity.CommitTopic;
+import com.archeologist.entity.TopicModel;
+import com.archeologist.repository.CommitEmbeddingRepository;
+import com.archeologist.repository.CommitTopicRepository;
+import com.archeologist.repository.TopicModelRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Commit topics from the stored commit embeddings.
+ * <p>
+ * A full fit samples up to {@code sample-size} vectors, runs {@link MiniBatchKMeans} on a dedicated fork-join
+ * pool and then streams every vector once to assign it a topic; centroids, counts and assignments are persisted.
+ * When embeddings are added later, only the new vectors are read: they are folded into the stored centroids and
+ * assigned, and the model is refitted from scratch only once the embedded history has grown by
+ * {@code refit-growth} since the last fit. Near-duplicate commits, which store no vector, take their
+ * representative's topic. Fits, updates and labels run on one background thread, triggered when an embedding
+ * chunk completes or a refit is requested; views only read the persisted topics and the commits nearest each
+ * centroid, so their cost does not depend on history size. Labels are optional, one short completion per topic.
+ */
+@Service
+public class TopicClusteringService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopicClusteringService.class);
+
+    /** Vectors parsed and assigned per streamed chunk. */
+    private static final int CHUNK = 4096;
+    private static final int LABEL_SAMPLES = 8;
+    private static final int LABEL_MESSAGE_CHARS = 200;
+
+    @Autowired
+    private TopicModelRepository topicModelRepository;
+
+    @Autowired
+    private CommitTopicRepository commitTopicRepository;
+
+    @Autowired
+    private CommitEmbeddingRepository commitEmbeddingRepository;
+
+    @Autowired
+    private OpenAIService openAIService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.topics.k:12}")
+    private int defaultK;
+
+    @Value("${app.topics.sample-size:20000}")
+    private int sampleSize;
+
+    @Value("${app.topics.batch-size:256}")
+    private int batchSize;
+
+    @Value("${app.topics.iterations:200}")
+    private int iterations;
+
+    @Value("${app.topics.refit-growth:1.0}")
+    private double refitGrowth;
+
+    @Value("${app.topics.labels:false}")
+    private boolean defaultLabels;
+
+    @Value("${app.topics.label-parallelism:4}")
+    private int labelParallelism;
+
+    @Value("${app.topics.label-timeout-seconds:120}")
+    private long labelTimeoutSeconds;
+
+    @Value("${app.topics.threads:0}")
+    private int threads;
+
+    private ForkJoinPool pool;
+
+    /** Runs every fit, update and labelling, one at a time. */
+    private ExecutorService refresher;
+
+    /** Analyses with a refresh queued on the refresher and not yet started. */
+    private final Set<Long> pendingRefreshes = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void initPool() {
+        pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        refresher = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "topic-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdownPool() {
+        refresher.shutdownNow();
+        pool.shutdown();
+    }
+
+    /**
+     * The analysis's last persisted topics, largest first, each with the {@code representatives} commits nearest
+     * its centroid. Nothing is fitted here; when there is no model yet, a refresh is queued.
+     */
+    public Map<String, Object> getTopics(Long analysisId, int representatives) {
+        Optional<TopicModel> model = topicModelRepository.findByAnalysisId(analysisId);
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (model.isEmpty()) {
+            refreshAsync(analysisId);
+            result.put("refreshing", true);
+            result.put("topics", List.of());
+            return result;
+        }
+
+        Map<Integer, List<Map<String, Object>>> nearest = new HashMap<>();
+        for (Object[] row : commitTopicRepository.findRepresentatives(analysisId, representatives)) {
+            Map<String, Object> commit = new LinkedHashMap<>();
+            commit.put("commitHash", row[1]);
+            commit.put("message", row[2]);
+            commit.put("distance", ((Number) row[3]).doubleValue());
+            nearest.computeIfAbsent(((Number) row[0]).intValue(), topic -> new ArrayList<>()).add(commit);
+        }
+
+        int assigned = Math.max(1, model.get().getAssignedCommits());
+        List<Map<String, Object>> topics = new ArrayList<>();
+        for (CommitTopic topic : commitTopicRepository.findByAnalysisIdOrderByTopic(analysisId)) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("topic", topic.getTopic());
+            item.put("label", topic.getLabel());
+            item.put("size", topic.getSize());
+            item.put("share", (double) topic.getSize() / assigned);
+            item.put("representatives", nearest.getOrDefault(topic.getTopic(), List.of()));
+            topics.add(item);
+        }
+        topics.sort(Comparator.comparingInt((Map<String, Object> item) -> (Integer) item.get("size")).reversed());
+
+        result.put("k", model.get().getK());
+        result.put("commits", model.get().getAssignedCommits());
+        result.put("updatedAt", model.get().getUpdatedAt());
+        result.put("refreshing", pendingRefreshes.contains(analysisId));
+        result.put("topics", topics);
+        return result;
+    }
+
+    /**
+     * A page of one topic's commits, nearest the centroid first.
+     */
+    public List<Map<String, Object>> getTopicCommits(Long analysisId, int topic, int page, int size) {
+        List<Map<String, Object>> commits = new ArrayList<>();
+        for (Object[] row : commitTopicRepository.findTopicCommits(analysisId, topic, size, page * size)) {
+            Map<String, Object> commit = new LinkedHashMap<>();
+            commit.put("commitHash", row[0]);
+            commit.put("message", row[1]);
+            commit.put("distance", ((Number) row[2]).doubleValue());
+            commits.add(commit);
+        }
+        return commits;
+    }
+
+    /**
+     * Queues a refit from scratch with {@code k} topics (default: the current or configured number), labelling
+     * them when {@code labels} is true.
+     */
+    public void recompute(Long analysisId, Integer k, Boolean labels) {
+        refresher.execute(() -> {
+            try {
+                int topics = k != null ? k : topicModelRepository.findByAnalysisId(analysisId).map(TopicModel::getK).orElse(defaultK);
+                fit(analysisId, topics, labels != null ? labels : defaultLabels);
+            } catch (Exception e) {
+                logger.error("Failed to refit commit topics for analysisId={}: {}", analysisId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Queues a refresh of the analysis's topics with its stored embeddings, unless one is already queued.
+     */
+    public void refreshAsync(Long analysisId) {
+        if (!pendingRefreshes.add(analysisId)) {
+            return;
+        }
+        refresher.execute(() -> {
+            pendingRefreshes.remove(analysisId);
+            try {
+                refresh(analysisId);
+            } catch (Exception e) {
+                logger.error("Failed to refresh commit topics for analysisId={}: {}", analysisId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Brings the topics up to date with the stored embeddings: a full fit when there is no model yet or the
+     * history has grown past the refit threshold, otherwise an incremental update of the new vectors only.
+     */
+    private void refresh(Long analysisId) {
+        List<Object[]> version = commitEmbeddingRepository.findCommitSetVersion(analysisId);
+        long commits = version.isEmpty() ? 0 : ((Number) version.get(0)[0]).longValue();
+        long maxId = version.isEmpty() ? 0 : ((Number) version.get(0)[1]).longValue();
+
+        Optional<TopicModel> model = topicModelRepository.findByAnalysisId(analysisId);
+        if (model.isEmpty()) {
+            if (commits > 0) {
+                fit(analysisId, defaultK, defaultLabels);
+            }
+            return;
+        }
+        if (maxId <= model.get().getThroughEmbeddingId()) {
+            return;
+        }
+        if (commits > model.get().getFittedCommits() * (1 + refitGrowth) || !update(analysisId, model.get())) {
+            fit(analysisId, model.get().getK(), model.get().isLabelled());
+        }
+    }
+
+    private void fit(Long analysisId, int k, boolean labels) {
+        long started = System.currentTimeMillis();
+        Boolean fitted = transactionTemplate.execute(status -> {
+            List<?> rows = entityManager.createNativeQuery(
+                            "SELECT CAST(embedding AS text) FROM commit_embeddings " +
+                            "WHERE code_analysis_id = :analysisId AND embedding IS NOT NULL ORDER BY random() LIMIT :sample")
+                    .setParameter("analysisId", analysisId)
+                    .setParameter("sample", sampleSize)
+                    .getResultList();
+            List<String> sample = rows.stream().map(String.class::cast).toList();
+            if (sample.isEmpty()) {
+                return false;
+            }
+            int dim = dimension(sample.get(0));
+            float[] data = new float[sample.size() * dim];
+            int n = 0;
+            for (String vector : sample) {
+                if (parse(vector, data, n * dim, dim)) {
+                    n++;
+                }
+            }
+            MiniBatchKMeans.normalize(data, n, dim);
+            int topics = Math.max(1, Math.min(k, n));
+            MiniBatchKMeans kmeans = new MiniBatchKMeans(topics, dim);
+            kmeans.fit(data, n, batchSize, iterations, new SplittableRandom(analysisId), pool);
+
+            entityManager.createNativeQuery("DELETE FROM commit_topic_assignments WHERE code_analysis_id = :analysisId")
+                    .setParameter("analysisId", analysisId).executeUpdate();
+            entityManager.createNativeQuery("DELETE FROM commit_topics WHERE code_analysis_id = :analysisId")
+                    .setParameter("analysisId", analysisId).executeUpdate();
+            long throughId = assignFrom(analysisId, 0, kmeans, false);
+            List<Object[]> version = commitEmbeddingRepository.findCommitSetVersion(analysisId);
+            store(analysisId, kmeans, throughId, ((Number) version.get(0)[0]).intValue(), labels);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(fitted)) {
+            return;
+        }
+        logger.info("Fitted {} commit topics for analysisId={} in {} ms", k, analysisId, System.currentTimeMillis() - started);
+        if (labels) {
+            label(analysisId);
+        }
+    }
+
+    /**
+     * Folds the vectors stored since the last run into the model and assigns them. Returns false when they do not
+     * fit the model (the embedding dimension changed), so the caller refits.
+     */
+    private boolean update(Long analysisId, TopicModel model) {
+        long started = System.currentTimeMillis();
+        Boolean updated = transactionTemplate.execute(status -> {
+            List<CommitTopic> topics = commitTopicRepository.findByAnalysisIdOrderByTopic(analysisId);
+            if (topics.size() != model.getK()) {
+                return false;
+            }
+            float[] centroids = new float[topics.size() * model.getDim()];
+            long[] counts = new long[topics.size()];
+            for (CommitTopic topic : topics) {
+                ByteBuffer.wrap(topic.getCentroid()).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer()
+                        .get(centroids, topic.getTopic() * model.getDim(), model.getDim());
+                counts[topic.getTopic()] = topic.getFitCount();
+            }
+            MiniBatchKMeans kmeans = MiniBatchKMeans.restore(model.getDim(), centroids, counts);
+            long throughId;
+            try {
+                throughId = assignFrom(analysisId, model.getThroughEmbeddingId(), kmeans, true);
+            } catch (IllegalArgumentException e) {
+                logger.info("Refitting commit topics for analysisId={}: {}", analysisId, e.getMessage());
+                status.setRollbackOnly();
+                return false;
+            }
+            store(analysisId, kmeans, throughId, model.getFittedCommits(), model.isLabelled());
+            return true;
+        });
+        if (Boolean.TRUE.equals(updated)) {
+            logger.info("Updated commit topics for analysisId={} in {} ms", analysisId, System.currentTimeMillis() - started);
+        }
+        return Boolean.TRUE.equals(updated);
+    }
+
+    /**
+     * Streams the vectors with ids above {@code afterId} in chunks, folding each chunk into the centroids first when
+     * {@code learn} is set, and stores their assignments; near-duplicates follow their representatives. Returns the
+     * highest id seen. Throws IllegalArgumentException when a vector does not have the model's dimension.
+     */
+    private long assignFrom(Long analysisId, long afterId, MiniBatchKMeans kmeans, boolean learn) {
+        int dim = kmeans.dim();
+        float[] chunk = new float[CHUNK * dim];
+        List<String> hashes = new ArrayList<>(CHUNK);
+        long[] throughId = {afterId};
+        try (Stream<?> rows = entityManager.createNativeQuery(
+                        "SELECT id, commit_hash, CAST(embedding AS text) FROM commit_embeddings " +
+                        "WHERE code_analysis_id = :analysisId AND id > :afterId ORDER BY id")
+                .setParameter("analysisId", analysisId)
+                .setParameter("afterId", afterId)
+                .setHint("org.hibernate.fetchSize", 1000)
+                .getResultStream()) {
+            rows.forEach(row -> {
+                Object[] columns = (Object[]) row;
+                throughId[0] = Math.max(throughId[0], ((Number) columns[0]).longValue());
+                if (columns[2] == null) {
+                    return;
+                }
+                if (!parse((String) columns[2], chunk, hashes.size() * dim, dim)) {
+                    throw new IllegalArgumentException("embedding dimension differs from the topic model's " + dim);
+                }
+                hashes.add((String) columns[1]);
+                if (hashes.size() == CHUNK) {
+                    assignChunk(analysisId, kmeans, chunk, hashes, learn);
+                    hashes.clear();
+                }
+            });
+        }
+        assignChunk(analysisId, kmeans, chunk, hashes, learn);
+
+        entityManager.createNativeQuery(
+                        "INSERT INTO commit_topic_assignments (code_analysis_id, commit_hash, topic, distance) " +
+                        "SELECT d.code_analysis_id, d.commit_hash, a.topic, a.distance " +
+                        "FROM commit_embeddings d JOIN commit_topic_assignments a " +
+                        "  ON a.code_analysis_id = d.code_analysis_id AND a.commit_hash = d.duplicate_of " +
+                        "WHERE d.code_analysis_id = :analysisId AND d.id > :afterId AND d.duplicate_of IS NOT NULL " +
+                        "ON CONFLICT (code_analysis_id, commit_hash) DO UPDATE SET topic = EXCLUDED.topic, distance = EXCLUDED.distance")
+                .setParameter("analysisId", analysisId)
+                .setParameter("afterId", afterId)
+                .executeUpdate();
+        return throughId[0];
+    }
+
+    private void assignChunk(Long analysisId, MiniBatchKMeans kmeans, float[] chunk, List<String> hashes, boolean learn) {
+        int n = hashes.size();
+        if (n == 0) {
+            return;
+        }
+        MiniBatchKMeans.normalize(chunk, n, kmeans.dim());
+        if (learn) {
+            kmeans.partialFit(chunk, n, batchSize, pool);
+        }
+        float[] distances = new float[n];
+        int[] labels = kmeans.assign(chunk, n, distances, pool);
+
+        List<Map<String, Object>> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            rows.add(Map.of("commit_hash", hashes.get(i), "topic", labels[i], "distance", distances[i]));
+        }
+        try {
+            entityManager.createNativeQuery(
+                            "INSERT INTO commit_topic_assignments (code_analysis_id, commit_hash, topic, distance) " +
+                            "SELECT :analysisId, r.commit_hash, r.topic, r.distance " +
+                            "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(commit_hash text, topic int, distance real) " +
+                            "ON CONFLICT (code_analysis_id, commit_hash) DO UPDATE SET topic = EXCLUDED.topic, distance = EXCLUDED.distance")
+                    .setParameter("analysisId", analysisId)
+                    .setParameter("rows", objectMapper.writeValueAsString(rows))
+                    .executeUpdate();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to store topic assignments: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Upserts the centroids and counts, recounts topic sizes and records the model state.
+     */
+    private void store(Long analysisId, MiniBatchKMeans kmeans, long throughId, int fittedCommits, boolean labelled) {
+        List<Map<String, Object>> rows = new ArrayList<>(kmeans.k());
+        for (int c = 0; c < kmeans.k(); c++) {
+            ByteBuffer centroid = ByteBuffer.allocate(kmeans.dim() * 4).order(ByteOrder.LITTLE_ENDIAN);
+            centroid.asFloatBuffer().put(kmeans.centroid(c));
+            rows.add(Map.of("topic", c, "centroid", Base64.getEncoder().encodeToString(centroid.array()), "fit_count", kmeans.count(c)));
+        }
+        try {
+            entityManager.createNativeQuery(
+                            "INSERT INTO commit_topics (code_analysis_id, topic, centroid, fit_count, size) " +
+                            "SELECT :analysisId, r.topic, decode(r.centroid, 'base64'), r.fit_count, 0 " +
+                            "FROM jsonb_to_recordset(CAST(:rows AS jsonb)) AS r(topic int, centroid text, fit_count bigint) " +
+                            "ON CONFLICT (code_analysis_id, topic) DO UPDATE SET centroid = EXCLUDED.centroid, fit_count = EXCLUDED.fit_count")
+                    .setParameter("analysisId", analysisId)
+                    .setParameter("rows", objectMapper.writeValueAsString(rows))
+                    .executeUpdate();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to store topics: " + e.getMessage(), e);
+        }
+        entityManager.createNativeQuery(
+                        "UPDATE commit_topics t SET size = (SELECT COUNT(*) FROM commit_topic_assignments a " +
+                        "WHERE a.code_analysis_id = t.code_analysis_id AND a.topic = t.topic) " +
+                        "WHERE t.code_analysis_id = :analysisId")
+                .setParameter("analysisId", analysisId)
+                .executeUpdate();
+        entityManager.createNativeQuery(
+                        "INSERT INTO topic_models (code_analysis_id, k, dim, through_embedding_id, fitted_commits, " +
+                        "assigned_commits, labelled, updated_at) " +
+                        "SELECT :analysisId, :k, :dim, :throughId, :fittedCommits, " +
+                        "(SELECT COUNT(*) FROM commit_topic_assignments WHERE code_analysis_id = :analysisId), :labelled, NOW() " +
+                        "ON CONFLICT (code_analysis_id) DO UPDATE SET k = EXCLUDED.k, dim = EXCLUDED.dim, " +
+                        "through_embedding_id = EXCLUDED.through_embedding_id, fitted_commits = EXCLUDED.fitted_commits, " +
+                        "assigned_commits = EXCLUDED.assigned_commits, labelled = EXCLUDED.labelled, updated_at = EXCLUDED.updated_at")
+                .setParameter("analysisId", analysisId)
+                .setParameter("k", kmeans.k())
+                .setParameter("dim", kmeans.dim())
+                .setParameter("throughId", throughId)
+                .setParameter("fittedCommits", fittedCommits)
+                .setParameter("labelled", labelled)
+                .executeUpdate();
+    }
+
+    /**
+     * Names every topic with one short completion over the messages nearest its centroid; the prompt size is
+     * bounded by {@value #LABEL_SAMPLES} messages whatever the topic's size. Failed topics keep no label.
+     */
+    private void label(Long analysisId) {
+        Map<Integer, List<String>> messages = new TreeMap<>();
+        for (Object[] row : commitTopicRepository.findRepresentatives(analysisId, LABEL_SAMPLES)) {
+            String message = String.valueOf(row[2]).lines().findFirst().orElse("").trim();
+            if (message.length() > LABEL_MESSAGE_CHARS) {
+                message = message.substring(0, LABEL_MESSAGE_CHARS);
+            }
+            messages.computeIfAbsent(((Number) row[0]).intValue(), topic -> new ArrayList<>()).add(message);
+        }
+
+        List<Map.Entry<Integer, String>> labels = Flux.fromIterable(messages.entrySet())
+                .flatMap(topic -> openAIService.generateCompletionAsync(labelPrompt(topic.getValue()))
+                        .map(label -> Map.entry(topic.getKey(), cleanLabel(label)))
+                        .onErrorResume(e -> {
+                            logger.warn("Failed to label topic {} of analysisId={}: {}", topic.getKey(), analysisId, e.getMessage());
+                            return Mono.empty();
+                        }), labelParallelism)
+                .collectList()
+                .block(Duration.ofSeconds(labelTimeoutSeconds));
+        if (labels == null || labels.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Map.Entry<Integer, String> label : labels) {
+                entityManager.createNativeQuery(
+                                "UPDATE commit_topics SET label = :label WHERE code_analysis_id = :analysisId AND topic = :topic")
+                        .setParameter("label", label.getValue())
+                        .setParameter("analysisId", analysisId)
+                        .setParameter("topic", label.getKey())
+                        .executeUpdate();
+            }
+        });
+    }
+
+    private static String labelPrompt(List<String> messages) {
+        StringBuilder prompt = new StringBuilder(
+                "These commit messages belong to one topic. Name the topic in at most five words. Reply with the name only.\n\n");
+        for (String message : messages) {
+            prompt.append("- ").append(message).append('\n');
+        }
+        return prompt.toString();
+    }
+
+    private static String cleanLabel(String label) {
+        String cleaned = label.trim().lines().findFirst().orElse("").replaceAll("^[\"'*#\\s]+|[\"'*.\\s]+$", "");
+        return cleaned.length() > 80 ? cleaned.substring(0, 80) : cleaned;
+    }
+
+    private static int dimension(String vector) {
+        int dim = 1;
+        for (int i = 0; i < vector.length(); i++) {
+            if (vector.charAt(i) == ',') {
+                dim++;
+            }
+        }
+        return dim;
+    }
+
+    /**
+     * Parses a pgvector literal such as {@code [0.1,-2e-3]} into {@code target[offset, offset + dim)}. Returns false
+     * when it does not hold exactly {@code dim} values.
+     */
+    private static boolean parse(String vector, float[] target, int offset, int dim) {
+        int start = vector.indexOf('[') + 1;
+        int end = vector.lastIndexOf(']');
+        if (end < 0) {
+            end = vector.length();
+        }
+        int index = 0;
+        while (start < end) {
+            int comma = vector.indexOf(',', start);
+            if (comma < 0 || comma > end) {
+                comma = end;
+            }
+            if (index == dim) {
+                return false;
+            }
+            target[offset + index++] = Float.parseFloat(vector.substring(start, comma).trim());
+            start = comma + 1;
+        }
+        return index == dim;
+    }
+}
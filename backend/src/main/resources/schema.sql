@@ -5,8 +5,14 @@ CREATE TABLE IF NOT EXISTS code_analysis (
     id BIGSERIAL PRIMARY KEY,
     session_id TEXT NOT NULL,
     repo_url TEXT NOT NULL,
+    repo_key TEXT,
+    head_sha TEXT,
+    total_commits INTEGER,
+    history_frontier TEXT,
+    history_complete BOOLEAN DEFAULT FALSE,
     status TEXT NOT NULL,
     created_at TIMESTAMPTZ DEFAULT NOW(),
+    refreshed_at TIMESTAMPTZ DEFAULT NOW(),
     commits JSONB DEFAULT '{}'::jsonb,
     file_changes JSONB DEFAULT '{}'::jsonb,
     contributors JSONB DEFAULT '{}'::jsonb,
@@ -16,6 +22,9 @@ CREATE TABLE IF NOT EXISTS code_analysis (
     UNIQUE(session_id, repo_url)
 );
 
+-- Latest analysis per canonical owner/repo, used to coalesce repeated /analyze requests
+CREATE INDEX IF NOT EXISTS idx_code_analysis_repo_key ON code_analysis (repo_key, refreshed_at DESC);
+
 CREATE TABLE IF NOT EXISTS commit_embeddings (
     id BIGSERIAL PRIMARY KEY,
     code_analysis_id BIGINT REFERENCES code_analysis(id),
@@ -39,3 +48,326 @@ BEGIN
     ON commit_embeddings USING diskann (embedding);
   END IF;
 END$$;
+
+-- Durable embedding work queue, claimed with FOR UPDATE SKIP LOCKED by workers on any node
+CREATE TABLE IF NOT EXISTS embedding_tasks (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT REFERENCES code_analysis(id),
+    chunk_index INTEGER NOT NULL,
+    commits JSONB DEFAULT '[]'::jsonb,
+    client_id TEXT,
+    status TEXT NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    checkpoint INTEGER NOT NULL DEFAULT 0,
+    lease_owner TEXT,
+    lease_expires_at TIMESTAMPTZ,
+    last_error TEXT,
+    created_at TIMESTAMPTZ DEFAULT NOW(),
+    updated_at TIMESTAMPTZ DEFAULT NOW()
+);
+
+-- Claim scans only open work in queue order
+CREATE INDEX IF NOT EXISTS idx_embedding_tasks_claimable ON embedding_tasks (id)
+    WHERE status IN ('PENDING', 'RUNNING');
+CREATE INDEX IF NOT EXISTS idx_embedding_tasks_analysis ON embedding_tasks (code_analysis_id);
+
+-- Cached map-reduce summary nodes, keyed by the commit range they cover
+CREATE TABLE IF NOT EXISTS summary_partials (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT REFERENCES code_analysis(id),
+    level INTEGER NOT NULL,
+    first_hash TEXT NOT NULL,
+    last_hash TEXT NOT NULL,
+    commit_count INTEGER NOT NULL,
+    model_fingerprint TEXT NOT NULL DEFAULT '',
+    summary TEXT NOT NULL,
+    created_at TIMESTAMPTZ DEFAULT NOW(),
+    UNIQUE(code_analysis_id, level, first_hash, last_hash, commit_count, model_fingerprint)
+);
+
+-- Completion cache (persistent tier), keyed by hash(models, commit-set version, request)
+CREATE TABLE IF NOT EXISTS completion_cache (
+    cache_key TEXT PRIMARY KEY,
+    code_analysis_id BIGINT,
+    response TEXT NOT NULL,
+    created_at TIMESTAMPTZ DEFAULT NOW(),
+    last_hit_at TIMESTAMPTZ DEFAULT NOW(),
+    expires_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_completion_cache_analysis ON completion_cache (code_analysis_id);
+CREATE INDEX IF NOT EXISTS idx_completion_cache_last_hit ON completion_cache (last_hit_at);
+
+-- Near-duplicate commits point at the representative whose vector they share and store no vector of their own
+ALTER TABLE commit_embeddings ADD COLUMN IF NOT EXISTS duplicate_of TEXT;
+
+-- Searches join each hit with the near-duplicates collapsed into it
+CREATE INDEX IF NOT EXISTS idx_commit_embeddings_duplicate_of ON commit_embeddings (code_analysis_id, duplicate_of);
+
+-- Optional diff embeddings: overlapping chunks of each commit's patch
+CREATE TABLE IF NOT EXISTS commit_diff_chunks (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT REFERENCES code_analysis(id),
+    commit_hash TEXT NOT NULL,
+    file_path TEXT NOT NULL,
+    chunk_index INTEGER NOT NULL,
+    content TEXT NOT NULL,
+    embedding VECTOR(768),
+    created_at TIMESTAMPTZ DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_commit_diff_chunks_commit ON commit_diff_chunks (code_analysis_id, commit_hash);
+
+DO $$
+BEGIN
+  IF NOT EXISTS (
+    SELECT 1 FROM pg_indexes WHERE indexname = 'commit_diff_chunks_idx'
+  ) THEN
+    CREATE INDEX commit_diff_chunks_idx
+    ON commit_diff_chunks USING diskann (embedding);
+  END IF;
+END$$;
+
+-- Ingested commit history; one row per (analysis, commit) so refreshes only process new commits
+CREATE TABLE IF NOT EXISTS analysis_commits (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT REFERENCES code_analysis(id),
+    commit_hash TEXT NOT NULL,
+    author_name TEXT,
+    author_email TEXT,
+    committed_at TIMESTAMPTZ,
+    message TEXT,
+    parents TEXT,
+    ingested_at TIMESTAMPTZ DEFAULT NOW(),
+    UNIQUE(code_analysis_id, commit_hash)
+);
+
+CREATE INDEX IF NOT EXISTS idx_analysis_commits_date ON analysis_commits (code_analysis_id, committed_at);
+
+-- Commit counts per day (D), ISO week (W) and month (M), overall (author '') and per author
+CREATE TABLE IF NOT EXISTS activity_buckets (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL,
+    granularity CHAR(1) NOT NULL,
+    bucket_start DATE NOT NULL,
+    author TEXT NOT NULL,
+    commits INTEGER NOT NULL,
+    UNIQUE(code_analysis_id, granularity, bucket_start, author)
+);
+
+ALTER TABLE analysis_commits ADD COLUMN IF NOT EXISTS files_fetched BOOLEAN DEFAULT FALSE;
+
+-- Files changed by ingested commits (only for commits whose details were fetched)
+CREATE TABLE IF NOT EXISTS commit_files (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL,
+    commit_hash TEXT NOT NULL,
+    path TEXT NOT NULL,
+    additions INTEGER NOT NULL,
+    deletions INTEGER NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_commit_files_commit ON commit_files (code_analysis_id, commit_hash);
+
+-- Directory trie with change counts rolled up from files; root is path '' at depth 0
+CREATE TABLE IF NOT EXISTS path_changes (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL,
+    path TEXT NOT NULL,
+    parent_path TEXT,
+    depth INTEGER NOT NULL,
+    is_file BOOLEAN NOT NULL,
+    changes BIGINT NOT NULL,
+    UNIQUE(code_analysis_id, path)
+);
+
+CREATE INDEX IF NOT EXISTS idx_path_changes_parent ON path_changes (code_analysis_id, parent_path, changes);
+
+-- Top co-change partners per file, rebuilt after each ingest that adds commits
+CREATE TABLE IF NOT EXISTS file_couplings (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL,
+    path TEXT NOT NULL,
+    partner TEXT NOT NULL,
+    support INTEGER NOT NULL,
+    confidence DOUBLE PRECISION NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_file_couplings_path ON file_couplings (code_analysis_id, path);
+
+-- Author aliases (login:, email:, name:) mapped to the merged author key
+CREATE TABLE IF NOT EXISTS author_identities (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL,
+    alias TEXT NOT NULL,
+    author_key TEXT NOT NULL,
+    UNIQUE(code_analysis_id, alias)
+);
+
+-- Distinct files per author, for files_touched
+CREATE TABLE IF NOT EXISTS author_files (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL,
+    author_key TEXT NOT NULL,
+    path TEXT NOT NULL,
+    UNIQUE(code_analysis_id, author_key, path)
+);
+
+-- Running churn totals per merged author
+CREATE TABLE IF NOT EXISTS author_churn (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL,
+    author_key TEXT NOT NULL,
+    display_name TEXT,
+    commits INTEGER NOT NULL,
+    detailed_commits INTEGER NOT NULL,
+    additions BIGINT NOT NULL,
+    deletions BIGINT NOT NULL,
+    files_touched INTEGER NOT NULL,
+    first_commit_at TIMESTAMPTZ,
+    last_commit_at TIMESTAMPTZ,
+    UNIQUE(code_analysis_id, author_key)
+);
+
+-- Issues and pull requests of the analysed repository, refreshed on each crawl
+CREATE TABLE IF NOT EXISTS analysis_issues (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL,
+    number INTEGER NOT NULL,
+    title TEXT,
+    state TEXT,
+    url TEXT,
+    created_at TIMESTAMP,
+    closed_at TIMESTAMP,
+    UNIQUE(code_analysis_id, number)
+);
+
+-- Issue references found in commit messages at ingest; issue_repo '' is the analysed repository
+CREATE TABLE IF NOT EXISTS commit_issue_links (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL,
+    commit_hash TEXT NOT NULL,
+    issue_repo TEXT NOT NULL,
+    issue_number INTEGER NOT NULL,
+    closes BOOLEAN NOT NULL,
+    UNIQUE(code_analysis_id, commit_hash, issue_repo, issue_number)
+);
+
+CREATE INDEX IF NOT EXISTS idx_commit_issue_links_issue ON commit_issue_links (code_analysis_id, issue_repo, issue_number);
+
+-- Running touches and lines per (directory, merged author); the root directory is ''
+CREATE TABLE IF NOT EXISTS directory_authors (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL,
+    path TEXT NOT NULL,
+    author_key TEXT NOT NULL,
+    touches BIGINT NOT NULL,
+    lines BIGINT NOT NULL,
+    UNIQUE(code_analysis_id, path, author_key)
+);
+
+-- Ownership summary per directory, refreshed for the directories each ingest page touches
+CREATE TABLE IF NOT EXISTS directory_ownership (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL,
+    path TEXT NOT NULL,
+    parent_path TEXT,
+    depth INTEGER NOT NULL,
+    touches BIGINT NOT NULL,
+    authors INTEGER NOT NULL,
+    bus_factor INTEGER NOT NULL,
+    top_owner TEXT,
+    top_share DOUBLE PRECISION,
+    top_owners JSONB,
+    UNIQUE(code_analysis_id, path)
+);
+
+CREATE INDEX IF NOT EXISTS idx_directory_ownership_parent ON directory_ownership (code_analysis_id, parent_path);
+
+-- Commit topic clustering state per analysis; incremental updates continue after through_embedding_id
+CREATE TABLE IF NOT EXISTS topic_models (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL UNIQUE,
+    k INTEGER NOT NULL,
+    dim INTEGER NOT NULL,
+    through_embedding_id BIGINT NOT NULL,
+    fitted_commits INTEGER NOT NULL,
+    assigned_commits INTEGER NOT NULL,
+    labelled BOOLEAN NOT NULL,
+    updated_at TIMESTAMP
+);
+
+-- Topic centroids (little-endian float32), mini-batch counts, sizes and optional labels
+CREATE TABLE IF NOT EXISTS commit_topics (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL,
+    topic INTEGER NOT NULL,
+    centroid BYTEA NOT NULL,
+    fit_count BIGINT NOT NULL,
+    size INTEGER NOT NULL,
+    label TEXT,
+    UNIQUE(code_analysis_id, topic)
+);
+
+-- Topic of each embedded commit with its distance from the centroid, for representatives
+CREATE TABLE IF NOT EXISTS commit_topic_assignments (
+    id BIGSERIAL PRIMARY KEY,
+    code_analysis_id BIGINT NOT NULL,
+    commit_hash TEXT NOT NULL,
+    topic INTEGER NOT NULL,
+    distance REAL NOT NULL,
+    UNIQUE(code_analysis_id, commit_hash)
+);
+
+CREATE INDEX IF NOT EXISTS idx_commit_topic_assignments_topic ON commit_topic_assignments (code_analysis_id, topic, distance);
+
+-- Parsed manifest dependencies keyed by git blob sha, shared by every analysis containing the same file
+CREATE TABLE IF NOT EXISTS manifest_parses (
+    id BIGSERIAL PRIMARY KEY,
+    blob_sha TEXT NOT NULL,
+    ecosystem TEXT NOT NULL,
+    dependencies JSONB NOT NULL,
+    parsed_at TIMESTAMP,
+    UNIQUE(blob_sha, ecosystem)
+);
+
+-- Databases whose commit_embeddings table predates its unique key: drop repeated rows, keeping the newest, then add it
+DELETE FROM commit_embeddings a USING commit_embeddings b
+WHERE a.code_analysis_id = b.code_analysis_id AND a.commit_hash = b.commit_hash AND a.id < b.id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_commit_embeddings_commit ON commit_embeddings (code_analysis_id, commit_hash);
+
+-- One row per diff chunk, so a chunk re-run after a lost lease overwrites instead of duplicating
+DELETE FROM commit_diff_chunks a USING commit_diff_chunks b
+WHERE a.code_analysis_id = b.code_analysis_id AND a.commit_hash = b.commit_hash
+  AND a.file_path = b.file_path AND a.chunk_index = b.chunk_index AND a.id < b.id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_commit_diff_chunks_chunk ON commit_diff_chunks (code_analysis_id, commit_hash, file_path, chunk_index);
+
+-- Ingest frontier: where an interrupted or capped history walk resumes, and whether it reached the root
+ALTER TABLE code_analysis ADD COLUMN IF NOT EXISTS history_frontier TEXT;
+ALTER TABLE code_analysis ADD COLUMN IF NOT EXISTS history_complete BOOLEAN DEFAULT FALSE;
+
+-- Merged author of each commit, resolved by AuthorIdentityService at ingest
+ALTER TABLE analysis_commits ADD COLUMN IF NOT EXISTS author_key TEXT;
+
+-- One row per chunk of an analysis; repeated enqueues used to reuse indexes, so renumber before indexing
+UPDATE embedding_tasks t SET chunk_index = r.rn - 1
+FROM (SELECT id, row_number() OVER (PARTITION BY code_analysis_id ORDER BY id) AS rn FROM embedding_tasks) r
+WHERE t.id = r.id AND t.chunk_index <> r.rn - 1;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_embedding_tasks_chunk ON embedding_tasks (code_analysis_id, chunk_index);
+
+-- Summary partials are also keyed by the completion models that wrote them; rows from before this carry ''
+-- and are deleted on the next summary. The old five-column key would reject the same range under new models.
+ALTER TABLE summary_partials ADD COLUMN IF NOT EXISTS model_fingerprint TEXT NOT NULL DEFAULT '';
+DO $$
+DECLARE old_key TEXT;
+BEGIN
+    SELECT conname INTO old_key FROM pg_constraint
+    WHERE conrelid = 'summary_partials'::regclass AND contype = 'u' AND array_length(conkey, 1) = 5;
+    IF old_key IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE summary_partials DROP CONSTRAINT %I', old_key);
+    END IF;
+END $$;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_summary_partials_node
+    ON summary_partials (code_analysis_id, level, first_hash, last_hash, commit_count, model_fingerprint);
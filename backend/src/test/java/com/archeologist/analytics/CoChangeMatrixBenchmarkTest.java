@@ -0,0 +1,52 @@
+package com.archeologist.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rough timings for {@link CoChangeMatrix} on a synthetic history of production size. Skipped unless run with
+ * {@code -Dbenchmark=true}; the numbers are printed, and only sizes and invariants are asserted.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CoChangeMatrixBenchmarkTest {
+
+    private static void report(String what, long startedNanos) {
+        System.out.printf("%-55s %8.1f ms%n", what, (System.nanoTime() - startedNanos) / 1e6);
+    }
+
+    /** 100k commits over 50k files, 1-8 files each, mostly within one directory of 50 files. */
+    @Test
+    void hundredThousandCommits() {
+        int maxPairs = 1_000_000;
+        SplittableRandom random = new SplittableRandom(43);
+        long started = System.nanoTime();
+        CoChangeMatrix matrix = new CoChangeMatrix(maxPairs, 50);
+        List<String> paths = new ArrayList<>(8);
+        for (int commit = 0; commit < 100_000; commit++) {
+            paths.clear();
+            int directory = random.nextInt(1000);
+            for (int f = random.nextInt(1, 9); f > 0; f--) {
+                int file = random.nextInt(10) == 0 ? random.nextInt(50_000) : directory * 50 + random.nextInt(50);
+                paths.add("src/d" + file / 50 + "/F" + file + ".java");
+            }
+            matrix.addCommit(paths);
+        }
+        report("co-change: add 100k commits x 50k files", started);
+
+        started = System.nanoTime();
+        int[] reported = {0};
+        matrix.forEachTopPartners(10, 3, 0.2, (path, partner, support, confidence) -> reported[0]++);
+        report("co-change: top-10 partners of every file", started);
+        System.out.printf("co-change: %d pairs, prune floor %d, %d partners reported%n",
+                matrix.pairCount(), matrix.pruneFloor(), reported[0]);
+
+        assertThat(matrix.pairCount()).isLessThanOrEqualTo(maxPairs);
+        assertThat(reported[0]).isPositive();
+    }
+}
@@ -0,0 +1,84 @@
+package com.archeologist.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoChangeMatrixTest {
+
+    private static Map<String, List<String>> partners(CoChangeMatrix matrix, int k, int minSupport, double minConfidence) {
+        Map<String, List<String>> partners = new TreeMap<>();
+        matrix.forEachTopPartners(k, minSupport, minConfidence, (path, partner, support, confidence) ->
+                partners.computeIfAbsent(path, key -> new ArrayList<>())
+                        .add(partner + ":" + support + ":" + Math.round(confidence * 100)));
+        return partners;
+    }
+
+    @Test
+    void countsPairsExactlyWithinBudget() {
+        CoChangeMatrix matrix = new CoChangeMatrix(100, 10);
+        matrix.addCommit(List.of("a", "b"));
+        matrix.addCommit(List.of("a", "b", "c"));
+        matrix.addCommit(List.of("a", "a", "c"));
+        matrix.addCommit(List.of("a"));
+
+        assertThat(matrix.commitCount()).isEqualTo(4);
+        assertThat(matrix.fileCount()).isEqualTo(3);
+        assertThat(matrix.pairCount()).isEqualTo(3);
+        assertThat(matrix.pruneFloor()).isZero();
+        // a changed in 4 commits, b in 2, c in 2; equal scores come in no particular order
+        Map<String, List<String>> partners = partners(matrix, 2, 1, 0);
+        assertThat(partners.get("a")).containsExactlyInAnyOrder("b:2:50", "c:2:50");
+        assertThat(partners.get("b")).containsExactly("a:2:100", "c:1:50");
+    }
+
+    @Test
+    void filtersBySupportConfidenceAndK() {
+        CoChangeMatrix matrix = new CoChangeMatrix(100, 10);
+        for (int i = 0; i < 3; i++) {
+            matrix.addCommit(List.of("a", "b"));
+        }
+        matrix.addCommit(List.of("a", "c"));
+        matrix.addCommit(List.of("a", "d"));
+
+        assertThat(partners(matrix, 1, 2, 0)).isEqualTo(Map.of("a", List.of("b:3:60"), "b", List.of("a:3:100")));
+        assertThat(partners(matrix, 5, 1, 0.7)).doesNotContainKey("a").containsEntry("c", List.of("a:1:100"));
+    }
+
+    @Test
+    void skipsBulkCommits() {
+        CoChangeMatrix matrix = new CoChangeMatrix(100, 3);
+        matrix.addCommit(List.of("a", "b", "c", "d"));
+        matrix.addCommit(List.of("a", "b"));
+
+        assertThat(matrix.skippedCommits()).isEqualTo(1);
+        assertThat(matrix.commitCount()).isEqualTo(1);
+        assertThat(matrix.pairCount()).isEqualTo(1);
+    }
+
+    @Test
+    void pruningKeepsThePairBudgetAndFrequentPairs() {
+        int maxPairs = 64;
+        CoChangeMatrix matrix = new CoChangeMatrix(maxPairs, 10);
+        for (int i = 0; i < 1000; i++) {
+            matrix.addCommit(List.of("hot/A", "hot/B"));
+            matrix.addCommit(List.of("cold/" + i, "cold/" + (i + 1)));
+        }
+
+        assertThat(matrix.pairCount()).isLessThanOrEqualTo(maxPairs);
+        assertThat(matrix.pruneFloor()).isPositive();
+        int[] support = {0};
+        matrix.forEachTopPartners(1, 1, 0, (path, partner, s, confidence) -> {
+            if (path.equals("hot/A")) {
+                support[0] = s;
+            }
+        });
+        // Lossy counting undercounts a reported pair by at most the floor
+        assertThat(support[0]).isBetween(1000 - matrix.pruneFloor(), 1000);
+    }
+}
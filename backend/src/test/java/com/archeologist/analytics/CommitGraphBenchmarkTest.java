@@ -0,0 +1,94 @@
+package com.archeologist.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rough timings for {@link CommitGraph} on a synthetic history of production size. Skipped unless run with
+ * {@code -Dbenchmark=true}; the numbers are printed, and only invariants are asserted.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CommitGraphBenchmarkTest {
+
+    private static final int QUERIES = 1000;
+
+    @TempDir
+    Path dir;
+
+    private static String sha(int n) {
+        return String.format("%040x", n);
+    }
+
+    private static void report(String what, long startedNanos) {
+        System.out.printf("%-55s %8.1f ms%n", what, (System.nanoTime() - startedNanos) / 1e6);
+    }
+
+    /** 1M commits on a mainline with a merged two-commit branch every 10 commits. */
+    @Test
+    void millionCommitHistory() throws IOException {
+        int n = 1_000_000;
+        long started = System.nanoTime();
+        CommitGraph.Builder builder = new CommitGraph.Builder();
+        int mainline = -1;
+        for (int i = 0; i < n; i++) {
+            String parents;
+            if (i % 10 == 9 && mainline >= 0) {
+                // i - 1 is a branch commit off i - 3
+                parents = sha(mainline) + " " + sha(i - 1);
+            } else if (i % 10 == 8 && i >= 3) {
+                parents = sha(i - 1);
+            } else if (i % 10 == 7 && i >= 3) {
+                parents = sha(i - 4);
+            } else {
+                parents = mainline >= 0 ? sha(mainline) : "";
+            }
+            builder.add(sha(i), parents, 1_600_000_000L + i);
+            if (i % 10 != 7 && i % 10 != 8) {
+                mainline = i;
+            }
+        }
+        Path file = dir.resolve("graph.bin");
+        builder.write(file);
+        report("commit graph: build and write 1M commits", started);
+
+        started = System.nanoTime();
+        CommitGraph graph = CommitGraph.open(file);
+        report("commit graph: open (mmap)", started);
+        System.out.printf("commit graph: %d commits, %.1f MB on disk%n", graph.size(), Files.size(file) / 1e6);
+
+        SplittableRandom random = new SplittableRandom(46);
+        int[] ids = new int[QUERIES * 2];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = graph.find(sha(n - 1 - random.nextInt(10_000)));
+        }
+        started = System.nanoTime();
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            if (graph.mergeBase(ids[2 * q], ids[2 * q + 1]) >= 0) {
+                found++;
+            }
+        }
+        report("commit graph: 1000 merge-bases near the tips", started);
+
+        started = System.nanoTime();
+        int root = graph.find(sha(0));
+        int reachable = 0;
+        for (int q = 0; q < 20; q++) {
+            if (graph.isAncestor(root, ids[q])) {
+                reachable++;
+            }
+        }
+        report("commit graph: 20 isAncestor(root, tip) over 1M commits", started);
+
+        assertThat(found).isEqualTo(QUERIES);
+        assertThat(reachable).isEqualTo(20);
+    }
+}
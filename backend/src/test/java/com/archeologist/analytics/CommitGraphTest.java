@@ -0,0 +1,109 @@
+package com.archeologist.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommitGraphTest {
+
+    @TempDir
+    Path dir;
+
+    private static String sha(int n) {
+        return String.format("%040x", n);
+    }
+
+    private CommitGraph write(CommitGraph.Builder builder) throws IOException {
+        Path file = dir.resolve("graph.bin");
+        builder.write(file);
+        return CommitGraph.open(file);
+    }
+
+    /**
+     * R - A - M1 - X
+     *   \   X
+     *    B - M2 - Y
+     * M1 merges B into A and M2 merges A into B, so A and B are both best common ancestors of X and Y.
+     */
+    @Test
+    void mergeBaseOnCrissCrossHistoryIsABestCommonAncestor() throws IOException {
+        CommitGraph.Builder builder = new CommitGraph.Builder();
+        builder.add(sha(1), "", 100);
+        builder.add(sha(2), sha(1), 200);
+        builder.add(sha(3), sha(1), 210);
+        builder.add(sha(4), sha(2) + " " + sha(3), 300);
+        builder.add(sha(5), sha(3) + " " + sha(2), 310);
+        builder.add(sha(6), sha(4), 400);
+        builder.add(sha(7), sha(5), 410);
+        CommitGraph graph = write(builder);
+
+        int a = graph.find(sha(2));
+        int b = graph.find(sha(3));
+        int x = graph.find(sha(6));
+        int y = graph.find(sha(7));
+        int base = graph.mergeBase(x, y);
+
+        assertThat(base).isIn(a, b);
+        assertThat(graph.isAncestor(base, x)).isTrue();
+        assertThat(graph.isAncestor(base, y)).isTrue();
+        assertThat(graph.mergeBase(graph.find(sha(4)), graph.find(sha(5)))).isIn(a, b);
+        assertThat(graph.generation(graph.find(sha(1)))).isEqualTo(1);
+        assertThat(graph.generation(x)).isEqualTo(4);
+    }
+
+    @Test
+    void disjointRootsStartAtGenerationOneAndShareNoBase() throws IOException {
+        CommitGraph.Builder builder = new CommitGraph.Builder();
+        builder.add(sha(10), "", 100);
+        builder.add(sha(11), sha(10), 200);
+        builder.add(sha(12), sha(11), 300);
+        builder.add(sha(20), "", 150);
+        builder.add(sha(21), sha(20), 250);
+        // Parent outside the collected history: the commit becomes a root
+        builder.add(sha(30), sha(99), 500);
+        CommitGraph graph = write(builder);
+
+        assertThat(graph.generation(graph.find(sha(10)))).isEqualTo(1);
+        assertThat(graph.generation(graph.find(sha(20)))).isEqualTo(1);
+        assertThat(graph.generation(graph.find(sha(30)))).isEqualTo(1);
+        assertThat(graph.parentCount(graph.find(sha(30)))).isZero();
+        assertThat(graph.generation(graph.find(sha(12)))).isEqualTo(3);
+        assertThat(graph.generation(graph.find(sha(21)))).isEqualTo(2);
+
+        assertThat(graph.mergeBase(graph.find(sha(12)), graph.find(sha(21)))).isEqualTo(-1);
+        assertThat(graph.isAncestor(graph.find(sha(20)), graph.find(sha(12)))).isFalse();
+        assertThat(graph.isAncestor(graph.find(sha(10)), graph.find(sha(12)))).isTrue();
+    }
+
+    @Test
+    void mergedBranchCountsSecondParentChainDownToTheBase() throws IOException {
+        CommitGraph.Builder builder = new CommitGraph.Builder();
+        builder.add(sha(1), "", 100);
+        builder.add(sha(2), sha(1), 200);
+        builder.add(sha(3), sha(1), 210);
+        builder.add(sha(4), sha(3), 220);
+        builder.add(sha(5), sha(2) + " " + sha(4), 300);
+        CommitGraph graph = write(builder);
+
+        assertThat(graph.mergedBranch(graph.find(sha(5)))).containsExactly(2, graph.find(sha(3)));
+        assertThat(graph.mergedBranch(graph.find(sha(2)))).isNull();
+    }
+
+    @Test
+    void findResolvesUniquePrefixesOnly() throws IOException {
+        CommitGraph.Builder builder = new CommitGraph.Builder();
+        builder.add("ab" + "0".repeat(38), "", 100);
+        builder.add("ab" + "1".repeat(38), "", 100);
+        builder.add("cd" + "0".repeat(38), "", 100);
+        CommitGraph graph = write(builder);
+
+        assertThat(graph.find("ab")).isEqualTo(-1);
+        assertThat(graph.sha(graph.find("AB1"))).isEqualTo("ab" + "1".repeat(38));
+        assertThat(graph.find("cd")).isEqualTo(2);
+        assertThat(graph.find("ef")).isEqualTo(-1);
+    }
+}
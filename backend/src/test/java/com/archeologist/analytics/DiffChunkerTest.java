@@ -0,0 +1,95 @@
+package com.archeologist.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DiffChunkerTest {
+
+    private static List<DiffChunker.Chunk> chunk(DiffChunker chunker, String diff) throws IOException {
+        List<DiffChunker.Chunk> chunks = new ArrayList<>();
+        int emitted = chunker.chunk(new StringReader(diff), chunks::add);
+        assertThat(emitted).isEqualTo(chunks.size());
+        return chunks;
+    }
+
+    private static String header(String path) {
+        return "diff --git a/" + path + " b/" + path + "\n"
+                + "index 1111111..2222222 100644\n"
+                + "--- a/" + path + "\n"
+                + "+++ b/" + path + "\n";
+    }
+
+    @Test
+    void hugeSingleLineHunkIsSplitIntoOverlappingChunks() throws IOException {
+        StringBuilder line = new StringBuilder("+");
+        for (int i = 0; line.length() < 10_000; i++) {
+            line.append(i % 10);
+        }
+        String body = "@@ -0,0 +1 @@\n" + line;
+        List<DiffChunker.Chunk> chunks = chunk(new DiffChunker(1000, 100, 100), header("min.js") + body);
+
+        assertThat(chunks).allSatisfy(chunk -> {
+            assertThat(chunk.path()).isEqualTo("min.js");
+            assertThat(chunk.text().length()).isLessThanOrEqualTo(1000);
+        });
+        StringBuilder rebuilt = new StringBuilder(chunks.get(0).text());
+        for (int i = 1; i < chunks.size(); i++) {
+            String previous = chunks.get(i - 1).text();
+            String text = chunks.get(i).text();
+            assertThat(chunks.get(i).index()).isEqualTo(i);
+            assertThat(text).startsWith(previous.substring(previous.length() - 100));
+            rebuilt.append(text.substring(100));
+        }
+        assertThat(rebuilt.toString()).isEqualTo(body);
+    }
+
+    @Test
+    void chunkEndingExactlyAtTheBoundaryLeavesNoOverlapOnlyTail() throws IOException {
+        String body = "+" + "x".repeat(998) + "\n";
+        List<DiffChunker.Chunk> chunks = chunk(new DiffChunker(1000, 100, 10), header("a.txt") + body);
+
+        assertThat(chunks).hasSize(1);
+        assertThat(chunks.get(0).text()).isEqualTo(body);
+    }
+
+    @Test
+    void chunksNeverSpanFilesAndDropHeaderMetadata() throws IOException {
+        String diff = header("src/A.java") + "@@ -1 +1 @@\n-old\n+new\n"
+                + "diff --git a/img.png b/img.png\nBinary files a/img.png and b/img.png differ\n"
+                + header("src/B.java") + "@@ -1 +1 @@\n+added\n";
+        List<DiffChunker.Chunk> chunks = chunk(new DiffChunker(1000, 100, 10), diff);
+
+        assertThat(chunks).containsExactly(
+                new DiffChunker.Chunk("src/A.java", 0, "@@ -1 +1 @@\n-old\n+new\n"),
+                new DiffChunker.Chunk("src/B.java", 0, "@@ -1 +1 @@\n+added\n"));
+    }
+
+    @Test
+    void hunkLinesThatLookLikeFileHeadersAreKept() throws IOException {
+        String hunk = "@@ -1,3 +1,3 @@\n--- removed sql comment\n+++ added counter\n index unchanged\n";
+        List<DiffChunker.Chunk> chunks = chunk(new DiffChunker(1000, 100, 10), header("db.sql") + hunk);
+
+        assertThat(chunks).containsExactly(new DiffChunker.Chunk("db.sql", 0, hunk));
+    }
+
+    @Test
+    void stopsAfterMaxChunks() throws IOException {
+        String diff = header("big.txt") + ("+" + "y".repeat(99) + "\n").repeat(100);
+        List<DiffChunker.Chunk> chunks = chunk(new DiffChunker(500, 50, 3), diff);
+
+        assertThat(chunks).hasSize(3);
+        assertThat(chunks).extracting(DiffChunker.Chunk::index).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void rejectsOverlapNotSmallerThanChunkSize() {
+        assertThatThrownBy(() -> new DiffChunker(100, 100, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,51 @@
+package com.archeologist.analytics;
+
+import com.archeologist.analytics.IssueReferenceScanner.IssueReference;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IssueReferenceScannerTest {
+
+    private final IssueReferenceScanner scanner = new IssueReferenceScanner("Octo/Repo");
+
+    @Test
+    void findsEveryReferenceFormInOrder() {
+        assertThat(scanner.scan("Refs #12, GH-7, other/lib#3 and https://github.com/acme/tool/pull/99"))
+                .containsExactly(
+                        new IssueReference("", 12, false),
+                        new IssueReference("", 7, false),
+                        new IssueReference("other/lib", 3, false),
+                        new IssueReference("acme/tool", 99, false));
+    }
+
+    @Test
+    void closingKeywordsMarkTheReferenceTheyPrecede() {
+        assertThat(scanner.scan("Fixes #1, closed: #2, resolves other/lib#3, see #4"))
+                .containsExactly(
+                        new IssueReference("", 1, true),
+                        new IssueReference("", 2, true),
+                        new IssueReference("other/lib", 3, true),
+                        new IssueReference("", 4, false));
+    }
+
+    @Test
+    void ownRepositoryIsReportedWithAnEmptyRepo() {
+        assertThat(scanner.scan("octo/repo#5 and https://github.com/OCTO/REPO/issues/6"))
+                .containsExactly(new IssueReference("", 5, false), new IssueReference("", 6, false));
+    }
+
+    @Test
+    void repeatedMentionsCollapseAndAnyClosingMentionWins() {
+        assertThat(scanner.scan("Part of #8\n\nCloses #8, again #8"))
+                .containsExactly(new IssueReference("", 8, true));
+    }
+
+    @Test
+    void ignoresLookalikesThatAreNotIssueReferences() {
+        assertThat(scanner.scan("Use color &#35; or a#1; build 99999999999")).isEmpty();
+        assertThat(scanner.scan("Bump #99999999999")).isEmpty();
+        assertThat(scanner.scan(null)).isEmpty();
+        assertThat(scanner.scan("")).isEmpty();
+    }
+}
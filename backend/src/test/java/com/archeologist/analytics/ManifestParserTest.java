@@ -0,0 +1,144 @@
+package com.archeologist.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+class ManifestParserTest {
+
+    @Test
+    void ecosystemIsChosenByFileName() {
+        assertThat(ManifestParser.ecosystem("web/package.json")).isEqualTo("npm");
+        assertThat(ManifestParser.ecosystem("app/build.gradle.kts")).isEqualTo("gradle");
+        assertThat(ManifestParser.ecosystem("Cargo.toml")).isEqualTo("cargo");
+        assertThat(ManifestParser.ecosystem("docs/pom.xml.orig")).isNull();
+        assertThatThrownBy(() -> ManifestParser.parse("setup.py", "")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void packageJsonPrefersRuntimeOverDevSections() throws IOException {
+        String json = "{\"dependencies\": {\"react\": \"^18.2.0\"}," +
+                " \"devDependencies\": {\"vite\": \"5.0.0\", \"react\": \"18.0.0\"}}";
+
+        assertThat(ManifestParser.parse("package.json", json))
+                .containsExactly(entry("react", "^18.2.0"), entry("vite", "5.0.0"));
+    }
+
+    @Test
+    void pomResolvesPropertiesAndSkipsCommentedDependencies() throws IOException {
+        String pom = """
+                <project>
+                  <properties><jackson.version>2.15.2</jackson.version></properties>
+                  <dependencies>
+                    <dependency>
+                      <groupId>com.fasterxml.jackson.core</groupId>
+                      <artifactId>jackson-databind</artifactId>
+                      <version>${jackson.version}</version>
+                    </dependency>
+                    <dependency>
+                      <groupId>org.projectlombok</groupId>
+                      <artifactId>lombok</artifactId>
+                    </dependency>
+                    <!-- <dependency><groupId>old</groupId><artifactId>gone</artifactId></dependency> -->
+                    <dependency>
+                      <groupId>x</groupId><artifactId>y</artifactId><version>${undefined}</version>
+                    </dependency>
+                  </dependencies>
+                </project>
+                """;
+
+        assertThat(ManifestParser.parse("pom.xml", pom)).containsExactly(
+                entry("com.fasterxml.jackson.core:jackson-databind", "2.15.2"),
+                entry("org.projectlombok:lombok", ""),
+                entry("x:y", "${undefined}"));
+    }
+
+    @Test
+    void gradleReadsGroovyAndKotlinNotations() throws IOException {
+        String gradle = """
+                dependencies {
+                    implementation 'org.springframework.boot:spring-boot-starter-web:3.2.0'
+                    testImplementation("org.junit.jupiter:junit-jupiter:5.10.1")
+                    implementation(platform("org.springframework.boot:spring-boot-dependencies:3.2.0"))
+                    runtimeOnly "org.postgresql:postgresql"
+                }
+                """;
+
+        assertThat(ManifestParser.parse("build.gradle.kts", gradle)).containsExactly(
+                entry("org.junit.jupiter:junit-jupiter", "5.10.1"),
+                entry("org.postgresql:postgresql", ""),
+                entry("org.springframework.boot:spring-boot-dependencies", "3.2.0"),
+                entry("org.springframework.boot:spring-boot-starter-web", "3.2.0"));
+    }
+
+    @Test
+    void goModReadsSingleAndBlockRequires() throws IOException {
+        String goMod = """
+                module example.com/app
+
+                go 1.21
+
+                require github.com/pkg/errors v0.9.1
+                require (
+                    golang.org/x/sync v0.5.0 // indirect
+                    // github.com/old/dep v1.0.0
+                )
+                """;
+
+        assertThat(ManifestParser.parse("go.mod", goMod)).containsExactly(
+                entry("github.com/pkg/errors", "v0.9.1"),
+                entry("golang.org/x/sync", "v0.5.0"));
+    }
+
+    @Test
+    void requirementsKeepConstraintsAndSkipOptionsAndUrls() throws IOException {
+        String requirements = """
+                # tooling
+                Django >= 4.2, < 5
+                requests[socks]==2.31.0 ; python_version >= "3.8"
+                numpy
+                -r base.txt
+                --index-url https://pypi.example.com/simple
+                git+https://github.com/org/pkg.git
+                """;
+
+        assertThat(ManifestParser.parse("requirements.txt", requirements)).containsExactly(
+                entry("django", ">=4.2,<5"),
+                entry("numpy", ""),
+                entry("requests", "==2.31.0"));
+    }
+
+    @Test
+    void cargoReadsPlainInlineAndTableDependencies() throws IOException {
+        String cargo = """
+                [package]
+                name = "app"
+                version = "0.1.0"
+
+                [dependencies]
+                serde = { version = "1.0", features = ["derive"] }
+                rand = "0.8" # random
+
+                [dependencies.tokio]
+                version = "1.35"
+                features = ["full"]
+
+                [target.'cfg(unix)'.dependencies]
+                libc = "0.2"
+
+                [dev-dependencies]
+                local = { path = "../local" }
+                """;
+
+        assertThat(ManifestParser.parse("Cargo.toml", cargo)).containsExactly(
+                entry("libc", "0.2"),
+                entry("local", ""),
+                entry("rand", "0.8"),
+                entry("serde", "1.0"),
+                entry("tokio", "1.35"));
+    }
+}
@@ -0,0 +1,130 @@
+package com.archeologist.analytics;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class MiniBatchKMeansTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(2);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    /** {@code perCluster} noisy copies of each unit axis in {@code dim} dimensions. */
+    private static float[] axes(int dim, int perCluster, SplittableRandom random) {
+        float[] data = new float[dim * perCluster * dim];
+        for (int axis = 0; axis < dim; axis++) {
+            for (int copy = 0; copy < perCluster; copy++) {
+                int offset = (axis * perCluster + copy) * dim;
+                for (int j = 0; j < dim; j++) {
+                    data[offset + j] = (float) (random.nextDouble() * 0.05);
+                }
+                data[offset + axis] = 1;
+            }
+        }
+        return data;
+    }
+
+    @Test
+    void separatesWellSeparatedClusters() {
+        int dim = 4;
+        int perCluster = 50;
+        float[] data = axes(dim, perCluster, new SplittableRandom(1));
+        int n = dim * perCluster;
+        MiniBatchKMeans.normalize(data, n, dim);
+        MiniBatchKMeans kmeans = new MiniBatchKMeans(dim, dim);
+        kmeans.fit(data, n, 32, 100, new SplittableRandom(7), pool);
+
+        int[] labels = kmeans.assign(data, n, null, pool);
+        for (int axis = 0; axis < dim; axis++) {
+            for (int copy = 1; copy < perCluster; copy++) {
+                assertThat(labels[axis * perCluster + copy]).isEqualTo(labels[axis * perCluster]);
+            }
+        }
+        assertThat(labels[0]).isNotEqualTo(labels[perCluster]).isNotEqualTo(labels[2 * perCluster]);
+    }
+
+    @Test
+    void clustersThatWinNoPointsKeepAFiniteCentroidAndZeroCount() {
+        int dim = 3;
+        // Four copies of one point and one other: k-means++ has to seed duplicate centroids
+        float[] data = {1, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 0, 1, 0};
+        MiniBatchKMeans kmeans = new MiniBatchKMeans(4, dim);
+        kmeans.fit(data, 5, 5, 20, new SplittableRandom(3), pool);
+
+        long assigned = 0;
+        int empty = 0;
+        for (int c = 0; c < kmeans.k(); c++) {
+            for (float value : kmeans.centroid(c)) {
+                assertThat(value).isFinite();
+            }
+            assigned += kmeans.count(c);
+            if (kmeans.count(c) == 0) {
+                empty++;
+            }
+        }
+        assertThat(assigned).isEqualTo(5L * 20);
+        assertThat(empty).isPositive();
+
+        float[] distances = new float[5];
+        int[] labels = kmeans.assign(data, 5, distances, pool);
+        assertThat(labels[0]).isEqualTo(labels[3]);
+        for (float distance : distances) {
+            assertThat(distance).isLessThan(1e-6f);
+        }
+    }
+
+    @Test
+    void partialFitMovesRestoredCentroidsTowardsNewPoints() {
+        MiniBatchKMeans kmeans = MiniBatchKMeans.restore(2, new float[]{1, 0, 0, 1}, new long[]{1, 1});
+        kmeans.partialFit(new float[]{0.6f, 0.8f}, 1, 8, pool);
+
+        assertThat(kmeans.count(0)).isEqualTo(1);
+        assertThat(kmeans.count(1)).isEqualTo(2);
+        assertThat(kmeans.centroid(1)).containsExactly(new float[]{0.3f, 0.9f}, within(1e-6f));
+        assertThat(kmeans.centroid(0)).containsExactly(1f, 0f);
+    }
+
+    @Test
+    void normalizeLeavesZeroVectorsAlone() {
+        float[] data = {3, 4, 0, 0};
+        MiniBatchKMeans.normalize(data, 2, 2);
+
+        assertThat(data).containsExactly(new float[]{0.6f, 0.8f, 0f, 0f}, within(1e-6f));
+    }
+
+    @Test
+    void defaultBatchIsSplitAcrossTheWholePool() {
+        ForkJoinPool eight = new ForkJoinPool(8);
+        try {
+            assertThat(MiniBatchKMeans.leafPoints(256, eight)).isEqualTo(32);
+            assertThat(MiniBatchKMeans.leafPoints(100_000, eight)).isEqualTo(3125);
+            assertThat(MiniBatchKMeans.leafPoints(10, eight)).isEqualTo(32);
+        } finally {
+            eight.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsTooFewPointsAndMismatchedCentroids() {
+        assertThatThrownBy(() -> new MiniBatchKMeans(3, 2).fit(new float[4], 2, 2, 1, new SplittableRandom(1), pool))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MiniBatchKMeans.restore(2, new float[3], new long[2]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
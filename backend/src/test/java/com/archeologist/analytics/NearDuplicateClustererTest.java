@@ -0,0 +1,58 @@
+package com.archeologist.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearDuplicateClustererTest {
+
+    private static final String BASE = "update the release pipeline so that nightly builds publish signed artifacts "
+            + "to the staging repository before the integration suite runs against";
+
+    @Test
+    void normalizationMergesMessagesDifferingOnlyInNumbersAndHashes() {
+        int[] clusters = new NearDuplicateClusterer(0.8).cluster(List.of(
+                "Bump lodash to 4.17.21 (#1234)",
+                "bump lodash to 4.17.20 (#999)",
+                "Revert abc1234def",
+                "revert 9f8e7d6c5b",
+                "Bump lodash"));
+
+        assertThat(clusters).containsExactly(0, 0, 2, 2, 4);
+    }
+
+    @Test
+    void mergesPairsAboveTheThresholdOnly() {
+        List<String> messages = List.of(BASE + " main", BASE + " master", "rewrite the diff chunker to stream segments");
+
+        assertThat(new NearDuplicateClusterer(0.7).cluster(messages)).containsExactly(0, 0, 2);
+        // One changed shingle out of eighteen keeps the estimated similarity well below 1
+        assertThat(new NearDuplicateClusterer(0.99).cluster(messages)).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void dissimilarMessagesStaySeparateAtALowThreshold() {
+        int[] clusters = new NearDuplicateClusterer(0.3).cluster(List.of(
+                "add retry with exponential backoff to the github client",
+                "document the embedding queue lease and checkpoint semantics",
+                "fix off by one in the temporal index day range"));
+
+        assertThat(clusters).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void shortTextsOnlyMatchExactly() {
+        int[] clusters = new NearDuplicateClusterer(0.1).cluster(List.of("fix typo", "fix tests", "Fix typo", "wip"));
+
+        assertThat(clusters).containsExactly(0, 1, 0, 3);
+    }
+
+    @Test
+    void representativeIsTheLowestIndexOfTheCluster() {
+        int[] clusters = new NearDuplicateClusterer(0.7).cluster(List.of("unrelated", BASE + " x", BASE + " y", BASE + " z"));
+
+        assertThat(clusters).containsExactly(0, 1, 1, 1);
+    }
+}
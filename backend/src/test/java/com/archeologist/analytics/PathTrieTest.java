@@ -0,0 +1,77 @@
+package com.archeologist.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PathTrieTest {
+
+    private record Visit(String path, String parentPath, int depth, boolean file, long count) {
+    }
+
+    private static List<Visit> visits(PathTrie trie) {
+        List<Visit> visits = new ArrayList<>();
+        trie.forEach((path, parentPath, depth, file, count) -> visits.add(new Visit(path, parentPath, depth, file, count)));
+        return visits;
+    }
+
+    @Test
+    void directoriesHoldTheTotalOfTheirSubtree() {
+        PathTrie trie = new PathTrie();
+        trie.add("src/main/A.java", 2);
+        trie.add("src/main/B.java", 1);
+        trie.add("src/test/ATest.java", 1);
+        trie.add("README.md", 3);
+
+        Map<String, Visit> byPath = new HashMap<>();
+        visits(trie).forEach(visit -> byPath.put(visit.path(), visit));
+
+        assertThat(trie.size()).isEqualTo(8);
+        assertThat(byPath.get("")).isEqualTo(new Visit("", null, 0, false, 7));
+        assertThat(byPath.get("src")).isEqualTo(new Visit("src", "", 1, false, 4));
+        assertThat(byPath.get("src/main")).isEqualTo(new Visit("src/main", "src", 2, false, 3));
+        assertThat(byPath.get("src/main/A.java")).isEqualTo(new Visit("src/main/A.java", "src/main", 3, true, 2));
+        assertThat(byPath.get("README.md")).isEqualTo(new Visit("README.md", "", 1, true, 3));
+    }
+
+    @Test
+    void parentsAreVisitedBeforeTheirChildren() {
+        PathTrie trie = new PathTrie();
+        trie.add("a/b/c/d.txt", 1);
+        trie.add("a/e.txt", 1);
+        trie.add("f/g.txt", 1);
+
+        List<String> seen = new ArrayList<>();
+        for (Visit visit : visits(trie)) {
+            if (visit.parentPath() != null) {
+                assertThat(seen).contains(visit.parentPath());
+            }
+            seen.add(visit.path());
+        }
+        assertThat(seen).hasSize(trie.size());
+    }
+
+    @Test
+    void repeatedAndOddlySlashedPathsShareNodes() {
+        PathTrie trie = new PathTrie();
+        trie.add("/docs//guide.md", 1);
+        trie.add("docs/guide.md/", 1);
+
+        assertThat(trie.size()).isEqualTo(3);
+        assertThat(visits(trie)).contains(new Visit("docs/guide.md", "docs", 2, true, 2));
+    }
+
+    @Test
+    void fileThatLaterGainsChildrenIsReportedAsADirectory() {
+        PathTrie trie = new PathTrie();
+        trie.add("lib", 1);
+        trie.add("lib/x.js", 1);
+
+        assertThat(visits(trie)).contains(new Visit("lib", "", 1, false, 2), new Visit("lib/x.js", "lib", 2, true, 1));
+    }
+}
@@ -0,0 +1,70 @@
+package com.archeologist.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rough timings for {@link TemporalIndex} on a synthetic history of production size. Skipped unless run with
+ * {@code -Dbenchmark=true}; the numbers are printed, and only sizes and invariants are asserted.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TemporalIndexBenchmarkTest {
+
+    private static final int QUERIES = 1000;
+
+    private static String sha(int n) {
+        return String.format("%040x", n);
+    }
+
+    private static void report(String what, long startedNanos) {
+        System.out.printf("%-55s %8.1f ms%n", what, (System.nanoTime() - startedNanos) / 1e6);
+    }
+
+    /** 500k commits over ten years, 3 files each out of 50k, 200 authors. */
+    @Test
+    void halfMillionCommits() {
+        int n = 500_000;
+        long from = 1_400_000_000L;
+        long span = 10L * 365 * 86_400;
+        SplittableRandom random = new SplittableRandom(47);
+        long started = System.nanoTime();
+        TemporalIndex.Builder builder = new TemporalIndex.Builder();
+        for (int i = 0; i < n; i++) {
+            builder.addCommit(sha(i), from + random.nextLong(span), "author" + random.nextInt(200));
+            int directory = random.nextInt(500);
+            for (int f = 0; f < 3; f++) {
+                builder.addFile(sha(i), "src/m" + directory % 20 + "/d" + directory + "/F" + random.nextInt(100) + ".java");
+            }
+        }
+        TemporalIndex index = builder.build();
+        report("temporal index: build 500k commits x 1.5M touches", started);
+        System.out.printf("temporal index: %d files, %.1f MB of bitmaps%n", index.fileCount(), index.sizeInBytes() / 1e6);
+
+        started = System.nanoTime();
+        long selected = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            long quarter = from + random.nextLong(span - 90L * 86_400);
+            RoaringBitmap selection = index.select("src/m" + random.nextInt(20) + "/**", quarter, quarter + 90L * 86_400,
+                    "author" + random.nextInt(200));
+            selected += selection.getCardinality();
+        }
+        report("temporal index: 1000 directory x quarter x author selects", started);
+
+        started = System.nanoTime();
+        int listed = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            long quarter = from + random.nextLong(span - 90L * 86_400);
+            listed += index.topFiles("src/m" + random.nextInt(20), index.select(null, quarter, quarter + 90L * 86_400, null), 10).size();
+        }
+        report("temporal index: 1000 top-10 files of a directory in a quarter", started);
+
+        assertThat(index.size()).isEqualTo(n);
+        assertThat(selected).isPositive();
+        assertThat(listed).isEqualTo(QUERIES * 10);
+    }
+}
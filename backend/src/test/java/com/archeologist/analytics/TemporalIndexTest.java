@@ -0,0 +1,85 @@
+package com.archeologist.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TemporalIndexTest {
+
+    private static final long DAY = 86_400;
+    private static final long MIDNIGHT = LocalDate.of(2024, 3, 1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+
+    private static TemporalIndex index() {
+        TemporalIndex.Builder builder = new TemporalIndex.Builder();
+        builder.addCommit("c-last-second-before", MIDNIGHT - 1, "alice");
+        builder.addCommit("c-midnight", MIDNIGHT, "bob");
+        builder.addCommit("c-last-second", MIDNIGHT + DAY - 1, "alice");
+        builder.addCommit("c-next-midnight", MIDNIGHT + DAY, "alice");
+        builder.addFile("c-last-second-before", "src/api/A.java");
+        builder.addFile("c-midnight", "src/api/A.java");
+        builder.addFile("c-midnight", "docs/README.md");
+        builder.addFile("c-last-second", "src/api/B.java");
+        builder.addFile("c-next-midnight", "src/api/A.java");
+        return builder.build();
+    }
+
+    @Test
+    void dayRangeIncludesItsMidnightAndExcludesTheNext() {
+        TemporalIndex index = index();
+
+        assertThat(index.select(null, MIDNIGHT, MIDNIGHT + DAY, null).toArray())
+                .containsExactly(1, 2);
+        assertThat(index.sha(1)).isEqualTo("c-midnight");
+        assertThat(index.sha(2)).isEqualTo("c-last-second");
+        assertThat(index.select(null, MIDNIGHT + DAY, null, null).toArray()).containsExactly(3);
+        assertThat(index.select(null, null, MIDNIGHT, null).toArray()).containsExactly(0);
+        assertThat(index.select(null, MIDNIGHT + DAY, MIDNIGHT + DAY, null).isEmpty()).isTrue();
+    }
+
+    @Test
+    void ordinalAtOrAfterHandlesBothEnds() {
+        TemporalIndex index = index();
+
+        assertThat(index.ordinalAtOrAfter(Long.MIN_VALUE)).isZero();
+        assertThat(index.ordinalAtOrAfter(MIDNIGHT)).isEqualTo(1);
+        assertThat(index.ordinalAtOrAfter(MIDNIGHT + 1)).isEqualTo(2);
+        assertThat(index.ordinalAtOrAfter(MIDNIGHT + DAY + 1)).isEqualTo(index.size());
+    }
+
+    @Test
+    void commitsInTheSameSecondAreOrderedBySha() {
+        TemporalIndex.Builder builder = new TemporalIndex.Builder();
+        builder.addCommit("b", MIDNIGHT, "alice");
+        builder.addCommit("a", MIDNIGHT, "alice");
+        TemporalIndex index = builder.build();
+
+        assertThat(index.sha(0)).isEqualTo("a");
+        assertThat(index.select(null, MIDNIGHT, MIDNIGHT + 1, null).getCardinality()).isEqualTo(2);
+    }
+
+    @Test
+    void pathAndAuthorFiltersIntersectTheRange() {
+        TemporalIndex index = index();
+
+        assertThat(index.select("src/api/**", MIDNIGHT, MIDNIGHT + DAY, "alice").toArray()).containsExactly(2);
+        assertThat(index.select("/src/api/", null, null, " Alice ").toArray()).containsExactly(0, 2, 3);
+        assertThat(index.select("src/api/A.java", null, null, null).toArray()).containsExactly(0, 1, 3);
+        assertThat(index.select("src/ap", null, null, null).isEmpty()).isTrue();
+        assertThat(index.select(null, null, null, "carol").isEmpty()).isTrue();
+    }
+
+    @Test
+    void topFilesRanksByTouchesWithinTheSelection() {
+        TemporalIndex index = index();
+
+        assertThat(index.topFiles("src", index.select(null, null, null, null), 10)).containsExactly(
+                new TemporalIndex.FileTouches("src/api/A.java", 3),
+                new TemporalIndex.FileTouches("src/api/B.java", 1));
+        assertThat(index.topFiles("", index.select(null, MIDNIGHT, MIDNIGHT + DAY, null), 1)).containsExactly(
+                new TemporalIndex.FileTouches("docs/README.md", 1));
+        assertThat(index.newest(index.select(null, null, null, "alice"), 2)).containsExactly(3, 2);
+    }
+}
@@ -0,0 +1,101 @@
+package com.archeologist.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveLimiterTest {
+
+    private static AdaptiveLimiter limiter(int initial, int min, int max) {
+        return new AdaptiveLimiter("test", initial, min, max, 0, new SimpleMeterRegistry());
+    }
+
+    private static void fail(AdaptiveLimiter limiter, Exception error) {
+        assertThatThrownBy(() -> limiter.call(() -> {
+            throw error;
+        }, false)).isSameAs(error);
+    }
+
+    @Test
+    void growsByOneWhileAtLeastHalfTheWindowIsUsed() throws Exception {
+        AdaptiveLimiter limiter = limiter(1, 1, 10);
+
+        limiter.call(() -> null, false);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        limiter.call(() -> null, false);
+        assertThat(limiter.getLimit()).isEqualTo(3);
+        // One call in a window of three is not enough load to justify a larger window
+        limiter.call(() -> null, false);
+        assertThat(limiter.getLimit()).isEqualTo(3);
+
+        // Two nested calls use two of three slots: the inner one grows the window
+        limiter.call(() -> limiter.call(() -> null, false), false);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void neverGrowsPastTheMaximum() throws Exception {
+        AdaptiveLimiter limiter = limiter(2, 1, 2);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.call(() -> null, false);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void shrinksMultiplicativelyOnOverloadDownToTheMinimum() {
+        AdaptiveLimiter limiter = limiter(10, 2, 10);
+
+        fail(limiter, new IllegalStateException("503"));
+        assertThat(limiter.getLimit()).isEqualTo(9);
+        fail(limiter, new IllegalStateException("503"));
+        assertThat(limiter.getLimit()).isEqualTo(8);
+        for (int i = 0; i < 30; i++) {
+            fail(limiter, new IllegalStateException("503"));
+        }
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void missingResourcesAndBadInputDoNotShrink() {
+        AdaptiveLimiter limiter = limiter(3, 1, 10);
+
+        fail(limiter, new FileNotFoundException("gone"));
+        fail(limiter, new IllegalArgumentException("bad"));
+        assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void slowCallShrinksOnlyWhenLatencyIsASignal() throws Exception {
+        AdaptiveLimiter limiter = limiter(10, 1, 10);
+        limiter.call(() -> null);
+        assertThat(limiter.getLimit()).isEqualTo(10);
+
+        limiter.call(() -> {
+            Thread.sleep(50);
+            return null;
+        }, false);
+        assertThat(limiter.getLimit()).isEqualTo(10);
+
+        limiter.call(() -> {
+            Thread.sleep(50);
+            return null;
+        });
+        assertThat(limiter.getLimit()).isEqualTo(9);
+    }
+
+    @Test
+    void rejectsOnceTheWindowIsFullAndTheWaitIsOver() {
+        AdaptiveLimiter limiter = limiter(1, 1, 1);
+
+        assertThatThrownBy(() -> limiter.call(() -> limiter.call(() -> null, false), false))
+                .isInstanceOf(LimitExceededException.class);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+}
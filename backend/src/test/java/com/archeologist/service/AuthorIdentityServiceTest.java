@@ -0,0 +1,40 @@
+package com.archeologist.service;
+
+import com.archeologist.analytics.CommitRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthorIdentityServiceTest {
+
+    private static List<String> aliases(String name, String email) {
+        return AuthorIdentityService.aliases(new CommitRecord("sha", name, email, null, null, List.of(), null));
+    }
+
+    @Test
+    void noreplyAddressYieldsTheLoginBeforeTheEmail() {
+        assertThat(aliases("Octo Cat", "12345+OctoCat@users.noreply.github.com"))
+                .containsExactly("login:octocat", "email:12345+octocat@users.noreply.github.com");
+        assertThat(aliases("Octo Cat", "octocat@users.noreply.github.com"))
+                .containsExactly("login:octocat", "email:octocat@users.noreply.github.com");
+    }
+
+    @Test
+    void nameIsNotAnAliasWhenThereIsAnEmail() {
+        assertThat(aliases("John Smith", " John.Smith@Example.com ")).containsExactly("email:john.smith@example.com");
+        assertThat(aliases("John Smith", "jsmith@other.org")).doesNotContain("name:john smith");
+    }
+
+    @Test
+    void nameIsTheAliasOnlyWithoutEmail() {
+        assertThat(aliases(" John Smith ", "")).containsExactly("name:john smith");
+        assertThat(aliases("", "  ")).isEmpty();
+    }
+
+    @Test
+    void otherGithubAddressesAreOnlyEmails() {
+        assertThat(aliases("Bot", "noreply@github.com")).containsExactly("email:noreply@github.com");
+    }
+}
@@ -0,0 +1,198 @@
+package com.archeologist.service;
+
+import com.archeologist.entity.CodeAnalysis;
+import com.archeologist.repository.CodeAnalysisRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Claim, lease, checkpoint and failure handling of the embedding queue against a real Postgres (the queue
+ * relies on {@code FOR UPDATE SKIP LOCKED} and jsonb). Skipped where Docker is not available.
+ */
+@DataJpaTest
+@Testcontainers(disabledWithoutDocker = true)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(EmbeddingQueueService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@TestPropertySource(properties = {
+        "app.node-id=node-a",
+        "app.embedding.chunk-size=2",
+        "app.embedding.max-attempts=2",
+        "app.embedding.dedup.enabled=false",
+        "app.embedding.queue.max-open-chunks=10",
+        "app.embedding.queue.max-open-chunks-per-client=3",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class EmbeddingQueueServiceTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(
+            DockerImageName.parse("pgvector/pgvector:pg16").asCompatibleSubstituteFor("postgres"))
+            .withInitScript("queue-test-init.sql");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private EmbeddingQueueService queue;
+
+    @Autowired
+    private CodeAnalysisRepository codeAnalysisRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private CodeAnalysis analysis;
+
+    @BeforeEach
+    void createAnalysis() {
+        analysis = codeAnalysisRepository.save(new CodeAnalysis("https://github.com/octo/repo", "completed"));
+    }
+
+    private static List<Map<String, Object>> commits(int from, int count) {
+        List<Map<String, Object>> commits = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            commits.add(Map.of("sha", "sha" + i, "message", "commit number " + i));
+        }
+        return commits;
+    }
+
+    /** status, attempts, checkpoint, lease_owner, chunk_index */
+    private Object[] task(Long id) {
+        return (Object[]) entityManager.createNativeQuery(
+                        "SELECT status, attempts, checkpoint, lease_owner, chunk_index FROM embedding_tasks WHERE id = :id")
+                .setParameter("id", id)
+                .getSingleResult();
+    }
+
+    private void expireLease(Long id) {
+        entityManager.createNativeQuery(
+                        "UPDATE embedding_tasks SET lease_expires_at = NOW() - INTERVAL '1 minute' WHERE id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    @Test
+    void claimsPendingChunksInQueueOrderSkippingExcludedClients() throws Exception {
+        queue.enqueue(analysis, commits(0, 4), "alice");
+        CodeAnalysis other = codeAnalysisRepository.save(new CodeAnalysis("https://github.com/octo/other", "completed"));
+        queue.enqueue(other, commits(10, 2), "bob");
+
+        List<Long> claimed = queue.claim(5, List.of("bob"));
+
+        assertThat(claimed).hasSize(2).isSorted();
+        assertThat(task(claimed.get(0))).containsExactly("RUNNING", 1, 0, "node-a", 0);
+        assertThat(queue.claim(5, List.of("bob"))).isEmpty();
+        assertThat(queue.claim(5, List.of())).hasSize(1);
+    }
+
+    @Test
+    void expiredLeaseIsReclaimedWithItsCheckpoint() throws Exception {
+        queue.enqueue(analysis, commits(0, 2), "alice");
+        Long id = queue.claim(1, List.of()).get(0);
+        assertThat(queue.checkpoint(id, 1)).isTrue();
+
+        assertThat(queue.claim(1, List.of())).isEmpty();
+        expireLease(id);
+        assertThat(queue.claim(1, List.of())).containsExactly(id);
+        assertThat(task(id)).containsExactly("RUNNING", 2, 1, "node-a", 0);
+    }
+
+    @Test
+    void expiredLeaseOnTheFinalAttemptIsParkedAsFailed() throws Exception {
+        queue.enqueue(analysis, commits(0, 2), "alice");
+        Long id = queue.claim(1, List.of()).get(0);
+        expireLease(id);
+        queue.claim(1, List.of());
+        expireLease(id);
+
+        assertThat(queue.claim(1, List.of())).isEmpty();
+        assertThat(task(id)[0]).isEqualTo("FAILED");
+    }
+
+    @Test
+    void checkpointIsRefusedWithoutTheLease() throws Exception {
+        queue.enqueue(analysis, commits(0, 2), "alice");
+        Long id = queue.claim(1, List.of()).get(0);
+        entityManager.createNativeQuery("UPDATE embedding_tasks SET lease_owner = 'node-b' WHERE id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+
+        assertThat(queue.checkpoint(id, 2)).isFalse();
+        assertThat(task(id)[2]).isEqualTo(0);
+    }
+
+    @Test
+    void failKeepsTheCheckpointAndParksAfterTheLastAttempt() throws Exception {
+        queue.enqueue(analysis, commits(0, 2), "alice");
+        Long id = queue.claim(1, List.of()).get(0);
+        queue.checkpoint(id, 1);
+
+        queue.fail(id, "boom");
+        assertThat(task(id)).containsExactly("PENDING", 1, 1, null, 0);
+
+        assertThat(queue.claim(1, List.of())).containsExactly(id);
+        queue.fail(id, "boom again");
+        assertThat(task(id)[0]).isEqualTo("FAILED");
+    }
+
+    @Test
+    void releaseDoesNotChargeAnAttempt() throws Exception {
+        queue.enqueue(analysis, commits(0, 2), "alice");
+        Long id = queue.claim(1, List.of()).get(0);
+
+        queue.release(id);
+        assertThat(task(id)).containsExactly("PENDING", 0, 0, null, 0);
+    }
+
+    @Test
+    void reEnqueueReplacesPendingChunksAndSkipsRunningCommits() throws Exception {
+        queue.enqueue(analysis, commits(0, 4), "alice");
+        Long running = queue.claim(1, List.of()).get(0);
+
+        assertThat(queue.enqueue(analysis, commits(0, 6), "alice")).isEqualTo(2);
+        List<?> open = entityManager.createNativeQuery(
+                        "SELECT chunk_index FROM embedding_tasks WHERE code_analysis_id = :analysisId AND status = 'PENDING' ORDER BY chunk_index")
+                .setParameter("analysisId", analysis.getId())
+                .getResultList();
+        assertThat(new ArrayList<Object>(open)).containsExactly(2, 3);
+        assertThat(task(running)[0]).isEqualTo("RUNNING");
+    }
+
+    @Test
+    void rejectsEnqueuesBeyondTheClientBound() throws Exception {
+        queue.enqueue(analysis, commits(0, 6), "alice");
+        CodeAnalysis other = codeAnalysisRepository.save(new CodeAnalysis("https://github.com/octo/other", "completed"));
+
+        assertThatThrownBy(() -> queue.enqueue(other, commits(10, 2), "alice"))
+                .isInstanceOf(AdmissionRejectedException.class);
+        assertThatThrownBy(() -> queue.checkCapacity("alice")).isInstanceOf(AdmissionRejectedException.class);
+        queue.checkCapacity("bob");
+    }
+}
@@ -0,0 +1,2 @@
+-- The vector type must exist before Hibernate creates the embedding tables
+CREATE EXTENSION IF NOT EXISTS vector;
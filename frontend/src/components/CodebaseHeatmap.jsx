@@ -1,18 +1,28 @@
-import React, { useEffect, useRef } from "react";
+import React, { useEffect, useRef, useState } from "react";
 import axios from "axios";
 import * as d3 from "d3";
 
 const CodebaseHeatmap = ({ analysisId }) => {
   const heatmapRef = useRef(null);
+  const [root, setRoot] = useState("");
 
   useEffect(() => {
     const fetchData = async () => {
       try {
-        const response = await axios.get(`${import.meta.env.VITE_REACT_APP_API_URL}/api/codebase-heatmap?analysisId=${analysisId}`, {
+        const response = await axios.get(`${import.meta.env.VITE_REACT_APP_API_URL}/api/codebase-heatmap`, {
           withCredentials: true,
+          params: { analysisId, root, depth: 2, topN: 20 },
         });
 
         if (response.data.status === "success" && response.data.data) {
+          // Server-side directory tree, already pruned to the busiest entries
+          if (typeof response.data.data === "object") {
+            if (response.data.data.path !== undefined) {
+              renderHeatmap(toHierarchy(response.data.data));
+            }
+            return;
+          }
+
           const fileChanges = JSON.parse(response.data.data);
 
           if (typeof fileChanges === "object" && Object.keys(fileChanges).length > 0) {
@@ -27,6 +37,23 @@ const CodebaseHeatmap = ({ analysisId }) => {
       }
     };
 
+    // Directories cut off by depth or topN become leaves that can be clicked to drill down
+    const toHierarchy = (node) => {
+      if (node.file || !node.children || node.children.length === 0) {
+        return { name: node.name, path: node.path, value: node.changes, drillable: !node.file };
+      }
+      const children = node.children.map(toHierarchy);
+      if (node.otherChanges > 0) {
+        children.push({
+          name: `${node.childCount - node.children.length} more`,
+          path: node.path,
+          value: node.otherChanges,
+          drillable: true,
+        });
+      }
+      return { name: node.name || "root", path: node.path, children };
+    };
+
     const buildHierarchy = (fileChanges) => {
       const root = { name: "root", children: [] };
 
@@ -82,8 +109,14 @@ const CodebaseHeatmap = ({ analysisId }) => {
         .attr("width", (d) => d.x1 - d.x0)
         .attr("height", (d) => d.y1 - d.y0)
         .attr("fill", (d) => color(d.value))
+        .style("cursor", (d) => (d.data.drillable ? "pointer" : "default"))
+        .on("click", (event, d) => {
+          if (d.data.drillable) {
+            setRoot(d.data.path);
+          }
+        })
         .append("title")
-        .text((d) => `${d.data.name}: ${d.value} changes`);
+        .text((d) => `${d.data.path || d.data.name}: ${d.value} changes`);
 
       // Labels (only if space permits)
       svg
@@ -104,11 +137,22 @@ const CodebaseHeatmap = ({ analysisId }) => {
     if (analysisId) {
       fetchData();
     }
-  }, [analysisId]);
+  }, [analysisId, root]);
 
   return (
     <div className="flex flex-col items-center space-y-5 p-4">
       <h2 className="text-2xl font-semibold text-center mb-4 text-gray-800">Codebase Heatmap</h2>
+      {root && (
+        <div className="flex items-center gap-3 text-sm text-gray-700">
+          <span className="font-mono">/{root}</span>
+          <button
+            onClick={() => setRoot(root.includes("/") ? root.substring(0, root.lastIndexOf("/")) : "")}
+            className="px-3 py-1 rounded-md bg-gray-100 hover:bg-gray-200"
+          >
+            Up
+          </button>
+        </div>
+      )}
       <svg ref={heatmapRef} className="w-full max-w-6xl border border-gray-200 rounded-md shadow-sm" />
 
       {/* Legend */}
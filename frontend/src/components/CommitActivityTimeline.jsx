@@ -27,6 +27,7 @@ const CommitActivityTimeline = ({ analysisId }) => {
   const [chartData, setChartData] = useState(null);
   const [isLoading, setIsLoading] = useState(true);
   const [error, setError] = useState(null);
+  const [granularity, setGranularity] = useState("week");
 
   const chartOptions = {
     responsive: true,
@@ -47,24 +48,15 @@ const CommitActivityTimeline = ({ analysisId }) => {
     },
   };
 
-  const prepareChartData = (commits) => {
-    if (!commits.length) return null;
-
-    const commitsPerDay = {};
-    commits.forEach((commit) => {
-      const dateStr = new Date(commit.author.date).toLocaleDateString();
-      commitsPerDay[dateStr] = (commitsPerDay[dateStr] || 0) + 1;
-    });
-
-    const labels = Object.keys(commitsPerDay);
-    const data = Object.values(commitsPerDay);
+  const prepareChartData = (buckets) => {
+    if (!buckets.length) return null;
 
     return {
-      labels,
+      labels: buckets.map((bucket) => bucket.date),
       datasets: [
         {
-          label: "Commits per Day",
-          data,
+          label: `Commits per ${granularity.charAt(0).toUpperCase()}${granularity.slice(1)}`,
+          data: buckets.map((bucket) => bucket.commits),
           borderColor: "#2196F3",
           tension: 0.1,
           fill: false,
@@ -77,7 +69,7 @@ const CommitActivityTimeline = ({ analysisId }) => {
     try {
       const response = await axios.get(`${import.meta.env.VITE_REACT_APP_API_URL}/api/commit-activity-timeline`, {
         withCredentials: true,
-        params: { analysisId },
+        params: { analysisId, granularity },
       });
 
       if (response.data.status === "success") {
@@ -106,7 +98,7 @@ const CommitActivityTimeline = ({ analysisId }) => {
 
   useEffect(() => {
     fetchData();
-  }, [analysisId]);
+  }, [analysisId, granularity]);
 
   return (
     <div className="max-w-4xl mx-auto p-6 bg-white shadow-md rounded-2xl mt-6">
@@ -114,6 +106,20 @@ const CommitActivityTimeline = ({ analysisId }) => {
         Commit Activity Timeline
       </h2>
 
+      <div className="flex justify-center gap-2 mb-4">
+        {["day", "week", "month"].map((option) => (
+          <button
+            key={option}
+            onClick={() => setGranularity(option)}
+            className={`px-3 py-1 rounded-md text-sm ${
+              granularity === option ? "bg-blue-500 text-white" : "bg-gray-100 text-gray-700"
+            }`}
+          >
+            {option.charAt(0).toUpperCase() + option.slice(1)}
+          </button>
+        ))}
+      </div>
+
       {error && <div className="text-center text-red-500 italic">{error}</div>}
 
       {isLoading && (
@@ -6,8 +6,20 @@ const ContributorStatistics = ({ analysisId }) => {
   const [isLoading, setIsLoading] = useState(true);
   const [error, setError] = useState(null);
 
+  const [churn, setChurn] = useState([]);
+
   const fetchData = async () => {
     try {
+      // Churn aggregated at ingest; analyses without it fall back to GitHub's contribution counts
+      const churnResponse = await axios.get(`${import.meta.env.VITE_REACT_APP_API_URL}/api/author-churn`, {
+        withCredentials: true,
+        params: { analysisId },
+      });
+      if (churnResponse.data.status === "success" && churnResponse.data.data?.length > 0) {
+        setChurn(churnResponse.data.data);
+        return;
+      }
+
       const response = await axios.get(`${import.meta.env.VITE_REACT_APP_API_URL}/api/contributor-statistics`, {
         withCredentials: true,
         params: { analysisId },
@@ -45,6 +57,36 @@ const ContributorStatistics = ({ analysisId }) => {
         <div className="text-center text-gray-500 italic mt-4">
           Loading contributor statistics...
         </div>
+      ) : churn.length > 0 ? (
+        <div className="overflow-x-auto mt-4">
+          <table className="min-w-full border border-gray-200">
+            <thead>
+              <tr className="bg-gray-100">
+                {["Contributor", "Commits", "Lines Added", "Lines Removed", "Files Touched", "Active"].map((heading) => (
+                  <th key={heading} className="px-4 py-2 text-left font-semibold text-gray-700 border-b">
+                    {heading}
+                  </th>
+                ))}
+              </tr>
+            </thead>
+            <tbody>
+              {churn.map((author) => (
+                <tr key={author.author} className="hover:bg-gray-50 transition-colors">
+                  <td className="px-4 py-2 border-b text-gray-800" title={author.author}>
+                    {author.name || author.author}
+                  </td>
+                  <td className="px-4 py-2 border-b text-gray-800">{author.commits}</td>
+                  <td className="px-4 py-2 border-b text-green-700">+{author.additions}</td>
+                  <td className="px-4 py-2 border-b text-red-700">-{author.deletions}</td>
+                  <td className="px-4 py-2 border-b text-gray-800">{author.filesTouched}</td>
+                  <td className="px-4 py-2 border-b text-gray-600 text-sm">
+                    {author.firstCommitAt?.substring(0, 10)} – {author.lastCommitAt?.substring(0, 10)}
+                  </td>
+                </tr>
+              ))}
+            </tbody>
+          </table>
+        </div>
       ) : contributors.length === 0 ? (
         <div className="text-center text-gray-500 italic mt-4">
           No contributor data available.
@@ -116,6 +116,26 @@ const DependencyGraph = ({ analysisId }) => {
 
     nodes.push({ data: { id: root, label: root } });
 
+    // One node per manifest; a package declared by several manifests of an ecosystem is shared between them
+    if (Array.isArray(data.manifests)) {
+      const packages = new Set();
+      data.manifests.forEach((manifest) => {
+        const manifestId = `manifest:${manifest.path}`;
+        nodes.push({ data: { id: manifestId, label: manifest.path } });
+        edges.push({ data: { source: root, target: manifestId } });
+
+        Object.keys(manifest.dependencies).forEach((pkg) => {
+          const pkgId = `${manifest.ecosystem}:${pkg}`;
+          if (!packages.has(pkgId)) {
+            packages.add(pkgId);
+            nodes.push({ data: { id: pkgId, label: `${pkg} ${manifest.dependencies[pkg]}` } });
+          }
+          edges.push({ data: { source: manifestId, target: pkgId } });
+        });
+      });
+      return { nodes, edges };
+    }
+
     Object.keys(data).forEach((pkg) => {
       nodes.push({ data: { id: pkg, label: `${pkg} ${data[pkg]}` } });
       edges.push({ data: { source: root, target: pkg } });
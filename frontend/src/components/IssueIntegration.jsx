@@ -1,25 +1,35 @@
 import React, { useEffect, useState } from "react";
 import axios from "axios";
 
+const PAGE_SIZE = 50;
+
 const IssueIntegration = ({ analysisId }) => {
   const [issues, setIssues] = useState([]);
+  const [page, setPage] = useState(0);
+  // Total issues when the backend pages them; null for the unpaged list of older analyses
+  const [total, setTotal] = useState(null);
   const [isLoading, setIsLoading] = useState(true);
   const [error, setError] = useState(null);
 
   const fetchIssues = async () => {
+    setIsLoading(true);
+    setError(null);
     try {
       const response = await axios.get(`${import.meta.env.VITE_REACT_APP_API_URL}/api/linked-issues`, {
         withCredentials: true,
-        params: { analysisId },
+        params: { analysisId, page, size: PAGE_SIZE },
       });
       const fetched = response.data?.data;
       
       if (Array.isArray(fetched)) {
         setIssues(fetched);
+        setTotal(null);
       } else if (Array.isArray(response.data)) {
         setIssues(response.data);
+        setTotal(null);
       } else if (Array.isArray(fetched?.issues)) {
         setIssues(fetched.issues);
+        setTotal(fetched.total ?? null);
       } else {
         console.warn("Unexpected issues response:", response.data);
         setIssues([]);
@@ -33,9 +43,15 @@ const IssueIntegration = ({ analysisId }) => {
   };
 
   useEffect(() => {
-    fetchIssues();
+    setPage(0);
   }, [analysisId]);
 
+  useEffect(() => {
+    fetchIssues();
+  }, [analysisId, page]);
+
+  const pageCount = total ? Math.ceil(total / PAGE_SIZE) : 1;
+
   return (
     <div className="max-w-4xl mx-auto mt-8 p-6 bg-white shadow rounded-lg">
       <h2 className="text-2xl font-semibold text-center text-gray-800 mb-6">
@@ -53,30 +69,65 @@ const IssueIntegration = ({ analysisId }) => {
       ) : (
         <ul className="divide-y divide-gray-200">
           {issues.map((issue) => (
-            <li key={issue.id} className="py-3 flex justify-between items-center">
-              <a
-                href={issue.html_url}
-                target="_blank"
-                rel="noopener noreferrer"
-                className="text-blue-600 hover:underline font-medium"
-              >
-                {issue.title}
-              </a>
-              <span
-                className={`px-3 py-1 rounded-full text-xs font-semibold text-white ${
-                  issue.state === "open"
-                    ? "bg-green-600"
-                    : issue.state === "closed"
-                    ? "bg-red-600"
-                    : "bg-gray-500"
-                }`}
-              >
-                {issue.state}
-              </span>
+            <li key={issue.number ?? issue.id} className="py-3">
+              <div className="flex justify-between items-center">
+                <a
+                  href={issue.url || issue.html_url}
+                  target="_blank"
+                  rel="noopener noreferrer"
+                  className="text-blue-600 hover:underline font-medium"
+                >
+                  {issue.number ? `#${issue.number} ` : ""}{issue.title}
+                </a>
+                <span
+                  className={`px-3 py-1 rounded-full text-xs font-semibold text-white ${
+                    issue.state === "open"
+                      ? "bg-green-600"
+                      : issue.state === "closed"
+                      ? "bg-red-600"
+                      : "bg-gray-500"
+                  }`}
+                >
+                  {issue.state}
+                </span>
+              </div>
+              {issue.commits?.length > 0 && (
+                <ul className="mt-2 ml-4 space-y-1 text-sm text-gray-600">
+                  {issue.commits.map((commit) => (
+                    <li key={commit.commitHash}>
+                      <span className="font-mono text-gray-500">{commit.commitHash.substring(0, 7)}</span>{" "}
+                      {commit.closes && <span className="text-green-700 font-semibold">closes </span>}
+                      {commit.message?.split("\n")[0]}
+                    </li>
+                  ))}
+                </ul>
+              )}
             </li>
           ))}
         </ul>
       )}
+
+      {!error && pageCount > 1 && (
+        <div className="flex justify-center items-center gap-4 mt-6">
+          <button
+            onClick={() => setPage(page - 1)}
+            disabled={isLoading || page === 0}
+            className="px-3 py-1 rounded-md text-sm bg-gray-100 text-gray-700 hover:bg-gray-200 disabled:opacity-50 disabled:cursor-not-allowed"
+          >
+            Previous
+          </button>
+          <span className="text-sm text-gray-600">
+            Page {page + 1} of {pageCount} ({total} issues)
+          </span>
+          <button
+            onClick={() => setPage(page + 1)}
+            disabled={isLoading || page + 1 >= pageCount}
+            className="px-3 py-1 rounded-md text-sm bg-gray-100 text-gray-700 hover:bg-gray-200 disabled:opacity-50 disabled:cursor-not-allowed"
+          >
+            Next
+          </button>
+        </div>
+      )}
     </div>
   );
 };